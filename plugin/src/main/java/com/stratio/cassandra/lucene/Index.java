@@ -110,6 +110,18 @@ public class Index extends PerRowSecondaryIndex {
             // Build row mapper
             rowService = RowService.build(baseCfs, columnDefinition);
 
+            // Index again the partitions whose uncommitted changes could have been lost
+            try {
+                rowService.replayJournal();
+            } catch (Exception e) {
+                Log.error(e, "Error while replaying the indexing journal of Lucene index %s", logName);
+            }
+
+            // Resume the interrupted parallel rebuild, unless Cassandra is going to build the index
+            if (rowService.isRebuildPending() && isIndexBuilt(columnDefinition.name.bytes)) {
+                rowService.startRebuild();
+            }
+
             Log.info("Initialized index %s", logName);
         } catch (Exception e) {
             Log.error(e, "Error while initializing Lucene index %s", logName);
@@ -156,7 +168,7 @@ public class Index extends PerRowSecondaryIndex {
 
     @Override
     public boolean indexes(CellName cellName) {
-        return true;
+        return rowService == null || rowService.indexes(cellName);
     }
 
     @Override
@@ -240,11 +252,35 @@ public class Index extends PerRowSecondaryIndex {
     public void reload() {
     }
 
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * If the index is configured with rebuilding threads, or there is an interrupted parallel rebuild, the index is
+     * built in parallel by token ranges instead of using Cassandra's sequential index builder.
+     */
+    @Override
+    protected void buildIndexBlocking() {
+        if (rowService == null || !rowService.isParallelRebuild()) {
+            super.buildIndexBlocking();
+            return;
+        }
+        Log.info("Rebuilding Lucene index %s in parallel", logName);
+        try {
+            rowService.rebuild();
+            forceBlockingFlush();
+            setIndexBuilt();
+            Log.info("Rebuilt Lucene index %s", logName);
+        } catch (Exception e) {
+            Log.error(e, "Error while rebuilding Lucene index %s", logName);
+            throw new RuntimeException(e);
+        }
+    }
+
     @Override
     public void forceBlockingFlush() {
         Log.info("Flushing Lucene index %s", logName);
         try {
-            rowService.commit();
+            rowService.flush();
             Log.info("Flushed Lucene index %s", logName);
         } catch (Exception e) {
             Log.error(e, "Error while flushing Lucene index %s", logName);
@@ -37,6 +37,9 @@ public class IndexConfig {
     public static final String REFRESH_SECONDS_OPTION = "refresh_seconds";
     public static final double DEFAULT_REFRESH_SECONDS = 60;
 
+    public static final String MIN_REFRESH_SECONDS_OPTION = "min_refresh_seconds";
+    public static final double DEFAULT_MIN_REFRESH_SECONDS = 0.1;
+
     public static final String DIRECTORY_PATH_OPTION = "directory_path";
     public static final String INDEXES_DIR_NAME = "lucene";
 
@@ -49,20 +52,155 @@ public class IndexConfig {
     public static final String MAX_CACHED_MB_OPTION = "max_cached_mb";
     public static final int DEFAULT_MAX_CACHED_MB = 30;
 
+    public static final String DIRECTORY_TYPE_OPTION = "directory_type";
+    public static final DirectoryType DEFAULT_DIRECTORY_TYPE = DirectoryType.AUTO;
+
+    public static final String NRT_CACHING_OPTION = "nrt_caching";
+    public static final boolean DEFAULT_NRT_CACHING = true;
+
+    public static final String MMAP_CHUNK_MB_OPTION = "mmap_chunk_mb";
+    public static final int DEFAULT_MMAP_CHUNK_MB = 0;
+    public static final int MAX_MMAP_CHUNK_MB = 1024;
+
     public static final String INDEXING_THREADS_OPTION = "indexing_threads";
     public static final int DEFAULT_INDEXING_THREADS = 0;
 
     public static final String INDEXING_QUEUES_SIZE_OPTION = "indexing_queues_size";
     public static final int DEFAULT_INDEXING_QUEUES_SIZE = 50;
 
+    public static final String REBUILD_THREADS_OPTION = "rebuild_threads";
+    public static final int DEFAULT_REBUILD_THREADS = 0;
+
+    public static final String SHARDS_OPTION = "shards";
+    public static final int DEFAULT_SHARDS = 1;
+
+    public static final String MAX_SEARCH_CACHE_MB_OPTION = "max_search_cache_mb";
+    public static final int DEFAULT_MAX_SEARCH_CACHE_MB = 8;
+
+    public static final String MAX_FILTER_CACHE_MB_OPTION = "max_filter_cache_mb";
+    public static final int DEFAULT_MAX_FILTER_CACHE_MB = 32;
+
+    public static final String WARMING_QUERIES_OPTION = "warming_queries";
+    public static final int DEFAULT_WARMING_QUERIES = 0;
+
+    public static final String SEARCH_PREFETCH_PAGES_OPTION = "search_prefetch_pages";
+    public static final int DEFAULT_SEARCH_PREFETCH_PAGES = 0;
+
+    public static final String SEARCH_READ_THREADS_OPTION = "search_read_threads";
+    public static final int DEFAULT_SEARCH_READ_THREADS = 0;
+
+    public static final String INDEXING_FROM_MUTATION_OPTION = "indexing_from_mutation";
+    public static final boolean DEFAULT_INDEXING_FROM_MUTATION = false;
+
+    public static final String INDEXING_JOURNAL_OPTION = "indexing_journal";
+    public static final boolean DEFAULT_INDEXING_JOURNAL = false;
+
+    public static final String COMMIT_POLICY_OPTION = "commit_policy";
+    public static final CommitPolicy DEFAULT_COMMIT_POLICY = CommitPolicy.FLUSH;
+
+    public static final String COMMIT_INTERVAL_SECONDS_OPTION = "commit_interval_seconds";
+    public static final double DEFAULT_COMMIT_INTERVAL_SECONDS = 60;
+    public static final double DEFAULT_FLUSH_COMMIT_INTERVAL_SECONDS = 0;
+
+    public static final String COMMIT_MB_OPTION = "commit_mb";
+    public static final int DEFAULT_COMMIT_MB = 128;
+
+    public static final String MERGE_SEGMENTS_PER_TIER_OPTION = "merge_segments_per_tier";
+    public static final double DEFAULT_MERGE_SEGMENTS_PER_TIER = 10;
+
+    public static final String MERGE_MAX_SEGMENT_MB_OPTION = "merge_max_segment_mb";
+    public static final int DEFAULT_MERGE_MAX_SEGMENT_MB = 5120;
+
+    public static final String MERGE_DELETES_PCT_ALLOWED_OPTION = "merge_deletes_pct_allowed";
+    public static final double DEFAULT_MERGE_DELETES_PCT_ALLOWED = 10;
+
+    public static final String MERGE_THREADS_OPTION = "merge_threads";
+    public static final int DEFAULT_MERGE_THREADS = 0;
+
+    public static final String MAX_MERGES_OPTION = "max_merges";
+    public static final int DEFAULT_MAX_MERGES = 0;
+
+    public static final String MERGE_THROTTLE_OPTION = "merge_throttle";
+    public static final MergeThrottle DEFAULT_MERGE_THROTTLE = MergeThrottle.AUTO;
+
+    /**
+     * The policies deciding when the index changes are committed.
+     */
+    public enum CommitPolicy {
+
+        /** Commit when Cassandra flushes the memtables, but not more often than the commit interval. */
+        FLUSH,
+
+        /** Commit in background each commit interval, ignoring the memtable flushes. */
+        TIME,
+
+        /** Commit in background when the indexed mutations since the last commit reach a size. */
+        BYTES
+    }
+
+    /**
+     * The implementations of the Lucene directory where the index files are stored.
+     */
+    public enum DirectoryType {
+
+        /** Let Lucene choose the best implementation for the platform, which is memory mapping on 64-bit JREs. */
+        AUTO,
+
+        /** Memory map the index files, leaving their caching to the operating system. */
+        MMAP,
+
+        /** Memory map the index files and load them into physical memory when they are opened. */
+        MMAP_PRELOAD,
+
+        /** Read the index files with NIO positional reads, without mapping them. */
+        NIO
+    }
+
+    /**
+     * The policies limiting the IO rate of the index merges.
+     */
+    public enum MergeThrottle {
+
+        /** Let Lucene adapt the merges IO rate to the merge backlog. */
+        AUTO,
+
+        /** Share Cassandra's compaction throughput among the running merges. */
+        COMPACTION,
+
+        /** Don't limit the merges IO rate. */
+        NONE
+    }
+
     private final Schema schema;
     private final double refreshSeconds;
+    private final double minRefreshSeconds;
     private final Path path;
     private final int ramBufferMB;
     private final int maxMergeMB;
     private final int maxCachedMB;
+    private final DirectoryType directoryType;
+    private final boolean nrtCaching;
+    private final int mmapChunkMB;
     private final int indexingThreads;
     private final int indexingQueuesSize;
+    private final int rebuildThreads;
+    private final int shards;
+    private final int maxSearchCacheMB;
+    private final int maxFilterCacheMB;
+    private final int warmingQueries;
+    private final int searchPrefetchPages;
+    private final int searchReadThreads;
+    private final boolean indexingFromMutation;
+    private final boolean indexingJournal;
+    private final CommitPolicy commitPolicy;
+    private final double commitIntervalSeconds;
+    private final int commitMB;
+    private final double mergeSegmentsPerTier;
+    private final int mergeMaxSegmentMB;
+    private final double mergeDeletesPctAllowed;
+    private final int mergeThreads;
+    private final int maxMerges;
+    private final MergeThrottle mergeThrottle;
 
     /**
      * Builds a new {@link IndexConfig} for the column family defined by the specified metadata using the specified
@@ -73,11 +211,34 @@ public class IndexConfig {
      */
     public IndexConfig(CFMetaData metadata, Map<String, String> options) {
         refreshSeconds = parseRefresh(options);
+        minRefreshSeconds = parseMinRefresh(options, refreshSeconds);
         ramBufferMB = parseRamBufferMB(options);
         maxMergeMB = parseMaxMergeMB(options);
         maxCachedMB = parseMaxCachedMB(options);
+        directoryType = parseDirectoryType(options);
+        nrtCaching = parseNRTCaching(options);
+        mmapChunkMB = parseMmapChunkMB(options);
         indexingThreads = parseIndexingThreads(options);
         indexingQueuesSize = parseIndexingQueuesSize(options);
+        rebuildThreads = parseRebuildThreads(options);
+        shards = parseShards(options);
+        maxSearchCacheMB = parseMaxSearchCacheMB(options);
+        maxFilterCacheMB = parseMaxFilterCacheMB(options);
+        warmingQueries = parseWarmingQueries(options);
+        searchPrefetchPages = parseSearchPrefetchPages(options);
+        searchReadThreads = parseSearchReadThreads(options);
+        indexingFromMutation = parseIndexingFromMutation(options);
+        indexingJournal = parseIndexingJournal(options);
+        commitPolicy = parseCommitPolicy(options);
+        commitIntervalSeconds = parseCommitIntervalSeconds(options, commitPolicy);
+        commitMB = parseCommitMB(options);
+        checkCommitJournal(commitPolicy, commitIntervalSeconds, indexingJournal);
+        mergeSegmentsPerTier = parseMergeSegmentsPerTier(options);
+        mergeMaxSegmentMB = parseMergeMaxSegmentMB(options);
+        mergeDeletesPctAllowed = parseMergeDeletesPctAllowed(options);
+        mergeThreads = parseMergeThreads(options);
+        maxMerges = parseMaxMerges(options, mergeThreads);
+        mergeThrottle = parseMergeThrottle(options);
         schema = parseSchema(options, metadata);
         path = parsePath(options, metadata);
     }
@@ -102,14 +263,23 @@ public class IndexConfig {
     }
 
     /**
-     * Returns the number of seconds before refreshing the index readers.
+     * Returns the max number of seconds before refreshing the index readers to make the writes visible.
      *
-     * @return The number of seconds before refreshing the index readers.
+     * @return The max number of seconds before refreshing the index readers.
      */
     public double getRefreshSeconds() {
         return refreshSeconds;
     }
 
+    /**
+     * Returns the min number of seconds between refreshes of the index readers brought forward by searches.
+     *
+     * @return The min number of seconds between refreshes of the index readers.
+     */
+    public double getMinRefreshSeconds() {
+        return minRefreshSeconds;
+    }
+
     /**
      * Returns the size of the Lucene index writer write buffer. Its content will be committed to disk when full.
      *
@@ -127,6 +297,34 @@ public class IndexConfig {
         return maxCachedMB;
     }
 
+    /**
+     * Returns the {@link DirectoryType} of the Lucene directory where the index files are stored.
+     *
+     * @return The {@link DirectoryType}.
+     */
+    public DirectoryType getDirectoryType() {
+        return directoryType;
+    }
+
+    /**
+     * Returns if the small segments produced by flushes and merges must be cached in memory.
+     *
+     * @return {@code true} if the small segments must be cached in memory, {@code false} otherwise.
+     */
+    public boolean isNRTCaching() {
+        return nrtCaching;
+    }
+
+    /**
+     * Returns the max size in MB of the chunks in which the index files are memory mapped, where {@code 0} means
+     * Lucene's default.
+     *
+     * @return The max size in MB of the memory mapped chunks.
+     */
+    public int getMmapChunkMB() {
+        return mmapChunkMB;
+    }
+
     /**
      * Returns the number of asynchronous indexing threads, where {@code 0} means synchronous indexing.
      *
@@ -145,6 +343,177 @@ public class IndexConfig {
         return indexingQueuesSize;
     }
 
+    /**
+     * Returns the number of threads building the index from the existing data, where {@code 0} means Cassandra's
+     * sequential index builder.
+     *
+     * @return The number of index rebuilding threads.
+     */
+    public int getRebuildThreads() {
+        return rebuildThreads;
+    }
+
+    /**
+     * Returns the number of shards in which the index is split by token ranges.
+     *
+     * @return The number of index shards.
+     */
+    public int getShards() {
+        return shards;
+    }
+
+    /**
+     * Returns the max size in MB of the cache of parsed and compiled searches, where {@code 0} means no caching.
+     *
+     * @return The max size in MB of the cache of parsed and compiled searches.
+     */
+    public int getMaxSearchCacheMB() {
+        return maxSearchCacheMB;
+    }
+
+    /**
+     * Returns the max size in MB of the per-segment cache of filters, where {@code 0} means no caching.
+     *
+     * @return The max size in MB of the per-segment cache of filters.
+     */
+    public int getMaxFilterCacheMB() {
+        return maxFilterCacheMB;
+    }
+
+    /**
+     * Returns the number of recent searches to be replayed for warming each new index searcher before publishing it,
+     * where {@code 0} means no replaying.
+     *
+     * @return The number of recent searches to be replayed.
+     */
+    public int getWarmingQueries() {
+        return warmingQueries;
+    }
+
+    /**
+     * Returns the max number of pages of hits to be searched while the rows of the previous ones are being retrieved,
+     * where {@code 0} means no prefetching.
+     *
+     * @return The max number of pages of hits to be prefetched.
+     */
+    public int getSearchPrefetchPages() {
+        return searchPrefetchPages;
+    }
+
+    /**
+     * Returns the number of threads reading in parallel from Cassandra the rows of the search hits, where {@code 0}
+     * means reading them sequentially in the searching thread.
+     *
+     * @return The number of threads reading the rows of the search hits.
+     */
+    public int getSearchReadThreads() {
+        return searchReadThreads;
+    }
+
+    /**
+     * Returns if the indexed rows must be built from the written columns, reading them from Cassandra only when some
+     * mapped column has not been written.
+     *
+     * @return {@code true} if the indexed rows must be built from the written columns, {@code false} otherwise.
+     */
+    public boolean isIndexingFromMutation() {
+        return indexingFromMutation;
+    }
+
+    /**
+     * Returns if the keys of the partitions with index changes not committed yet must be written to a journal, so they
+     * can be indexed again after a crash.
+     *
+     * @return {@code true} if the uncommitted partition keys must be journaled, {@code false} otherwise.
+     */
+    public boolean isIndexingJournal() {
+        return indexingJournal;
+    }
+
+    /**
+     * Returns the {@link CommitPolicy} deciding when the index changes are committed.
+     *
+     * @return The {@link CommitPolicy}.
+     */
+    public CommitPolicy getCommitPolicy() {
+        return commitPolicy;
+    }
+
+    /**
+     * Returns the number of seconds between background commits with the {@link CommitPolicy#TIME} policy, or the min
+     * number of seconds between commits with the {@link CommitPolicy#FLUSH} policy.
+     *
+     * @return The commit interval in seconds.
+     */
+    public double getCommitIntervalSeconds() {
+        return commitIntervalSeconds;
+    }
+
+    /**
+     * Returns the size in MB of the indexed mutations triggering a background commit with the {@link
+     * CommitPolicy#BYTES} policy.
+     *
+     * @return The size in MB of the indexed mutations between commits.
+     */
+    public int getCommitMB() {
+        return commitMB;
+    }
+
+    /**
+     * Returns the number of segments of similar size allowed in each tier of the merge policy.
+     *
+     * @return The number of segments allowed per tier.
+     */
+    public double getMergeSegmentsPerTier() {
+        return mergeSegmentsPerTier;
+    }
+
+    /**
+     * Returns the max size in MB of the segments produced by the regular merges.
+     *
+     * @return The max size in MB of a merged segment.
+     */
+    public int getMergeMaxSegmentMB() {
+        return mergeMaxSegmentMB;
+    }
+
+    /**
+     * Returns the max percentage of deleted documents allowed in a segment when forcing the merge of deletions.
+     *
+     * @return The allowed percentage of deleted documents.
+     */
+    public double getMergeDeletesPctAllowed() {
+        return mergeDeletesPctAllowed;
+    }
+
+    /**
+     * Returns the max number of threads running merges at once, where {@code 0} means detecting it from the disks.
+     *
+     * @return The max number of merge threads.
+     */
+    public int getMergeThreads() {
+        return mergeThreads;
+    }
+
+    /**
+     * Returns the max number of pending and running merges before stalling the indexing, where {@code 0} means
+     * deriving it from the number of merge threads.
+     *
+     * @return The max number of merges.
+     */
+    public int getMaxMerges() {
+        return maxMerges;
+    }
+
+    /**
+     * Returns the {@link MergeThrottle} limiting the IO rate of the merges.
+     *
+     * @return The {@link MergeThrottle}.
+     */
+    public MergeThrottle getMergeThrottle() {
+        return mergeThrottle;
+    }
+
     private static double parseRefresh(Map<String, String> options) {
         String refreshOption = options.get(REFRESH_SECONDS_OPTION);
         double refreshSeconds;
@@ -166,6 +535,32 @@ public class IndexConfig {
         }
     }
 
+    private static double parseMinRefresh(Map<String, String> options, double refreshSeconds) {
+        String minRefreshOption = options.get(MIN_REFRESH_SECONDS_OPTION);
+        double minRefreshSeconds;
+        if (minRefreshOption != null) {
+            try {
+                minRefreshSeconds = Double.parseDouble(minRefreshOption);
+            } catch (NumberFormatException e) {
+                String msg = String.format("'%s' must be a strictly positive double", MIN_REFRESH_SECONDS_OPTION);
+                throw new RuntimeException(msg);
+            }
+            if (minRefreshSeconds <= 0) {
+                String msg = String.format("'%s' must be strictly positive", MIN_REFRESH_SECONDS_OPTION);
+                throw new RuntimeException(msg);
+            } else if (minRefreshSeconds > refreshSeconds) {
+                String msg = String.format("'%s' must not be greater than '%s'",
+                                           MIN_REFRESH_SECONDS_OPTION,
+                                           REFRESH_SECONDS_OPTION);
+                throw new RuntimeException(msg);
+            } else {
+                return minRefreshSeconds;
+            }
+        } else {
+            return Math.min(DEFAULT_MIN_REFRESH_SECONDS, refreshSeconds);
+        }
+    }
+
     private static int parseRamBufferMB(Map<String, String> options) {
         String ramBufferSizeOption = options.get(RAM_BUFFER_MB_OPTION);
         int ramBufferMB;
@@ -226,6 +621,55 @@ public class IndexConfig {
         }
     }
 
+    private static DirectoryType parseDirectoryType(Map<String, String> options) {
+        String directoryTypeOption = options.get(DIRECTORY_TYPE_OPTION);
+        if (directoryTypeOption != null) {
+            try {
+                return DirectoryType.valueOf(directoryTypeOption.trim().toUpperCase().replace('-', '_'));
+            } catch (IllegalArgumentException e) {
+                String msg = String.format("'%s'  must be one of 'auto', 'mmap', 'mmap-preload' or 'nio'",
+                                           DIRECTORY_TYPE_OPTION);
+                throw new RuntimeException(msg);
+            }
+        } else {
+            return DEFAULT_DIRECTORY_TYPE;
+        }
+    }
+
+    private static boolean parseNRTCaching(Map<String, String> options) {
+        String nrtCachingOption = options.get(NRT_CACHING_OPTION);
+        if (nrtCachingOption != null) {
+            String value = nrtCachingOption.trim().toLowerCase();
+            if (!value.equals("true") && !value.equals("false")) {
+                String msg = String.format("'%s'  must be a boolean", NRT_CACHING_OPTION);
+                throw new RuntimeException(msg);
+            }
+            return Boolean.parseBoolean(value);
+        } else {
+            return DEFAULT_NRT_CACHING;
+        }
+    }
+
+    private static int parseMmapChunkMB(Map<String, String> options) {
+        String mmapChunkMBOption = options.get(MMAP_CHUNK_MB_OPTION);
+        int mmapChunkMB;
+        if (mmapChunkMBOption != null) {
+            try {
+                mmapChunkMB = Integer.parseInt(mmapChunkMBOption);
+            } catch (NumberFormatException e) {
+                String msg = String.format("'%s'  must be a positive integer", MMAP_CHUNK_MB_OPTION);
+                throw new RuntimeException(msg);
+            }
+            if (mmapChunkMB < 0 || mmapChunkMB > MAX_MMAP_CHUNK_MB) {
+                String msg = String.format("'%s'  must be between 0 and %d", MMAP_CHUNK_MB_OPTION, MAX_MMAP_CHUNK_MB);
+                throw new RuntimeException(msg);
+            }
+            return mmapChunkMB;
+        } else {
+            return DEFAULT_MMAP_CHUNK_MB;
+        }
+    }
+
     private static int parseIndexingThreads(Map<String, String> options) {
         String indexPoolNumQueuesOption = options.get(INDEXING_THREADS_OPTION);
         int indexingThreads;
@@ -262,6 +706,383 @@ public class IndexConfig {
         }
     }
 
+    private static int parseRebuildThreads(Map<String, String> options) {
+        String rebuildThreadsOption = options.get(REBUILD_THREADS_OPTION);
+        int rebuildThreads;
+        if (rebuildThreadsOption != null) {
+            try {
+                rebuildThreads = Integer.parseInt(rebuildThreadsOption);
+            } catch (NumberFormatException e) {
+                String msg = String.format("'%s'  must be a positive integer", REBUILD_THREADS_OPTION);
+                throw new RuntimeException(msg);
+            }
+            if (rebuildThreads < 0) {
+                String msg = String.format("'%s'  must be positive", REBUILD_THREADS_OPTION);
+                throw new RuntimeException(msg);
+            }
+            return rebuildThreads;
+        } else {
+            return DEFAULT_REBUILD_THREADS;
+        }
+    }
+
+    private static int parseShards(Map<String, String> options) {
+        String shardsOption = options.get(SHARDS_OPTION);
+        int shards;
+        if (shardsOption != null) {
+            try {
+                shards = Integer.parseInt(shardsOption);
+            } catch (NumberFormatException e) {
+                String msg = String.format("'%s'  must be a strictly positive integer", SHARDS_OPTION);
+                throw new RuntimeException(msg);
+            }
+            if (shards <= 0) {
+                String msg = String.format("'%s'  must be strictly positive", SHARDS_OPTION);
+                throw new RuntimeException(msg);
+            }
+            return shards;
+        } else {
+            return DEFAULT_SHARDS;
+        }
+    }
+
+    private static int parseMaxSearchCacheMB(Map<String, String> options) {
+        String maxSearchCacheMBOption = options.get(MAX_SEARCH_CACHE_MB_OPTION);
+        int maxSearchCacheMB;
+        if (maxSearchCacheMBOption != null) {
+            try {
+                maxSearchCacheMB = Integer.parseInt(maxSearchCacheMBOption);
+            } catch (NumberFormatException e) {
+                String msg = String.format("'%s'  must be a positive integer", MAX_SEARCH_CACHE_MB_OPTION);
+                throw new RuntimeException(msg);
+            }
+            if (maxSearchCacheMB < 0) {
+                String msg = String.format("'%s'  must be positive", MAX_SEARCH_CACHE_MB_OPTION);
+                throw new RuntimeException(msg);
+            }
+            return maxSearchCacheMB;
+        } else {
+            return DEFAULT_MAX_SEARCH_CACHE_MB;
+        }
+    }
+
+    private static int parseMaxFilterCacheMB(Map<String, String> options) {
+        String maxFilterCacheMBOption = options.get(MAX_FILTER_CACHE_MB_OPTION);
+        int maxFilterCacheMB;
+        if (maxFilterCacheMBOption != null) {
+            try {
+                maxFilterCacheMB = Integer.parseInt(maxFilterCacheMBOption);
+            } catch (NumberFormatException e) {
+                String msg = String.format("'%s'  must be a positive integer", MAX_FILTER_CACHE_MB_OPTION);
+                throw new RuntimeException(msg);
+            }
+            if (maxFilterCacheMB < 0) {
+                String msg = String.format("'%s'  must be positive", MAX_FILTER_CACHE_MB_OPTION);
+                throw new RuntimeException(msg);
+            }
+            return maxFilterCacheMB;
+        } else {
+            return DEFAULT_MAX_FILTER_CACHE_MB;
+        }
+    }
+
+    private static int parseWarmingQueries(Map<String, String> options) {
+        String warmingQueriesOption = options.get(WARMING_QUERIES_OPTION);
+        int warmingQueries;
+        if (warmingQueriesOption != null) {
+            try {
+                warmingQueries = Integer.parseInt(warmingQueriesOption);
+            } catch (NumberFormatException e) {
+                String msg = String.format("'%s'  must be a positive integer", WARMING_QUERIES_OPTION);
+                throw new RuntimeException(msg);
+            }
+            if (warmingQueries < 0) {
+                String msg = String.format("'%s'  must be positive", WARMING_QUERIES_OPTION);
+                throw new RuntimeException(msg);
+            }
+            return warmingQueries;
+        } else {
+            return DEFAULT_WARMING_QUERIES;
+        }
+    }
+
+    private static int parseSearchPrefetchPages(Map<String, String> options) {
+        String searchPrefetchPagesOption = options.get(SEARCH_PREFETCH_PAGES_OPTION);
+        int searchPrefetchPages;
+        if (searchPrefetchPagesOption != null) {
+            try {
+                searchPrefetchPages = Integer.parseInt(searchPrefetchPagesOption);
+            } catch (NumberFormatException e) {
+                String msg = String.format("'%s'  must be a positive integer", SEARCH_PREFETCH_PAGES_OPTION);
+                throw new RuntimeException(msg);
+            }
+            if (searchPrefetchPages < 0) {
+                String msg = String.format("'%s'  must be positive", SEARCH_PREFETCH_PAGES_OPTION);
+                throw new RuntimeException(msg);
+            }
+            return searchPrefetchPages;
+        } else {
+            return DEFAULT_SEARCH_PREFETCH_PAGES;
+        }
+    }
+
+    private static int parseSearchReadThreads(Map<String, String> options) {
+        String searchReadThreadsOption = options.get(SEARCH_READ_THREADS_OPTION);
+        int searchReadThreads;
+        if (searchReadThreadsOption != null) {
+            try {
+                searchReadThreads = Integer.parseInt(searchReadThreadsOption);
+            } catch (NumberFormatException e) {
+                String msg = String.format("'%s'  must be a positive integer", SEARCH_READ_THREADS_OPTION);
+                throw new RuntimeException(msg);
+            }
+            if (searchReadThreads < 0) {
+                String msg = String.format("'%s'  must be positive", SEARCH_READ_THREADS_OPTION);
+                throw new RuntimeException(msg);
+            }
+            return searchReadThreads;
+        } else {
+            return DEFAULT_SEARCH_READ_THREADS;
+        }
+    }
+
+    private static boolean parseIndexingFromMutation(Map<String, String> options) {
+        String indexingFromMutationOption = options.get(INDEXING_FROM_MUTATION_OPTION);
+        if (indexingFromMutationOption != null) {
+            String value = indexingFromMutationOption.trim().toLowerCase();
+            if (!value.equals("true") && !value.equals("false")) {
+                String msg = String.format("'%s'  must be a boolean", INDEXING_FROM_MUTATION_OPTION);
+                throw new RuntimeException(msg);
+            }
+            return Boolean.parseBoolean(value);
+        } else {
+            return DEFAULT_INDEXING_FROM_MUTATION;
+        }
+    }
+
+    private static boolean parseIndexingJournal(Map<String, String> options) {
+        String indexingJournalOption = options.get(INDEXING_JOURNAL_OPTION);
+        if (indexingJournalOption != null) {
+            String value = indexingJournalOption.trim().toLowerCase();
+            if (!value.equals("true") && !value.equals("false")) {
+                String msg = String.format("'%s'  must be a boolean", INDEXING_JOURNAL_OPTION);
+                throw new RuntimeException(msg);
+            }
+            return Boolean.parseBoolean(value);
+        } else {
+            return DEFAULT_INDEXING_JOURNAL;
+        }
+    }
+
+    private static CommitPolicy parseCommitPolicy(Map<String, String> options) {
+        String commitPolicyOption = options.get(COMMIT_POLICY_OPTION);
+        if (commitPolicyOption != null) {
+            try {
+                return CommitPolicy.valueOf(commitPolicyOption.trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                String msg = String.format("'%s'  must be one of 'flush', 'time' or 'bytes'", COMMIT_POLICY_OPTION);
+                throw new RuntimeException(msg);
+            }
+        } else {
+            return DEFAULT_COMMIT_POLICY;
+        }
+    }
+
+    private static double parseCommitIntervalSeconds(Map<String, String> options, CommitPolicy commitPolicy) {
+        String commitIntervalOption = options.get(COMMIT_INTERVAL_SECONDS_OPTION);
+        double commitIntervalSeconds;
+        if (commitIntervalOption != null) {
+            try {
+                commitIntervalSeconds = Double.parseDouble(commitIntervalOption);
+            } catch (NumberFormatException e) {
+                String msg = String.format("'%s'  must be a positive double", COMMIT_INTERVAL_SECONDS_OPTION);
+                throw new RuntimeException(msg);
+            }
+            if (commitIntervalSeconds < 0) {
+                String msg = String.format("'%s'  must be positive", COMMIT_INTERVAL_SECONDS_OPTION);
+                throw new RuntimeException(msg);
+            }
+            if (commitIntervalSeconds == 0 && commitPolicy == CommitPolicy.TIME) {
+                String msg = String.format("'%s'  must be strictly positive with '%s' policy",
+                                           COMMIT_INTERVAL_SECONDS_OPTION,
+                                           CommitPolicy.TIME);
+                throw new RuntimeException(msg);
+            }
+            return commitIntervalSeconds;
+        } else if (commitPolicy == CommitPolicy.FLUSH) {
+            return DEFAULT_FLUSH_COMMIT_INTERVAL_SECONDS;
+        } else {
+            return DEFAULT_COMMIT_INTERVAL_SECONDS;
+        }
+    }
+
+    private static void checkCommitJournal(CommitPolicy commitPolicy,
+                                           double commitIntervalSeconds,
+                                           boolean indexingJournal) {
+        if (indexingJournal) {
+            return;
+        }
+        if (commitPolicy != CommitPolicy.FLUSH) {
+            String msg = String.format("'%s'  must be true when '%s' is '%s'",
+                                       INDEXING_JOURNAL_OPTION,
+                                       COMMIT_POLICY_OPTION,
+                                       commitPolicy.name().toLowerCase());
+            throw new RuntimeException(msg);
+        }
+        if (commitIntervalSeconds > 0) {
+            String msg = String.format("'%s'  must be true when '%s' is greater than zero",
+                                       INDEXING_JOURNAL_OPTION,
+                                       COMMIT_INTERVAL_SECONDS_OPTION);
+            throw new RuntimeException(msg);
+        }
+    }
+
+    private static int parseCommitMB(Map<String, String> options) {
+        String commitMBOption = options.get(COMMIT_MB_OPTION);
+        int commitMB;
+        if (commitMBOption != null) {
+            try {
+                commitMB = Integer.parseInt(commitMBOption);
+            } catch (NumberFormatException e) {
+                String msg = String.format("'%s'  must be a strictly positive integer", COMMIT_MB_OPTION);
+                throw new RuntimeException(msg);
+            }
+            if (commitMB <= 0) {
+                String msg = String.format("'%s'  must be strictly positive", COMMIT_MB_OPTION);
+                throw new RuntimeException(msg);
+            }
+            return commitMB;
+        } else {
+            return DEFAULT_COMMIT_MB;
+        }
+    }
+
+    private static double parseMergeSegmentsPerTier(Map<String, String> options) {
+        String segmentsPerTierOption = options.get(MERGE_SEGMENTS_PER_TIER_OPTION);
+        double segmentsPerTier;
+        if (segmentsPerTierOption != null) {
+            try {
+                segmentsPerTier = Double.parseDouble(segmentsPerTierOption);
+            } catch (NumberFormatException e) {
+                String msg = String.format("'%s'  must be a double not lower than 2", MERGE_SEGMENTS_PER_TIER_OPTION);
+                throw new RuntimeException(msg);
+            }
+            if (segmentsPerTier < 2) {
+                String msg = String.format("'%s'  must not be lower than 2", MERGE_SEGMENTS_PER_TIER_OPTION);
+                throw new RuntimeException(msg);
+            }
+            return segmentsPerTier;
+        } else {
+            return DEFAULT_MERGE_SEGMENTS_PER_TIER;
+        }
+    }
+
+    private static int parseMergeMaxSegmentMB(Map<String, String> options) {
+        String maxSegmentMBOption = options.get(MERGE_MAX_SEGMENT_MB_OPTION);
+        int maxSegmentMB;
+        if (maxSegmentMBOption != null) {
+            try {
+                maxSegmentMB = Integer.parseInt(maxSegmentMBOption);
+            } catch (NumberFormatException e) {
+                String msg = String.format("'%s'  must be a strictly positive integer", MERGE_MAX_SEGMENT_MB_OPTION);
+                throw new RuntimeException(msg);
+            }
+            if (maxSegmentMB <= 0) {
+                String msg = String.format("'%s'  must be strictly positive", MERGE_MAX_SEGMENT_MB_OPTION);
+                throw new RuntimeException(msg);
+            }
+            return maxSegmentMB;
+        } else {
+            return DEFAULT_MERGE_MAX_SEGMENT_MB;
+        }
+    }
+
+    private static double parseMergeDeletesPctAllowed(Map<String, String> options) {
+        String deletesPctOption = options.get(MERGE_DELETES_PCT_ALLOWED_OPTION);
+        double deletesPct;
+        if (deletesPctOption != null) {
+            try {
+                deletesPct = Double.parseDouble(deletesPctOption);
+            } catch (NumberFormatException e) {
+                String msg = String.format("'%s'  must be a double between 0 and 100",
+                                           MERGE_DELETES_PCT_ALLOWED_OPTION);
+                throw new RuntimeException(msg);
+            }
+            if (deletesPct < 0 || deletesPct > 100) {
+                String msg = String.format("'%s'  must be between 0 and 100", MERGE_DELETES_PCT_ALLOWED_OPTION);
+                throw new RuntimeException(msg);
+            }
+            return deletesPct;
+        } else {
+            return DEFAULT_MERGE_DELETES_PCT_ALLOWED;
+        }
+    }
+
+    private static int parseMergeThreads(Map<String, String> options) {
+        String mergeThreadsOption = options.get(MERGE_THREADS_OPTION);
+        int mergeThreads;
+        if (mergeThreadsOption != null) {
+            try {
+                mergeThreads = Integer.parseInt(mergeThreadsOption);
+            } catch (NumberFormatException e) {
+                String msg = String.format("'%s'  must be a positive integer", MERGE_THREADS_OPTION);
+                throw new RuntimeException(msg);
+            }
+            if (mergeThreads < 0) {
+                String msg = String.format("'%s'  must be positive", MERGE_THREADS_OPTION);
+                throw new RuntimeException(msg);
+            }
+            return mergeThreads;
+        } else {
+            return DEFAULT_MERGE_THREADS;
+        }
+    }
+
+    private static int parseMaxMerges(Map<String, String> options, int mergeThreads) {
+        String maxMergesOption = options.get(MAX_MERGES_OPTION);
+        int maxMerges;
+        if (maxMergesOption != null) {
+            try {
+                maxMerges = Integer.parseInt(maxMergesOption);
+            } catch (NumberFormatException e) {
+                String msg = String.format("'%s'  must be a positive integer", MAX_MERGES_OPTION);
+                throw new RuntimeException(msg);
+            }
+            if (maxMerges < 0) {
+                String msg = String.format("'%s'  must be positive", MAX_MERGES_OPTION);
+                throw new RuntimeException(msg);
+            }
+            if (maxMerges > 0 && maxMerges < mergeThreads) {
+                String msg = String.format("'%s'  must not be lower than '%s'",
+                                           MAX_MERGES_OPTION,
+                                           MERGE_THREADS_OPTION);
+                throw new RuntimeException(msg);
+            }
+            if (maxMerges > 0 && mergeThreads == 0) {
+                String msg = String.format("'%s'  requires '%s'", MAX_MERGES_OPTION, MERGE_THREADS_OPTION);
+                throw new RuntimeException(msg);
+            }
+            return maxMerges;
+        } else {
+            return DEFAULT_MAX_MERGES;
+        }
+    }
+
+    private static MergeThrottle parseMergeThrottle(Map<String, String> options) {
+        String mergeThrottleOption = options.get(MERGE_THROTTLE_OPTION);
+        if (mergeThrottleOption != null) {
+            try {
+                return MergeThrottle.valueOf(mergeThrottleOption.trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                String msg = String.format("'%s'  must be one of 'auto', 'compaction' or 'none'",
+                                           MERGE_THROTTLE_OPTION);
+                throw new RuntimeException(msg);
+            }
+        } else {
+            return DEFAULT_MERGE_THROTTLE;
+        }
+    }
+
     private static Schema parseSchema(Map<String, String> options, CFMetaData metadata) {
         String schemaOption = options.get(SCHEMA_OPTION);
         Schema schema;
@@ -304,12 +1125,34 @@ public class IndexConfig {
         return Objects.toStringHelper(this)
                       .add("schema", schema)
                       .add("refreshSeconds", refreshSeconds)
+                      .add("minRefreshSeconds", minRefreshSeconds)
                       .add("path", path)
                       .add("ramBufferMB", ramBufferMB)
                       .add("maxMergeMB", maxMergeMB)
                       .add("maxCachedMB", maxCachedMB)
+                      .add("directoryType", directoryType)
+                      .add("nrtCaching", nrtCaching)
+                      .add("mmapChunkMB", mmapChunkMB)
                       .add("indexingThreads", indexingThreads)
                       .add("indexingQueuesSize", indexingQueuesSize)
+                      .add("rebuildThreads", rebuildThreads)
+                      .add("shards", shards)
+                      .add("maxSearchCacheMB", maxSearchCacheMB)
+                      .add("maxFilterCacheMB", maxFilterCacheMB)
+                      .add("warmingQueries", warmingQueries)
+                      .add("searchPrefetchPages", searchPrefetchPages)
+                      .add("searchReadThreads", searchReadThreads)
+                      .add("indexingFromMutation", indexingFromMutation)
+                      .add("indexingJournal", indexingJournal)
+                      .add("commitPolicy", commitPolicy)
+                      .add("commitIntervalSeconds", commitIntervalSeconds)
+                      .add("commitMB", commitMB)
+                      .add("mergeSegmentsPerTier", mergeSegmentsPerTier)
+                      .add("mergeMaxSegmentMB", mergeMaxSegmentMB)
+                      .add("mergeDeletesPctAllowed", mergeDeletesPctAllowed)
+                      .add("mergeThreads", mergeThreads)
+                      .add("maxMerges", maxMerges)
+                      .add("mergeThrottle", mergeThrottle)
                       .toString();
     }
 }
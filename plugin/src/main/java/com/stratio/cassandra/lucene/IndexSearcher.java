@@ -17,8 +17,8 @@ package com.stratio.cassandra.lucene;
 
 import com.google.common.base.Objects;
 import com.stratio.cassandra.lucene.query.Search;
-import com.stratio.cassandra.lucene.schema.Schema;
 import com.stratio.cassandra.lucene.service.RowService;
+import com.stratio.cassandra.lucene.service.SearchCache;
 import com.stratio.cassandra.lucene.util.Log;
 import org.apache.cassandra.db.DataRange;
 import org.apache.cassandra.db.IndexExpression;
@@ -49,7 +49,7 @@ class IndexSearcher extends SecondaryIndexSearcher {
 
     private final Index index;
     private final RowService rowService;
-    private final Schema schema;
+    private final SearchCache searchCache;
     private final ByteBuffer indexedColumnName;
 
     /**
@@ -67,7 +67,7 @@ class IndexSearcher extends SecondaryIndexSearcher {
         super(indexManager, columns);
         this.index = index;
         this.rowService = rowService;
-        schema = rowService.getSchema();
+        searchCache = rowService.getSearchCache();
         indexedColumnName = index.getColumnDefinition().name.bytes;
     }
 
@@ -82,7 +82,7 @@ class IndexSearcher extends SecondaryIndexSearcher {
             DataRange dataRange = extendedFilter.dataRange;
             List<IndexExpression> clause = extendedFilter.getClause();
             List<IndexExpression> filteredExpressions = filteredExpressions(clause);
-            Search search = search(clause);
+            SearchCache.Entry search = search(clause);
             return rowService.search(search, filteredExpressions, dataRange, limit, timestamp);
         } catch (IOException e) {
             Log.error(e, "Error while searching: %s", extendedFilter);
@@ -127,25 +127,25 @@ class IndexSearcher extends SecondaryIndexSearcher {
     public void validate(IndexExpression indexExpression) throws InvalidRequestException {
         try {
             String json = UTF8Type.instance.compose(indexExpression.value);
-            Search.fromJson(json).validate(schema);
+            searchCache.get(json);
         } catch (Exception e) {
             throw new InvalidRequestException(e.getMessage());
         }
     }
 
     /**
-     * Returns the {@link Search} contained in the specified list of {@link IndexExpression}s.
+     * Returns the cached {@link Search} contained in the specified list of {@link IndexExpression}s.
      *
      * @param clause A list of {@link IndexExpression}s.
-     * @return The {@link Search} contained in the specified list of {@link IndexExpression}s.
+     * @return The cached {@link Search} contained in the specified list of {@link IndexExpression}s.
      */
-    private Search search(List<IndexExpression> clause) {
+    private SearchCache.Entry search(List<IndexExpression> clause) {
         IndexExpression indexedExpression = indexedExpression(clause);
         if (indexedExpression == null) {
             throw new RuntimeException("There is no index expression in the clause");
         }
         String json = UTF8Type.instance.compose(indexedExpression.value);
-        return Search.fromJson(json);
+        return searchCache.get(json);
     }
 
     /**
@@ -184,7 +184,7 @@ class IndexSearcher extends SecondaryIndexSearcher {
     /** {@inheritDoc} */
     @Override
     public boolean requiresScanningAllRanges(List<IndexExpression> clause) {
-        Search search = search(clause);
+        Search search = search(clause).getSearch();
         return search.usesRelevanceOrSorting();
     }
 
@@ -201,7 +201,7 @@ class IndexSearcher extends SecondaryIndexSearcher {
         List<Row> result = new ArrayList<>(set);
 
         // Sort
-        Search search = search(clause);
+        Search search = search(clause).getSearch();
         Comparator<Row> comparator = rowService.comparator(search);
         Collections.sort(result, comparator);
 
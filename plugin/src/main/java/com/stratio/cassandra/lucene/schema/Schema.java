@@ -32,8 +32,11 @@ import org.codehaus.jackson.annotate.JsonProperty;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Class for several columns mappings between Cassandra and Lucene.
@@ -50,6 +53,8 @@ public class Schema implements Closeable {
 
     private final Analyzer analyzer;
 
+    private final Set<String> mappedColumns;
+
     /**
      * Builds a new {@code ColumnsMapper} for the specified getAnalyzer and cell mappers.
      *
@@ -90,6 +95,12 @@ public class Schema implements Closeable {
             perFieldAnalyzers.put(name, analyzer);
         }
         this.analyzer = new PerFieldAnalyzerWrapper(this.defaultAnalyzer, perFieldAnalyzers);
+
+        Set<String> mappedColumns = new HashSet<>();
+        for (Mapper mapper : columnMappers.values()) {
+            mappedColumns.addAll(mapper.getColumns());
+        }
+        this.mappedColumns = Collections.unmodifiableSet(mappedColumns);
     }
 
     public Analyzer getDefaultAnalyzer() {
@@ -153,6 +164,15 @@ public class Schema implements Closeable {
         return null;
     }
 
+    /**
+     * Returns the names of the Cassandra columns mapped by any of the {@link Mapper}s.
+     *
+     * @return The names of the Cassandra columns mapped by any of the {@link Mapper}s.
+     */
+    public Set<String> getMappedColumns() {
+        return mappedColumns;
+    }
+
     /**
      * Adds to the specified {@link Document} the Lucene fields representing the specified {@link Columns}.
      *
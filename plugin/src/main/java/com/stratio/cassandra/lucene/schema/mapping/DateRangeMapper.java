@@ -16,6 +16,7 @@
 package com.stratio.cassandra.lucene.schema.mapping;
 
 import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableSet;
 import com.stratio.cassandra.lucene.schema.Column;
 import com.stratio.cassandra.lucene.schema.Columns;
 import org.apache.cassandra.config.CFMetaData;
@@ -43,6 +44,7 @@ import java.text.DateFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.Set;
 
 /**
  * A {@link Mapper} to map 1-dimensional ranges of dates.
@@ -170,6 +172,12 @@ public class DateRangeMapper extends Mapper {
         validate(metadata, stop);
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public Set<String> getColumns() {
+        return ImmutableSet.of(start, stop);
+    }
+
     /**
      * Makes an spatial shape representing the time range defined by the two specified dates.
      *
@@ -16,6 +16,7 @@
 package com.stratio.cassandra.lucene.schema.mapping;
 
 import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableSet;
 import com.spatial4j.core.context.SpatialContext;
 import com.spatial4j.core.shape.Point;
 import com.stratio.cassandra.lucene.schema.Column;
@@ -38,6 +39,8 @@ import org.apache.lucene.spatial.prefix.RecursivePrefixTreeStrategy;
 import org.apache.lucene.spatial.prefix.tree.GeohashPrefixTree;
 import org.apache.lucene.spatial.prefix.tree.SpatialPrefixTree;
 
+import java.util.Set;
+
 /**
  * A {@link Mapper} to map geographical points.
  *
@@ -145,6 +148,12 @@ public class GeoPointMapper extends Mapper {
         validate(metadata, longitude);
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public Set<String> getColumns() {
+        return ImmutableSet.of(latitude, longitude);
+    }
+
     /**
      * Returns the latitude contained in the specified {@link Columns}. A valid latitude must in the range [-90, 90].
      *
@@ -31,6 +31,7 @@ import org.apache.lucene.document.Field.Store;
 import org.apache.lucene.search.SortField;
 
 import java.nio.ByteBuffer;
+import java.util.Set;
 
 /**
  * Class for mapping between Cassandra's columns and Lucene documents.
@@ -184,4 +185,11 @@ public abstract class Mapper {
 
     public abstract void validate(CFMetaData metaData);
 
+    /**
+     * Returns the names of the Cassandra columns mapped by this mapper.
+     *
+     * @return The names of the Cassandra columns mapped by this mapper.
+     */
+    public abstract Set<String> getColumns();
+
 }
@@ -22,6 +22,9 @@ import org.apache.cassandra.db.marshal.AbstractType;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
 
+import java.util.Collections;
+import java.util.Set;
+
 /**
  * Class for mapping between Cassandra's columns and Lucene documents.
  *
@@ -85,4 +88,10 @@ public abstract class SingleColumnMapper<BASE> extends Mapper {
         validate(metadata, name);
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public Set<String> getColumns() {
+        return Collections.singleton(name);
+    }
+
 }
@@ -18,6 +18,7 @@ package com.stratio.cassandra.lucene.service;
 import com.stratio.cassandra.lucene.schema.Column;
 import com.stratio.cassandra.lucene.schema.Columns;
 import com.stratio.cassandra.lucene.util.ByteBufferUtils;
+import com.stratio.cassandra.lucene.util.OrderedBytes;
 import org.apache.cassandra.config.CFMetaData;
 import org.apache.cassandra.config.ColumnDefinition;
 import org.apache.cassandra.db.ArrayBackedSortedColumns;
@@ -28,18 +29,25 @@ import org.apache.cassandra.db.composites.CBuilder;
 import org.apache.cassandra.db.composites.CellName;
 import org.apache.cassandra.db.composites.CellNameType;
 import org.apache.cassandra.db.composites.Composite;
+import org.apache.cassandra.db.composites.Composites;
 import org.apache.cassandra.db.filter.ColumnSlice;
 import org.apache.cassandra.db.marshal.AbstractType;
 import org.apache.cassandra.utils.ByteBufferUtil;
+import org.apache.lucene.document.BinaryDocValuesField;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
 import org.apache.lucene.document.SortedDocValuesField;
-import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.BinaryDocValues;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.search.BooleanQuery;
 import org.apache.lucene.search.FieldComparator;
 import org.apache.lucene.search.FieldComparatorSource;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TermRangeQuery;
 import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.BytesRefBuilder;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
@@ -62,30 +70,61 @@ public class ClusteringKeyMapper {
     /** The Lucene field name */
     public static final String FIELD_NAME = "_clustering_key";
 
+    /** The Lucene field name of the raw clustering key doc values, when they differ from the indexed ones */
+    public static final String RAW_FIELD_NAME = "_clustering_key_raw";
+
     /** The column family meta data */
     private final CFMetaData metadata;
 
     /** The type of the clustering key, which is the type of the column names */
     private final CellNameType cellNameType;
 
+    /** The index key format */
+    private final KeyFormat keyFormat;
+
+    /** The number of components of the indexed clustering keys */
+    private final int keySize;
+
+    /** The types of the components of the indexed clustering keys */
+    private final AbstractType<?>[] keyTypes;
+
+    /** If the clustering keys are indexed with an order-preserving encoding */
+    private final boolean ordered;
+
     /**
      * Returns a new {@code ClusteringKeyMapper} according to the specified column family meta data.
      *
-     * @param metadata The column family meta data.
+     * @param metadata  The column family meta data.
+     * @param keyFormat The index key format.
      */
-    private ClusteringKeyMapper(CFMetaData metadata) {
+    private ClusteringKeyMapper(CFMetaData metadata, KeyFormat keyFormat) {
         this.metadata = metadata;
         this.cellNameType = metadata.comparator;
+        this.keyFormat = keyFormat;
+
+        CBuilder builder = cellNameType.builder();
+        for (int i = 0; i < metadata.clusteringColumns().size(); i++) {
+            builder.add(ByteBufferUtil.EMPTY_BYTE_BUFFER);
+        }
+        this.keySize = cellNameType.rowMarker(builder.build()).size();
+        this.keyTypes = new AbstractType<?>[keySize];
+        boolean supported = true;
+        for (int i = 0; i < keySize; i++) {
+            keyTypes[i] = cellNameType.subtype(i);
+            supported &= OrderedBytes.isSupported(keyTypes[i]);
+        }
+        this.ordered = !keyFormat.isLegacy() && supported;
     }
 
     /**
      * Returns a new {@code ClusteringKeyMapper} according to the specified column family meta data.
      *
-     * @param metadata The column family meta data.
+     * @param metadata  The column family meta data.
+     * @param keyFormat The index key format.
      * @return A new {@code ClusteringKeyMapper} according to the specified column family meta data.
      */
-    public static ClusteringKeyMapper instance(CFMetaData metadata) {
-        return new ClusteringKeyMapper(metadata);
+    public static ClusteringKeyMapper instance(CFMetaData metadata, KeyFormat keyFormat) {
+        return new ClusteringKeyMapper(metadata, keyFormat);
     }
 
     /**
@@ -104,10 +143,52 @@ public class ClusteringKeyMapper {
      * @param cellName A cell name containing the clustering key to be added.
      */
     public void addFields(Document document, CellName cellName) {
-        String serializedKey = ByteBufferUtils.toString(cellName.toByteBuffer());
-        BytesRef bytesRef = new BytesRef(serializedKey);
-        document.add(new StringField(FIELD_NAME, serializedKey, Field.Store.YES));
-        document.add(new SortedDocValuesField(FIELD_NAME, bytesRef));
+        ByteBuffer serializedKey = cellName.toByteBuffer();
+        if (ordered) {
+            BytesRef orderedKey = orderedBytesRef(cellName);
+            document.add(new KeyField(FIELD_NAME, orderedKey, Field.Store.NO));
+            document.add(new SortedDocValuesField(FIELD_NAME, orderedKey));
+            document.add(new BinaryDocValuesField(RAW_FIELD_NAME, ByteBufferUtils.bytesRef(serializedKey)));
+        } else {
+            Field.Store store = keyFormat.isLegacy() ? Field.Store.YES : Field.Store.NO;
+            document.add(keyFormat.field(FIELD_NAME, serializedKey, store));
+            document.add(new SortedDocValuesField(FIELD_NAME, keyFormat.bytesRef(serializedKey)));
+        }
+    }
+
+    /**
+     * Returns the order-preserving encoding of the first components of the specified {@link Composite}, up to the
+     * number of components of the indexed clustering keys.
+     *
+     * @param composite A clustering key or a clustering key prefix.
+     * @return The order-preserving encoding of {@code composite}.
+     */
+    private BytesRef orderedBytesRef(Composite composite) {
+        BytesRefBuilder builder = new BytesRefBuilder();
+        int size = Math.min(composite.size(), keySize);
+        for (int i = 0; i < size; i++) {
+            OrderedBytes.append(builder, keyTypes[i], composite.get(i));
+        }
+        return builder.get();
+    }
+
+    /**
+     * Returns the result of comparing the specified clustering key bound with the indexed clustering keys starting with
+     * the same components, according to the clustering key comparator.
+     *
+     * @param bound A clustering key bound.
+     * @return A negative integer, zero, or a positive integer as {@code bound} is less than, equal to, or greater than
+     * the clustering keys with the same leading components.
+     */
+    private int prefixComparison(Composite bound) {
+        int size = bound.size();
+        if (size > keySize) {
+            return 1;
+        } else if (size < keySize) {
+            return bound.eoc().prefixComparisonResult;
+        } else {
+            return bound.eoc().compareTo(Composite.EOC.NONE);
+        }
     }
 
     /**
@@ -192,8 +273,21 @@ public class ClusteringKeyMapper {
      * @return The clustering key contained in the specified {@link CellName}.
      */
     public final CellName clusteringKey(Document document) {
-        String string = document.get(FIELD_NAME);
-        ByteBuffer bb = ByteBufferUtils.fromString(string);
+        ByteBuffer bb = keyFormat.byteBuffer(document, FIELD_NAME);
+        return cellNameType.cellFromByteBuffer(bb);
+    }
+
+    /**
+     * Returns the clustering key kept in the doc values of the specified document.
+     *
+     * @param reader The {@link LeafReader} containing the document, which must not use the legacy {@link KeyFormat}.
+     * @param docId  The segment document id.
+     * @return The clustering key of the document {@code docId} in {@code reader}.
+     * @throws IOException If Lucene throws IO errors.
+     */
+    public final CellName clusteringKey(LeafReader reader, int docId) throws IOException {
+        BinaryDocValues docValues = DocValues.getBinary(reader, ordered ? RAW_FIELD_NAME : FIELD_NAME);
+        ByteBuffer bb = keyFormat.byteBuffer(docValues, docId);
         return cellNameType.cellFromByteBuffer(bb);
     }
 
@@ -204,8 +298,7 @@ public class ClusteringKeyMapper {
      * @return The clustering key contained in the specified Lucene field value.
      */
     public final CellName clusteringKey(BytesRef bytesRef) {
-        String string = bytesRef.utf8ToString();
-        ByteBuffer bb = ByteBufferUtils.fromString(string);
+        ByteBuffer bb = keyFormat.byteBuffer(bytesRef);
         return cellNameType.cellFromByteBuffer(bb);
     }
 
@@ -298,6 +391,18 @@ public class ClusteringKeyMapper {
         return columnSlices;
     }
 
+    /**
+     * Returns the {@link ColumnSlice} selecting the logic CQL3 rows after the specified clustering key, or all the rows
+     * of the partition if it is {@code null}.
+     *
+     * @param clusteringKey A clustering key, or {@code null} to select all the rows.
+     * @return The {@link ColumnSlice} selecting the logic CQL3 rows after {@code clusteringKey}.
+     */
+    public final ColumnSlice columnSliceAfter(CellName clusteringKey) {
+        Composite start = clusteringKey == null ? Composites.EMPTY : end(clusteringKey);
+        return new ColumnSlice(start, Composites.EMPTY);
+    }
+
     /**
      * Returns the specified list of clustering keys sorted according to the table cell name comparator.
      *
@@ -321,6 +426,9 @@ public class ClusteringKeyMapper {
      * @return A Lucene {@link SortField} array for sorting documents/rows according to the column family name.
      */
     public SortField[] sortFields() {
+        if (ordered) {
+            return new SortField[]{new SortField(FIELD_NAME, SortField.Type.STRING)};
+        }
         return new SortField[]{new SortField(FIELD_NAME, new FieldComparatorSource() {
             @Override
             public FieldComparator<?> newComparator(String field, int hits, int sort, boolean reversed)
@@ -339,13 +447,51 @@ public class ClusteringKeyMapper {
 
     /**
      * Returns a Lucene {@link Query} array to retrieving documents/rows whose clustering key is between the two
-     * specified column name prefixes.
+     * specified column name prefixes. If the clustering keys are indexed with an order-preserving encoding, the query
+     * is a seekable term range; otherwise, all the indexed clustering keys are visited and compared.
      *
+     * @param start The start column name prefix, maybe {@code null} meaning no lower limit.
+     * @param stop  The stop column name prefix, maybe {@code null} meaning no upper limit.
      * @return A Lucene {@link Query} array to retrieving documents/rows whose clustering key is between the two
      * specified column name prefixes.
      */
     public Query query(Composite start, Composite stop) {
-        return new ClusteringKeyQuery(start, stop, this);
+        if (!ordered) {
+            return new ClusteringKeyQuery(start, stop, this);
+        }
+
+        BytesRef lower = null;
+        if (start != null && !start.isEmpty() && !start.isStatic()) {
+            BytesRef prefix = orderedBytesRef(start);
+            if (prefixComparison(start) <= 0) {
+                lower = prefix;
+            } else {
+                lower = OrderedBytes.nextPrefix(prefix);
+                if (lower == null) {
+                    return new BooleanQuery(); // Nothing can be after the start
+                }
+            }
+        }
+
+        BytesRef upper = null;
+        boolean includeUpper = false;
+        if (stop != null && !stop.isEmpty()) {
+            if (stop.isStatic()) {
+                return new BooleanQuery(); // Nothing can be before the stop
+            }
+            BytesRef prefix = orderedBytesRef(stop);
+            int comparison = prefixComparison(stop);
+            if (comparison < 0) {
+                upper = prefix;
+            } else if (comparison == 0) {
+                upper = prefix;
+                includeUpper = true;
+            } else {
+                upper = OrderedBytes.nextPrefix(prefix);
+            }
+        }
+
+        return new TermRangeQuery(FIELD_NAME, lower, upper, true, includeUpper);
     }
 
     /**
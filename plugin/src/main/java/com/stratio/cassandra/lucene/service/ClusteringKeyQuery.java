@@ -15,6 +15,7 @@
  */
 package com.stratio.cassandra.lucene.service;
 
+import com.google.common.base.Objects;
 import org.apache.cassandra.db.composites.CellName;
 import org.apache.cassandra.db.composites.CellNameType;
 import org.apache.cassandra.db.composites.Composite;
@@ -59,6 +60,21 @@ class ClusteringKeyQuery extends MultiTermQuery {
                                         .toString();
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!super.equals(o)) return false;
+        ClusteringKeyQuery query = (ClusteringKeyQuery) o;
+        return Objects.equal(start, query.start) && Objects.equal(stop, query.stop);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int hashCode() {
+        return 31 * super.hashCode() + Objects.hashCode(start, stop);
+    }
+
     private class FullKeyDataRangeFilteredTermsEnum extends FilteredTermsEnum {
 
         public FullKeyDataRangeFilteredTermsEnum(TermsEnum tenum) {
@@ -15,7 +15,6 @@
  */
 package com.stratio.cassandra.lucene.service;
 
-import com.stratio.cassandra.lucene.util.ByteBufferUtils;
 import org.apache.cassandra.db.DecoratedKey;
 import org.apache.cassandra.db.composites.CellName;
 import org.apache.cassandra.db.marshal.AbstractType;
@@ -23,7 +22,6 @@ import org.apache.cassandra.db.marshal.CompositeType;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
 import org.apache.lucene.document.Field.Store;
-import org.apache.lucene.document.StringField;
 import org.apache.lucene.index.Term;
 
 import java.nio.ByteBuffer;
@@ -42,13 +40,20 @@ public class FullKeyMapper {
     /** The type of the full row key, which is composed by the partition and clustering key types. */
     private final CompositeType type;
 
+    /** The index key format. */
+    private final KeyFormat keyFormat;
+
     /**
      * Returns a new {@link FullKeyMapper} using the specified column family metadata.
      *
      * @param partitionKeyMapper  A {@link PartitionKeyMapper}.
      * @param clusteringKeyMapper A {@link ClusteringKeyMapper}.
+     * @param keyFormat           The index key format.
      */
-    private FullKeyMapper(PartitionKeyMapper partitionKeyMapper, ClusteringKeyMapper clusteringKeyMapper) {
+    private FullKeyMapper(PartitionKeyMapper partitionKeyMapper,
+                          ClusteringKeyMapper clusteringKeyMapper,
+                          KeyFormat keyFormat) {
+        this.keyFormat = keyFormat;
         AbstractType<?> partitionKeyType = partitionKeyMapper.getType();
         AbstractType<?> clusteringKeyType = clusteringKeyMapper.getType().asAbstractType();
         type = CompositeType.getInstance(partitionKeyType, clusteringKeyType);
@@ -59,11 +64,13 @@ public class FullKeyMapper {
      *
      * @param partitionKeyMapper  A {@link PartitionKeyMapper}.
      * @param clusteringKeyMapper A {@link ClusteringKeyMapper}.
+     * @param keyFormat           The index key format.
      * @return A new {@link FullKeyMapper} using the specified column family metadata.
      */
     public static FullKeyMapper instance(PartitionKeyMapper partitionKeyMapper,
-                                         ClusteringKeyMapper clusteringKeyMapper) {
-        return new FullKeyMapper(partitionKeyMapper, clusteringKeyMapper);
+                                         ClusteringKeyMapper clusteringKeyMapper,
+                                         KeyFormat keyFormat) {
+        return new FullKeyMapper(partitionKeyMapper, clusteringKeyMapper, keyFormat);
     }
 
     /**
@@ -88,8 +95,7 @@ public class FullKeyMapper {
      */
     public void addFields(Document document, DecoratedKey partitionKey, CellName clusteringKey) {
         ByteBuffer fullKey = byteBuffer(partitionKey, clusteringKey);
-        String string = ByteBufferUtils.toString(fullKey);
-        Field field = new StringField(FIELD_NAME, string, Store.NO);
+        Field field = keyFormat.field(FIELD_NAME, fullKey, Store.NO);
         document.add(field);
     }
 
@@ -103,7 +109,7 @@ public class FullKeyMapper {
      */
     public Term term(DecoratedKey partitionKey, CellName clusteringKey) {
         ByteBuffer fullKey = byteBuffer(partitionKey, clusteringKey);
-        return new Term(FIELD_NAME, ByteBufferUtils.toString(fullKey));
+        return keyFormat.term(FIELD_NAME, fullKey);
     }
 
 }
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2015, Stratio.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.stratio.cassandra.lucene.service;
+
+import com.stratio.cassandra.lucene.IndexConfig.CommitPolicy;
+import org.apache.cassandra.concurrent.NamedThreadFactory;
+
+import java.io.Closeable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Class deciding when the index changes are committed according to a {@link CommitPolicy}.
+ * <p/>
+ * With the {@link CommitPolicy#FLUSH} policy, the memtable flushes commit unless the previous commit started less than
+ * the commit interval ago. The {@link CommitPolicy#TIME} and {@link CommitPolicy#BYTES} policies ignore the flushes
+ * and run the commit task in a background thread, each commit interval or each time the written bytes since the last
+ * commit reach the commit size, respectively.
+ *
+ * @author Andres de la Pena <adelapena@stratio.com>
+ */
+public class IndexCommitter implements Closeable {
+
+    private final CommitPolicy policy;
+    private final long intervalNanos;
+    private final long commitBytes;
+    private final Runnable task;
+    private final ScheduledExecutorService executor;
+
+    private final AtomicLong uncommittedBytes = new AtomicLong();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private volatile long lastCommitTime = System.nanoTime();
+
+    /**
+     * Builds a new {@link IndexCommitter}.
+     *
+     * @param name            The name of the background commit thread.
+     * @param policy          The {@link CommitPolicy}.
+     * @param intervalSeconds The commit interval in seconds.
+     * @param commitMB        The size in MB of the written bytes triggering a {@link CommitPolicy#BYTES} commit.
+     * @param task            The task committing the index, which must call {@link #committing()}.
+     */
+    public IndexCommitter(String name, CommitPolicy policy, double intervalSeconds, int commitMB, Runnable task) {
+        this.policy = policy;
+        this.intervalNanos = (long) (intervalSeconds * 1000000000L);
+        this.commitBytes = commitMB * 1024L * 1024L;
+        this.task = task;
+        if (policy == CommitPolicy.FLUSH) {
+            this.executor = null;
+        } else {
+            this.executor = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory(name));
+            if (policy == CommitPolicy.TIME) {
+                executor.scheduleWithFixedDelay(task, intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    /**
+     * Returns if a memtable flush must commit the index changes.
+     *
+     * @return {@code true} if the flush must commit, {@code false} if it must be skipped.
+     */
+    public boolean isFlushCommit() {
+        return policy == CommitPolicy.FLUSH && System.nanoTime() - lastCommitTime >= intervalNanos;
+    }
+
+    /**
+     * Accounts the specified number of written bytes, running a background commit if they reach the commit size of the
+     * {@link CommitPolicy#BYTES} policy.
+     *
+     * @param bytes The approximated size of an indexed mutation.
+     */
+    public void written(long bytes) {
+        long pendingBytes = uncommittedBytes.addAndGet(bytes);
+        if (policy == CommitPolicy.BYTES && pendingBytes >= commitBytes && scheduled.compareAndSet(false, true)) {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    scheduled.set(false);
+                    task.run();
+                }
+            });
+        }
+    }
+
+    /**
+     * Notifies that a commit is starting, so the commit interval and the written bytes are counted again from now.
+     */
+    public void committing() {
+        lastCommitTime = System.nanoTime();
+        uncommittedBytes.set(0);
+    }
+
+    /**
+     * Stops the background commits, waiting for the running one to finish.
+     */
+    @Override
+    public void close() {
+        if (executor != null) {
+            executor.shutdown();
+            try {
+                executor.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
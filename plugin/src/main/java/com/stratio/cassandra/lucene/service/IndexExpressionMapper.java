@@ -0,0 +1,168 @@
+/*
+ * Copyright 2015, Stratio.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.stratio.cassandra.lucene.service;
+
+import com.stratio.cassandra.lucene.query.Condition;
+import com.stratio.cassandra.lucene.query.MatchCondition;
+import com.stratio.cassandra.lucene.query.RangeCondition;
+import com.stratio.cassandra.lucene.schema.Schema;
+import com.stratio.cassandra.lucene.schema.mapping.DateMapper;
+import com.stratio.cassandra.lucene.schema.mapping.DoubleMapper;
+import com.stratio.cassandra.lucene.schema.mapping.FloatMapper;
+import com.stratio.cassandra.lucene.schema.mapping.IntegerMapper;
+import com.stratio.cassandra.lucene.schema.mapping.LongMapper;
+import com.stratio.cassandra.lucene.schema.mapping.Mapper;
+import com.stratio.cassandra.lucene.schema.mapping.StringMapper;
+import org.apache.cassandra.config.CFMetaData;
+import org.apache.cassandra.config.ColumnDefinition;
+import org.apache.cassandra.db.IndexExpression;
+import org.apache.cassandra.db.marshal.AbstractType;
+import org.apache.cassandra.db.marshal.AsciiType;
+import org.apache.cassandra.db.marshal.DoubleType;
+import org.apache.cassandra.db.marshal.FloatType;
+import org.apache.cassandra.db.marshal.Int32Type;
+import org.apache.cassandra.db.marshal.LongType;
+import org.apache.cassandra.db.marshal.TimestampType;
+import org.apache.cassandra.db.marshal.UTF8Type;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.Query;
+
+import java.util.List;
+
+/**
+ * Class for mapping the CQL {@link IndexExpression}s not relative to the indexed column into Lucene {@link Query}s,
+ * so they can be used to filter the search hits instead of being checked against the rows read from Cassandra.
+ * <p/>
+ * An {@link IndexExpression} is only mapped if the Lucene query matches exactly the same rows as the expression. That
+ * is, if its column is indexed with a mapper whose Lucene order is the same as the Cassandra column type order. These
+ * are the {@link IntegerMapper}, {@link LongMapper}, {@link FloatMapper} and {@link DoubleMapper} for columns of the
+ * same type, the {@link DateMapper} for {@code timestamp} columns and the case sensitive {@link StringMapper} for
+ * {@code text} and {@code ascii} columns. Any other expression must still be checked against the rows.
+ *
+ * @author Andres de la Pena <adelapena@stratio.com>
+ */
+public class IndexExpressionMapper {
+
+    private final CFMetaData metadata;
+    private final Schema schema;
+
+    /**
+     * Builds a new {@link IndexExpressionMapper} for the specified column family metadata and {@link Schema}.
+     *
+     * @param metadata The indexed column family metadata.
+     * @param schema   The index {@link Schema}.
+     */
+    public IndexExpressionMapper(CFMetaData metadata, Schema schema) {
+        this.metadata = metadata;
+        this.schema = schema;
+    }
+
+    /**
+     * Returns a Lucene {@link Query} matching the same rows as all the mappable {@link IndexExpression}s in the
+     * specified list, which are removed from it. The remaining {@link IndexExpression}s must be checked against the
+     * rows.
+     *
+     * @param expressions A list of {@link IndexExpression}s, which will contain only the not mapped ones on return.
+     * @return A Lucene {@link Query} matching all the mapped {@link IndexExpression}s, or {@code null} if none of
+     * them has been mapped.
+     */
+    public Query query(List<IndexExpression> expressions) {
+        BooleanQuery booleanQuery = null;
+        for (int i = expressions.size() - 1; i >= 0; i--) {
+            Query query = query(expressions.get(i));
+            if (query != null) {
+                if (booleanQuery == null) {
+                    booleanQuery = new BooleanQuery();
+                }
+                booleanQuery.add(query, BooleanClause.Occur.FILTER);
+                expressions.remove(i);
+            }
+        }
+        return booleanQuery;
+    }
+
+    /**
+     * Returns a Lucene {@link Query} matching the same rows as the specified {@link IndexExpression}, or {@code null}
+     * if there is no such {@link Query}.
+     *
+     * @param expression A CQL {@link IndexExpression}.
+     * @return A Lucene {@link Query} matching the same rows as {@code expression}, maybe {@code null}.
+     */
+    public Query query(IndexExpression expression) {
+
+        ColumnDefinition columnDefinition = metadata.getColumnDefinition(expression.column);
+        if (columnDefinition == null || !expression.value.hasRemaining()) {
+            return null;
+        }
+        String name = columnDefinition.name.toString();
+        AbstractType<?> type = columnDefinition.type;
+
+        Mapper mapper = schema.getMapper(name);
+        if (mapper == null || !mapper.isIndexed() || !name.equals(mapper.getName()) || !isExact(mapper, type)) {
+            return null;
+        }
+
+        Object value = type.compose(expression.value);
+        Condition condition;
+        switch (expression.operator) {
+            case EQ:
+                condition = new MatchCondition(null, name, value);
+                break;
+            case GT:
+                condition = new RangeCondition(null, name, value, null, false, false);
+                break;
+            case GTE:
+                condition = new RangeCondition(null, name, value, null, true, false);
+                break;
+            case LT:
+                condition = new RangeCondition(null, name, null, value, false, false);
+                break;
+            case LTE:
+                condition = new RangeCondition(null, name, null, value, false, true);
+                break;
+            default:
+                return null;
+        }
+        return condition.query(schema);
+    }
+
+    /**
+     * Returns if the specified {@link Mapper} indexes the columns of the specified type preserving their equality and
+     * order.
+     *
+     * @param mapper A {@link Mapper}.
+     * @param type   A Cassandra column type.
+     * @return {@code true} if {@code mapper} preserves the equality and order of {@code type}, {@code false} otherwise.
+     */
+    private static boolean isExact(Mapper mapper, AbstractType<?> type) {
+        if (mapper instanceof IntegerMapper) {
+            return type == Int32Type.instance;
+        } else if (mapper instanceof LongMapper) {
+            return type == LongType.instance;
+        } else if (mapper instanceof FloatMapper) {
+            return type == FloatType.instance;
+        } else if (mapper instanceof DoubleMapper) {
+            return type == DoubleType.instance;
+        } else if (mapper instanceof DateMapper) {
+            return type == TimestampType.instance;
+        } else if (mapper instanceof StringMapper) {
+            boolean isText = type == UTF8Type.instance || type == AsciiType.instance;
+            return isText && ((StringMapper) mapper).isCaseSensitive();
+        }
+        return false;
+    }
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright 2015, Stratio.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.stratio.cassandra.lucene.service;
+
+import com.stratio.cassandra.lucene.IndexConfig.MergeThrottle;
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.lucene.index.ConcurrentMergeScheduler;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.MergePolicy.OneMerge;
+import org.apache.lucene.index.MergeRateLimiter;
+
+import java.io.IOException;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link ConcurrentMergeScheduler} limiting the IO rate of the merges according to a {@link MergeThrottle}, and
+ * recording the merge activity and backlog.
+ * <p/>
+ * With {@link MergeThrottle#COMPACTION}, Cassandra's compaction throughput is shared among the running merges, so
+ * large merges don't compete with compactions and reads for the disks more than compactions themselves. The rate is
+ * read again each time a merge starts or finishes, so changes done with {@code nodetool setcompactionthroughput} are
+ * followed. A compaction throughput of {@code 0} means no throttling, as in Cassandra.
+ *
+ * @author Andres de la Pena <adelapena@stratio.com>
+ */
+public class IndexMergeScheduler extends ConcurrentMergeScheduler {
+
+    private final MergeThrottle throttle;
+    private final Set<OneMerge> runningMerges = new LinkedHashSet<>(); // Guarded by this
+
+    private final AtomicLong mergeCount = new AtomicLong();
+    private final AtomicLong mergedBytes = new AtomicLong();
+    private final AtomicLong throttledNanos = new AtomicLong();
+    private final AtomicLong stallCount = new AtomicLong();
+    private final AtomicLong stallNanos = new AtomicLong();
+
+    /**
+     * Builds a new {@link IndexMergeScheduler}.
+     *
+     * @param maxThreads The max number of running merges, {@code 0} means detecting it from the disks.
+     * @param maxMerges  The max number of pending and running merges before stalling the indexing threads, {@code 0}
+     *                   means deriving it from {@code maxThreads}.
+     * @param throttle   The {@link MergeThrottle} limiting the IO rate of the merges.
+     */
+    public IndexMergeScheduler(int maxThreads, int maxMerges, MergeThrottle throttle) {
+        this.throttle = throttle;
+        if (maxThreads > 0) {
+            setMaxMergesAndThreads(maxMerges > 0 ? maxMerges : maxThreads + 5, maxThreads);
+        }
+        if (throttle != MergeThrottle.AUTO) {
+            disableAutoIOThrottle();
+        }
+    }
+
+    /**
+     * Returns the total IO rate in MB per second to be shared among the running merges with {@link
+     * MergeThrottle#COMPACTION}, where {@code 0} means no limit.
+     *
+     * @return The max IO rate of the merges in MB per second.
+     */
+    protected double compactionMBPerSec() {
+        return DatabaseDescriptor.getCompactionThroughputMbPerSec();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected synchronized MergeThread getMergeThread(IndexWriter writer, OneMerge merge) throws IOException {
+        MergeThread mergeThread = super.getMergeThread(writer, merge);
+        runningMerges.add(merge); // Before the merge threads update, so the merge is throttled from the start
+        return mergeThread;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void doMerge(IndexWriter writer, OneMerge merge) throws IOException {
+        long bytes = merge.totalBytesSize();
+        try {
+            super.doMerge(writer, merge);
+        } finally {
+            synchronized (this) {
+                runningMerges.remove(merge);
+            }
+            mergeCount.incrementAndGet();
+            mergedBytes.addAndGet(bytes);
+            throttledNanos.addAndGet(merge.rateLimiter.getTotalPausedNS());
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected synchronized void updateMergeThreads() {
+        super.updateMergeThreads();
+        if (throttle == MergeThrottle.COMPACTION) {
+            double limit = compactionMBPerSec();
+            if (limit > 0) {
+                int active = 0;
+                for (OneMerge merge : runningMerges) {
+                    if (merge.rateLimiter.getMBPerSec() > 0) { // Not paused by the scheduler
+                        active++;
+                    }
+                }
+                for (OneMerge merge : runningMerges) {
+                    MergeRateLimiter rateLimiter = merge.rateLimiter;
+                    double rate = rateLimiter.getMBPerSec();
+                    if (rate > 0) {
+                        rateLimiter.setMBPerSec(Math.min(rate, limit / active));
+                    }
+                }
+            }
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected synchronized void doStall() {
+        long startTime = System.nanoTime();
+        super.doStall();
+        stallCount.incrementAndGet();
+        stallNanos.addAndGet(System.nanoTime() - startTime);
+    }
+
+    /**
+     * Returns the current max IO rate of all the merges in MB per second, where {@code 0} means no limit.
+     *
+     * @return The max IO rate of the merges in MB per second.
+     */
+    public double getRateLimitMBPerSec() {
+        switch (throttle) {
+            case AUTO:
+                return getIORateLimitMBPerSec();
+            case COMPACTION:
+                return compactionMBPerSec();
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Returns the number of running merges.
+     *
+     * @return The number of running merges.
+     */
+    public synchronized int getRunningMergeCount() {
+        return runningMerges.size();
+    }
+
+    /**
+     * Returns the number of finished merges.
+     *
+     * @return The number of finished merges.
+     */
+    public long getMergeCount() {
+        return mergeCount.get();
+    }
+
+    /**
+     * Returns the size in MB of the segments merged by the finished merges.
+     *
+     * @return The number of merged MB.
+     */
+    public double getMergedMB() {
+        return mergedBytes.get() / 1048576D;
+    }
+
+    /**
+     * Returns the time in milliseconds that the finished merges have been paused by the IO rate limit.
+     *
+     * @return The throttling time in milliseconds.
+     */
+    public long getThrottledMillis() {
+        return throttledNanos.get() / 1000000;
+    }
+
+    /**
+     * Returns the number of times that an indexing thread has been stalled because there were too many merges.
+     *
+     * @return The number of indexing stalls.
+     */
+    public long getStallCount() {
+        return stallCount.get();
+    }
+
+    /**
+     * Returns the time in milliseconds that the indexing threads have been stalled because there were too many merges.
+     *
+     * @return The indexing stall time in milliseconds.
+     */
+    public long getStallMillis() {
+        return stallNanos.get() / 1000000;
+    }
+}
@@ -0,0 +1,527 @@
+/*
+ * Copyright 2015, Stratio.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.stratio.cassandra.lucene.service;
+
+import com.stratio.cassandra.lucene.IndexConfig;
+import com.stratio.cassandra.lucene.util.Log;
+import org.apache.cassandra.concurrent.NamedThreadFactory;
+import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.db.IndexExpression;
+import org.apache.cassandra.db.Row;
+import org.apache.cassandra.db.RowPosition;
+import org.apache.cassandra.db.filter.ColumnSlice;
+import org.apache.cassandra.db.filter.SliceQueryFilter;
+import org.apache.cassandra.dht.AbstractBounds;
+import org.apache.cassandra.dht.IPartitioner;
+import org.apache.cassandra.dht.Range;
+import org.apache.cassandra.dht.Token;
+import org.apache.cassandra.io.util.FileUtils;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+
+import javax.management.MBeanException;
+import javax.management.ObjectName;
+import javax.management.OperationsException;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Builder of a Lucene index from the data stored in Cassandra using several threads.
+ * <p/>
+ * The token ring is split into contiguous token ranges, several per thread, so the work is balanced between threads.
+ * Each range is read in pages of partitions and indexed by a thread with its own {@link IndexWriter}, writing in a
+ * temporary directory. Then the built segments are merged into a single sorted one, added to the index and committed.
+ * The whole ring is split, instead of just the ranges owned by the node, so the split doesn't depend on the ring
+ * topology and it can be resumed after a restart. The ranges without local data are read very fast. There are at
+ * least as many ranges as token ranges of the index shards, so each built range is added to a single shard.
+ * <p/>
+ * The requested number of ranges and the ranges already added to the index are durably recorded in a state file, so an
+ * interrupted rebuild is resumed by deleting the documents of the pending ranges and building only them. The state
+ * file is removed when the rebuild is done.
+ * <p/>
+ * The index is not locked during the rebuild. The partitions written or deleted while rebuilding are recorded only if
+ * their token range hasn't been added to the index yet, because the added ranges are kept up to date by the writes.
+ * Each range indexes again its recorded partitions right after being added, so the documents read before a write and
+ * added after it are replaced.
+ *
+ * @author Andres de la Pena <adelapena@stratio.com>
+ */
+public class IndexRebuilder implements IndexRebuilderMBean {
+
+    /** The number of token ranges per rebuilding thread, so the work is balanced between threads. */
+    static final int RANGES_PER_THREAD = 4;
+
+    /** The max number of partitions read at once when reading a token range. */
+    static final int PAGE_SIZE = 1000;
+
+    private static final String STATE_FILE = "state";
+    private static final String RANGE_DIRECTORY_PREFIX = "range-";
+
+    private final RowService rowService;
+    private final Path directory;
+    private final Path stateFile;
+    private final int threads;
+    private final int ramBufferMB;
+    private final String indexName;
+    private final String logName;
+
+    private final Object addLock = new Object(); // Serializes the commit and recording of the added ranges
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile Token[] rangeLefts; // The sorted left tokens of the ranges being rebuilt
+    private volatile AtomicReferenceArray<Set<ByteBuffer>> writtenKeys; // Per range, null once it is added
+    private volatile boolean closed;
+
+    private volatile int rangeCount;
+    private volatile int resumedRangeCount;
+    private final AtomicInteger rebuiltRangeCount = new AtomicInteger();
+    private final AtomicLong rebuiltPartitionCount = new AtomicLong();
+    private final AtomicLong reindexedPartitionCount = new AtomicLong();
+    private volatile long estimatedPartitions;
+    private volatile long startTime;
+
+    private ObjectName objectName;
+
+    /**
+     * Builds a new {@link IndexRebuilder}.
+     *
+     * @param rowService The {@link RowService} of the index to be rebuilt.
+     * @param keyspace   The keyspace name.
+     * @param table      The table name.
+     * @param name       The index name.
+     * @param config     The {@link IndexConfig} of the index, whose rebuild threads {@code 0} means one per available
+     *                   processor, and whose RAM buffer is divided among the rebuilding threads.
+     */
+    public IndexRebuilder(RowService rowService, String keyspace, String table, String name, IndexConfig config) {
+        this.rowService = rowService;
+        this.directory = config.getPath().resolve("rebuild");
+        this.stateFile = directory.resolve(STATE_FILE);
+        int rebuildThreads = config.getRebuildThreads();
+        this.threads = rebuildThreads > 0 ? rebuildThreads : Runtime.getRuntime().availableProcessors();
+        this.ramBufferMB = ShardedLuceneIndex.shardMB(config.getRamBufferMB(), threads);
+        this.indexName = name;
+        this.logName = String.format("Lucene index %s.%s.%s", keyspace, table, name);
+
+        try {
+            objectName = new ObjectName(String.format(
+                    "com.stratio.cassandra.lucene:type=IndexRebuilders,keyspace=%s,table=%s,index=%s",
+                    keyspace,
+                    table,
+                    name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        } catch (MBeanException | OperationsException e) {
+            Log.error(e, "Error while registering MBean");
+        }
+    }
+
+    /**
+     * Returns the specified number of contiguous token ranges covering the whole token ring, or less if some range
+     * can't be split. The ranges are built by splitting the ring by their midpoint as many times as needed, so the
+     * number of ranges is a power of two and the split is always the same for the same number of ranges.
+     *
+     * @param partitioner The {@link IPartitioner} of the token ring.
+     * @param count       The requested number of ranges, which should be a power of two.
+     * @return The token ranges, sorted by token.
+     */
+    static List<Range<Token>> split(IPartitioner partitioner, int count) {
+        Token minimum = partitioner.getMinimumToken();
+        List<Range<Token>> ranges = Collections.singletonList(new Range<>(minimum, minimum, partitioner));
+        while (ranges.size() < count) {
+            List<Range<Token>> splitRanges = new ArrayList<>(ranges.size() * 2);
+            for (Range<Token> range : ranges) {
+                Token midpoint = partitioner.midpoint(range.left, range.right);
+                if (midpoint.equals(range.left) || midpoint.equals(range.right)) {
+                    splitRanges.add(range);
+                } else {
+                    splitRanges.add(new Range<>(range.left, midpoint, partitioner));
+                    splitRanges.add(new Range<>(midpoint, range.right, partitioner));
+                }
+            }
+            if (splitRanges.size() == ranges.size()) {
+                break;
+            }
+            ranges = splitRanges;
+        }
+        return ranges;
+    }
+
+    /**
+     * Returns the left tokens of the specified contiguous token ranges.
+     *
+     * @param ranges The token ranges, as returned by {@link #split(IPartitioner, int)}.
+     * @return The left tokens of {@code ranges}, in the same order.
+     */
+    static Token[] lefts(List<Range<Token>> ranges) {
+        Token[] lefts = new Token[ranges.size()];
+        for (int i = 0; i < lefts.length; i++) {
+            lefts[i] = ranges.get(i).left;
+        }
+        return lefts;
+    }
+
+    /**
+     * Returns the position of the token range containing the specified {@link Token}.
+     *
+     * @param rangeLefts The sorted left tokens of contiguous token ranges covering the whole ring.
+     * @param token      A {@link Token}.
+     * @return The position of the range containing {@code token}.
+     */
+    static int range(Token[] rangeLefts, Token token) {
+        int range = rangeLefts.length - 1; // The minimum token is the end of the last range
+        int low = 0;
+        int high = rangeLefts.length - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (rangeLefts[middle].compareTo(token) < 0) {
+                range = middle;
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return range;
+    }
+
+    /**
+     * Returns if there is an interrupted rebuild to be resumed.
+     *
+     * @return {@code true} if there is an interrupted rebuild, {@code false} otherwise.
+     */
+    public boolean isPending() {
+        return Files.exists(stateFile);
+    }
+
+    /**
+     * Records that the partition identified by the specified key has been written or deleted, so it is indexed again
+     * after adding its token range to the index, if it is being rebuilt and it hasn't been added yet.
+     *
+     * @param key A partition key.
+     */
+    public void written(ByteBuffer key) {
+        AtomicReferenceArray<Set<ByteBuffer>> keys = writtenKeys;
+        if (keys != null) {
+            Token token = rowService.rowMapper.partitionKey(key).getToken();
+            Set<ByteBuffer> rangeKeys = keys.get(range(rangeLefts, token));
+            if (rangeKeys != null) {
+                rangeKeys.add(key);
+            }
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void start() {
+        if (running.get()) {
+            Log.warn("%s is already being rebuilt", logName);
+            return;
+        }
+        Thread thread = new NamedThreadFactory("lucene-rebuild-" + indexName).newThread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    rebuild();
+                } catch (Exception e) {
+                    Log.error(e, "Error while rebuilding %s", logName);
+                }
+            }
+        });
+        thread.start();
+    }
+
+    /**
+     * Rebuilds the index from the data stored in Cassandra, resuming the interrupted rebuild if there is one, and
+     * waits for it to finish.
+     *
+     * @throws IOException If there are IO errors.
+     */
+    public void rebuild() throws IOException {
+        if (!running.compareAndSet(false, true)) {
+            throw new RuntimeException(String.format("%s is already being rebuilt", logName));
+        }
+        try {
+            doRebuild();
+        } finally {
+            writtenKeys = null;
+            running.set(false);
+        }
+    }
+
+    private void doRebuild() throws IOException {
+
+        // Start a new rebuild or resume the interrupted one
+        IPartitioner partitioner = DatabaseDescriptor.getPartitioner();
+        Set<Integer> rebuiltRanges = new HashSet<>();
+        boolean pending = isPending();
+        int count;
+        if (pending) {
+            List<String> lines = Files.readAllLines(stateFile, StandardCharsets.UTF_8);
+            count = Integer.parseInt(lines.get(0).trim());
+            for (String line : lines.subList(1, lines.size())) {
+                if (!line.trim().isEmpty()) {
+                    rebuiltRanges.add(Integer.parseInt(line.trim()));
+                }
+            }
+        } else {
+            int minCount = Math.max(threads * RANGES_PER_THREAD, rowService.luceneIndex.getRangeCount());
+            count = Integer.highestOneBit(minCount - 1) << 1;
+        }
+        List<Range<Token>> ranges = split(partitioner, count);
+
+        // Start recording the partitions written in the pending ranges
+        final AtomicReferenceArray<Set<ByteBuffer>> keys = new AtomicReferenceArray<>(ranges.size());
+        for (int i = 0; i < ranges.size(); i++) {
+            if (!rebuiltRanges.contains(i)) {
+                keys.set(i, Collections.newSetFromMap(new ConcurrentHashMap<ByteBuffer, Boolean>()));
+            }
+        }
+        rangeLefts = lefts(ranges);
+        writtenKeys = keys;
+        if (!pending) {
+            Files.createDirectories(directory);
+            append(String.valueOf(count));
+            rowService.truncate();
+        }
+        rangeCount = ranges.size();
+        resumedRangeCount = rebuiltRanges.size();
+        rebuiltRangeCount.set(rebuiltRanges.size());
+        rebuiltPartitionCount.set(0);
+        reindexedPartitionCount.set(0);
+        estimatedPartitions = rowService.baseCfs.estimateKeys();
+        startTime = System.nanoTime();
+        Log.info("Rebuilding %s with %d threads, %d of %d token ranges already rebuilt",
+                 logName, threads, rebuiltRanges.size(), rangeCount);
+
+        // Build the pending ranges
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int i = 0; i < ranges.size(); i++) {
+            if (!rebuiltRanges.contains(i)) {
+                final int id = i;
+                final Range<Token> range = ranges.get(i);
+                rowService.luceneIndex.delete(rowService.rowMapper.query(range)); // Added before interruption
+                tasks.add(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        rebuild(id, range, keys);
+                        return null;
+                    }
+                });
+            }
+        }
+        String threadName = "lucene-rebuild-" + indexName;
+        ExecutorService executor = Executors.newFixedThreadPool(threads, new NamedThreadFactory(threadName));
+        try {
+            List<Future<Void>> futures = new ArrayList<>(tasks.size());
+            for (Callable<Void> task : tasks) {
+                futures.add(executor.submit(task));
+            }
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(String.format("Interrupted while rebuilding %s", logName), e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(String.format("Error while rebuilding %s", logName), e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        FileUtils.deleteRecursive(directory.toFile());
+        Log.info("Rebuilt %s in %d seconds, reading %d partitions and indexing again %d written ones",
+                 logName,
+                 (System.nanoTime() - startTime) / 1000000000L,
+                 rebuiltPartitionCount.get(),
+                 reindexedPartitionCount.get());
+    }
+
+    /**
+     * Builds the specified token range in its own temporary directory and adds it to the index, indexing again the
+     * partitions of the range written meanwhile.
+     *
+     * @param id    The range position in the token ring.
+     * @param range The token range to be rebuilt.
+     * @param keys  The keys of the partitions written in each pending range.
+     * @throws IOException If there are IO errors.
+     */
+    private void rebuild(int id, Range<Token> range, AtomicReferenceArray<Set<ByteBuffer>> keys) throws IOException {
+        Path rangeDirectory = directory.resolve(RANGE_DIRECTORY_PREFIX + id);
+        FileUtils.deleteRecursive(rangeDirectory.toFile()); // Left by an interrupted rebuild
+        try (Directory rangeIndex = FSDirectory.open(rangeDirectory)) {
+
+            // Build the range apart
+            try (IndexWriter writer = rowService.luceneIndex.rebuildWriter(rangeIndex, ramBufferMB)) {
+                long timestamp = System.currentTimeMillis();
+                SliceQueryFilter filter = new SliceQueryFilter(ColumnSlice.ALL_COLUMNS_ARRAY, false, 1);
+                AbstractBounds<RowPosition> bounds = range.toRowBounds();
+                while (true) {
+                    if (closed) {
+                        throw new RuntimeException(String.format("%s closed while rebuilding", logName));
+                    }
+                    List<Row> rows = rowService.baseCfs.getRangeSlice(bounds,
+                                                                      Collections.<IndexExpression>emptyList(),
+                                                                      filter,
+                                                                      PAGE_SIZE,
+                                                                      timestamp,
+                                                                      false,
+                                                                      false);
+                    if (rows.isEmpty()) {
+                        break;
+                    }
+                    for (Row row : rows) {
+                        rowService.rebuild(row.key, timestamp, writer);
+                    }
+                    rebuiltPartitionCount.addAndGet(rows.size());
+                    bounds = new Range<>((RowPosition) rows.get(rows.size() - 1).key, bounds.right);
+                }
+                writer.forceMerge(1); // Sort the built segments
+            }
+
+            // Add the range to the index, and index again the partitions written while building it
+            rowService.luceneIndex.addIndexes(range, rangeIndex);
+            Set<ByteBuffer> writtenRangeKeys = keys.getAndSet(id, null);
+            long timestamp = System.currentTimeMillis();
+            for (ByteBuffer key : writtenRangeKeys) {
+                rowService.reindex(rowService.rowMapper.partitionKey(key), timestamp);
+            }
+            reindexedPartitionCount.addAndGet(writtenRangeKeys.size());
+            synchronized (addLock) {
+                rowService.commit();
+                append(String.valueOf(id));
+            }
+        }
+        FileUtils.deleteRecursive(rangeDirectory.toFile());
+        rebuiltRangeCount.incrementAndGet();
+        Log.debug("Rebuilt token range %s of %s", range, logName);
+    }
+
+    /**
+     * Durably appends the specified line to the state file.
+     *
+     * @param line The line to be appended.
+     * @throws IOException If there are IO errors.
+     */
+    private void append(String line) throws IOException {
+        try (FileChannel channel = FileChannel.open(stateFile,
+                                                    StandardOpenOption.CREATE,
+                                                    StandardOpenOption.WRITE,
+                                                    StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap((line + "\n").getBytes(StandardCharsets.UTF_8)));
+            channel.force(true);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int getThreads() {
+        return threads;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int getRangeCount() {
+        return rangeCount;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int getRebuiltRangeCount() {
+        return rebuiltRangeCount.get();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getRebuiltPartitionCount() {
+        return rebuiltPartitionCount.get();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * The progress is estimated comparing the read partitions with the estimated number of local partitions, assuming
+     * that the ranges rebuilt before an interruption contain their proportional part. The ratio of rebuilt ranges is
+     * used as lower bound.
+     */
+    @Override
+    public double getProgressPercent() {
+        int ranges = rangeCount;
+        if (ranges == 0) {
+            return 0;
+        }
+        double rangeProgress = (double) rebuiltRangeCount.get() / ranges;
+        long estimated = estimatedPartitions;
+        if (estimated <= 0) {
+            return rangeProgress * 100;
+        }
+        double resumed = (double) estimated * resumedRangeCount / ranges;
+        double partitionProgress = Math.min(1, (resumed + rebuiltPartitionCount.get()) / estimated);
+        return Math.max(rangeProgress, partitionProgress) * 100;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getEtaSeconds() {
+        int ranges = rangeCount;
+        if (!running.get() || ranges == 0) {
+            return -1;
+        }
+        double progress = getProgressPercent() / 100;
+        double doneInRun = progress - (double) resumedRangeCount / ranges;
+        if (doneInRun <= 0) {
+            return -1;
+        }
+        double elapsedSeconds = (System.nanoTime() - startTime) / 1000000000D;
+        return (long) (elapsedSeconds * (1 - progress) / doneInRun);
+    }
+
+    /**
+     * Stops the running rebuild, if any, and unregisters the MBean. The interrupted rebuild can be resumed later.
+     */
+    public void close() {
+        closed = true;
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (MBeanException | OperationsException e) {
+            Log.error(e, "Error while removing MBean");
+        }
+    }
+}
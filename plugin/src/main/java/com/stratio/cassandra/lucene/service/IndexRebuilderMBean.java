@@ -0,0 +1,80 @@
+/*
+ * Copyright 2015, Stratio.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.stratio.cassandra.lucene.service;
+
+/**
+ * JMX interface for {@link IndexRebuilder}.
+ *
+ * @author Andres de la Pena <adelapena@stratio.com>
+ */
+public interface IndexRebuilderMBean {
+
+    /**
+     * Starts rebuilding the index in background from the data stored in Cassandra, resuming the interrupted rebuild if
+     * there is one. Nothing is done if the index is already being rebuilt.
+     */
+    void start();
+
+    /**
+     * Returns if the index is being rebuilt.
+     *
+     * @return {@code true} if the index is being rebuilt, {@code false} otherwise.
+     */
+    boolean isRunning();
+
+    /**
+     * Returns the number of threads used by the rebuilds.
+     *
+     * @return The number of rebuilding threads.
+     */
+    int getThreads();
+
+    /**
+     * Returns the number of token ranges of the current or last rebuild.
+     *
+     * @return The number of token ranges.
+     */
+    int getRangeCount();
+
+    /**
+     * Returns the number of token ranges already added to the index by the current or last rebuild, including those
+     * added before being interrupted.
+     *
+     * @return The number of rebuilt token ranges.
+     */
+    int getRebuiltRangeCount();
+
+    /**
+     * Returns the number of partitions read by the current or last rebuild since it was started or resumed.
+     *
+     * @return The number of rebuilt partitions.
+     */
+    long getRebuiltPartitionCount();
+
+    /**
+     * Returns the estimated percentage of the current or last rebuild that has been done.
+     *
+     * @return The estimated rebuild progress percentage.
+     */
+    double getProgressPercent();
+
+    /**
+     * Returns the estimated number of seconds until the current rebuild is done, or {@code -1} if it is unknown.
+     *
+     * @return The estimated remaining rebuild time in seconds.
+     */
+    long getEtaSeconds();
+}
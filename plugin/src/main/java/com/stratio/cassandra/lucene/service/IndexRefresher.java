@@ -0,0 +1,258 @@
+/*
+ * Copyright 2015, Stratio.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.stratio.cassandra.lucene.service;
+
+import com.stratio.cassandra.lucene.util.Log;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.search.ReferenceManager;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Thread reopening the NRT index readers adaptively, as an alternative to Lucene's fixed-rate {@link
+ * org.apache.lucene.search.ControlledRealTimeReopenThread}.
+ * <p/>
+ * Readers are only reopened when there are unrefreshed writes. The oldest of them is made visible after the max
+ * refresh time at most. If a search arrives while there are unrefreshed writes, the readers are reopened as soon as the
+ * min refresh time since the previous reopen has elapsed, so the next searches see the writes. This min time is
+ * multiplied by {@link #MERGE_BACKOFF} while the index writer has merges waiting for a merge thread, to not compete
+ * with them for IO, but never above the max time.
+ *
+ * @author Andres de la Pena <adelapena@stratio.com>
+ */
+public class IndexRefresher extends Thread implements Closeable {
+
+    /** The factor applied to the min refresh time while there are pending merges. */
+    static final int MERGE_BACKOFF = 4;
+
+    private static final long NONE = Long.MIN_VALUE; // The time of the oldest unrefreshed write when there are none
+
+    private final ReferenceManager<?> manager;
+    private final IndexWriter indexWriter;
+    private final long minRefreshNanos;
+    private final long maxRefreshNanos;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition wakeUp = lock.newCondition();
+
+    private final AtomicLong firstChangeTime = new AtomicLong(NONE); // The time of the oldest unrefreshed write
+    private volatile long lastRefreshTime = System.nanoTime();
+    private volatile boolean demanded;
+    private volatile boolean closed;
+
+    private final AtomicLong refreshCount = new AtomicLong();
+    private final AtomicLong demandedRefreshCount = new AtomicLong();
+    private final AtomicLong skippedRefreshCount = new AtomicLong();
+    private final AtomicLong refreshLagNanos = new AtomicLong();
+    private final AtomicLong maxRefreshLagNanos = new AtomicLong();
+
+    /**
+     * Builds a new {@link IndexRefresher}, which must be started.
+     *
+     * @param name              The name of the thread.
+     * @param manager           The {@link ReferenceManager} whose readers are reopened.
+     * @param indexWriter       The {@link IndexWriter} whose merges are checked, {@code null} for not backing off.
+     * @param minRefreshSeconds The min time in seconds between reopens triggered by searches.
+     * @param maxRefreshSeconds The max time in seconds that a write can remain invisible.
+     */
+    public IndexRefresher(String name,
+                          ReferenceManager<?> manager,
+                          IndexWriter indexWriter,
+                          double minRefreshSeconds,
+                          double maxRefreshSeconds) {
+        super(name);
+        this.manager = manager;
+        this.indexWriter = indexWriter;
+        this.minRefreshNanos = (long) (minRefreshSeconds * 1000000000L);
+        this.maxRefreshNanos = (long) (maxRefreshSeconds * 1000000000L);
+        setDaemon(true);
+    }
+
+    /**
+     * Notifies that the index has been modified, so the readers must be reopened in the max refresh time at most.
+     */
+    public void changed() {
+        long now = System.nanoTime();
+        if (firstChangeTime.get() == NONE && firstChangeTime.compareAndSet(NONE, now == NONE ? now + 1 : now)) {
+            signal(); // The thread could be idle waiting for a change
+        }
+    }
+
+    /**
+     * Notifies that a search is starting, so the readers should be reopened soon if there are unrefreshed writes.
+     */
+    public void demand() {
+        if (!demanded && firstChangeTime.get() != NONE) {
+            demanded = true;
+            signal();
+        }
+    }
+
+    private void signal() {
+        lock.lock();
+        try {
+            wakeUp.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the time in nanoseconds to wait before the next reopen, which is negative or zero if it is due.
+     *
+     * @param now The current time in nanoseconds.
+     * @return The time in nanoseconds until the next reopen.
+     */
+    private long delay(long now) {
+        long firstChange = firstChangeTime.get();
+        if (firstChange == NONE) {
+            return maxRefreshNanos;
+        }
+        long due = firstChange + maxRefreshNanos;
+        if (demanded) {
+            long minNanos = minRefreshNanos;
+            if (indexWriter != null && indexWriter.hasPendingMerges()) {
+                minNanos = Math.min(maxRefreshNanos, minRefreshNanos * MERGE_BACKOFF);
+            }
+            due = Math.min(due, lastRefreshTime + minNanos);
+        }
+        return due - now;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void run() {
+        while (!closed) {
+            if (delay(System.nanoTime()) <= 0) {
+                boolean wasDemanded = demanded;
+                try {
+                    refresh();
+                } catch (IOException e) {
+                    Log.error(e, "Error while refreshing index readers");
+                }
+                if (wasDemanded) {
+                    demandedRefreshCount.incrementAndGet();
+                }
+                continue;
+            }
+            lock.lock();
+            try {
+                long delay = delay(System.nanoTime());
+                if (!closed && delay > 0) {
+                    boolean idle = firstChangeTime.get() == NONE;
+                    wakeUp.awaitNanos(delay);
+                    if (idle && firstChangeTime.get() == NONE && !closed) {
+                        skippedRefreshCount.incrementAndGet();
+                    }
+                }
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Reopens the readers now if there are unrefreshed writes, blocking until it is done.
+     *
+     * @throws IOException If Lucene throws IO errors.
+     */
+    public void refresh() throws IOException {
+        long firstChange = firstChangeTime.getAndSet(NONE); // Later writes will be seen by the next reopen
+        demanded = false;
+        if (firstChange == NONE) {
+            return;
+        }
+        long startTime = System.nanoTime();
+        manager.maybeRefreshBlocking();
+        long endTime = System.nanoTime();
+        lastRefreshTime = startTime;
+        refreshCount.incrementAndGet();
+        long lag = endTime - firstChange;
+        refreshLagNanos.addAndGet(lag);
+        long max = maxRefreshLagNanos.get();
+        while (lag > max && !maxRefreshLagNanos.compareAndSet(max, lag)) {
+            max = maxRefreshLagNanos.get();
+        }
+    }
+
+    /**
+     * Returns the number of reopens of the readers.
+     *
+     * @return The number of reopens.
+     */
+    public long getRefreshCount() {
+        return refreshCount.get();
+    }
+
+    /**
+     * Returns the number of reopens brought forward by searches.
+     *
+     * @return The number of reopens triggered by searches.
+     */
+    public long getDemandedRefreshCount() {
+        return demandedRefreshCount.get();
+    }
+
+    /**
+     * Returns the number of max refresh periods elapsed without writes, where a fixed-rate reopen has been skipped.
+     *
+     * @return The number of skipped reopens.
+     */
+    public long getSkippedRefreshCount() {
+        return skippedRefreshCount.get();
+    }
+
+    /**
+     * Returns the mean time in milliseconds between the oldest unrefreshed write and the end of the reopen making it
+     * visible, or {@code 0} if there have been no reopens.
+     *
+     * @return The mean refresh lag in milliseconds.
+     */
+    public double getMeanRefreshLagMillis() {
+        long refreshes = refreshCount.get();
+        return refreshes == 0 ? 0 : refreshLagNanos.get() / 1000000D / refreshes;
+    }
+
+    /**
+     * Returns the max time in milliseconds between the oldest unrefreshed write and the end of the reopen making it
+     * visible.
+     *
+     * @return The max refresh lag in milliseconds.
+     */
+    public long getMaxRefreshLagMillis() {
+        return maxRefreshLagNanos.get() / 1000000;
+    }
+
+    /**
+     * Stops this thread, waiting for its termination.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        signal();
+        try {
+            join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2015, Stratio.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.stratio.cassandra.lucene.service;
+
+import com.stratio.cassandra.lucene.util.Log;
+import org.apache.cassandra.db.ArrayBackedSortedColumns;
+import org.apache.cassandra.db.ColumnFamily;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Asynchronous indexing task for the mutations of a partition. The mutations received for the same partition while the
+ * task is waiting in the queue are merged into it, so each written row is read and indexed only once. Mutations with
+ * deletions are never merged, because the indexing of rows with cells doesn't apply the deletions.
+ *
+ * @author Andres de la Pena <adelapena@stratio.com>
+ */
+class IndexTask implements Runnable {
+
+    private final RowService rowService;
+    private final ConcurrentMap<ByteBuffer, IndexTask> pendingTasks;
+    private final ByteBuffer key;
+    private ColumnFamily columnFamily; // Guarded by this
+    private long timestamp; // Guarded by this
+    private boolean started; // Guarded by this
+    private boolean copied; // Guarded by this
+
+    /**
+     * Builds a new {@link IndexTask} for the specified mutation.
+     *
+     * @param rowService   The {@link RowService} indexing the mutation.
+     * @param pendingTasks The not started tasks by partition key, to be updated when this task starts.
+     * @param key          The partition key.
+     * @param columnFamily The mutation {@link ColumnFamily}.
+     * @param timestamp    The insertion time.
+     */
+    IndexTask(RowService rowService,
+              ConcurrentMap<ByteBuffer, IndexTask> pendingTasks,
+              ByteBuffer key,
+              ColumnFamily columnFamily,
+              long timestamp) {
+        this.rowService = rowService;
+        this.pendingTasks = pendingTasks;
+        this.key = key;
+        this.columnFamily = columnFamily;
+        this.timestamp = timestamp;
+    }
+
+    /**
+     * Returns if the specified mutation {@link ColumnFamily} can be merged with other ones, which is the case of the
+     * mutations writing cells without any deletion.
+     *
+     * @param columnFamily A mutation {@link ColumnFamily}.
+     * @return {@code true} if {@code columnFamily} can be merged, {@code false} otherwise.
+     */
+    static boolean isMergeable(ColumnFamily columnFamily) {
+        return columnFamily.deletionInfo().isLive() && columnFamily.iterator().hasNext();
+    }
+
+    /**
+     * Merges the specified mutation into this task if it has not started yet. The mutation must be mergeable.
+     *
+     * @param columnFamily The mutation {@link ColumnFamily} to be merged.
+     * @param timestamp    The insertion time of the mutation.
+     * @return {@code true} if the mutation has been merged, {@code false} if this task has already started.
+     */
+    synchronized boolean merge(ColumnFamily columnFamily, long timestamp) {
+        if (started) {
+            return false;
+        }
+        if (!copied) { // Don't modify the received mutation
+            ColumnFamily copy = ArrayBackedSortedColumns.factory.create(this.columnFamily.metadata());
+            copy.addAll(this.columnFamily);
+            this.columnFamily = copy;
+            copied = true;
+        }
+        this.columnFamily.addAll(columnFamily);
+        this.timestamp = Math.max(this.timestamp, timestamp);
+        return true;
+    }
+
+    /**
+     * Returns the merged mutation {@link ColumnFamily}.
+     *
+     * @return The merged mutation.
+     */
+    synchronized ColumnFamily getColumnFamily() {
+        return columnFamily;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void run() {
+        ColumnFamily columnFamily;
+        long timestamp;
+        synchronized (this) {
+            started = true;
+            columnFamily = this.columnFamily;
+            timestamp = this.timestamp;
+        }
+        pendingTasks.remove(key, this);
+        try {
+            rowService.doIndex(key, columnFamily, timestamp);
+        } catch (Exception e) {
+            Log.error(e, "Unrecoverable error during asynchronously indexing");
+        }
+    }
+}
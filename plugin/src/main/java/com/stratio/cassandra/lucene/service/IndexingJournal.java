@@ -0,0 +1,302 @@
+/*
+ * Copyright 2015, Stratio.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.stratio.cassandra.lucene.service;
+
+import com.stratio.cassandra.lucene.util.Log;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of the partition keys having index changes not committed yet. Only the keys are written, not the
+ * documents, so the affected partitions can be read back from Cassandra and indexed again after a crash.
+ * <p/>
+ * The journal is composed by segment files named {@code journal-<id>.log} inside the index directory, which are
+ * ignored by Lucene. Each record is the key length as a short, followed by the key bytes and their CRC32 checksum, so
+ * a torn write at the end of a segment is detected and discarded when it is read. Appends are synced to disk in
+ * groups: the first thread waiting for a record to be durable syncs all the records appended until then, and the
+ * threads whose records have already been synced return without touching the disk.
+ * <p/>
+ * A commit rolls the journal to a new segment and, once the Lucene commit has finished, trims the segments written
+ * before the roll. The segments found when the journal is opened belong to a previous execution, and their keys can
+ * be recovered with {@link #recoveredKeys()}. These segments are not trimmed until {@link #replayed()} notifies that
+ * their keys have been indexed again, so a failed replay doesn't lose them.
+ *
+ * @author Andres de la Pena <adelapena@stratio.com>
+ */
+public class IndexingJournal implements Closeable {
+
+    static final String PREFIX = "journal-";
+    static final String SUFFIX = ".log";
+
+    private static final int HEADER_SIZE = 2; // The key length
+    private static final int CHECKSUM_SIZE = 4; // The key CRC32
+
+    private final Path directory;
+    private final List<Path> recoveredSegments;
+    private volatile long recoveredMaxId; // The id of the last recovered segment not replayed yet, -1 if none
+    private final Object syncLock = new Object();
+
+    private FileChannel channel; // The current segment channel, guarded by this
+    private long segment; // The current segment id, guarded by this
+    private long appendedCount; // The number of appended records, guarded by this
+    private volatile long syncedCount; // The number of records known to be synced
+    private volatile long syncCount; // The number of performed syncs, guarded by syncLock
+
+    /**
+     * Opens a new journal in the specified directory, which is created if it doesn't exist. The existing segments are
+     * kept for being recovered and trimmed, and new records are written to a new segment.
+     *
+     * @param directory The directory where the segment files are stored.
+     * @throws IOException If there are IO errors.
+     */
+    public IndexingJournal(Path directory) throws IOException {
+        this.directory = directory;
+        Files.createDirectories(directory);
+        recoveredSegments = segments(Long.MAX_VALUE);
+        recoveredMaxId = recoveredSegments.isEmpty() ? -1 : id(recoveredSegments.get(recoveredSegments.size() - 1));
+        segment = recoveredMaxId + 1;
+        channel = open(segment);
+    }
+
+    private Path path(long id) {
+        return directory.resolve(PREFIX + id + SUFFIX);
+    }
+
+    private static long id(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+
+    private static boolean isSegment(Path path) {
+        String name = path.getFileName().toString();
+        if (!name.startsWith(PREFIX) || !name.endsWith(SUFFIX) || name.length() == PREFIX.length() + SUFFIX.length()) {
+            return false;
+        }
+        for (int i = PREFIX.length(); i < name.length() - SUFFIX.length(); i++) {
+            if (!Character.isDigit(name.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the segment files with an id lower than or equal to the specified one, sorted by id.
+     *
+     * @param maxId The max segment id.
+     * @return The segment files with an id lower than or equal to {@code maxId}.
+     * @throws IOException If there are IO errors.
+     */
+    private List<Path> segments(long maxId) throws IOException {
+        List<Path> segments = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path path : stream) {
+                if (isSegment(path) && id(path) <= maxId) {
+                    segments.add(path);
+                }
+            }
+        }
+        Collections.sort(segments, new Comparator<Path>() {
+            @Override
+            public int compare(Path path1, Path path2) {
+                return Long.compare(id(path1), id(path2));
+            }
+        });
+        return segments;
+    }
+
+    private FileChannel open(long id) throws IOException {
+        return FileChannel.open(path(id), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * Appends the specified partition key to the journal. The record is not guaranteed to be durable until {@link
+     * #sync(long)} is called with the returned sequence number.
+     *
+     * @param key A partition key.
+     * @return The sequence number of the appended record.
+     * @throws IOException If there are IO errors.
+     */
+    public synchronized long append(ByteBuffer key) throws IOException {
+        int length = key.remaining();
+        if (length > 0xFFFF) {
+            throw new IllegalArgumentException(String.format("Key is too long to be journaled: %d bytes", length));
+        }
+        CRC32 checksum = new CRC32();
+        byte[] bytes = new byte[length];
+        key.duplicate().get(bytes);
+        checksum.update(bytes, 0, length);
+        ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + length + CHECKSUM_SIZE);
+        record.putShort((short) length);
+        record.put(bytes);
+        record.putInt((int) checksum.getValue());
+        record.flip();
+        while (record.hasRemaining()) {
+            channel.write(record);
+        }
+        return ++appendedCount;
+    }
+
+    /**
+     * Waits until the record with the specified sequence number, and all the previous ones, are synced to disk. If
+     * they are not synced yet, all the records appended until now are synced at once.
+     *
+     * @param sequence The sequence number returned by {@link #append(ByteBuffer)}.
+     * @throws IOException If there are IO errors.
+     */
+    public void sync(long sequence) throws IOException {
+        if (syncedCount >= sequence) {
+            return;
+        }
+        synchronized (syncLock) {
+            if (syncedCount >= sequence) {
+                return; // Synced by another thread while waiting
+            }
+            long target;
+            FileChannel syncedChannel;
+            synchronized (this) {
+                target = appendedCount;
+                syncedChannel = channel;
+            }
+            syncedChannel.force(false);
+            syncCount++;
+            syncedCount = target;
+        }
+    }
+
+    /**
+     * Syncs and closes the current segment and starts writing to a new one.
+     *
+     * @return The id of the closed segment, to be passed to {@link #trim(long)} once its records have been committed.
+     * @throws IOException If there are IO errors.
+     */
+    public long roll() throws IOException {
+        synchronized (syncLock) {
+            synchronized (this) {
+                channel.force(false);
+                channel.close();
+                syncCount++;
+                syncedCount = appendedCount;
+                long closedSegment = segment++;
+                channel = open(segment);
+                return closedSegment;
+            }
+        }
+    }
+
+    /**
+     * Deletes the segments with an id lower than or equal to the specified one. The recovered segments are deleted
+     * only if {@link #replayed()} has been called.
+     *
+     * @param maxId The id of the last segment to be deleted, as returned by {@link #roll()}.
+     * @throws IOException If there are IO errors.
+     */
+    public void trim(long maxId) throws IOException {
+        for (Path path : segments(maxId)) {
+            if (id(path) > recoveredMaxId) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    /**
+     * Notifies that the {@link #recoveredKeys()} have been indexed again, so the recovered segments can be trimmed
+     * once the replayed changes are committed.
+     */
+    public void replayed() {
+        recoveredMaxId = -1;
+    }
+
+    /**
+     * Returns the distinct keys contained in the segments existing when this journal was opened, in their appending
+     * order. The reading of each segment stops at its first torn or corrupt record.
+     *
+     * @return The partition keys journaled by a previous execution.
+     * @throws IOException If there are IO errors.
+     */
+    public Set<ByteBuffer> recoveredKeys() throws IOException {
+        Set<ByteBuffer> keys = new LinkedHashSet<>();
+        for (Path path : recoveredSegments) {
+            if (Files.exists(path)) {
+                read(path, keys);
+            }
+        }
+        return keys;
+    }
+
+    private static void read(Path path, Set<ByteBuffer> keys) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path));
+        CRC32 checksum = new CRC32();
+        while (buffer.remaining() >= HEADER_SIZE) {
+            int length = buffer.getShort() & 0xFFFF;
+            if (buffer.remaining() < length + CHECKSUM_SIZE) {
+                Log.warn("Discarding torn record at the end of indexing journal segment %s", path);
+                return;
+            }
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            checksum.reset();
+            checksum.update(bytes, 0, length);
+            if (buffer.getInt() != (int) checksum.getValue()) {
+                Log.warn("Discarding corrupt records of indexing journal segment %s", path);
+                return;
+            }
+            keys.add(ByteBuffer.wrap(bytes));
+        }
+    }
+
+    /**
+     * Returns the number of records appended since this journal was opened.
+     *
+     * @return The number of appended records.
+     */
+    public synchronized long getAppendedCount() {
+        return appendedCount;
+    }
+
+    /**
+     * Returns the number of syncs to disk performed since this journal was opened.
+     *
+     * @return The number of syncs.
+     */
+    public long getSyncCount() {
+        return syncCount;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void close() throws IOException {
+        synchronized (syncLock) {
+            synchronized (this) {
+                channel.close();
+            }
+        }
+    }
+}
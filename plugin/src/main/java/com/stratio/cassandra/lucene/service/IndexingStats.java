@@ -0,0 +1,281 @@
+/*
+ * Copyright 2015, Stratio.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.stratio.cassandra.lucene.service;
+
+import com.google.common.base.Objects;
+import com.stratio.cassandra.lucene.util.Log;
+import com.stratio.cassandra.lucene.util.TaskQueue;
+import org.apache.cassandra.utils.EstimatedHistogram;
+
+import javax.management.MBeanException;
+import javax.management.ObjectName;
+import javax.management.OperationsException;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Statistics of the mutations received by an index, of its commits and of its asynchronous indexing queue and
+ * journal, if any.
+ *
+ * @author Andres de la Pena <adelapena@stratio.com>
+ */
+public class IndexingStats implements IndexingStatsMBean {
+
+    /** The number of buckets of the commit latency histogram, whose max offset in microseconds is about one hour. */
+    static final int COMMIT_LATENCY_BUCKETS = 120;
+
+    private final AtomicLong mutationCount = new AtomicLong();
+    private final AtomicLong skippedCount = new AtomicLong();
+    private final AtomicLong coalescedCount = new AtomicLong();
+    private final AtomicLong commitCount = new AtomicLong();
+    private final AtomicLong commitStallNanos = new AtomicLong();
+    private final AtomicLong maxCommitStallNanos = new AtomicLong();
+    private final AtomicLong commitNanos = new AtomicLong();
+    private final AtomicLong replayedCount = new AtomicLong();
+    private final AtomicLong skippedFlushCount = new AtomicLong();
+    private final EstimatedHistogram commitLatencies = new EstimatedHistogram(COMMIT_LATENCY_BUCKETS);
+    private final TaskQueue queue;
+    private final IndexingJournal journal;
+    private final String logName;
+    private ObjectName objectName;
+
+    /**
+     * Builds a new {@link IndexingStats} for the specified index.
+     *
+     * @param keyspace The keyspace name.
+     * @param table    The table name.
+     * @param name     The index name.
+     * @param queue    The asynchronous indexing {@link TaskQueue}, or {@code null} if indexing is synchronous.
+     * @param journal  The {@link IndexingJournal}, or {@code null} if there is no journal.
+     */
+    public IndexingStats(String keyspace, String table, String name, TaskQueue queue, IndexingJournal journal) {
+        this.queue = queue;
+        this.journal = journal;
+        this.logName = String.format("Indexing stats %s.%s.%s", keyspace, table, name);
+
+        // Register JMX MBean
+        try {
+            objectName = new ObjectName(String.format(
+                    "com.stratio.cassandra.lucene:type=IndexingStats,keyspace=%s,table=%s,index=%s",
+                    keyspace,
+                    table,
+                    name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        } catch (MBeanException | OperationsException e) {
+            Log.error(e, "Error while registering MBean");
+        }
+    }
+
+    /**
+     * Records a received mutation.
+     *
+     * @param skipped If the mutation has been skipped because it doesn't modify any mapped column.
+     */
+    public void recordMutation(boolean skipped) {
+        mutationCount.incrementAndGet();
+        if (skipped) {
+            skippedCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * Records a mutation merged into a pending asynchronous indexing task.
+     */
+    public void recordCoalesced() {
+        coalescedCount.incrementAndGet();
+    }
+
+    /**
+     * Records a performed commit.
+     *
+     * @param stallNanos  The time in nanoseconds spent waiting for the previously queued indexing tasks.
+     * @param commitNanos The time in nanoseconds spent by the Lucene commit.
+     */
+    public void recordCommit(long stallNanos, long commitNanos) {
+        commitCount.incrementAndGet();
+        commitStallNanos.addAndGet(stallNanos);
+        this.commitNanos.addAndGet(commitNanos);
+        commitLatencies.add((stallNanos + commitNanos) / 1000);
+        long max = maxCommitStallNanos.get();
+        while (stallNanos > max && !maxCommitStallNanos.compareAndSet(max, stallNanos)) {
+            max = maxCommitStallNanos.get();
+        }
+    }
+
+    /**
+     * Records a memtable flush that hasn't triggered a commit due to the commit policy.
+     */
+    public void recordSkippedFlush() {
+        skippedFlushCount.incrementAndGet();
+    }
+
+    /**
+     * Records the replaying of the indexing journal at startup.
+     *
+     * @param partitions The number of indexed again partitions.
+     */
+    public void recordReplayed(long partitions) {
+        replayedCount.addAndGet(partitions);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getMutationCount() {
+        return mutationCount.get();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getSkippedCount() {
+        return skippedCount.get();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getCoalescedCount() {
+        return coalescedCount.get();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getQueueDepth() {
+        return queue == null ? 0 : queue.getQueueDepth();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getBatchCount() {
+        return queue == null ? 0 : queue.getBatchCount();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public double getMeanBatchSize() {
+        long batches = getBatchCount();
+        return batches == 0 ? 0 : (double) queue.getTaskCount() / batches;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int getMaxBatchSize() {
+        return queue == null ? 0 : queue.getMaxBatchSize();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getCommitCount() {
+        return commitCount.get();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public double getMeanCommitStallMicros() {
+        long commits = commitCount.get();
+        return commits == 0 ? 0 : commitStallNanos.get() / 1000D / commits;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getMaxCommitStallMicros() {
+        return maxCommitStallNanos.get() / 1000;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public double getMeanCommitMicros() {
+        long commits = commitCount.get();
+        return commits == 0 ? 0 : commitNanos.get() / 1000D / commits;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getSkippedFlushCount() {
+        return skippedFlushCount.get();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getCommitLatencyMedianMicros() {
+        return commitLatencyPercentile(0.5);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getCommitLatency95thMicros() {
+        return commitLatencyPercentile(0.95);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getCommitLatency99thMicros() {
+        return commitLatencyPercentile(0.99);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getMaxCommitLatencyMicros() {
+        return commitLatencies.isOverflowed() ? Long.MAX_VALUE : commitLatencies.max();
+    }
+
+    private long commitLatencyPercentile(double percentile) {
+        if (commitLatencies.isOverflowed()) {
+            return Long.MAX_VALUE;
+        }
+        return commitLatencies.count() == 0 ? 0 : commitLatencies.percentile(percentile);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getJournaledCount() {
+        return journal == null ? 0 : journal.getAppendedCount();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getJournalSyncCount() {
+        return journal == null ? 0 : journal.getSyncCount();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getReplayedCount() {
+        return replayedCount.get();
+    }
+
+    /**
+     * Unregisters the JMX MBean.
+     */
+    public void close() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (MBeanException | OperationsException e) {
+            Log.error(e, "Error while removing MBean");
+        }
+        Log.info("%s closed", logName);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+                      .add("name", logName)
+                      .add("mutations", mutationCount.get())
+                      .add("skipped", skippedCount.get())
+                      .add("coalesced", coalescedCount.get())
+                      .add("commits", commitCount.get())
+                      .toString();
+    }
+}
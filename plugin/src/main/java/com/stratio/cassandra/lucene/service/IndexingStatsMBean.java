@@ -0,0 +1,164 @@
+/*
+ * Copyright 2015, Stratio.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.stratio.cassandra.lucene.service;
+
+/**
+ * JMX interface for {@link IndexingStats}.
+ *
+ * @author Andres de la Pena <adelapena@stratio.com>
+ */
+public interface IndexingStatsMBean {
+
+    /**
+     * Returns the number of received mutations, including the skipped ones.
+     *
+     * @return The number of received mutations.
+     */
+    long getMutationCount();
+
+    /**
+     * Returns the number of mutations that have been skipped because they don't modify any mapped column.
+     *
+     * @return The number of skipped mutations.
+     */
+    long getSkippedCount();
+
+    /**
+     * Returns the number of mutations that have been merged into a pending asynchronous indexing task for the same
+     * partition, saving a row read and a document write.
+     *
+     * @return The number of coalesced mutations.
+     */
+    long getCoalescedCount();
+
+    /**
+     * Returns the approximate number of mutations waiting in the asynchronous indexing queues.
+     *
+     * @return The number of queued mutations, or {@code 0} if indexing is synchronous.
+     */
+    long getQueueDepth();
+
+    /**
+     * Returns the number of batches of tasks taken from the asynchronous indexing queues.
+     *
+     * @return The number of batches, or {@code 0} if indexing is synchronous.
+     */
+    long getBatchCount();
+
+    /**
+     * Returns the mean number of tasks per batch taken from the asynchronous indexing queues.
+     *
+     * @return The mean batch size, or {@code 0} if there have been no batches.
+     */
+    double getMeanBatchSize();
+
+    /**
+     * Returns the number of tasks of the biggest batch taken from the asynchronous indexing queues.
+     *
+     * @return The max batch size, or {@code 0} if there have been no batches.
+     */
+    int getMaxBatchSize();
+
+    /**
+     * Returns the number of performed commits.
+     *
+     * @return The number of performed commits.
+     */
+    long getCommitCount();
+
+    /**
+     * Returns the mean time in microseconds that a commit waits for the completion of the previously queued indexing
+     * tasks, or {@code 0} if there have been no commits. Indexing is not stopped during this time.
+     *
+     * @return The mean commit stall time in microseconds.
+     */
+    double getMeanCommitStallMicros();
+
+    /**
+     * Returns the max time in microseconds that a commit has waited for the completion of the previously queued
+     * indexing tasks.
+     *
+     * @return The max commit stall time in microseconds.
+     */
+    long getMaxCommitStallMicros();
+
+    /**
+     * Returns the mean time in microseconds spent by the Lucene commits, or {@code 0} if there have been no commits.
+     *
+     * @return The mean Lucene commit time in microseconds.
+     */
+    double getMeanCommitMicros();
+
+    /**
+     * Returns the median total time in microseconds of the commits, including both the stall and the Lucene commit.
+     * The value is the upper bound of its histogram bucket, with a relative error of up to 20%.
+     *
+     * @return The median commit latency in microseconds, or {@code 0} if there have been no commits.
+     */
+    long getCommitLatencyMedianMicros();
+
+    /**
+     * Returns the 95th percentile of the total time in microseconds of the commits, including both the stall and the
+     * Lucene commit.
+     *
+     * @return The 95th percentile commit latency in microseconds, or {@code 0} if there have been no commits.
+     */
+    long getCommitLatency95thMicros();
+
+    /**
+     * Returns the 99th percentile of the total time in microseconds of the commits, including both the stall and the
+     * Lucene commit.
+     *
+     * @return The 99th percentile commit latency in microseconds, or {@code 0} if there have been no commits.
+     */
+    long getCommitLatency99thMicros();
+
+    /**
+     * Returns the max total time in microseconds of the commits, including both the stall and the Lucene commit.
+     *
+     * @return The max commit latency in microseconds, or {@code 0} if there have been no commits.
+     */
+    long getMaxCommitLatencyMicros();
+
+    /**
+     * Returns the number of memtable flushes that haven't triggered a commit due to the commit policy.
+     *
+     * @return The number of skipped flushes.
+     */
+    long getSkippedFlushCount();
+
+    /**
+     * Returns the number of partition keys written to the indexing journal.
+     *
+     * @return The number of journaled keys, or {@code 0} if there is no journal.
+     */
+    long getJournaledCount();
+
+    /**
+     * Returns the number of syncs to disk of the indexing journal. Each sync makes durable all the keys journaled
+     * until then, so the ratio between journaled keys and syncs is the mean group size.
+     *
+     * @return The number of journal syncs, or {@code 0} if there is no journal.
+     */
+    long getJournalSyncCount();
+
+    /**
+     * Returns the number of partitions indexed again at startup because they were found in the indexing journal.
+     *
+     * @return The number of replayed partitions.
+     */
+    long getReplayedCount();
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2015, Stratio.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.stratio.cassandra.lucene.service;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.TermToBytesRefAttribute;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.FieldType;
+import org.apache.lucene.index.IndexOptions;
+import org.apache.lucene.util.AttributeImpl;
+import org.apache.lucene.util.AttributeReflector;
+import org.apache.lucene.util.BytesRef;
+
+/**
+ * A {@link Field} that is indexed as a single raw binary term, like a {@link org.apache.lucene.document.StringField}
+ * whose value is a {@link BytesRef} instead of a {@link String}. It can be optionally stored.
+ *
+ * @author Andres de la Pena <adelapena@stratio.com>
+ */
+final class KeyField extends Field {
+
+    /** Indexed, not tokenized, omits norms, indexes only docs, and stores the value. */
+    private static final FieldType TYPE_STORED = new FieldType();
+
+    /** Indexed, not tokenized, omits norms, indexes only docs, and does not store the value. */
+    private static final FieldType TYPE_NOT_STORED = new FieldType();
+
+    static {
+        TYPE_NOT_STORED.setOmitNorms(true);
+        TYPE_NOT_STORED.setIndexOptions(IndexOptions.DOCS);
+        TYPE_NOT_STORED.setTokenized(false);
+        TYPE_NOT_STORED.freeze();
+
+        TYPE_STORED.setOmitNorms(true);
+        TYPE_STORED.setIndexOptions(IndexOptions.DOCS);
+        TYPE_STORED.setTokenized(false);
+        TYPE_STORED.setStored(true);
+        TYPE_STORED.freeze();
+    }
+
+    /**
+     * Builds a new {@link KeyField}. Note that the specified {@link BytesRef} is not copied, so it must not be modified
+     * until the document containing this field has been indexed.
+     *
+     * @param name  The field name.
+     * @param value The binary value to be indexed.
+     * @param store If the value must be stored.
+     */
+    KeyField(String name, BytesRef value, Store store) {
+        super(name, store == Store.YES ? TYPE_STORED : TYPE_NOT_STORED);
+        fieldsData = value;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public TokenStream tokenStream(Analyzer analyzer, TokenStream reuse) {
+        KeyTokenStream tokenStream = reuse instanceof KeyTokenStream ? (KeyTokenStream) reuse : new KeyTokenStream();
+        tokenStream.setValue((BytesRef) fieldsData);
+        return tokenStream;
+    }
+
+    /**
+     * {@link TokenStream} producing a single binary term.
+     */
+    private static final class KeyTokenStream extends TokenStream {
+
+        private final KeyTermAttribute termAttribute = new KeyTermAttribute();
+        private boolean used = true;
+
+        /**
+         * Builds a new empty {@link KeyTokenStream}.
+         */
+        KeyTokenStream() {
+            addAttributeImpl(termAttribute);
+        }
+
+        /**
+         * Sets the binary term to be produced.
+         *
+         * @param value The binary term to be produced.
+         */
+        void setValue(BytesRef value) {
+            termAttribute.setBytesRef(value);
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public boolean incrementToken() {
+            if (used) {
+                return false;
+            }
+            clearAttributes();
+            used = true;
+            return true;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public void reset() {
+            used = false;
+        }
+    }
+
+    /**
+     * {@link TermToBytesRefAttribute} holding an already encoded binary term.
+     */
+    private static final class KeyTermAttribute extends AttributeImpl implements TermToBytesRefAttribute {
+
+        private BytesRef bytes;
+
+        /**
+         * Sets the binary term.
+         *
+         * @param bytes The binary term.
+         */
+        void setBytesRef(BytesRef bytes) {
+            this.bytes = bytes;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public void fillBytesRef() {
+            // Already encoded
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public BytesRef getBytesRef() {
+            return bytes;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public void clear() {
+            // The binary term is kept until a new one is set
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public void copyTo(AttributeImpl target) {
+            ((KeyTermAttribute) target).setBytesRef(bytes);
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public void reflectWith(AttributeReflector reflector) {
+            reflector.reflect(TermToBytesRefAttribute.class, "bytes", bytes);
+        }
+    }
+}
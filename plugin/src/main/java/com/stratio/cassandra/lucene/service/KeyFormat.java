@@ -0,0 +1,172 @@
+/*
+ * Copyright 2015, Stratio.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.stratio.cassandra.lucene.service;
+
+import com.stratio.cassandra.lucene.util.ByteBufferUtils;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.Field.Store;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.BinaryDocValues;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.util.BytesRef;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The formats in which the primary key fields (partition key, clustering key and full key) are encoded in the Lucene
+ * index. The format is decided when the index is created, and it is recorded in the index commit data, so existing
+ * indexes are still read and written with the format they were created with.
+ *
+ * @author Andres de la Pena <adelapena@stratio.com>
+ */
+public enum KeyFormat {
+
+    /** Legacy format, where keys are encoded as Base256 {@link String}s kept in stored fields. */
+    STRING(1, true),
+
+    /**
+     * Keys are encoded as raw binary terms and kept in doc values, with no intermediate {@link String}. Clustering keys
+     * and partitioner tokens are indexed with encodings whose byte order matches the clustering key comparator and the
+     * token order, if the clustering column types and the partitioner support it.
+     */
+    BINARY(2, false);
+
+    /** The format to be used by new indexes. */
+    public static final KeyFormat CURRENT = BINARY;
+
+    private final int version;
+    private final boolean legacy;
+
+    /**
+     * Builds a new {@link KeyFormat} identified by the specified index format version.
+     *
+     * @param version The index format version.
+     * @param legacy  If this is the legacy {@link #STRING} format.
+     */
+    KeyFormat(int version, boolean legacy) {
+        this.version = version;
+        this.legacy = legacy;
+    }
+
+    /**
+     * Returns the index format version identifying this format.
+     *
+     * @return The index format version identifying this format.
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns if this is the legacy format, which keeps the keys as strings in stored fields and indexes clustering
+     * keys and tokens with no order-preserving encodings.
+     *
+     * @return {@code true} if this is the legacy {@link #STRING} format, {@code false} otherwise.
+     */
+    public boolean isLegacy() {
+        return legacy;
+    }
+
+    /**
+     * Returns the {@link KeyFormat} identified by the specified index format version.
+     *
+     * @param version An index format version.
+     * @return The {@link KeyFormat} identified by the specified index format version.
+     */
+    public static KeyFormat fromVersion(int version) {
+        for (KeyFormat keyFormat : values()) {
+            if (keyFormat.version == version) {
+                return keyFormat;
+            }
+        }
+        throw new IllegalArgumentException(String.format("Unsupported index format version %d", version));
+    }
+
+    /**
+     * Returns the Lucene {@link Term} for the specified raw key in the specified field.
+     *
+     * @param name The field name.
+     * @param key  The raw key.
+     * @return The Lucene {@link Term} for the specified raw key in the specified field.
+     */
+    public Term term(String name, ByteBuffer key) {
+        return new Term(name, bytesRef(key));
+    }
+
+    /**
+     * Returns the indexed term, and the doc values, representation of the specified raw key.
+     *
+     * @param key The raw key.
+     * @return The indexed term representation of the specified raw key.
+     */
+    public BytesRef bytesRef(ByteBuffer key) {
+        return legacy ? new BytesRef(ByteBufferUtils.toString(key)) : ByteBufferUtils.bytesRef(key);
+    }
+
+    /**
+     * Returns the raw key represented by the specified indexed term or doc value. The returned {@link ByteBuffer} may
+     * share its contents with the {@link BytesRef}.
+     *
+     * @param bytesRef An indexed term or doc value.
+     * @return The raw key represented by {@code bytesRef}.
+     */
+    public ByteBuffer byteBuffer(BytesRef bytesRef) {
+        return legacy ? ByteBufferUtils.fromString(bytesRef.utf8ToString()) : ByteBufferUtils.byteBuffer(bytesRef);
+    }
+
+    /**
+     * Returns a non tokenized indexed {@link Field} for the specified raw key.
+     *
+     * @param name  The field name.
+     * @param key   The raw key.
+     * @param store If the key must be stored.
+     * @return A non tokenized indexed {@link Field} for the specified raw key.
+     */
+    public Field field(String name, ByteBuffer key, Store store) {
+        if (legacy) {
+            return new StringField(name, ByteBufferUtils.toString(key), store);
+        } else {
+            return new KeyField(name, ByteBufferUtils.bytesRef(key), store);
+        }
+    }
+
+    /**
+     * Returns a copy of the raw key kept in the specified doc values for the specified document.
+     *
+     * @param docValues The doc values of a key field, which must not be {@link #isLegacy()} format.
+     * @param docId     A segment document id.
+     * @return A copy of the raw key of the document {@code docId} in {@code docValues}.
+     */
+    public ByteBuffer byteBuffer(BinaryDocValues docValues, int docId) {
+        return ByteBuffer.wrap(BytesRef.deepCopyOf(docValues.get(docId)).bytes);
+    }
+
+    /**
+     * Returns the raw key stored in the specified field of the specified {@link Document}.
+     *
+     * @param document A {@link Document}.
+     * @param name     The name of the stored field.
+     * @return The raw key stored in the specified field of {@code document}.
+     */
+    public ByteBuffer byteBuffer(Document document, String name) {
+        if (legacy) {
+            return ByteBufferUtils.fromString(document.get(name));
+        } else {
+            return ByteBufferUtils.byteBuffer(document.getBinaryValue(name));
+        }
+    }
+}
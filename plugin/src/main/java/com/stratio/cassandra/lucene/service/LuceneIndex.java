@@ -15,29 +15,40 @@
  */
 package com.stratio.cassandra.lucene.service;
 
+import com.stratio.cassandra.lucene.IndexConfig;
+import com.stratio.cassandra.lucene.IndexConfig.DirectoryType;
+import com.stratio.cassandra.lucene.IndexConfig.MergeThrottle;
 import com.stratio.cassandra.lucene.util.Log;
 import org.apache.cassandra.io.util.FileUtils;
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.document.Document;
+import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.SegmentInfos;
+import org.apache.lucene.index.SerialMergeScheduler;
 import org.apache.lucene.index.SortingMergePolicy;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.index.TieredMergePolicy;
-import org.apache.lucene.index.TrackingIndexWriter;
 import org.apache.lucene.search.*;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.store.MMapDirectory;
+import org.apache.lucene.store.NIOFSDirectory;
 import org.apache.lucene.store.NRTCachingDirectory;
+import org.apache.lucene.util.Accountable;
 
 import javax.management.MBeanException;
 import javax.management.ObjectName;
 import javax.management.OperationsException;
 import java.io.IOException;
+import java.io.FileNotFoundException;
 import java.lang.management.ManagementFactory;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
-import java.util.LinkedHashMap;
+import java.util.Collections;
 import java.util.Map;
 import java.util.Set;
 
@@ -48,22 +59,44 @@ import java.util.Set;
  */
 public class LuceneIndex implements LuceneIndexMBean {
 
+    /** The commit data key of the index format version. */
+    public static final String FORMAT_VERSION = "format_version";
+
     private final String keyspace;
     private final String table;
     private final String name;
     private final Path path;
-    private final Double refreshSeconds;
-    private final Integer ramBufferMB;
-    private final Integer maxMergeMB;
-    private final Integer maxCachedMB;
+    private final double minRefreshSeconds;
+    private final double refreshSeconds;
+    private final int ramBufferMB;
+    private final int maxMergeMB;
+    private final int maxCachedMB;
+    private final DirectoryType directoryType;
+    private final boolean nrtCaching;
+    private final int mmapChunkMB;
+    private final int maxFilterCacheMB;
+    private final int warmingQueries;
+    private final double mergeSegmentsPerTier;
+    private final int mergeMaxSegmentMB;
+    private final double mergeDeletesPctAllowed;
+    private final int mergeThreads;
+    private final int maxMerges;
+    private final MergeThrottle mergeThrottle;
+    private final KeyFormat keyFormat;
     private final Analyzer analyzer;
     private final String logName;
 
+    private FSDirectory fsDirectory;
+    private NRTCachingDirectory nrtCachingDirectory;
     private Directory directory;
     private IndexWriter indexWriter;
     private SearcherManager searcherManager;
-    private ControlledRealTimeReopenThread<IndexSearcher> searcherReopener;
+    private IndexRefresher searcherReopener;
     private SortingMergePolicy sortingMergePolicy;
+    private IndexMergeScheduler mergeScheduler;
+    private SegmentFilterCache filterCache;
+    private QueryCachingPolicy filterCachingPolicy;
+    private SearcherWarmer searcherWarmer;
 
     private Sort sort;
     private ObjectName objectName;
@@ -73,37 +106,46 @@ public class LuceneIndex implements LuceneIndexMBean {
     }
 
     /**
-     * Builds a new {@code RowDirectory} using the specified directory path and analyzer.
+     * Builds a new {@code RowDirectory} using the specified directory path and analyzer. The memory budgets of the
+     * specified {@link IndexConfig} are divided among its shards.
      *
-     * @param keyspace       The keyspace name.
-     * @param table          The table name.
-     * @param name           The index name.
-     * @param path           The analyzer to be used. The path of the directory in where the Lucene files will be
-     *                       stored.
-     * @param refreshSeconds The index readers refresh time in seconds. No guarantees that the writings are visible
-     *                       until this time.
-     * @param ramBufferMB    The index writer buffer size in MB.
-     * @param maxMergeMB     NRTCachingDirectory max merge size in MB.
-     * @param maxCachedMB    NRTCachingDirectory max cached MB.
-     * @param analyzer       The default {@link Analyzer}.
+     * @param keyspace  The keyspace name.
+     * @param table     The table name.
+     * @param name      The index name.
+     * @param path      The path of the directory in where the Lucene files will be stored.
+     * @param config    The {@link IndexConfig} with the index options.
+     * @param keyFormat The format of the primary key fields, to be recorded in the index commit data.
+     * @param analyzer  The default {@link Analyzer}.
      */
     public LuceneIndex(String keyspace,
                        String table,
                        String name,
                        Path path,
-                       Double refreshSeconds,
-                       Integer ramBufferMB,
-                       Integer maxMergeMB,
-                       Integer maxCachedMB,
+                       IndexConfig config,
+                       KeyFormat keyFormat,
                        Analyzer analyzer) {
+        int shards = config.getShards();
         this.keyspace = keyspace;
         this.table = table;
         this.name = name;
         this.path = path;
-        this.refreshSeconds = refreshSeconds;
-        this.ramBufferMB = ramBufferMB;
-        this.maxMergeMB = maxMergeMB;
-        this.maxCachedMB = maxCachedMB;
+        this.minRefreshSeconds = config.getMinRefreshSeconds();
+        this.refreshSeconds = config.getRefreshSeconds();
+        this.ramBufferMB = ShardedLuceneIndex.shardMB(config.getRamBufferMB(), shards);
+        this.maxMergeMB = config.getMaxMergeMB();
+        this.maxCachedMB = ShardedLuceneIndex.shardMB(config.getMaxCachedMB(), shards);
+        this.directoryType = config.getDirectoryType();
+        this.nrtCaching = config.isNRTCaching();
+        this.mmapChunkMB = config.getMmapChunkMB();
+        this.maxFilterCacheMB = ShardedLuceneIndex.shardMB(config.getMaxFilterCacheMB(), shards);
+        this.warmingQueries = config.getWarmingQueries();
+        this.mergeSegmentsPerTier = config.getMergeSegmentsPerTier();
+        this.mergeMaxSegmentMB = config.getMergeMaxSegmentMB();
+        this.mergeDeletesPctAllowed = config.getMergeDeletesPctAllowed();
+        this.mergeThreads = config.getMergeThreads();
+        this.maxMerges = config.getMaxMerges();
+        this.mergeThrottle = config.getMergeThrottle();
+        this.keyFormat = keyFormat;
         this.analyzer = analyzer;
         this.logName = String.format("Lucene index %s.%s.%s", keyspace, table, name);
     }
@@ -119,10 +161,21 @@ public class LuceneIndex implements LuceneIndexMBean {
         this.sort = sort;
 
         // Open or create directory
-        FSDirectory fsDirectory = FSDirectory.open(path);
-        directory = new NRTCachingDirectory(fsDirectory, maxMergeMB, maxCachedMB);
+        fsDirectory = fsDirectory();
+        if (nrtCaching) {
+            nrtCachingDirectory = new NRTCachingDirectory(fsDirectory, maxMergeMB, maxCachedMB);
+            directory = nrtCachingDirectory;
+        } else {
+            directory = fsDirectory;
+        }
 
-        sortingMergePolicy = new SortingMergePolicy(new TieredMergePolicy(), sort);
+        TieredMergePolicy mergePolicy = new TieredMergePolicy();
+        mergePolicy.setSegmentsPerTier(mergeSegmentsPerTier);
+        mergePolicy.setMaxMergedSegmentMB(mergeMaxSegmentMB);
+        mergePolicy.setForceMergeDeletesPctAllowed(mergeDeletesPctAllowed);
+        sortingMergePolicy = new SortingMergePolicy(mergePolicy, sort);
+        mergeScheduler = new IndexMergeScheduler(mergeThreads, maxMerges, mergeThrottle);
+        searcherWarmer = new SearcherWarmer(sort, warmingQueries);
 
         // Setup index writer
         IndexWriterConfig config = new IndexWriterConfig(analyzer);
@@ -130,22 +183,35 @@ public class LuceneIndex implements LuceneIndexMBean {
         config.setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND);
         config.setUseCompoundFile(true);
         config.setMergePolicy(sortingMergePolicy);
+        config.setMergeScheduler(mergeScheduler);
+        config.setMergedSegmentWarmer(searcherWarmer);
         indexWriter = new IndexWriter(directory, config);
+        indexWriter.setCommitData(commitData());
+
+        // Setup filter cache
+        if (maxFilterCacheMB > 0) {
+            filterCache = new SegmentFilterCache(keyspace, table, name, maxFilterCacheMB);
+            filterCachingPolicy = new UsageTrackingQueryCachingPolicy();
+        }
 
         // Setup NRT search
         SearcherFactory searcherFactory = new SearcherFactory() {
             public IndexSearcher newSearcher(IndexReader reader) throws IOException {
-                IndexSearcher searcher = new IndexSearcher(reader);
-                searcher.setSimilarity(new NoIDFSimilarity());
+                IndexSearcher searcher = new WeightIndexSearcher(reader);
+                if (filterCache != null) {
+                    searcher.setQueryCache(filterCache);
+                    searcher.setQueryCachingPolicy(filterCachingPolicy);
+                }
+                searcherWarmer.warm(searcher); // Warm before publishing
                 return searcher;
             }
         };
-        TrackingIndexWriter trackingIndexWriter = new TrackingIndexWriter(indexWriter);
         searcherManager = new SearcherManager(indexWriter, true, searcherFactory);
-        searcherReopener = new ControlledRealTimeReopenThread<>(trackingIndexWriter,
-                                                                searcherManager,
-                                                                refreshSeconds,
-                                                                refreshSeconds);
+        searcherReopener = new IndexRefresher("lucene-refresh-" + name,
+                                              searcherManager,
+                                              indexWriter,
+                                              minRefreshSeconds,
+                                              refreshSeconds);
         searcherReopener.start(); // Start the refresher thread
 
         // Register JMX MBean
@@ -161,6 +227,26 @@ public class LuceneIndex implements LuceneIndexMBean {
         }
     }
 
+    /**
+     * Returns a new {@link FSDirectory} for the index path according to the {@link DirectoryType}.
+     *
+     * @return A new {@link FSDirectory}.
+     * @throws IOException If Lucene throws IO errors.
+     */
+    private FSDirectory fsDirectory() throws IOException {
+        int maxChunkSize = mmapChunkMB > 0 ? mmapChunkMB * 1024 * 1024 : MMapDirectory.DEFAULT_MAX_CHUNK_SIZE;
+        switch (directoryType) {
+            case MMAP:
+                return new MMapDirectory(path, maxChunkSize);
+            case MMAP_PRELOAD:
+                return new PreloadMMapDirectory(path, maxChunkSize);
+            case NIO:
+                return new NIOFSDirectory(path);
+            default:
+                return FSDirectory.open(path);
+        }
+    }
+
     /**
      * Updates the specified {@link Document} by first deleting the documents containing {@code Term} and then adding
      * the new document. The delete and then add are atomic as seen by a reader on the same index (flush may happen only
@@ -173,6 +259,7 @@ public class LuceneIndex implements LuceneIndexMBean {
     public void upsert(Term term, Document document) throws IOException {
         Log.debug("%s update document %s with term %s", logName, document, term);
         indexWriter.updateDocument(term, document);
+        searcherReopener.changed();
     }
 
     /**
@@ -184,6 +271,7 @@ public class LuceneIndex implements LuceneIndexMBean {
     public void delete(Term term) throws IOException {
         Log.debug(String.format("%s delete by term %s", logName, term));
         indexWriter.deleteDocuments(term);
+        searcherReopener.changed();
     }
 
     /**
@@ -195,6 +283,45 @@ public class LuceneIndex implements LuceneIndexMBean {
     public void delete(Query query) throws IOException {
         Log.debug("%s deleting by query %s", logName, query);
         indexWriter.deleteDocuments(query);
+        searcherReopener.changed();
+    }
+
+    /**
+     * Returns a new {@link IndexWriter} for building a part of this index apart in the specified empty {@link
+     * Directory}, using the same {@link Analyzer} and {@link Sort}. The built segments must be merged into a single
+     * one with {@link IndexWriter#forceMerge(int)} before closing the writer, so the added segment is sorted. Flushed
+     * segments are not compound, so even a single one is rewritten by the forced merge. Merges are done in the calling
+     * thread. The writer buffer size is given apart from the index one, because there are several writers at once.
+     *
+     * @param directory   The {@link Directory} where the part of the index is built.
+     * @param ramBufferMB The writer buffer size in MB.
+     * @return A new {@link IndexWriter} writing in {@code directory}.
+     * @throws IOException If Lucene throws IO errors.
+     */
+    public IndexWriter rebuildWriter(Directory directory, int ramBufferMB) throws IOException {
+        TieredMergePolicy mergePolicy = new TieredMergePolicy();
+        mergePolicy.setNoCFSRatio(1.0);
+        mergePolicy.setMaxCFSSegmentSizeMB(Double.POSITIVE_INFINITY);
+        IndexWriterConfig config = new IndexWriterConfig(analyzer);
+        config.setRAMBufferSizeMB(ramBufferMB);
+        config.setOpenMode(IndexWriterConfig.OpenMode.CREATE);
+        config.setUseCompoundFile(false);
+        config.setMergePolicy(new SortingMergePolicy(mergePolicy, sort));
+        config.setMergeScheduler(new SerialMergeScheduler());
+        return new IndexWriter(directory, config);
+    }
+
+    /**
+     * Adds to this index the segments of the index stored in the specified {@link Directory}, which must not be open
+     * by any {@link IndexWriter}. The segments are copied without merging them.
+     *
+     * @param directory The {@link Directory} containing the index to be added.
+     * @throws IOException If Lucene throws IO errors.
+     */
+    public void addIndexes(Directory directory) throws IOException {
+        indexWriter.addIndexes(directory);
+        searcherReopener.changed();
+        Log.debug("%s added indexes from %s", logName, directory);
     }
 
     /**
@@ -204,9 +331,39 @@ public class LuceneIndex implements LuceneIndexMBean {
      */
     public void truncate() throws IOException {
         indexWriter.deleteAll();
+        searcherReopener.changed();
+        indexWriter.setCommitData(commitData());
         Log.info("%s truncated", logName);
     }
 
+    /**
+     * Returns the data to be recorded in each commit, which includes the index format version.
+     *
+     * @return The data to be recorded in each commit.
+     */
+    private Map<String, String> commitData() {
+        return Collections.singletonMap(FORMAT_VERSION, String.valueOf(keyFormat.getVersion()));
+    }
+
+    /**
+     * Returns the {@link KeyFormat} of the index stored in the specified directory. Existing indexes without a recorded
+     * format version use {@link KeyFormat#STRING}, and new indexes use {@link KeyFormat#CURRENT}.
+     *
+     * @param path The path of the index directory.
+     * @return The {@link KeyFormat} of the index stored in {@code path}.
+     * @throws IOException If Lucene throws IO errors.
+     */
+    public static KeyFormat keyFormat(Path path) throws IOException {
+        try (Directory directory = FSDirectory.open(path)) {
+            if (DirectoryReader.indexExists(directory)) {
+                String version = SegmentInfos.readLatestCommit(directory).getUserData().get(FORMAT_VERSION);
+                return version == null ? KeyFormat.STRING : KeyFormat.fromVersion(Integer.parseInt(version));
+            } else {
+                return KeyFormat.CURRENT;
+            }
+        }
+    }
+
     /**
      * Commits the pending changes.
      *
@@ -224,10 +381,13 @@ public class LuceneIndex implements LuceneIndexMBean {
      * @throws IOException If Lucene throws IO errors.
      */
     public void close() throws IOException {
-        searcherReopener.interrupt();
+        searcherReopener.close();
         searcherManager.close();
         indexWriter.close();
         directory.close();
+        if (filterCache != null) {
+            filterCache.close();
+        }
         try {
             ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
         } catch (MBeanException | OperationsException e) {
@@ -247,6 +407,52 @@ public class LuceneIndex implements LuceneIndexMBean {
         Log.info("%s removed", logName);
     }
 
+    /**
+     * Opens a new {@link SearchSession} for paginating the hits for {@code query}, sorted by the criteria in {@code
+     * sort}. All the pages of the session will see the same point-in-time view of the index. The returned session must
+     * be closed after use.
+     *
+     * @param query         The {@link Query} to search for.
+     * @param sort          The {@link Sort} to be applied.
+     * @param usesRelevance If the search uses relevance.
+     * @return A new {@link SearchSession}.
+     * @throws IOException If Lucene throws IO errors.
+     */
+    public SearchSession session(Query query, Sort sort, boolean usesRelevance) throws IOException {
+        return new SearchSession(Collections.singletonList(searcherManager(query, sort, usesRelevance)),
+                                 query,
+                                 sort,
+                                 usesRelevance,
+                                 this.sort,
+                                 sortingMergePolicy,
+                                 null);
+    }
+
+    /**
+     * Returns the {@link SearcherManager} for starting a search session over this index, demanding a fresh view of the
+     * index and recording the search for warming the next searchers.
+     *
+     * @param query         The {@link Query} to search for.
+     * @param sort          The {@link Sort} to be applied.
+     * @param usesRelevance If the search uses relevance.
+     * @return The {@link SearcherManager} providing the {@link IndexSearcher}s of this index.
+     */
+    SearcherManager searcherManager(Query query, Sort sort, boolean usesRelevance) {
+        Log.debug("%s search by query %s", logName, query);
+        searcherReopener.demand();
+        searcherWarmer.record(query, sort == null && !usesRelevance ? this.sort : sort);
+        return searcherManager;
+    }
+
+    /**
+     * Returns the {@link SortingMergePolicy} keeping the segments of this index sorted.
+     *
+     * @return The {@link SortingMergePolicy} of this index.
+     */
+    SortingMergePolicy getSortingMergePolicy() {
+        return sortingMergePolicy;
+    }
+
     /**
      * Finds the top {@code count} hits for {@code query}, applying {@code clusteringKeyFilter} if non-null, and sorting
      * the hits by the criteria in {@code sortFields}.
@@ -265,43 +471,8 @@ public class LuceneIndex implements LuceneIndexMBean {
                                           Integer count,
                                           Set<String> fieldsToLoad,
                                           boolean usesRelevance) throws IOException {
-        Log.debug("%s search by query %s", logName, query);
-        IndexSearcher searcher = searcherManager.acquire();
-        try {
-            // Search
-            ScoreDoc start = after == null ? null : after;
-            TopDocs topDocs = topDocs(searcher, query, sort, start, count, usesRelevance);
-            ScoreDoc[] scoreDocs = topDocs.scoreDocs;
-
-            // Collect the documents from query result
-            Map<Document, ScoreDoc> searchResults = new LinkedHashMap<>();
-            for (ScoreDoc scoreDoc : scoreDocs) {
-                Document document = searcher.doc(scoreDoc.doc, fieldsToLoad);
-                searchResults.put(document, scoreDoc);
-            }
-
-            return searchResults;
-        } finally {
-            searcherManager.release(searcher);
-        }
-    }
-
-    private TopDocs topDocs(IndexSearcher searcher,
-                            Query query,
-                            Sort sort,
-                            ScoreDoc after,
-                            int count,
-                            boolean usesRelevance) throws IOException {
-        if (sort != null) {
-            return searcher.searchAfter(after, query, count, sort);
-        } else if (usesRelevance) {
-            return searcher.searchAfter(after, query, count);
-        } else {
-            FieldDoc start = after == null ? null : (FieldDoc) after;
-            TopFieldCollector tfc = TopFieldCollector.create(this.sort, count, start, true, false, false);
-            Collector collector = new EarlyTerminatingSortingCollector(tfc, this.sort, count, sortingMergePolicy);
-            searcher.search(query, collector);
-            return tfc.topDocs();
+        try (SearchSession session = session(query, sort, usesRelevance)) {
+            return session.search(after, count, fieldsToLoad);
         }
     }
 
@@ -376,6 +547,165 @@ public class LuceneIndex implements LuceneIndexMBean {
     @Override
     public void refresh() {
         Log.info("%s refreshing readers", logName);
-        searcherReopener.run();
+        try {
+            searcherReopener.refresh();
+        } catch (IOException e) {
+            Log.error(e, "%s error while refreshing readers", logName);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getRefreshCount() {
+        return searcherReopener.getRefreshCount();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getDemandedRefreshCount() {
+        return searcherReopener.getDemandedRefreshCount();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getSkippedRefreshCount() {
+        return searcherReopener.getSkippedRefreshCount();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public double getMeanRefreshLagMillis() {
+        return searcherReopener.getMeanRefreshLagMillis();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getMaxRefreshLagMillis() {
+        return searcherReopener.getMaxRefreshLagMillis();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getWarmingCount() {
+        return searcherWarmer.getWarmingCount();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getWarmedSegmentCount() {
+        return searcherWarmer.getWarmedSegmentCount();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getReplayedQueryCount() {
+        return searcherWarmer.getReplayedQueryCount();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public double getMeanWarmingMillis() {
+        return searcherWarmer.getMeanWarmingMillis();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getMaxWarmingMillis() {
+        return searcherWarmer.getMaxWarmingMillis();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int getMergeBacklog() {
+        return indexWriter.getMergingSegments().size();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int getRunningMergeCount() {
+        return mergeScheduler.getRunningMergeCount();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getMergeCount() {
+        return mergeScheduler.getMergeCount();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public double getMergedMB() {
+        return mergeScheduler.getMergedMB();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public double getMergeRateLimitMBPerSec() {
+        return mergeScheduler.getRateLimitMBPerSec();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getMergeThrottledMillis() {
+        return mergeScheduler.getThrottledMillis();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getMergeStallCount() {
+        return mergeScheduler.getStallCount();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getMergeStallMillis() {
+        return mergeScheduler.getStallMillis();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public double getDiskMB() throws IOException {
+        long bytes = 0;
+        for (String file : fsDirectory.listAll()) {
+            try {
+                bytes += fsDirectory.fileLength(file);
+            } catch (NoSuchFileException | FileNotFoundException e) {
+                // Deleted while listing
+            }
+        }
+        return bytes / 1048576D;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public double getNRTCachedMB() {
+        return nrtCachingDirectory == null ? 0 : nrtCachingDirectory.ramBytesUsed() / 1048576D;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public double getReaderHeapMB() throws IOException {
+        IndexSearcher searcher = searcherManager.acquire();
+        try {
+            long bytes = 0;
+            for (LeafReaderContext context : searcher.getIndexReader().leaves()) {
+                if (context.reader() instanceof Accountable) {
+                    bytes += ((Accountable) context.reader()).ramBytesUsed();
+                }
+            }
+            return bytes / 1048576D;
+        } finally {
+            searcherManager.release(searcher);
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public double getResidentMB() throws IOException {
+        double residentMB = getReaderHeapMB() + getNRTCachedMB();
+        if (directoryType == DirectoryType.MMAP_PRELOAD) {
+            residentMB += getDiskMB();
+        }
+        return residentMB;
     }
 }
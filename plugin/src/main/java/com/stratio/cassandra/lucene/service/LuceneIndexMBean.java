@@ -53,4 +53,163 @@ public interface LuceneIndexMBean {
      * Refreshes the index readers.
      */
     void refresh();
+
+    /**
+     * Returns the number of refreshes of the index readers.
+     *
+     * @return The number of refreshes.
+     */
+    long getRefreshCount();
+
+    /**
+     * Returns the number of refreshes of the index readers brought forward by searches finding unrefreshed writes.
+     *
+     * @return The number of refreshes triggered by searches.
+     */
+    long getDemandedRefreshCount();
+
+    /**
+     * Returns the number of max refresh periods elapsed without writes, so the index readers haven't been refreshed.
+     *
+     * @return The number of skipped refreshes.
+     */
+    long getSkippedRefreshCount();
+
+    /**
+     * Returns the mean time in milliseconds for a write to become visible to the searches, measured from the oldest
+     * write of each refresh.
+     *
+     * @return The mean refresh lag in milliseconds.
+     */
+    double getMeanRefreshLagMillis();
+
+    /**
+     * Returns the max time in milliseconds for a write to become visible to the searches.
+     *
+     * @return The max refresh lag in milliseconds.
+     */
+    long getMaxRefreshLagMillis();
+
+    /**
+     * Returns the number of index searchers warmed before being published.
+     *
+     * @return The number of warmed searchers.
+     */
+    long getWarmingCount();
+
+    /**
+     * Returns the number of index segments whose sort doc values have been preloaded, including the merged ones.
+     *
+     * @return The number of warmed segments.
+     */
+    long getWarmedSegmentCount();
+
+    /**
+     * Returns the number of recent searches replayed for warming new index searchers.
+     *
+     * @return The number of replayed searches.
+     */
+    long getReplayedQueryCount();
+
+    /**
+     * Returns the mean time in milliseconds spent warming a new index searcher before publishing it.
+     *
+     * @return The mean warming time in milliseconds.
+     */
+    double getMeanWarmingMillis();
+
+    /**
+     * Returns the max time in milliseconds spent warming a new index searcher before publishing it.
+     *
+     * @return The max warming time in milliseconds.
+     */
+    long getMaxWarmingMillis();
+
+    /**
+     * Returns the number of segments registered for merging, including those of the merges waiting for a thread.
+     *
+     * @return The number of segments in the merge backlog.
+     */
+    int getMergeBacklog();
+
+    /**
+     * Returns the number of running merges.
+     *
+     * @return The number of running merges.
+     */
+    int getRunningMergeCount();
+
+    /**
+     * Returns the number of finished merges.
+     *
+     * @return The number of finished merges.
+     */
+    long getMergeCount();
+
+    /**
+     * Returns the size in MB of the segments merged by the finished merges.
+     *
+     * @return The number of merged MB.
+     */
+    double getMergedMB();
+
+    /**
+     * Returns the current max IO rate of all the merges in MB per second, where {@code 0} means no limit.
+     *
+     * @return The max IO rate of the merges in MB per second.
+     */
+    double getMergeRateLimitMBPerSec();
+
+    /**
+     * Returns the time in milliseconds that the finished merges have been paused by the IO rate limit.
+     *
+     * @return The merge throttling time in milliseconds.
+     */
+    long getMergeThrottledMillis();
+
+    /**
+     * Returns the number of times that indexing has been stalled waiting for merges.
+     *
+     * @return The number of indexing stalls.
+     */
+    long getMergeStallCount();
+
+    /**
+     * Returns the time in milliseconds that indexing has been stalled waiting for merges.
+     *
+     * @return The indexing stall time in milliseconds.
+     */
+    long getMergeStallMillis();
+
+    /**
+     * Returns the size in MB of the index files stored on disk, excluding the ones cached in memory.
+     *
+     * @return The size in MB of the index files on disk.
+     * @throws IOException If Lucene throws IO errors.
+     */
+    double getDiskMB() throws IOException;
+
+    /**
+     * Returns the size in MB of the new small segments cached in memory.
+     *
+     * @return The size in MB of the NRT cache.
+     */
+    double getNRTCachedMB();
+
+    /**
+     * Returns the size in MB of the heap used by the current index readers.
+     *
+     * @return The size in MB of the index readers heap.
+     * @throws IOException If Lucene throws IO errors.
+     */
+    double getReaderHeapMB() throws IOException;
+
+    /**
+     * Returns the estimated size in MB of the memory held by the index, which includes the readers heap, the NRT cache
+     * and, with the preloading memory mapped directory, the index files.
+     *
+     * @return The estimated resident size in MB.
+     * @throws IOException If Lucene throws IO errors.
+     */
+    double getResidentMB() throws IOException;
 }
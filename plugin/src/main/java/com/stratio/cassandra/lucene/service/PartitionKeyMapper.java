@@ -21,18 +21,23 @@ import com.stratio.cassandra.lucene.util.ByteBufferUtils;
 import org.apache.cassandra.config.CFMetaData;
 import org.apache.cassandra.config.ColumnDefinition;
 import org.apache.cassandra.config.DatabaseDescriptor;
+import org.apache.cassandra.db.BufferDecoratedKey;
 import org.apache.cassandra.db.DecoratedKey;
 import org.apache.cassandra.db.Row;
 import org.apache.cassandra.db.marshal.AbstractType;
 import org.apache.cassandra.dht.IPartitioner;
+import org.apache.cassandra.dht.Token;
+import org.apache.lucene.document.BinaryDocValuesField;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
 import org.apache.lucene.document.Field.Store;
-import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.LeafReader;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.TermQuery;
 
+import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.List;
 
@@ -49,26 +54,30 @@ public class PartitionKeyMapper {
     private final IPartitioner partitioner; // The active active partition key
     private final CFMetaData metadata; // The table metadata
     private final AbstractType<?> type; // The partition key type
+    private final KeyFormat keyFormat; // The index key format
 
     /**
      * Returns a new {@code PartitionKeyMapper} according to the specified column family meta data.
      *
-     * @param metadata The column family metadata.
+     * @param metadata  The column family metadata.
+     * @param keyFormat The index key format.
      */
-    private PartitionKeyMapper(CFMetaData metadata) {
+    private PartitionKeyMapper(CFMetaData metadata, KeyFormat keyFormat) {
         partitioner = DatabaseDescriptor.getPartitioner();
         this.metadata = metadata;
         this.type = metadata.getKeyValidator();
+        this.keyFormat = keyFormat;
     }
 
     /**
      * Returns a new {@code PartitionKeyMapper} according to the specified column family meta data.
      *
-     * @param metadata The column family metadata.
+     * @param metadata  The column family metadata.
+     * @param keyFormat The index key format.
      * @return a new {@code PartitionKeyMapper} according to the specified column family meta data.
      */
-    public static PartitionKeyMapper instance(CFMetaData metadata) {
-        return new PartitionKeyMapper(metadata);
+    public static PartitionKeyMapper instance(CFMetaData metadata, KeyFormat keyFormat) {
+        return new PartitionKeyMapper(metadata, keyFormat);
     }
 
     public AbstractType<?> getType() {
@@ -82,9 +91,13 @@ public class PartitionKeyMapper {
      * @param partitionKey The raw partition key to be converted.
      */
     public void addFields(Document document, DecoratedKey partitionKey) {
-        String serializedKey = ByteBufferUtils.toString(partitionKey.getKey());
-        Field field = new StringField(FIELD_NAME, serializedKey, Store.YES);
-        document.add(field);
+        ByteBuffer key = partitionKey.getKey();
+        if (keyFormat.isLegacy()) {
+            document.add(keyFormat.field(FIELD_NAME, key, Store.YES));
+        } else {
+            document.add(keyFormat.field(FIELD_NAME, key, Store.NO));
+            document.add(new BinaryDocValuesField(FIELD_NAME, keyFormat.bytesRef(key)));
+        }
     }
 
     /**
@@ -94,8 +107,7 @@ public class PartitionKeyMapper {
      * @return The specified raw partition key as a Lucene {@link Term}.
      */
     public Term term(DecoratedKey partitionKey) {
-        String serializedKey = ByteBufferUtils.toString(partitionKey.getKey());
-        return new Term(FIELD_NAME, serializedKey);
+        return keyFormat.term(FIELD_NAME, partitionKey.getKey());
     }
 
     /**
@@ -115,11 +127,25 @@ public class PartitionKeyMapper {
      * @return The {@link DecoratedKey} contained in the specified Lucene {@link Document}.
      */
     public DecoratedKey partitionKey(Document document) {
-        String string = document.get(FIELD_NAME);
-        ByteBuffer partitionKey = ByteBufferUtils.fromString(string);
+        ByteBuffer partitionKey = keyFormat.byteBuffer(document, FIELD_NAME);
         return partitionKey(partitionKey);
     }
 
+    /**
+     * Returns the {@link DecoratedKey} kept in the doc values of the specified document. If the {@link Token} is known,
+     * it is used instead of hashing the raw key again.
+     *
+     * @param reader The {@link LeafReader} containing the document, which must not use the legacy {@link KeyFormat}.
+     * @param docId  The segment document id.
+     * @param token  The {@link Token} of the document, maybe {@code null} meaning that it must be computed.
+     * @return The {@link DecoratedKey} of the document {@code docId} in {@code reader}.
+     * @throws IOException If Lucene throws IO errors.
+     */
+    public DecoratedKey partitionKey(LeafReader reader, int docId, Token token) throws IOException {
+        ByteBuffer partitionKey = keyFormat.byteBuffer(DocValues.getBinary(reader, FIELD_NAME), docId);
+        return token == null ? partitionKey(partitionKey) : new BufferDecoratedKey(token, partitionKey);
+    }
+
     /**
      * Returns the specified raw partition key as a a {@link DecoratedKey}.
      *
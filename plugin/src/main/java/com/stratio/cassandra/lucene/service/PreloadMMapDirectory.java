@@ -0,0 +1,76 @@
+/*
+ * Copyright 2015, Stratio.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.stratio.cassandra.lucene.service;
+
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.store.MMapDirectory;
+import org.apache.lucene.util.IOUtils;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * {@link MMapDirectory} loading the index files into physical memory when they are opened, so the first searches
+ * on new segments don't fault their pages in from disk. The files are read sequentially through a clone of the
+ * mapped input, touching all their pages, before the input is returned.
+ * <p/>
+ * Files opened for merging or for being read once, such as the merge inputs and the segments copied by {@link
+ * org.apache.lucene.index.IndexWriter#addIndexes(org.apache.lucene.store.Directory...)}, are not loaded, because they
+ * are already read sequentially just once and loading them would double their IO and evict hotter pages.
+ * <p/>
+ * The loaded pages are still managed by the operating system, so they can be evicted under memory pressure.
+ *
+ * @author Andres de la Pena <adelapena@stratio.com>
+ */
+public class PreloadMMapDirectory extends MMapDirectory {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Builds a new {@link PreloadMMapDirectory}.
+     *
+     * @param path         The path of the directory.
+     * @param maxChunkSize The max size in bytes of the mapped chunks, which is rounded down to a power of two.
+     * @throws IOException If there are IO errors.
+     */
+    public PreloadMMapDirectory(Path path, int maxChunkSize) throws IOException {
+        super(path, maxChunkSize);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public IndexInput openInput(String name, IOContext context) throws IOException {
+        IndexInput input = super.openInput(name, context);
+        if (context.context == IOContext.Context.MERGE || context.readOnce) {
+            return input;
+        }
+        try {
+            IndexInput clone = input.clone(); // Clones don't need to be closed
+            byte[] buffer = new byte[BUFFER_SIZE];
+            long remaining = clone.length();
+            while (remaining > 0) {
+                int length = (int) Math.min(remaining, BUFFER_SIZE);
+                clone.readBytes(buffer, 0, length);
+                remaining -= length;
+            }
+            return input;
+        } catch (IOException | RuntimeException e) {
+            IOUtils.closeWhileHandlingException(input);
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,410 @@
+/*
+ * Copyright 2015, Stratio.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.stratio.cassandra.lucene.service;
+
+import com.google.common.collect.AbstractIterator;
+import com.google.common.util.concurrent.AsyncFunction;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.stratio.cassandra.lucene.util.Log;
+import com.stratio.cassandra.lucene.util.TimeCounter;
+import org.apache.cassandra.db.IndexExpression;
+import org.apache.cassandra.db.Row;
+import org.apache.lucene.search.ScoreDoc;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * A lazy and bounded {@link Iterator} over the {@link Row}s satisfying a search. The hits are read from a {@link
+ * SearchSession} a page at a time, and each page of hits is turned into {@link Row}s only when the previous one has
+ * been consumed, and the iteration stops as soon as the limit is reached. It must be closed to release the {@link
+ * SearchSession}.
+ * <p/>
+ * Pages are sized to the number of rows still needed divided by the ratio of hits surviving the filtering expressions
+ * and the storage engine lookup. This survival rate is the one observed in the previous pages of the search, or the
+ * specified expected one for the first page. If no hits have survived yet, the page size is doubled.
+ * <p/>
+ * If an executor is provided, the iterator works in pipelined mode: while the {@link Row}s of a page are being
+ * retrieved from the storage engine, the next pages of hits are searched in the executor, up to a bounded prefetch
+ * depth. Each prefetched page starts after the last hit of the previous one, so the {@link SearchSession} is never
+ * used concurrently. Pages are only prefetched while the expected survivors of the already requested hits are not
+ * enough to reach the limit.
+ *
+ * @author Andres de la Pena <adelapena@stratio.com>
+ */
+public class RowIterator extends AbstractIterator<Row> implements Closeable {
+
+    /** The max number of hits to be read per page. */
+    static final int MAX_PAGE_SIZE = 100000;
+
+    /** The extra hits to be read when the survival rate is less than one, to avoid an additional page. */
+    static final double PAGE_SIZE_MARGIN = 1.2;
+
+    private final RowService rowService;
+    private final SearchSession session;
+    private final List<IndexExpression> expressions;
+    private final int limit;
+    private final long timestamp;
+    private final boolean usesRelevance;
+    private final double expectedSurvival;
+    private final ListeningExecutorService executor;
+    private final int prefetchPages;
+
+    private final TimeCounter luceneTime = new TimeCounter();
+    private final TimeCounter collectTime = new TimeCounter();
+
+    private List<Row> page = Collections.emptyList(); // The rows of the current page
+    private int pagePosition = 0; // The number of consumed rows of the current page
+    private int pageDocs = 0; // The number of hits of the current page
+    private int lastPageSize = 0; // The number of requested hits for the current page
+    private ScoreDoc last = null; // The last hit of the current page
+    private boolean maybeMore = true; // If there could be more hits after the current page
+    private int numDocs = 0;
+    private int checkedDocs = 0; // The number of hits in the pages previous to the current one
+    private int numRows = 0;
+    private int numPages = 0;
+
+    private final Deque<ListenableFuture<Page>> prefetched = new ArrayDeque<>(); // The pages being prefetched
+    private int prefetchedDocs = 0; // The number of requested hits in the pages being prefetched
+    private volatile boolean closed = false;
+
+    /**
+     * Builds a new {@link RowIterator}.
+     *
+     * @param rowService    The {@link RowService} retrieving the {@link Row}s from the storage engine.
+     * @param session       The {@link SearchSession} providing the search hits.
+     * @param expressions   A list of filtering {@link IndexExpression}s to be satisfied.
+     * @param limit         The max number of {@link Row}s to be returned.
+     * @param timestamp     The operation time stamp.
+     * @param usesRelevance If the search uses relevance.
+     */
+    RowIterator(RowService rowService,
+                SearchSession session,
+                List<IndexExpression> expressions,
+                int limit,
+                long timestamp,
+                boolean usesRelevance) {
+        this(rowService, session, expressions, limit, timestamp, usesRelevance, 1, null, 0);
+    }
+
+    /**
+     * Builds a new {@link RowIterator} expecting the specified survival rate and prefetching pages of hits in the
+     * specified executor.
+     *
+     * @param rowService    The {@link RowService} retrieving the {@link Row}s from the storage engine.
+     * @param session       The {@link SearchSession} providing the search hits.
+     * @param expressions   A list of filtering {@link IndexExpression}s to be satisfied.
+     * @param limit         The max number of {@link Row}s to be returned.
+     * @param timestamp     The operation time stamp.
+     * @param usesRelevance    If the search uses relevance.
+     * @param expectedSurvival The expected ratio of hits resulting in returned {@link Row}s, used for sizing the first
+     *                         page.
+     * @param executor      The executor where the pages of hits are prefetched, maybe {@code null} meaning no
+     *                      prefetching.
+     * @param prefetchPages The max number of pages of hits to be prefetched.
+     */
+    RowIterator(RowService rowService,
+                SearchSession session,
+                List<IndexExpression> expressions,
+                int limit,
+                long timestamp,
+                boolean usesRelevance,
+                double expectedSurvival,
+                ListeningExecutorService executor,
+                int prefetchPages) {
+        this.rowService = rowService;
+        this.session = session;
+        this.expressions = expressions;
+        this.limit = limit;
+        this.timestamp = timestamp;
+        this.usesRelevance = usesRelevance;
+        this.expectedSurvival = expectedSurvival;
+        this.executor = executor;
+        this.prefetchPages = executor == null ? 0 : prefetchPages;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected Row computeNext() {
+        while (numRows < limit) {
+            while (pagePosition < page.size()) {
+                Row row = page.get(pagePosition++);
+                if (row != null && rowService.accepted(row, expressions)) {
+                    numRows++;
+                    return row;
+                }
+            }
+            if (!maybeMore) {
+                break;
+            }
+            try {
+                page = nextPage();
+                pagePosition = 0;
+            } catch (IOException e) {
+                throw new RuntimeException("Error while reading search hits", e);
+            }
+        }
+        return endOfData();
+    }
+
+    /**
+     * Reads the next page of search hits and retrieves their {@link Row}s from the storage engine. If prefetching is
+     * enabled, the following pages of hits are searched while the {@link Row}s are retrieved.
+     *
+     * @return The {@link Row}s of the next page of hits, in hit order.
+     * @throws IOException If Lucene throws IO errors.
+     */
+    private List<Row> nextPage() throws IOException {
+
+        // All the hits read so far have been checked
+        checkedDocs = numDocs;
+
+        // Search rows identifiers in Lucene, or wait for them if they are being prefetched
+        luceneTime.start();
+        Page hits;
+        if (prefetched.isEmpty()) {
+            hits = search(last, pageSize(0));
+        } else {
+            hits = Futures.get(prefetched.poll(), IOException.class);
+            prefetchedDocs -= hits.pageSize;
+        }
+        luceneTime.stop();
+        List<SearchResult> searchResults = hits.searchResults;
+        pageDocs = searchResults.size();
+        lastPageSize = hits.pageSize;
+        numDocs += pageDocs;
+        numPages++;
+        maybeMore = hits.maybeMore();
+        if (!searchResults.isEmpty()) {
+            last = hits.last();
+        }
+
+        // Search the next pages while collecting the rows of this one
+        prefetch(hits);
+
+        // Collect rows from Cassandra
+        collectTime.start();
+        List<Row> rows = rowService.rows(searchResults, timestamp, usesRelevance);
+        collectTime.stop();
+        return rows;
+    }
+
+    /**
+     * Returns the number of hits to be requested for the next page, according to the number of rows still needed and
+     * the survival rate of the checked hits.
+     *
+     * @param pendingDocs The number of already requested but not checked hits.
+     * @return The number of hits to be requested for the next page, which is not positive if the pending hits are
+     * expected to be enough.
+     */
+    private int pageSize(int pendingDocs) {
+        double survival = checkedDocs == 0 ? expectedSurvival : (double) numRows / checkedDocs;
+        double pageSize;
+        if (survival <= 0) {
+            pageSize = 2D * lastPageSize;
+        } else {
+            pageSize = (limit - numRows) / Math.min(survival, 1);
+            if (survival < 1) {
+                pageSize *= PAGE_SIZE_MARGIN;
+            }
+        }
+        return (int) Math.min(Math.ceil(pageSize - pendingDocs), MAX_PAGE_SIZE);
+    }
+
+    /**
+     * Reads the page of hits after the specified {@link ScoreDoc}.
+     *
+     * @param after    The last hit of the previous page, maybe {@code null} meaning the first page.
+     * @param pageSize The max number of hits to be read.
+     * @return The read page of hits.
+     * @throws IOException If Lucene throws IO errors.
+     */
+    private Page search(ScoreDoc after, int pageSize) throws IOException {
+        return new Page(session.search(after, pageSize, rowService.rowMapper), pageSize);
+    }
+
+    /**
+     * Schedules the search of the pages following the specified one until reaching the prefetch depth.
+     *
+     * @param current The last read page of hits.
+     */
+    private void prefetch(Page current) {
+        if (prefetchPages == 0 || !maybeMore) {
+            return;
+        }
+        ListenableFuture<Page> tail = prefetched.isEmpty() ? Futures.immediateFuture(current) : prefetched.peekLast();
+        while (prefetched.size() < prefetchPages) {
+            int pageSize = pageSize(pageDocs + prefetchedDocs);
+            if (pageSize <= 0) {
+                return;
+            }
+            tail = Futures.transform(tail, searchAfter(pageSize));
+            prefetched.add(tail);
+            prefetchedDocs += pageSize;
+        }
+    }
+
+    /**
+     * Returns a function submitting to the executor the search of the page of hits following its argument page.
+     *
+     * @param pageSize The max number of hits to be read.
+     * @return A function searching the next page of hits.
+     */
+    private AsyncFunction<Page, Page> searchAfter(final int pageSize) {
+        return new AsyncFunction<Page, Page>() {
+            @Override
+            public ListenableFuture<Page> apply(final Page previous) {
+                if (closed || !previous.maybeMore()) {
+                    return Futures.immediateFuture(new Page(Collections.<SearchResult>emptyList(), pageSize));
+                }
+                return executor.submit(new Callable<Page>() {
+                    @Override
+                    public Page call() throws Exception {
+                        if (closed) {
+                            return new Page(Collections.<SearchResult>emptyList(), pageSize);
+                        }
+                        return search(previous.last(), pageSize);
+                    }
+                });
+            }
+        };
+    }
+
+    /**
+     * Returns the time spent searching in Lucene.
+     *
+     * @return The time spent searching in Lucene.
+     */
+    public TimeCounter getLuceneTime() {
+        return luceneTime;
+    }
+
+    /**
+     * Returns the time spent retrieving rows from Cassandra.
+     *
+     * @return The time spent retrieving rows from Cassandra.
+     */
+    public TimeCounter getCollectTime() {
+        return collectTime;
+    }
+
+    /**
+     * Returns the number of search hits read so far.
+     *
+     * @return The number of search hits read so far.
+     */
+    public int getNumDocs() {
+        return numDocs;
+    }
+
+    /**
+     * Returns the number of {@link Row}s returned so far.
+     *
+     * @return The number of {@link Row}s returned so far.
+     */
+    public int getNumRows() {
+        return numRows;
+    }
+
+    /**
+     * Returns the ratio of checked hits resulting in returned {@link Row}s. The checked hits of the current page are
+     * estimated from its consumed {@link Row}s.
+     *
+     * @return The ratio of checked hits resulting in returned {@link Row}s, or {@link Double#NaN} if no hits have been
+     * checked.
+     */
+    public double getSurvivalRate() {
+        double docs = checkedDocs;
+        docs += page.isEmpty() ? pageDocs : (double) pageDocs * pagePosition / page.size();
+        return docs == 0 ? Double.NaN : numRows / docs;
+    }
+
+    /**
+     * Returns the number of pages of search hits read so far.
+     *
+     * @return The number of pages of search hits read so far.
+     */
+    public int getNumPages() {
+        return numPages;
+    }
+
+    /**
+     * Releases the underlying {@link SearchSession}, waiting for the pending prefetched searches to finish.
+     *
+     * @throws IOException If Lucene throws IO errors.
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        for (ListenableFuture<Page> future : prefetched) {
+            try {
+                Uninterruptibles.getUninterruptibly(future);
+            } catch (ExecutionException e) {
+                Log.debug(e, "Discarding failed prefetched page");
+            }
+        }
+        prefetched.clear();
+        session.close();
+    }
+
+    /**
+     * A page of search hits.
+     */
+    private static class Page {
+
+        private final List<SearchResult> searchResults;
+        private final int pageSize;
+
+        /**
+         * Builds a new page with the specified hits.
+         *
+         * @param searchResults The read hits.
+         * @param pageSize      The number of requested hits.
+         */
+        Page(List<SearchResult> searchResults, int pageSize) {
+            this.searchResults = searchResults;
+            this.pageSize = pageSize;
+        }
+
+        /**
+         * Returns if there could be more hits after this page.
+         *
+         * @return {@code true} if there could be more hits after this page, {@code false} otherwise.
+         */
+        boolean maybeMore() {
+            return searchResults.size() == pageSize;
+        }
+
+        /**
+         * Returns the last hit of this page, which must not be empty.
+         *
+         * @return The last hit of this page.
+         */
+        ScoreDoc last() {
+            return searchResults.get(searchResults.size() - 1).getScoreDoc();
+        }
+    }
+}
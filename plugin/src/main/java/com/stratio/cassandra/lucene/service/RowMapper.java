@@ -24,13 +24,25 @@ import org.apache.cassandra.db.DataRange;
 import org.apache.cassandra.db.DecoratedKey;
 import org.apache.cassandra.db.Row;
 import org.apache.cassandra.db.composites.CellName;
+import org.apache.cassandra.dht.Range;
+import org.apache.cassandra.dht.Token;
 import org.apache.lucene.document.Document;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.ReaderUtil;
 import org.apache.lucene.index.Term;
+import org.apache.lucene.search.MatchAllDocsQuery;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.ScoreDoc;
 import org.apache.lucene.search.Sort;
 
+import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
 
 /**
  * Class for several {@link Row} mappings between Cassandra and Lucene.
@@ -42,6 +54,7 @@ public abstract class RowMapper {
     final CFMetaData metadata; // The indexed table metadata
     final ColumnDefinition columnDefinition; // The indexed column definition
     final Schema schema; // The indexing schema
+    final KeyFormat keyFormat; // The index key format
 
     final TokenMapper tokenMapper; // A token mapper for the indexed table
     final PartitionKeyMapper partitionKeyMapper; // A partition key mapper for the indexed table
@@ -54,13 +67,15 @@ public abstract class RowMapper {
      * @param metadata         The indexed column family metadata.
      * @param columnDefinition The indexed column definition.
      * @param schema           The mapping {@link Schema}.
+     * @param keyFormat        The index key format.
      */
-    RowMapper(CFMetaData metadata, ColumnDefinition columnDefinition, Schema schema) {
+    RowMapper(CFMetaData metadata, ColumnDefinition columnDefinition, Schema schema, KeyFormat keyFormat) {
         this.metadata = metadata;
         this.columnDefinition = columnDefinition;
         this.schema = schema;
-        this.tokenMapper = TokenMapper.instance();
-        this.partitionKeyMapper = PartitionKeyMapper.instance(metadata);
+        this.keyFormat = keyFormat;
+        this.tokenMapper = TokenMapper.instance(keyFormat);
+        this.partitionKeyMapper = PartitionKeyMapper.instance(metadata, keyFormat);
         this.regularCellsMapper = RegularCellsMapper.instance(metadata);
     }
 
@@ -71,14 +86,18 @@ public abstract class RowMapper {
      * @param metadata         The indexed column family metadata.
      * @param columnDefinition The indexed column definition.
      * @param schema           The mapping {@link Schema}.
+     * @param keyFormat        The index key format.
      * @return A new {@link RowMapper} for the specified column family metadata, indexed column definition and {@link
      * Schema}.
      */
-    public static RowMapper build(CFMetaData metadata, ColumnDefinition columnDefinition, Schema schema) {
+    public static RowMapper build(CFMetaData metadata,
+                                  ColumnDefinition columnDefinition,
+                                  Schema schema,
+                                  KeyFormat keyFormat) {
         if (metadata.clusteringColumns().size() > 0) {
-            return new RowMapperWide(metadata, columnDefinition, schema);
+            return new RowMapperWide(metadata, columnDefinition, schema, keyFormat);
         } else {
-            return new RowMapperSkinny(metadata, columnDefinition, schema);
+            return new RowMapperSkinny(metadata, columnDefinition, schema, keyFormat);
         }
     }
 
@@ -136,6 +155,22 @@ public abstract class RowMapper {
      */
     public abstract Query query(DataRange dataRange);
 
+    /**
+     * Returns the Lucene {@link Query} to get the {@link Document}s whose token is inside the specified not wrapping
+     * token {@link Range}, where the minimum token means no limit.
+     *
+     * @param range A not wrapping token {@link Range}, excluding its left token and including the right one.
+     * @return The Lucene {@link Query} to get the {@link Document}s whose token is inside {@code range}.
+     */
+    public Query query(Range<Token> range) {
+        Token lower = tokenMapper.isMinimum(range.left) ? null : range.left;
+        Token upper = tokenMapper.isMinimum(range.right) ? null : range.right;
+        if (lower == null && upper == null) {
+            return new MatchAllDocsQuery();
+        }
+        return tokenMapper.query(lower, upper, false, true);
+    }
+
     /**
      * Returns the Lucene {@link Sort} to get {@link Document}s in the same order that is used in Cassandra.
      *
@@ -158,6 +193,13 @@ public abstract class RowMapper {
      */
     public abstract RowComparator naturalComparator();
 
+    /**
+     * Returns the names of the stored fields to be loaded to build {@link SearchResult}s.
+     *
+     * @return The names of the stored fields to be loaded.
+     */
+    protected abstract Set<String> fieldsToLoad();
+
     /**
      * Returns the {@link SearchResult} defined by the specified {@link Document} and {@link ScoreDoc}.
      *
@@ -167,4 +209,53 @@ public abstract class RowMapper {
      */
     public abstract SearchResult searchResult(Document document, ScoreDoc scoreDoc);
 
+    /**
+     * Returns the {@link SearchResult} defined by the doc values of the specified document and {@link ScoreDoc}.
+     *
+     * @param reader   The {@link LeafReader} containing the document.
+     * @param docId    The segment document id.
+     * @param scoreDoc The {@link ScoreDoc} of the document.
+     * @return The {@link SearchResult} defined by the doc values of the specified document and {@link ScoreDoc}.
+     * @throws IOException If Lucene throws IO errors.
+     */
+    public abstract SearchResult searchResult(LeafReader reader, int docId, ScoreDoc scoreDoc) throws IOException;
+
+    /**
+     * Returns the {@link SearchResult}s for the specified hits of a search over the specified {@link IndexReader}. If
+     * the index keeps its keys in doc values, they are read from there, visiting the hits in index order, instead of
+     * loading stored fields.
+     *
+     * @param reader    The searched {@link IndexReader}.
+     * @param scoreDocs The hits of a search.
+     * @return The {@link SearchResult}s for {@code scoreDocs}, in the same order.
+     * @throws IOException If Lucene throws IO errors.
+     */
+    public List<SearchResult> searchResults(IndexReader reader, final ScoreDoc[] scoreDocs) throws IOException {
+        SearchResult[] searchResults = new SearchResult[scoreDocs.length];
+        if (!keyFormat.isLegacy()) {
+            Integer[] hits = new Integer[scoreDocs.length];
+            for (int i = 0; i < hits.length; i++) {
+                hits[i] = i;
+            }
+            Arrays.sort(hits, new Comparator<Integer>() {
+                @Override
+                public int compare(Integer i, Integer j) {
+                    return Integer.compare(scoreDocs[i].doc, scoreDocs[j].doc);
+                }
+            });
+            List<LeafReaderContext> leaves = reader.leaves();
+            for (int hit : hits) {
+                ScoreDoc scoreDoc = scoreDocs[hit];
+                LeafReaderContext leaf = leaves.get(ReaderUtil.subIndex(scoreDoc.doc, leaves));
+                searchResults[hit] = searchResult(leaf.reader(), scoreDoc.doc - leaf.docBase, scoreDoc);
+            }
+        } else {
+            for (int hit = 0; hit < scoreDocs.length; hit++) {
+                ScoreDoc scoreDoc = scoreDocs[hit];
+                searchResults[hit] = searchResult(reader.document(scoreDoc.doc, fieldsToLoad()), scoreDoc);
+            }
+        }
+        return Arrays.asList(searchResults);
+    }
+
 }
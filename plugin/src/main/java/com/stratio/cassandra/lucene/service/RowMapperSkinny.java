@@ -30,10 +30,15 @@ import org.apache.cassandra.db.filter.IDiskAtomFilter;
 import org.apache.cassandra.db.filter.SliceQueryFilter;
 import org.apache.cassandra.dht.Token;
 import org.apache.lucene.document.Document;
+import org.apache.lucene.index.LeafReader;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.ScoreDoc;
 import org.apache.lucene.search.Sort;
 
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+
 /**
  * {@link RowMapper} for skinny rows.
  *
@@ -41,6 +46,14 @@ import org.apache.lucene.search.Sort;
  */
 public class RowMapperSkinny extends RowMapper {
 
+    /** The names of the Lucene fields to be loaded. */
+    private static final Set<String> FIELDS_TO_LOAD;
+
+    static {
+        FIELDS_TO_LOAD = new HashSet<>();
+        FIELDS_TO_LOAD.add(PartitionKeyMapper.FIELD_NAME);
+    }
+
     /**
      * Builds a new {@link RowMapperSkinny} for the specified column family metadata, indexed column definition and
      * {@link Schema}.
@@ -48,9 +61,10 @@ public class RowMapperSkinny extends RowMapper {
      * @param metadata         The indexed column family metadata.
      * @param columnDefinition The indexed column definition.
      * @param schema           The mapping {@link Schema}.
+     * @param keyFormat        The index key format.
      */
-    RowMapperSkinny(CFMetaData metadata, ColumnDefinition columnDefinition, Schema schema) {
-        super(metadata, columnDefinition, schema);
+    RowMapperSkinny(CFMetaData metadata, ColumnDefinition columnDefinition, Schema schema, KeyFormat keyFormat) {
+        super(metadata, columnDefinition, schema, keyFormat);
     }
 
     /**
@@ -126,6 +140,16 @@ public class RowMapperSkinny extends RowMapper {
         return new RowComparatorNatural();
     }
 
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * These fields are just the partition key.
+     */
+    @Override
+    protected Set<String> fieldsToLoad() {
+        return FIELDS_TO_LOAD;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -134,4 +158,14 @@ public class RowMapperSkinny extends RowMapper {
         DecoratedKey partitionKey = partitionKeyMapper.partitionKey(document);
         return new SearchResult(partitionKey, null, scoreDoc);
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public SearchResult searchResult(LeafReader reader, int docId, ScoreDoc scoreDoc) throws IOException {
+        Token token = tokenMapper.token(reader, docId);
+        DecoratedKey partitionKey = partitionKeyMapper.partitionKey(reader, docId, token);
+        return new SearchResult(partitionKey, null, scoreDoc);
+    }
 }
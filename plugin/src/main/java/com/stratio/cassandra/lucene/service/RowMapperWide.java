@@ -33,6 +33,7 @@ import org.apache.cassandra.dht.Token;
 import org.apache.cassandra.utils.ByteBufferUtil;
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.lucene.document.Document;
+import org.apache.lucene.index.LeafReader;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.search.BooleanClause;
 import org.apache.lucene.search.BooleanQuery;
@@ -41,8 +42,11 @@ import org.apache.lucene.search.ScoreDoc;
 import org.apache.lucene.search.Sort;
 import org.apache.lucene.search.SortField;
 
+import java.io.IOException;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import static org.apache.lucene.search.BooleanClause.Occur.MUST;
 import static org.apache.lucene.search.BooleanClause.Occur.SHOULD;
@@ -54,6 +58,15 @@ import static org.apache.lucene.search.BooleanClause.Occur.SHOULD;
  */
 public class RowMapperWide extends RowMapper {
 
+    /** The names of the Lucene fields to be loaded. */
+    private static final Set<String> FIELDS_TO_LOAD;
+
+    static {
+        FIELDS_TO_LOAD = new HashSet<>();
+        FIELDS_TO_LOAD.add(PartitionKeyMapper.FIELD_NAME);
+        FIELDS_TO_LOAD.add(ClusteringKeyMapper.FIELD_NAME);
+    }
+
     /** The clustering key mapper. */
     private final ClusteringKeyMapper clusteringKeyMapper;
 
@@ -67,11 +80,12 @@ public class RowMapperWide extends RowMapper {
      * @param metadata         The indexed column family metadata.
      * @param columnDefinition The indexed column definition.
      * @param schema           The mapping {@link Schema}.
+     * @param keyFormat        The index key format.
      */
-    RowMapperWide(CFMetaData metadata, ColumnDefinition columnDefinition, Schema schema) {
-        super(metadata, columnDefinition, schema);
-        this.clusteringKeyMapper = ClusteringKeyMapper.instance(metadata);
-        this.fullKeyMapper = FullKeyMapper.instance(partitionKeyMapper, clusteringKeyMapper);
+    RowMapperWide(CFMetaData metadata, ColumnDefinition columnDefinition, Schema schema, KeyFormat keyFormat) {
+        super(metadata, columnDefinition, schema, keyFormat);
+        this.clusteringKeyMapper = ClusteringKeyMapper.instance(metadata, keyFormat);
+        this.fullKeyMapper = FullKeyMapper.instance(partitionKeyMapper, clusteringKeyMapper, keyFormat);
     }
 
     /**
@@ -244,6 +258,17 @@ public class RowMapperWide extends RowMapper {
         return clusteringKeyMapper.columnSlices(clusteringKeys);
     }
 
+    /**
+     * Returns the {@link ColumnSlice} selecting the logic CQL3 rows after the specified clustering key, or all the rows
+     * of the partition if it is {@code null}.
+     *
+     * @param clusteringKey A clustering key, or {@code null} to select all the rows.
+     * @return The {@link ColumnSlice} selecting the logic CQL3 rows after {@code clusteringKey}.
+     */
+    public ColumnSlice columnSliceAfter(CellName clusteringKey) {
+        return clusteringKeyMapper.columnSliceAfter(clusteringKey);
+    }
+
     /**
      * Returns the logical CQL3 column families contained in the specified physical {@link ColumnFamily}.
      *
@@ -264,6 +289,16 @@ public class RowMapperWide extends RowMapper {
         return clusteringKeyMapper.toString(cellName);
     }
 
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * These fields are the partition and clustering keys.
+     */
+    @Override
+    protected Set<String> fieldsToLoad() {
+        return FIELDS_TO_LOAD;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -273,4 +308,15 @@ public class RowMapperWide extends RowMapper {
         CellName clusteringKey = clusteringKeyMapper.clusteringKey(document);
         return new SearchResult(partitionKey, clusteringKey, scoreDoc);
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public SearchResult searchResult(LeafReader reader, int docId, ScoreDoc scoreDoc) throws IOException {
+        Token token = tokenMapper.token(reader, docId);
+        DecoratedKey partitionKey = partitionKeyMapper.partitionKey(reader, docId, token);
+        CellName clusteringKey = clusteringKeyMapper.clusteringKey(reader, docId);
+        return new SearchResult(partitionKey, clusteringKey, scoreDoc);
+    }
 }
@@ -15,7 +15,12 @@
  */
 package com.stratio.cassandra.lucene.service;
 
+import com.google.common.base.Function;
+import com.google.common.base.Throwables;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ListeningExecutorService;
 import com.stratio.cassandra.lucene.IndexConfig;
+import com.stratio.cassandra.lucene.IndexConfig.CommitPolicy;
 import com.stratio.cassandra.lucene.query.Search;
 import com.stratio.cassandra.lucene.schema.Column;
 import com.stratio.cassandra.lucene.schema.Columns;
@@ -23,8 +28,10 @@ import com.stratio.cassandra.lucene.schema.Schema;
 import com.stratio.cassandra.lucene.util.Log;
 import com.stratio.cassandra.lucene.util.TaskQueue;
 import com.stratio.cassandra.lucene.util.TimeCounter;
+import org.apache.cassandra.concurrent.NamedThreadFactory;
 import org.apache.cassandra.config.CFMetaData;
 import org.apache.cassandra.config.ColumnDefinition;
+import org.apache.cassandra.config.DatabaseDescriptor;
 import org.apache.cassandra.cql3.Operator;
 import org.apache.cassandra.db.ArrayBackedSortedColumns;
 import org.apache.cassandra.db.Cell;
@@ -38,18 +45,29 @@ import org.apache.cassandra.db.composites.CellName;
 import org.apache.cassandra.db.marshal.AbstractType;
 import org.apache.cassandra.db.marshal.UTF8Type;
 import org.apache.lucene.document.Document;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
 import org.apache.lucene.search.Query;
-import org.apache.lucene.search.ScoreDoc;
 import org.apache.lucene.search.Sort;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
-import java.util.LinkedList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Class for mapping rows between Cassandra and Lucene.
@@ -58,25 +76,39 @@ import java.util.Set;
  */
 public abstract class RowService {
 
-    /** The max number of rows to be read per iteration. */
-    private static final int MAX_PAGE_SIZE = 100000;
-    private static final int FILTERING_PAGE_SIZE = 1000;
+    /** The number of partition read tasks per read thread, so the reads are balanced between threads. */
+    static final int READ_TASKS_PER_THREAD = 4;
 
     final ColumnFamilyStore baseCfs;
     final RowMapper rowMapper;
+    final IndexExpressionMapper expressionMapper;
     final CFMetaData metadata;
-    final LuceneIndex luceneIndex;
+    final ShardedLuceneIndex luceneIndex;
 
     private final Schema schema;
+    private final SearchCache searchCache;
+    private final SearchStats searchStats;
+    private final IndexingStats indexingStats;
     private final TaskQueue indexQueue;
+    private final IndexingJournal journal;
+    private final IndexRebuilder rebuilder;
+    private final boolean parallelRebuild;
+    private final ConcurrentMap<ByteBuffer, IndexTask> pendingTasks = new ConcurrentHashMap<>();
+    private final ListeningExecutorService searchExecutor;
+    private final int searchPrefetchPages;
+    private final ExecutorService readExecutor;
+    private final int readThreads;
+    private final Set<String> mutationColumns;
+    private final IndexCommitter committer;
 
     /**
      * Returns a new {@code RowService}.
      *
      * @param baseCfs          The base column family store.
      * @param columnDefinition The indexed column definition.
+     * @throws IOException If Lucene throws IO errors.
      */
-    protected RowService(ColumnFamilyStore baseCfs, ColumnDefinition columnDefinition) {
+    protected RowService(ColumnFamilyStore baseCfs, ColumnDefinition columnDefinition) throws IOException {
 
         this.baseCfs = baseCfs;
         this.metadata = baseCfs.metadata;
@@ -84,24 +116,114 @@ public abstract class RowService {
         IndexConfig config = new IndexConfig(metadata, columnDefinition.getIndexOptions());
 
         this.schema = config.getSchema();
-        this.rowMapper = RowMapper.build(metadata, columnDefinition, schema);
+        KeyFormat keyFormat = ShardedLuceneIndex.keyFormat(config.getPath(), config.getShards());
+        this.rowMapper = RowMapper.build(metadata, columnDefinition, schema, keyFormat);
+        this.expressionMapper = new IndexExpressionMapper(metadata, schema);
+
+        int shards = config.getShards();
+        String indexName = columnDefinition.getIndexName();
+        List<LuceneIndex> shardIndexes = new ArrayList<>(shards);
+        for (int shard = 0; shard < shards; shard++) {
+            shardIndexes.add(new LuceneIndex(columnDefinition.ksName,
+                                             columnDefinition.cfName,
+                                             ShardedLuceneIndex.shardName(indexName, shard, shards),
+                                             ShardedLuceneIndex.shardPath(config.getPath(), shard, shards),
+                                             config,
+                                             keyFormat,
+                                             schema.getAnalyzer()));
+        }
+        this.luceneIndex = new ShardedLuceneIndex(indexName, shardIndexes, DatabaseDescriptor.getPartitioner());
 
-        this.luceneIndex = new LuceneIndex(columnDefinition.ksName,
+        this.searchCache = new SearchCache(columnDefinition.ksName,
                                            columnDefinition.cfName,
                                            columnDefinition.getIndexName(),
-                                           config.getPath(),
-                                           config.getRefreshSeconds(),
-                                           config.getRamBufferMB(),
-                                           config.getMaxMergeMB(),
-                                           config.getMaxCachedMB(),
-                                           schema.getAnalyzer());
+                                           schema,
+                                           config.getMaxSearchCacheMB());
+
+        this.searchStats = new SearchStats(columnDefinition.ksName,
+                                           columnDefinition.cfName,
+                                           columnDefinition.getIndexName());
 
         int indexingThreads = config.getIndexingThreads();
         if (indexingThreads > 0) {
-            this.indexQueue = new TaskQueue(indexingThreads, config.getIndexingQueuesSize());
+            String threadName = "lucene-indexing-" + columnDefinition.getIndexName();
+            this.indexQueue = new TaskQueue(threadName, indexingThreads, config.getIndexingQueuesSize());
         } else {
             this.indexQueue = null;
         }
+
+        this.journal = config.isIndexingJournal() ? new IndexingJournal(config.getPath()) : null;
+
+        this.parallelRebuild = config.getRebuildThreads() > 0;
+        this.rebuilder = new IndexRebuilder(this,
+                                            columnDefinition.ksName,
+                                            columnDefinition.cfName,
+                                            columnDefinition.getIndexName(),
+                                            config);
+
+        this.indexingStats = new IndexingStats(columnDefinition.ksName,
+                                               columnDefinition.cfName,
+                                               columnDefinition.getIndexName(),
+                                               indexQueue,
+                                               journal);
+
+        this.searchPrefetchPages = config.getSearchPrefetchPages();
+        this.searchExecutor = searchPrefetchPages > 0 ? SearchExecutor.instance() : null;
+
+        this.readThreads = config.getSearchReadThreads();
+        if (readThreads > 0) {
+            String threadName = "lucene-read-" + columnDefinition.getIndexName();
+            this.readExecutor = Executors.newFixedThreadPool(readThreads, new NamedThreadFactory(threadName));
+        } else {
+            this.readExecutor = null;
+        }
+
+        if (config.isIndexingFromMutation()) {
+            this.mutationColumns = mutationColumns(metadata, schema, columnDefinition.getIndexName());
+        } else {
+            this.mutationColumns = null;
+        }
+
+        this.committer = new IndexCommitter("lucene-commit-" + columnDefinition.getIndexName(),
+                                            config.getCommitPolicy(),
+                                            config.getCommitIntervalSeconds(),
+                                            config.getCommitMB(),
+                                            new Runnable() {
+                                                @Override
+                                                public void run() {
+                                                    backgroundCommit();
+                                                }
+                                            });
+    }
+
+    /**
+     * Returns the names of the regular columns that a mutation must contain for indexing its row without reading it,
+     * or {@code null} if the rows of the specified table can't be indexed from the mutations. That is the case when
+     * there are static columns or mapped collections, which can be partially written.
+     *
+     * @param metadata  The indexed table metadata.
+     * @param schema    The index {@link Schema}.
+     * @param indexName The index name.
+     * @return The names of the regular columns that a mutation must contain for indexing its row without reading it.
+     */
+    private static Set<String> mutationColumns(CFMetaData metadata, Schema schema, String indexName) {
+        if (metadata.hasStaticColumns()) {
+            Log.warn("Lucene index %s can't index from mutations because there are static columns", indexName);
+            return null;
+        }
+        Set<String> mutationColumns = new HashSet<>();
+        for (String name : schema.getMappedColumns()) {
+            ColumnDefinition columnDefinition = metadata.getColumnDefinition(UTF8Type.instance.decompose(name));
+            if (columnDefinition.isPrimaryKeyColumn()) {
+                continue;
+            }
+            if (columnDefinition.type.isCollection()) {
+                Log.warn("Lucene index %s can't index from mutations because %s is a collection", indexName, name);
+                return null;
+            }
+            mutationColumns.add(name);
+        }
+        return mutationColumns;
     }
 
     /**
@@ -130,26 +252,49 @@ public abstract class RowService {
     }
 
     /**
-     * Returns the names of the document fields to be loaded when reading a Lucene index.
+     * Returns the {@link SearchCache} used for parsing and compiling searches.
      *
-     * @return The names of the document fields to be loaded.
+     * @return The used {@link SearchCache}.
      */
-    protected abstract Set<String> fieldsToLoad();
+    public final SearchCache getSearchCache() {
+        return searchCache;
+    }
 
     /**
      * Indexes the logical {@link Row} identified by the specified key and column family using the specified time stamp.
      * The must be read from the {@link ColumnFamilyStore} because it could exist previously having more columns than
-     * the specified ones. The specified {@link ColumnFamily} is used for determine the cluster key. This operation is
-     * performed asynchronously.
+     * the specified ones, unless indexing from mutations is enabled and the specified ones contain all the mapped
+     * columns. The specified {@link ColumnFamily} is used for determine the cluster key. This operation is performed
+     * asynchronously, merging the mutations without deletions into the not started indexing task of the partition.
+     * If there is an indexing journal, the partition key is durably journaled before returning.
      *
      * @param key          A partition key.
      * @param columnFamily A {@link ColumnFamily} with a single common cluster key.
      * @param timestamp    The insertion time.
      */
     public void index(final ByteBuffer key, final ColumnFamily columnFamily, final long timestamp) throws IOException {
+        boolean skipped = !modifiesIndex(columnFamily);
+        indexingStats.recordMutation(skipped);
+        if (skipped) {
+            return;
+        }
+        rebuilder.written(key);
+        committer.written(columnFamily.dataSize());
         if (indexQueue == null) {
             doIndex(key, columnFamily, timestamp);
+            journal(key);
+        } else if (IndexTask.isMergeable(columnFamily)) {
+            IndexTask task = pendingTasks.get(key);
+            if (task != null && task.merge(columnFamily, timestamp)) {
+                indexingStats.recordCoalesced();
+            } else {
+                task = new IndexTask(this, pendingTasks, key, columnFamily, timestamp);
+                pendingTasks.put(key, task);
+                indexQueue.submitAsynchronous(key, task);
+            }
+            journal(key);
         } else {
+            pendingTasks.remove(key); // Don't merge the next mutations before this one
             indexQueue.submitAsynchronous(key, new Runnable() {
                 @Override
                 public void run() {
@@ -160,7 +305,90 @@ public abstract class RowService {
                     }
                 }
             });
+            journal(key);
+        }
+    }
+
+    /**
+     * Durably records in the indexing journal, if any, the specified partition key. This must be done after indexing
+     * the partition or queueing its indexing task, so the task is always completed by the commit trimming the journal
+     * segment containing the key.
+     *
+     * @param key A partition key.
+     */
+    private void journal(ByteBuffer key) throws IOException {
+        if (journal != null) {
+            journal.sync(journal.append(key));
+        }
+    }
+
+    /**
+     * Returns if the specified {@link CellName} belongs to a mapped column or it is a CQL3 row marker, so writing it
+     * could modify the indexed documents.
+     *
+     * @param cellName A {@link CellName}.
+     * @return {@code true} if writing {@code cellName} could modify the indexed documents, {@code false} otherwise.
+     */
+    public boolean indexes(CellName cellName) {
+        if (!metadata.isCQL3Table()) {
+            return true;
+        }
+        String name = cellName.cql3ColumnName(metadata).toString();
+        return name.isEmpty() || schema.getMappedColumns().contains(name);
+    }
+
+    /**
+     * Returns if the specified mutation {@link ColumnFamily} could modify the indexed documents. Mutations without
+     * deletions that only write unmapped columns of CQL3 tables can't modify the documents, so they are skipped.
+     * Inserts always modify the documents because they write the row marker, but updates creating a row by writing
+     * only unmapped columns don't. Compact storage tables have no row markers, so their mutations are never skipped.
+     *
+     * @param columnFamily A mutation {@link ColumnFamily}.
+     * @return {@code true} if {@code columnFamily} could modify the indexed documents, {@code false} otherwise.
+     */
+    protected boolean modifiesIndex(ColumnFamily columnFamily) {
+        if (!metadata.isCQL3Table() || !columnFamily.deletionInfo().isLive() || !columnFamily.iterator().hasNext()) {
+            return true;
+        }
+        for (Cell cell : columnFamily) {
+            if (indexes(cell.name())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the CQL3 {@link Row} contained in the specified mutation {@link ColumnFamily} if it contains all the
+     * mapped columns, so there is no need to read it from the {@link ColumnFamilyStore}. If indexing from mutations is
+     * not enabled or some mapped column is missing or deleted, {@code null} is returned.
+     *
+     * @param partitionKey The partition key.
+     * @param columnFamily The mutation {@link ColumnFamily} containing a single CQL3 row.
+     * @param timestamp    The time stamp to ignore deleted columns.
+     * @return The CQL3 {@link Row} contained in {@code columnFamily}, or {@code null} if it must be read.
+     */
+    protected Row mutationRow(DecoratedKey partitionKey, ColumnFamily columnFamily, long timestamp) {
+        if (mutationColumns == null) {
+            return null;
+        }
+        ColumnFamily cleanColumnFamily = cleanExpired(columnFamily, timestamp);
+        int writtenColumns = 0;
+        for (Cell cell : cleanColumnFamily) {
+            if (mutationColumns.contains(cell.name().cql3ColumnName(metadata).toString())) {
+                writtenColumns++;
+            }
         }
+        return writtenColumns == mutationColumns.size() ? new Row(partitionKey, cleanColumnFamily) : null;
+    }
+
+    /**
+     * Returns if the indexed rows are built from the mutations when they contain all the mapped columns.
+     *
+     * @return {@code true} if the indexed rows are built from the mutations, {@code false} if they are always read.
+     */
+    protected boolean isIndexingFromMutation() {
+        return mutationColumns != null;
     }
 
     /**
@@ -179,9 +407,13 @@ public abstract class RowService {
      * @param partitionKey The partition key identifying the partition to be deleted.
      */
     public void delete(final DecoratedKey partitionKey) throws IOException {
+        rebuilder.written(partitionKey.getKey());
+        committer.written(partitionKey.getKey().remaining());
         if (indexQueue == null) {
             doDelete(partitionKey);
+            journal(partitionKey.getKey());
         } else {
+            pendingTasks.remove(partitionKey.getKey()); // Don't merge the next mutations before the deletion
             indexQueue.submitAsynchronous(partitionKey, new Runnable() {
                 @Override
                 public void run() {
@@ -192,6 +424,7 @@ public abstract class RowService {
                     }
                 }
             });
+            journal(partitionKey.getKey());
         }
     }
 
@@ -202,6 +435,83 @@ public abstract class RowService {
      */
     protected abstract void doDelete(DecoratedKey partitionKey) throws IOException;
 
+    /**
+     * Indexes again the partitions recorded in the indexing journal by a previous execution, if any, and commits them.
+     * These are the partitions whose uncommitted index changes could have been lost in a crash. Their current content
+     * is read from Cassandra, so the journal doesn't need to distinguish between writes and deletions. The recovered
+     * journal segments are kept until all their partitions have been indexed again, so they are replayed again in the
+     * next start if this fails.
+     */
+    public final void replayJournal() throws IOException {
+        if (journal == null) {
+            return;
+        }
+        Set<ByteBuffer> keys = journal.recoveredKeys();
+        if (!keys.isEmpty()) {
+            Log.info("Replaying %d partitions from indexing journal", keys.size());
+            long timestamp = System.currentTimeMillis();
+            for (ByteBuffer key : keys) {
+                reindex(rowMapper.partitionKey(key), timestamp);
+            }
+            indexingStats.recordReplayed(keys.size());
+        }
+        journal.replayed();
+        commit();
+    }
+
+    /**
+     * Replaces the indexed rows of the specified partition with the ones currently stored in Cassandra.
+     *
+     * @param partitionKey The partition key.
+     * @param timestamp    The time stamp to ignore deleted columns.
+     */
+    protected abstract void reindex(DecoratedKey partitionKey, long timestamp) throws IOException;
+
+    /**
+     * Adds to the specified {@link IndexWriter} the rows of the specified partition currently stored in Cassandra,
+     * without deleting any previous document. This is used for building parts of the index apart.
+     *
+     * @param partitionKey The partition key.
+     * @param timestamp    The time stamp to ignore deleted columns.
+     * @param writer       The {@link IndexWriter} where the rows are added.
+     */
+    protected abstract void rebuild(DecoratedKey partitionKey, long timestamp, IndexWriter writer) throws IOException;
+
+    /**
+     * Returns if the index is built with several threads by this, instead of using Cassandra's sequential index
+     * builder. That is the case when rebuilding threads are configured or there is an interrupted parallel rebuild.
+     *
+     * @return {@code true} if the index is built by this, {@code false} if it is built by Cassandra.
+     */
+    public final boolean isParallelRebuild() {
+        return parallelRebuild || rebuilder.isPending();
+    }
+
+    /**
+     * Returns if there is an interrupted parallel rebuild to be resumed.
+     *
+     * @return {@code true} if there is an interrupted parallel rebuild, {@code false} otherwise.
+     */
+    public final boolean isRebuildPending() {
+        return rebuilder.isPending();
+    }
+
+    /**
+     * Rebuilds the index from the data stored in Cassandra using several threads, resuming the interrupted rebuild if
+     * there is one, and waits for it to finish.
+     */
+    public final void rebuild() throws IOException {
+        rebuilder.rebuild();
+    }
+
+    /**
+     * Starts rebuilding the index in background from the data stored in Cassandra using several threads, resuming the
+     * interrupted rebuild if there is one.
+     */
+    public final void startRebuild() {
+        rebuilder.start();
+    }
+
     /**
      * Deletes all the {@link Document}s.
      */
@@ -213,109 +523,141 @@ public abstract class RowService {
      * Closes and removes all the index files.
      */
     public final void delete() throws IOException {
+        rebuilder.close();
+        committer.close();
+        if (indexQueue != null) {
+            indexQueue.close();
+        }
+        if (journal != null) {
+            journal.close();
+        }
         luceneIndex.delete();
+        if (readExecutor != null) {
+            readExecutor.shutdown();
+        }
+        searchCache.close();
+        searchStats.close();
+        indexingStats.close();
         schema.close();
     }
 
     /**
-     * Commits the pending changes. This operation is performed asynchronously.
+     * Notifies that Cassandra has flushed the memtables of the indexed table, committing the pending changes if the
+     * {@link CommitPolicy} says so. With the {@link CommitPolicy#FLUSH} policy, the commit is skipped if the previous
+     * one started less than the commit interval ago. The other policies always skip it, because they commit in
+     * background.
      */
-    public final void commit() throws IOException {
-        if (indexQueue == null) {
-            luceneIndex.commit();
+    public final void flush() throws IOException {
+        if (committer.isFlushCommit()) {
+            commit();
         } else {
-            indexQueue.submitSynchronous(new Runnable() {
-                @Override
-                public void run() {
-                    try {
-                        luceneIndex.commit();
-                    } catch (Exception e) {
-                        Log.error(e, "Unrecoverable error during asynchronous commit");
-                    }
-                }
-            });
+            indexingStats.recordSkippedFlush();
+        }
+    }
+
+    /**
+     * Commits the pending changes in the background commit thread, logging the errors.
+     */
+    private void backgroundCommit() {
+        try {
+            commit();
+        } catch (Exception e) {
+            Log.error(e, "Error while committing Lucene index in background");
+        }
+    }
+
+    /**
+     * Commits the pending changes, including those of the asynchronous indexing tasks submitted before calling this
+     * method. Asynchronous indexing is not stopped during the commit, so the tasks submitted later keep running and
+     * they could be also committed. The indexing journal segments written before calling this method are trimmed after
+     * the Lucene commit.
+     */
+    public final void commit() throws IOException {
+        long journalSegment = journal == null ? -1 : journal.roll();
+        long startTime = System.nanoTime();
+        committer.committing();
+        if (indexQueue != null) {
+            indexQueue.await();
+        }
+        long commitTime = System.nanoTime();
+        luceneIndex.commit();
+        indexingStats.recordCommit(commitTime - startTime, System.nanoTime() - commitTime);
+        if (journal != null) {
+            journal.trim(journalSegment);
         }
     }
 
     /**
      * Returns the stored and indexed {@link Row}s satisfying the specified restrictions.
      *
-     * @param search      The {@link Search} to be performed.
+     * @param search      The {@link SearchCache.Entry} containing the {@link Search} to be performed.
      * @param expressions A list of filtering {@link IndexExpression}s to be satisfied.
      * @param dataRange   A {@link DataRange} to be satisfied.
      * @param limit       The max number of {@link Row}s to be returned.
      * @param timestamp   The operation time stamp.
      * @return The {@link Row}s satisfying the specified restrictions.
      */
-    public final List<Row> search(Search search,
+    public final List<Row> search(SearchCache.Entry search,
                                   List<IndexExpression> expressions,
                                   DataRange dataRange,
                                   final int limit,
                                   long timestamp) throws IOException {
-        Log.debug("Searching with search %s ", search);
+        Log.debug("Searching with search %s ", search.getSearch());
 
-        // Setup stats
         TimeCounter searchTime = new TimeCounter();
-        TimeCounter luceneTime = new TimeCounter();
-        TimeCounter collectTime = new TimeCounter();
         TimeCounter sortTime = new TimeCounter();
-        int numDocs = 0;
-        int numPages = 0;
-
         searchTime.start();
 
         // Setup search arguments
         Query rangeQuery = rowMapper.query(dataRange);
-        Query query = search.query(schema, rangeQuery);
-        Sort sort = search.sort(schema);
-        boolean relevance = search.usesRelevance();
-
-        // Setup search pagination
-        List<Row> rows = new LinkedList<>(); // The row list to be returned
-        ScoreDoc last = null; // The last search result
-
-        // Paginate search collecting documents
-        int page = Math.min(limit, MAX_PAGE_SIZE);
-        boolean maybeMore;
-        do {
-            // Search rows identifiers in Lucene
-            luceneTime.start();
-            Map<Document, ScoreDoc> docs = luceneIndex.search(query, sort, last, page, fieldsToLoad(), relevance);
-            List<SearchResult> searchResults = new ArrayList<>(docs.size());
-            for (Map.Entry<Document, ScoreDoc> entry : docs.entrySet()) {
-                searchResults.add(rowMapper.searchResult(entry.getKey(), entry.getValue()));
-            }
-            numDocs += searchResults.size();
-            last = searchResults.isEmpty() ? null : searchResults.get(searchResults.size() - 1).getScoreDoc();
-            luceneTime.stop();
-
-            // Collect rows from Cassandra
-            collectTime.start();
-            for (Row row : rows(searchResults, timestamp, relevance)) {
-                if (row != null && accepted(row, expressions)) {
-                    rows.add(row);
-                }
-            }
-            collectTime.stop();
-
-            // Setup next iteration
-            maybeMore = searchResults.size() == page;
-            page = Math.min(Math.max(FILTERING_PAGE_SIZE, rows.size() - limit), MAX_PAGE_SIZE);
-            numPages++;
+        Query query = search.query(rangeQuery);
+        Sort sort = search.getSort();
+        boolean relevance = search.getSearch().usesRelevance();
+
+        // Filter with Lucene the expressions that can be exactly mapped, the rest are checked against the rows
+        List<IndexExpression> postFilters = new ArrayList<>(expressions);
+        Query expressionsQuery = expressionMapper.query(postFilters);
+        if (expressionsQuery != null) {
+            Log.debug("Filtering with query %s, post-filtering with %s", expressionsQuery, postFilters);
+            BooleanQuery booleanQuery = new BooleanQuery();
+            booleanQuery.add(query, BooleanClause.Occur.MUST);
+            booleanQuery.add(expressionsQuery, BooleanClause.Occur.FILTER);
+            query = booleanQuery;
+        }
 
-            // Iterate while there are still documents to read and we don't have enough rows
-        } while (maybeMore && rows.size() < limit);
+        // Drain the lazily paginated rows
+        boolean filtered = !postFilters.isEmpty();
+        List<Row> rows = new ArrayList<>(Math.min(limit, RowIterator.MAX_PAGE_SIZE));
+        SearchSession session = luceneIndex.session(query, sort, relevance);
+        try (RowIterator iterator = new RowIterator(this,
+                                                    session,
+                                                    postFilters,
+                                                    limit,
+                                                    timestamp,
+                                                    relevance,
+                                                    searchStats.expectedSurvival(filtered),
+                                                    searchExecutor,
+                                                    searchPrefetchPages)) {
+            while (iterator.hasNext()) {
+                rows.add(iterator.next());
+            }
+            Log.debug("Lucene time: %s", iterator.getLuceneTime());
+            Log.debug("Cassandra time: %s", iterator.getCollectTime());
+            Log.debug("Collected %d docs and %d rows in %d pages",
+                      iterator.getNumDocs(),
+                      rows.size(),
+                      iterator.getNumPages());
+            searchStats.record(iterator, filtered);
+        }
 
+        // Rows are already in natural order unless the search uses relevance or sorting, so this is usually linear
         sortTime.start();
         Collections.sort(rows, comparator());
         sortTime.stop();
 
         searchTime.stop();
-
-        Log.debug("Lucene time: %s", luceneTime);
-        Log.debug("Cassandra time: %s", collectTime);
         Log.debug("Sort time: %s", sortTime);
-        Log.debug("Collected %d docs and %d rows in %d pages in %s", numDocs, rows.size(), numPages, searchTime);
+        Log.debug("Search time: %s", searchTime);
 
         return rows;
     }
@@ -329,7 +671,7 @@ public abstract class RowService {
      * @return {@code true} if the specified {@link Row} satisfies the all the specified {@link IndexExpression}s,
      * {@code false} otherwise.
      */
-    private boolean accepted(Row row, List<IndexExpression> expressions) {
+    boolean accepted(Row row, List<IndexExpression> expressions) {
         if (!expressions.isEmpty()) {
             Columns columns = rowMapper.columns(row);
             for (IndexExpression expression : expressions) {
@@ -390,7 +732,8 @@ public abstract class RowService {
 
     /**
      * Returns the {@link Row}s identified by the specified {@link Document}s, using the specified time stamp to ignore
-     * deleted columns. The {@link Row}s are retrieved from the storage engine, so it involves IO operations.
+     * deleted columns. The {@link Row}s are retrieved from the storage engine, so it involves IO operations. They are
+     * returned in the same order as the {@link SearchResult}s, skipping those not found in the storage engine.
      *
      * @param searchResults The {@link SearchResult}s
      * @param timestamp     The time stamp to ignore deleted columns.
@@ -399,6 +742,78 @@ public abstract class RowService {
      */
     protected abstract List<Row> rows(List<SearchResult> searchResults, long timestamp, boolean usesRelevance);
 
+    /**
+     * Reads the data of each one of the specified partitions with the specified reader. If there is a read executor,
+     * the partitions are split in token order into contiguous groups which are read in parallel, otherwise they are
+     * read sequentially in token order in the calling thread. The time spent by each read is recorded.
+     *
+     * @param partitionKeys The keys of the partitions to be read.
+     * @param reader        The function reading the data of a partition, returning {@code null} if there is no data.
+     * @param <T>           The type of the read partition data.
+     * @return The non {@code null} read data of each partition.
+     */
+    protected <T> Map<DecoratedKey, T> read(Collection<DecoratedKey> partitionKeys,
+                                            final Function<DecoratedKey, T> reader) {
+        List<DecoratedKey> sortedKeys = new ArrayList<>(partitionKeys);
+        Collections.sort(sortedKeys);
+        if (readExecutor == null || sortedKeys.size() <= 1) {
+            return read(sortedKeys, reader, searchStats);
+        }
+
+        int numTasks = Math.min(sortedKeys.size(), readThreads * READ_TASKS_PER_THREAD);
+        int taskSize = (sortedKeys.size() + numTasks - 1) / numTasks;
+        List<Future<Map<DecoratedKey, T>>> futures = new ArrayList<>(numTasks);
+        for (final List<DecoratedKey> keys : Lists.partition(sortedKeys, taskSize)) {
+            futures.add(readExecutor.submit(new Callable<Map<DecoratedKey, T>>() {
+                @Override
+                public Map<DecoratedKey, T> call() throws Exception {
+                    return read(keys, reader, searchStats);
+                }
+            }));
+        }
+
+        Map<DecoratedKey, T> results = new HashMap<>(sortedKeys.size());
+        try {
+            for (Future<Map<DecoratedKey, T>> future : futures) {
+                results.putAll(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while reading rows", e);
+        } catch (ExecutionException e) {
+            throw Throwables.propagate(e.getCause());
+        } finally {
+            for (Future<Map<DecoratedKey, T>> future : futures) {
+                future.cancel(false);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Sequentially reads the data of each one of the specified partitions with the specified reader.
+     *
+     * @param partitionKeys The keys of the partitions to be read.
+     * @param reader        The function reading the data of a partition, returning {@code null} if there is no data.
+     * @param stats         The {@link SearchStats} where the read times are recorded.
+     * @param <T>           The type of the read partition data.
+     * @return The non {@code null} read data of each partition.
+     */
+    private static <T> Map<DecoratedKey, T> read(List<DecoratedKey> partitionKeys,
+                                                 Function<DecoratedKey, T> reader,
+                                                 SearchStats stats) {
+        Map<DecoratedKey, T> results = new HashMap<>(partitionKeys.size());
+        for (DecoratedKey partitionKey : partitionKeys) {
+            long startTime = System.nanoTime();
+            T result = reader.apply(partitionKey);
+            stats.recordRead(System.nanoTime() - startTime);
+            if (result != null) {
+                results.put(partitionKey, result);
+            }
+        }
+        return results;
+    }
+
     /**
      * Returns a {@link ColumnFamily} composed by the non expired {@link Cell}s of the specified  {@link ColumnFamily}.
      *
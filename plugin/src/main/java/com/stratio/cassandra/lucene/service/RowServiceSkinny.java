@@ -15,6 +15,7 @@
  */
 package com.stratio.cassandra.lucene.service;
 
+import com.google.common.base.Function;
 import org.apache.cassandra.config.ColumnDefinition;
 import org.apache.cassandra.db.ColumnFamily;
 import org.apache.cassandra.db.ColumnFamilyStore;
@@ -22,6 +23,7 @@ import org.apache.cassandra.db.DecoratedKey;
 import org.apache.cassandra.db.Row;
 import org.apache.cassandra.db.filter.QueryFilter;
 import org.apache.lucene.document.Document;
+import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.Term;
 
 import java.io.IOException;
@@ -29,6 +31,7 @@ import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -38,14 +41,6 @@ import java.util.Set;
  */
 public class RowServiceSkinny extends RowService {
 
-    /** The names of the Lucene fields to be loaded. */
-    private static final Set<String> FIELDS_TO_LOAD;
-
-    static {
-        FIELDS_TO_LOAD = new HashSet<>();
-        FIELDS_TO_LOAD.add(PartitionKeyMapper.FIELD_NAME);
-    }
-
     /** The used row mapper. */
     private final RowMapperSkinny rowMapper;
 
@@ -61,16 +56,6 @@ public class RowServiceSkinny extends RowService {
         luceneIndex.init(rowMapper.sort());
     }
 
-    /**
-     * {@inheritDoc}
-     * <p/>
-     * These fields are just the partition key.
-     */
-    @Override
-    public Set<String> fieldsToLoad() {
-        return FIELDS_TO_LOAD;
-    }
-
     /**
      * {@inheritDoc}
      */
@@ -80,14 +65,17 @@ public class RowServiceSkinny extends RowService {
 
         if (columnFamily.iterator().hasNext()) // Create or update row
         {
-            Row row = row(partitionKey, timestamp); // Read row
+            Row row = mutationRow(partitionKey, columnFamily, timestamp);
+            if (row == null) {
+                row = row(partitionKey, timestamp); // Read row
+            }
             Document document = rowMapper.document(row);
             Term term = rowMapper.term(partitionKey);
-            luceneIndex.upsert(term, document); // Store document
+            luceneIndex.upsert(partitionKey, term, document); // Store document
         } else if (columnFamily.deletionInfo() != null) // Delete full row
         {
             Term term = rowMapper.term(partitionKey);
-            luceneIndex.delete(term);
+            luceneIndex.delete(partitionKey, term);
         }
     }
 
@@ -95,20 +83,52 @@ public class RowServiceSkinny extends RowService {
     @Override
     public void doDelete(DecoratedKey partitionKey) throws IOException {
         Term term = rowMapper.term(partitionKey);
-        luceneIndex.delete(term);
+        luceneIndex.delete(partitionKey, term);
     }
 
     /** {@inheritDoc} */
-    protected List<Row> rows(List<SearchResult> searchResults, long timestamp, boolean usesRelevance) {
-        List<Row> rows = new ArrayList<>(searchResults.size());
+    @Override
+    protected void reindex(DecoratedKey partitionKey, long timestamp) throws IOException {
+        Term term = rowMapper.term(partitionKey);
+        Row row = row(partitionKey, timestamp);
+        if (row == null || !row.cf.iterator().hasNext()) {
+            luceneIndex.delete(partitionKey, term);
+        } else {
+            luceneIndex.upsert(partitionKey, term, rowMapper.document(row));
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected void rebuild(DecoratedKey partitionKey, long timestamp, IndexWriter writer) throws IOException {
+        Row row = row(partitionKey, timestamp);
+        if (row != null && row.cf.iterator().hasNext()) {
+            writer.addDocument(rowMapper.document(row));
+        }
+    }
+
+    /** {@inheritDoc} */
+    protected List<Row> rows(List<SearchResult> searchResults, final long timestamp, boolean usesRelevance) {
+
+        // Retrieve the rows
+        Set<DecoratedKey> partitionKeys = new HashSet<>(searchResults.size());
         for (SearchResult searchResult : searchResults) {
+            partitionKeys.add(searchResult.getPartitionKey());
+        }
+        Map<DecoratedKey, Row> rowsByKey = read(partitionKeys, new Function<DecoratedKey, Row>() {
+            @Override
+            public Row apply(DecoratedKey partitionKey) {
+                return row(partitionKey, timestamp);
+            }
+        });
 
-            // Extract row from document
-            DecoratedKey partitionKey = searchResult.getPartitionKey();
-            Row row = row(partitionKey, timestamp);
+        // Return the rows in hit order
+        List<Row> rows = new ArrayList<>(searchResults.size());
+        for (SearchResult searchResult : searchResults) {
 
+            Row row = rowsByKey.get(searchResult.getPartitionKey());
             if (row == null) {
-                return null;
+                continue;
             }
 
             // Return decorated row
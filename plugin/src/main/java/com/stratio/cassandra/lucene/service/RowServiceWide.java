@@ -15,6 +15,7 @@
  */
 package com.stratio.cassandra.lucene.service;
 
+import com.google.common.base.Function;
 import com.google.common.collect.Lists;
 import org.apache.cassandra.config.ColumnDefinition;
 import org.apache.cassandra.db.ColumnFamily;
@@ -28,6 +29,7 @@ import org.apache.cassandra.db.filter.ColumnSlice;
 import org.apache.cassandra.db.filter.QueryFilter;
 import org.apache.cassandra.db.filter.SliceQueryFilter;
 import org.apache.lucene.document.Document;
+import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.search.Query;
 
@@ -42,14 +44,8 @@ import java.util.*;
  */
 public class RowServiceWide extends RowService {
 
-    /** The names of the Lucene fields to be loaded. */
-    private static final Set<String> FIELDS_TO_LOAD;
-
-    static {
-        FIELDS_TO_LOAD = new HashSet<>();
-        FIELDS_TO_LOAD.add(PartitionKeyMapper.FIELD_NAME);
-        FIELDS_TO_LOAD.add(ClusteringKeyMapper.FIELD_NAME);
-    }
+    /** The max number of CQL3 rows read at once when indexing again or rebuilding a partition. */
+    static final int REINDEX_PAGE_SIZE = 1000;
 
     /** The used row mapper. */
     private final RowMapperWide rowMapper;
@@ -66,16 +62,6 @@ public class RowServiceWide extends RowService {
         luceneIndex.init(rowMapper.sort());
     }
 
-    /**
-     * {@inheritDoc}
-     * <p/>
-     * These fields are the partition and clustering keys.
-     */
-    @Override
-    public Set<String> fieldsToLoad() {
-        return FIELDS_TO_LOAD;
-    }
-
     /** {@inheritDoc} */
     @Override
     public void doIndex(ByteBuffer key, ColumnFamily columnFamily, long timestamp) throws IOException {
@@ -83,14 +69,13 @@ public class RowServiceWide extends RowService {
         DecoratedKey partitionKey = rowMapper.partitionKey(key);
 
         if (columnFamily.iterator().hasNext()) {
-            List<CellName> clusteringKeys = rowMapper.clusteringKeys(columnFamily);
-            Map<CellName, Row> rows = rows(partitionKey, clusteringKeys, timestamp);
+            Map<CellName, Row> rows = writtenRows(partitionKey, columnFamily, timestamp);
             for (Map.Entry<CellName, Row> entry : rows.entrySet()) {
                 CellName clusteringKey = entry.getKey();
                 Row row = entry.getValue();
                 Document document = rowMapper.document(row);
                 Term term = rowMapper.term(partitionKey, clusteringKey);
-                luceneIndex.upsert(term, document); // Store document
+                luceneIndex.upsert(partitionKey, term, document); // Store document
             }
         } else if (deletionInfo != null) {
             Iterator<RangeTombstone> iterator = deletionInfo.rangeIterator();
@@ -98,11 +83,11 @@ public class RowServiceWide extends RowService {
                 while (iterator.hasNext()) {
                     RangeTombstone rangeTombstone = iterator.next();
                     Query query = rowMapper.query(partitionKey, rangeTombstone);
-                    luceneIndex.delete(query);
+                    luceneIndex.delete(partitionKey, query);
                 }
             } else {
                 Term term = rowMapper.term(partitionKey);
-                luceneIndex.delete(term);
+                luceneIndex.delete(partitionKey, term);
             }
         }
     }
@@ -111,7 +96,66 @@ public class RowServiceWide extends RowService {
     @Override
     public void doDelete(DecoratedKey partitionKey) throws IOException {
         Term term = rowMapper.term(partitionKey);
-        luceneIndex.delete(term);
+        luceneIndex.delete(partitionKey, term);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * The partition is read in pages of clustering keys, so big partitions don't need to fit in memory.
+     */
+    @Override
+    protected void reindex(DecoratedKey partitionKey, long timestamp) throws IOException {
+        luceneIndex.delete(partitionKey, rowMapper.term(partitionKey));
+        index(partitionKey, timestamp, null);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p/>
+     * The partition is read in pages of clustering keys, so big partitions don't need to fit in memory.
+     */
+    @Override
+    protected void rebuild(DecoratedKey partitionKey, long timestamp, IndexWriter writer) throws IOException {
+        index(partitionKey, timestamp, writer);
+    }
+
+    /**
+     * Indexes the rows of the specified partition currently stored in Cassandra, reading them in pages of clustering
+     * keys.
+     *
+     * @param partitionKey The partition key.
+     * @param timestamp    The time stamp to ignore deleted columns.
+     * @param writer       The {@link IndexWriter} where the rows are added, or {@code null} for upserting them in the
+     *                     index.
+     */
+    private void index(DecoratedKey partitionKey, long timestamp, IndexWriter writer) throws IOException {
+        CellName lastClusteringKey = null;
+        while (true) {
+            ColumnSlice slice = rowMapper.columnSliceAfter(lastClusteringKey);
+            SliceQueryFilter dataFilter = new SliceQueryFilter(new ColumnSlice[]{slice},
+                                                               false,
+                                                               REINDEX_PAGE_SIZE,
+                                                               baseCfs.metadata.clusteringColumns().size());
+            QueryFilter queryFilter = new QueryFilter(partitionKey, baseCfs.name, dataFilter, timestamp);
+            ColumnFamily queryColumnFamily = baseCfs.getColumnFamily(queryFilter);
+            List<CellName> clusteringKeys = queryColumnFamily == null
+                                            ? Collections.<CellName>emptyList()
+                                            : rowMapper.clusteringKeys(queryColumnFamily);
+            if (clusteringKeys.isEmpty()) {
+                return;
+            }
+            for (Map.Entry<CellName, Row> entry : rows(partitionKey, clusteringKeys, timestamp).entrySet()) {
+                Document document = rowMapper.document(entry.getValue());
+                if (writer == null) {
+                    Term term = rowMapper.term(partitionKey, entry.getKey());
+                    luceneIndex.upsert(partitionKey, term, document);
+                } else {
+                    writer.addDocument(document);
+                }
+            }
+            lastClusteringKey = clusteringKeys.get(clusteringKeys.size() - 1);
+        }
     }
 
     /**
@@ -120,46 +164,78 @@ public class RowServiceWide extends RowService {
      * The {@link Row} is a logical one.
      */
     @Override
-    protected List<Row> rows(List<SearchResult> searchResults, long timestamp, boolean usesRelevance) {
-        // Initialize result
-        List<Row> rows = new ArrayList<>(searchResults.size());
+    protected List<Row> rows(List<SearchResult> searchResults, final long timestamp, boolean usesRelevance) {
 
         // Group key queries by partition keys
-        Map<CellName, Float> scoresByClusteringKey = new HashMap<>(searchResults.size());
-        Map<DecoratedKey, List<CellName>> keys = new HashMap<>();
+        final Map<DecoratedKey, List<CellName>> keys = new HashMap<>();
         for (SearchResult searchResult : searchResults) {
             DecoratedKey partitionKey = searchResult.getPartitionKey();
-            CellName clusteringKey = searchResult.getClusteringKey();
-            Float score = searchResult.getScore();
-            scoresByClusteringKey.put(clusteringKey, score);
             List<CellName> clusteringKeys = keys.get(partitionKey);
             if (clusteringKeys == null) {
                 clusteringKeys = new ArrayList<>();
                 keys.put(partitionKey, clusteringKeys);
             }
-            clusteringKeys.add(clusteringKey);
+            clusteringKeys.add(searchResult.getClusteringKey());
         }
 
-        for (Map.Entry<DecoratedKey, List<CellName>> entry : keys.entrySet()) {
-            DecoratedKey partitionKey = entry.getKey();
-            for (List<CellName> clusteringKeys : Lists.partition(entry.getValue(), 1000)) {
-                Map<CellName, Row> partitionRows = rows(partitionKey, clusteringKeys, timestamp);
-                for (Map.Entry<CellName, Row> entry1 : partitionRows.entrySet()) {
-                    Row row = entry1.getValue();
-                    if (usesRelevance) {
-                        CellName clusteringKey = entry1.getKey();
-                        Float score = scoresByClusteringKey.get(clusteringKey);
-                        Row scoredRow = addScoreColumn(row, timestamp, score);
-                        rows.add(scoredRow);
-                    } else {
-                        rows.add(row);
-                    }
+        // Retrieve the rows of each partition
+        Function<DecoratedKey, Map<CellName, Row>> reader = new Function<DecoratedKey, Map<CellName, Row>>() {
+            @Override
+            public Map<CellName, Row> apply(DecoratedKey partitionKey) {
+                List<CellName> partitionClusteringKeys = keys.get(partitionKey);
+                Map<CellName, Row> partitionRows = new HashMap<>(partitionClusteringKeys.size());
+                for (List<CellName> clusteringKeys : Lists.partition(partitionClusteringKeys, 1000)) {
+                    partitionRows.putAll(rows(partitionKey, clusteringKeys, timestamp));
                 }
+                return partitionRows;
+            }
+        };
+        Map<DecoratedKey, Map<CellName, Row>> rowsByPartition = read(keys.keySet(), reader);
+
+        // Return the rows in hit order
+        List<Row> rows = new ArrayList<>(searchResults.size());
+        for (SearchResult searchResult : searchResults) {
+            Map<CellName, Row> partitionRows = rowsByPartition.get(searchResult.getPartitionKey());
+            Row row = partitionRows == null ? null : partitionRows.get(searchResult.getClusteringKey());
+            if (row != null) {
+                rows.add(usesRelevance ? addScoreColumn(row, timestamp, searchResult.getScore()) : row);
             }
         }
         return rows;
     }
 
+    /**
+     * Returns the CQL3 {@link Row}s written by the specified mutation {@link ColumnFamily}. If indexing from mutations
+     * is enabled, the rows containing all the mapped columns are taken from the mutation, and only the rest of them are
+     * read from the storage engine.
+     *
+     * @param partitionKey The partition key.
+     * @param columnFamily The mutation {@link ColumnFamily}.
+     * @param timestamp    The time stamp to ignore deleted columns.
+     * @return The CQL3 {@link Row}s written by {@code columnFamily}.
+     */
+    private Map<CellName, Row> writtenRows(DecoratedKey partitionKey, ColumnFamily columnFamily, long timestamp) {
+        if (!isIndexingFromMutation()) {
+            List<CellName> clusteringKeys = rowMapper.clusteringKeys(columnFamily);
+            return rows(partitionKey, clusteringKeys, timestamp);
+        }
+        Map<CellName, Row> rows = new HashMap<>();
+        List<CellName> readClusteringKeys = new ArrayList<>();
+        for (Map.Entry<CellName, ColumnFamily> entry : rowMapper.splitRows(columnFamily).entrySet()) {
+            CellName clusteringKey = entry.getKey();
+            Row row = mutationRow(partitionKey, entry.getValue(), timestamp);
+            if (row == null) {
+                readClusteringKeys.add(clusteringKey);
+            } else {
+                rows.put(clusteringKey, row);
+            }
+        }
+        if (!readClusteringKeys.isEmpty()) {
+            rows.putAll(rows(partitionKey, readClusteringKeys, timestamp));
+        }
+        return rows;
+    }
+
     /**
      * Returns the CQL3 {@link Row} identified by the specified key pair, using the specified time stamp to ignore
      * deleted columns. The {@link Row} is retrieved from the storage engine, so it involves IO operations.
@@ -0,0 +1,232 @@
+/*
+ * Copyright 2015, Stratio.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.stratio.cassandra.lucene.service;
+
+import com.google.common.base.Objects;
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.Weigher;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.stratio.cassandra.lucene.query.Search;
+import com.stratio.cassandra.lucene.schema.Schema;
+import com.stratio.cassandra.lucene.util.Log;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.Sort;
+
+import javax.management.MBeanException;
+import javax.management.ObjectName;
+import javax.management.OperationsException;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * A bounded LRU cache mapping JSON search expressions to their parsed {@link Search} and to the Lucene {@link Query}
+ * and {@link Sort} compiled with a certain {@link Schema}. The size of each entry is estimated from the length of its
+ * JSON expression.
+ *
+ * @author Andres de la Pena <adelapena@stratio.com>
+ */
+public class SearchCache implements SearchCacheMBean {
+
+    /** The estimated number of bytes of heap used by a cache entry per character of its JSON expression. */
+    private static final int BYTES_PER_CHAR = 10;
+
+    private final Schema schema;
+    private final Cache<String, Entry> cache;
+    private final String logName;
+    private ObjectName objectName;
+
+    /**
+     * Builds a new {@link SearchCache} compiling searches with the specified {@link Schema}.
+     *
+     * @param keyspace  The keyspace name.
+     * @param table     The table name.
+     * @param name      The index name.
+     * @param schema    The {@link Schema} to be used for compiling searches.
+     * @param maxSizeMB The max estimated size of the cache in MB, where {@code 0} means no caching.
+     */
+    public SearchCache(String keyspace, String table, String name, Schema schema, int maxSizeMB) {
+        this.schema = schema;
+        this.logName = String.format("Search cache %s.%s.%s", keyspace, table, name);
+        this.cache = CacheBuilder.newBuilder()
+                                 .maximumWeight(maxSizeMB * 1024L * 1024L)
+                                 .weigher(new Weigher<String, Entry>() {
+                                     @Override
+                                     public int weigh(String json, Entry entry) {
+                                         return json.length() * BYTES_PER_CHAR;
+                                     }
+                                 })
+                                 .recordStats()
+                                 .build();
+
+        // Register JMX MBean
+        try {
+            objectName = new ObjectName(String.format(
+                    "com.stratio.cassandra.lucene:type=SearchCaches,keyspace=%s,table=%s,index=%s",
+                    keyspace,
+                    table,
+                    name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        } catch (MBeanException | OperationsException e) {
+            Log.error(e, "Error while registering MBean");
+        }
+    }
+
+    /**
+     * Returns the cached {@link Entry} for the specified JSON search expression, parsing and compiling it if it is not
+     * already cached. Searches that can't be parsed or compiled are never cached.
+     *
+     * @param json A JSON {@code String} representing a {@link Search}.
+     * @return The {@link Entry} for {@code json}.
+     */
+    public Entry get(final String json) {
+        try {
+            return cache.get(json, new Callable<Entry>() {
+                @Override
+                public Entry call() throws Exception {
+                    Log.debug("%s compiling search %s", logName, json);
+                    return new Entry(Search.fromJson(json), schema);
+                }
+            });
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            throw Throwables.propagate(e.getCause());
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getHitCount() {
+        return cache.stats().hitCount();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getMissCount() {
+        return cache.stats().missCount();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public double getHitRate() {
+        return cache.stats().hitRate();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getEvictionCount() {
+        return cache.stats().evictionCount();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getSize() {
+        return cache.size();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void clear() {
+        cache.invalidateAll();
+        Log.info("%s cleared", logName);
+    }
+
+    /**
+     * Discards all the cached searches and unregisters the JMX MBean.
+     */
+    public void close() {
+        cache.invalidateAll();
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (MBeanException | OperationsException e) {
+            Log.error(e, "Error while removing MBean");
+        }
+        Log.info("%s closed", logName);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString() {
+        CacheStats stats = cache.stats();
+        return Objects.toStringHelper(this)
+                      .add("name", logName)
+                      .add("size", cache.size())
+                      .add("hits", stats.hitCount())
+                      .add("misses", stats.missCount())
+                      .toString();
+    }
+
+    /**
+     * An immutable {@link Search} along with its Lucene {@link Query} and {@link Sort} compiled with a {@link Schema}.
+     * Lucene queries are not modified while searching, so they can be safely shared between concurrent searches.
+     */
+    public static class Entry {
+
+        private final Search search; // The parsed search
+        private final Query query; // The search querying and filtering conditions, never null
+        private final Sort sort; // The search sort, maybe null
+
+        /**
+         * Builds a new {@link Entry} compiling the specified {@link Search} with the specified {@link Schema}.
+         *
+         * @param search The {@link Search} to be compiled.
+         * @param schema The {@link Schema} to be used.
+         */
+        Entry(Search search, Schema schema) {
+            this.search = search;
+            this.query = search.query(schema, null);
+            this.sort = search.sort(schema);
+        }
+
+        /**
+         * Returns the parsed {@link Search}.
+         *
+         * @return The parsed {@link Search}.
+         */
+        public Search getSearch() {
+            return search;
+        }
+
+        /**
+         * Returns the compiled Lucene {@link Sort}, maybe {@code null} meaning no sorting.
+         *
+         * @return The compiled Lucene {@link Sort}.
+         */
+        public Sort getSort() {
+            return sort;
+        }
+
+        /**
+         * Returns the compiled Lucene {@link Query} restricted to the specified range {@link Query}.
+         *
+         * @param rangeQuery An additional range {@link Query}, maybe {@code null} meaning no range restriction.
+         * @return The compiled Lucene {@link Query} restricted to {@code rangeQuery}.
+         */
+        public Query query(Query rangeQuery) {
+            if (rangeQuery == null) {
+                return query;
+            }
+            BooleanQuery booleanQuery = new BooleanQuery();
+            booleanQuery.add(query, BooleanClause.Occur.MUST);
+            booleanQuery.add(rangeQuery, BooleanClause.Occur.MUST);
+            return booleanQuery;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2015, Stratio.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.stratio.cassandra.lucene.service;
+
+/**
+ * JMX interface for {@link SearchCache}.
+ *
+ * @author Andres de la Pena <adelapena@stratio.com>
+ */
+public interface SearchCacheMBean {
+
+    /**
+     * Returns the number of times a search has been found in the cache.
+     *
+     * @return The number of cache hits.
+     */
+    long getHitCount();
+
+    /**
+     * Returns the number of times a search has been parsed and compiled because it was not found in the cache.
+     *
+     * @return The number of cache misses.
+     */
+    long getMissCount();
+
+    /**
+     * Returns the ratio of requests that have been hits, or {@code 1.0} if there have been no requests.
+     *
+     * @return The ratio of requests that have been hits.
+     */
+    double getHitRate();
+
+    /**
+     * Returns the number of searches that have been evicted from the cache.
+     *
+     * @return The number of evicted searches.
+     */
+    long getEvictionCount();
+
+    /**
+     * Returns the number of searches currently in the cache.
+     *
+     * @return The number of cached searches.
+     */
+    long getSize();
+
+    /**
+     * Discards all the cached searches.
+     */
+    void clear();
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2015, Stratio.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.stratio.cassandra.lucene.service;
+
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.Uninterruptibles;
+import org.apache.cassandra.concurrent.NamedThreadFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The executor of the background searches, such as the prefetching of pages of hits, and of the per shard tasks of
+ * the searches and commits of sharded indexes, which is shared by all the indexes of the process. It has a thread per
+ * available processor, and its threads exit after being idle for a while, so the indexes which are not being searched
+ * don't keep any thread.
+ *
+ * @author Andres de la Pena <adelapena@stratio.com>
+ */
+final class SearchExecutor {
+
+    /** The seconds after which an idle search thread exits. */
+    private static final int KEEP_ALIVE_SECONDS = 60;
+
+    private static final ListeningExecutorService INSTANCE = MoreExecutors.listeningDecorator(executor());
+
+    /** Private constructor to hide the implicit public one. */
+    private SearchExecutor() {
+    }
+
+    /**
+     * Returns a new executor with a thread per available processor, whose threads exit after being idle for
+     * {@link #KEEP_ALIVE_SECONDS}.
+     *
+     * @return A new executor.
+     */
+    private static ThreadPoolExecutor executor() {
+        int threads = Runtime.getRuntime().availableProcessors();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads,
+                                                             threads,
+                                                             KEEP_ALIVE_SECONDS,
+                                                             TimeUnit.SECONDS,
+                                                             new LinkedBlockingQueue<Runnable>(),
+                                                             new NamedThreadFactory("lucene-search"));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Returns the search executor shared by all the indexes, which must not be shut down.
+     *
+     * @return The search executor shared by all the indexes.
+     */
+    static ListeningExecutorService instance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Runs the specified tasks in parallel in the specified executor, waiting for all of them to finish. The first
+     * task, and any other task not started by the executor when the calling thread gets to it, are run in the calling
+     * thread, so the caller never waits behind the tasks queued in the executor, and tasks running in the executor can
+     * call this method without exhausting its threads.
+     *
+     * @param executor The executor running the tasks in parallel.
+     * @param tasks    The tasks to be run.
+     * @param <T>      The type of the task results.
+     * @return The results of {@code tasks}, in the same order.
+     * @throws IOException If any of the tasks throws IO errors.
+     */
+    static <T> List<T> invokeAll(Executor executor, List<? extends Callable<T>> tasks) throws IOException {
+        List<FutureTask<T>> futures = new ArrayList<>(tasks.size());
+        for (Callable<T> task : tasks) {
+            futures.add(new FutureTask<>(task));
+        }
+        for (FutureTask<T> future : futures.subList(Math.min(1, futures.size()), futures.size())) {
+            executor.execute(future);
+        }
+        for (FutureTask<T> future : futures) {
+            future.run(); // Does nothing if the executor has already started it
+        }
+        List<T> results = new ArrayList<>(futures.size());
+        ExecutionException failure = null;
+        for (FutureTask<T> future : futures) { // Wait for all, the tasks could be using resources of the caller
+            try {
+                results.add(Uninterruptibles.getUninterruptibly(future));
+            } catch (ExecutionException e) {
+                failure = failure == null ? e : failure;
+            }
+        }
+        if (failure != null) {
+            Throwables.propagateIfInstanceOf(failure.getCause(), IOException.class);
+            throw Throwables.propagate(failure.getCause());
+        }
+        return results;
+    }
+}
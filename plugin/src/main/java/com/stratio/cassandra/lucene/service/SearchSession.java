@@ -0,0 +1,299 @@
+/*
+ * Copyright 2015, Stratio.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.stratio.cassandra.lucene.service;
+
+import com.stratio.cassandra.lucene.util.Log;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.SortingMergePolicy;
+import org.apache.lucene.search.EarlyTerminatingSortingCollector;
+import org.apache.lucene.search.FieldDoc;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TopDocsCollector;
+import org.apache.lucene.search.TopFieldCollector;
+import org.apache.lucene.search.TopFieldDocs;
+import org.apache.lucene.search.TopScoreDocCollector;
+import org.apache.lucene.search.Weight;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * A paginated search over a {@link LuceneIndex} or the shards of a {@link ShardedLuceneIndex}. It pins a single {@link
+ * IndexSearcher} per shard for all its pages, so they all see the same point-in-time view of the index, and it rewrites
+ * the query and builds its {@link Weight} only once per shard. Sessions are not thread-safe, although their pages can
+ * be searched from different threads as long as they don't overlap, and they must be closed to release the pinned
+ * {@link IndexSearcher}s.
+ * <p/>
+ * Each page is searched in every shard, in parallel if there is an executor, searching the first shard in the calling
+ * thread and the others in the executor, as done by {@link SearchExecutor#invokeAll}. The top hits of the shards are
+ * merged by the same sort criteria. Ties between shards are broken by shard, so the page after a hit is searched in
+ * each shard after the shard-local equivalent of that hit. Relevance scores are computed with the statistics of each
+ * shard.
+ *
+ * @author Andres de la Pena <adelapena@stratio.com>
+ */
+public class SearchSession implements Closeable {
+
+    private final List<SearcherManager> searcherManagers;
+    private final List<WeightIndexSearcher> searchers;
+    private final List<Weight> weights;
+    private final Sort sort;
+    private final List<Sort> sorts;
+    private final boolean usesRelevance;
+    private final Sort indexSort;
+    private final SortingMergePolicy sortingMergePolicy;
+    private final ExecutorService executor;
+
+    /**
+     * Builds a new {@link SearchSession} acquiring an {@link IndexSearcher} from each one of the specified {@link
+     * SearcherManager}s.
+     *
+     * @param searcherManagers   The {@link SearcherManager}s providing the {@link IndexSearcher} of each shard.
+     * @param query              The {@link Query} to search for.
+     * @param sort               The {@link Sort} to be applied, maybe {@code null} meaning index natural order.
+     * @param usesRelevance      If the results must be sorted by relevance when there is no {@code sort}.
+     * @param indexSort          The {@link Sort} in which the index segments are kept.
+     * @param sortingMergePolicy The {@link SortingMergePolicy} keeping the index segments sorted.
+     * @param executor           The executor searching all the shards but the first one in parallel, maybe {@code null}
+     *                           meaning sequential.
+     * @throws IOException If Lucene throws IO errors.
+     */
+    SearchSession(List<SearcherManager> searcherManagers,
+                  Query query,
+                  Sort sort,
+                  boolean usesRelevance,
+                  Sort indexSort,
+                  SortingMergePolicy sortingMergePolicy,
+                  ExecutorService executor) throws IOException {
+        this.searcherManagers = searcherManagers;
+        this.usesRelevance = usesRelevance;
+        this.indexSort = indexSort;
+        this.sortingMergePolicy = sortingMergePolicy;
+        this.executor = executor;
+        this.searchers = new ArrayList<>(searcherManagers.size());
+        this.weights = new ArrayList<>(searcherManagers.size());
+        this.sorts = new ArrayList<>(searcherManagers.size());
+        try {
+            for (SearcherManager searcherManager : searcherManagers) {
+                WeightIndexSearcher searcher = (WeightIndexSearcher) searcherManager.acquire();
+                searchers.add(searcher);
+                Sort rewrittenSort = sort == null ? null : sort.rewrite(searcher);
+                boolean needsScores = rewrittenSort == null ? usesRelevance : rewrittenSort.needsScores();
+                sorts.add(rewrittenSort);
+                weights.add(searcher.createNormalizedWeight(query, needsScores));
+            }
+        } catch (IOException | RuntimeException e) {
+            close();
+            throw e;
+        }
+        this.sort = sorts.get(0);
+    }
+
+    /**
+     * Finds the top {@code count} hits after the specified {@link ScoreDoc}, sorting them by this session sort
+     * criteria.
+     *
+     * @param after        The last hit of the previous page, maybe {@code null} meaning the first page.
+     * @param count        Return only the top {@code count} results.
+     * @param fieldsToLoad The name of the fields to be loaded.
+     * @return The found documents, sorted according to this session sort criteria.
+     * @throws IOException If Lucene throws IO errors.
+     */
+    public Map<Document, ScoreDoc> search(ScoreDoc after, int count, Set<String> fieldsToLoad) throws IOException {
+        Map<Document, ScoreDoc> searchResults = new LinkedHashMap<>();
+        for (ScoreDoc scoreDoc : topDocs(after, count)) {
+            Document document = searcher(scoreDoc).doc(scoreDoc.doc, fieldsToLoad);
+            searchResults.put(document, scoreDoc);
+        }
+        return searchResults;
+    }
+
+    /**
+     * Finds the top {@code count} hits after the specified {@link ScoreDoc}, sorting them by this session sort
+     * criteria, and returns their primary keys as read by the specified {@link RowMapper}.
+     *
+     * @param after     The last hit of the previous page, maybe {@code null} meaning the first page.
+     * @param count     Return only the top {@code count} results.
+     * @param rowMapper The {@link RowMapper} reading the primary keys of the hits.
+     * @return The found {@link SearchResult}s, sorted according to this session sort criteria.
+     * @throws IOException If Lucene throws IO errors.
+     */
+    public List<SearchResult> search(ScoreDoc after, int count, RowMapper rowMapper) throws IOException {
+        ScoreDoc[] scoreDocs = topDocs(after, count);
+        if (searchers.size() == 1) {
+            return rowMapper.searchResults(searchers.get(0).getIndexReader(), scoreDocs);
+        }
+
+        // Read the primary keys of the hits of each shard, keeping the merged order
+        SearchResult[] searchResults = new SearchResult[scoreDocs.length];
+        for (int shard = 0; shard < searchers.size(); shard++) {
+            List<Integer> positions = new ArrayList<>();
+            for (int i = 0; i < scoreDocs.length; i++) {
+                if (scoreDocs[i].shardIndex == shard) {
+                    positions.add(i);
+                }
+            }
+            if (!positions.isEmpty()) {
+                ScoreDoc[] shardScoreDocs = new ScoreDoc[positions.size()];
+                for (int i = 0; i < shardScoreDocs.length; i++) {
+                    shardScoreDocs[i] = scoreDocs[positions.get(i)];
+                }
+                IndexReader reader = searchers.get(shard).getIndexReader();
+                List<SearchResult> shardResults = rowMapper.searchResults(reader, shardScoreDocs);
+                for (int i = 0; i < shardScoreDocs.length; i++) {
+                    searchResults[positions.get(i)] = shardResults.get(i);
+                }
+            }
+        }
+        return Arrays.asList(searchResults);
+    }
+
+    /**
+     * Returns the {@link IndexSearcher} of the shard containing the specified hit.
+     *
+     * @param scoreDoc A hit of this session.
+     * @return The {@link IndexSearcher} containing {@code scoreDoc}.
+     */
+    private IndexSearcher searcher(ScoreDoc scoreDoc) {
+        return searchers.get(searchers.size() == 1 ? 0 : scoreDoc.shardIndex);
+    }
+
+    /**
+     * Returns the top {@code count} hits after the specified {@link ScoreDoc}, sorted by this session sort criteria.
+     * If there are several shards, the returned hits have their shard index.
+     *
+     * @param after The last hit of the previous page, maybe {@code null} meaning the first page.
+     * @param count Return only the top {@code count} results.
+     * @return The found hits, sorted according to this session sort criteria.
+     * @throws IOException If Lucene throws IO errors.
+     */
+    private ScoreDoc[] topDocs(final ScoreDoc after, final int count) throws IOException {
+        if (searchers.size() == 1) {
+            return topDocs(0, after, count).scoreDocs;
+        }
+
+        // Search the shards
+        final TopDocs[] shardHits = sort == null && usesRelevance
+                                    ? new TopDocs[searchers.size()]
+                                    : new TopFieldDocs[searchers.size()];
+        if (executor == null) {
+            for (int shard = 0; shard < searchers.size(); shard++) {
+                shardHits[shard] = topDocs(shard, shardAfter(shard, after), count);
+            }
+        } else {
+            List<Callable<TopDocs>> tasks = new ArrayList<>(searchers.size());
+            for (int shard = 0; shard < searchers.size(); shard++) {
+                final int shardIndex = shard;
+                tasks.add(new Callable<TopDocs>() {
+                    @Override
+                    public TopDocs call() throws Exception {
+                        return topDocs(shardIndex, shardAfter(shardIndex, after), count);
+                    }
+                });
+            }
+            SearchExecutor.invokeAll(executor, tasks).toArray(shardHits);
+        }
+
+        // Merge the top hits of the shards
+        if (sort != null) {
+            return TopDocs.merge(sort, count, (TopFieldDocs[]) shardHits).scoreDocs;
+        } else if (usesRelevance) {
+            return TopDocs.merge(count, shardHits).scoreDocs;
+        } else {
+            return TopDocs.merge(indexSort, count, (TopFieldDocs[]) shardHits).scoreDocs;
+        }
+    }
+
+    /**
+     * Returns the hit after which the specified shard must be searched for getting the merged hits after the specified
+     * one. The hits of the shards before the hit shard with the same sort values have been already returned, and those
+     * of the shards after it have not.
+     *
+     * @param shard The shard index.
+     * @param after The last hit of the previous merged page, maybe {@code null} meaning the first page.
+     * @return The hit after which {@code shard} must be searched.
+     */
+    private static ScoreDoc shardAfter(int shard, ScoreDoc after) {
+        if (after == null || shard == after.shardIndex) {
+            return after;
+        }
+        int doc = shard < after.shardIndex ? Integer.MAX_VALUE : -1;
+        if (after instanceof FieldDoc) {
+            return new FieldDoc(doc, after.score, ((FieldDoc) after).fields);
+        } else {
+            return new ScoreDoc(doc, after.score);
+        }
+    }
+
+    /**
+     * Returns the top {@code count} hits of the specified shard after the specified {@link ScoreDoc}, sorted by this
+     * session sort criteria.
+     *
+     * @param shard The shard index.
+     * @param after The last hit of the previous page in the shard, maybe {@code null} meaning the first page.
+     * @param count Return only the top {@code count} results.
+     * @return The found hits, sorted according to this session sort criteria.
+     * @throws IOException If Lucene throws IO errors.
+     */
+    private TopDocs topDocs(int shard, ScoreDoc after, int count) throws IOException {
+        WeightIndexSearcher searcher = searchers.get(shard);
+        Weight weight = weights.get(shard);
+        Sort sort = sorts.get(shard);
+        int numHits = Math.min(count, Math.max(1, searcher.getIndexReader().maxDoc()));
+        TopDocsCollector<?> collector;
+        if (sort != null) {
+            collector = TopFieldCollector.create(sort, numHits, (FieldDoc) after, true, false, false);
+            searcher.search(weight, collector);
+        } else if (usesRelevance) {
+            collector = TopScoreDocCollector.create(numHits, after);
+            searcher.search(weight, collector);
+        } else {
+            collector = TopFieldCollector.create(indexSort, numHits, (FieldDoc) after, true, false, false);
+            searcher.search(weight, new EarlyTerminatingSortingCollector(collector,
+                                                                         indexSort,
+                                                                         numHits,
+                                                                         sortingMergePolicy));
+        }
+        return collector.topDocs();
+    }
+
+    /**
+     * Releases the pinned {@link IndexSearcher}s.
+     *
+     * @throws IOException If Lucene throws IO errors.
+     */
+    @Override
+    public void close() throws IOException {
+        Log.debug("Closing search session");
+        for (int shard = 0; shard < searchers.size(); shard++) {
+            searcherManagers.get(shard).release(searchers.get(shard));
+        }
+    }
+}
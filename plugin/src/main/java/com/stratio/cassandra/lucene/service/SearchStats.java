@@ -0,0 +1,205 @@
+/*
+ * Copyright 2015, Stratio.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.stratio.cassandra.lucene.service;
+
+import com.google.common.base.Objects;
+import com.stratio.cassandra.lucene.util.Log;
+
+import javax.management.MBeanException;
+import javax.management.ObjectName;
+import javax.management.OperationsException;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Paging and partition read statistics of the searches over an index. It keeps a moving average of the ratio of hits
+ * surviving the filtering expressions, which is used to size the first page of the following filtered searches.
+ * Searches without filtering expressions are not taken into account for this average because almost all their hits
+ * survive.
+ *
+ * @author Andres de la Pena <adelapena@stratio.com>
+ */
+public class SearchStats implements SearchStatsMBean {
+
+    /** The weight of the last search in the moving average of the survival rate. */
+    static final double SURVIVAL_WEIGHT = 0.2;
+
+    /** The min expected survival rate, bounding the size of the first page to a multiple of the limit. */
+    static final double MIN_SURVIVAL = 0.01;
+
+    private final AtomicLong searchCount = new AtomicLong();
+    private final AtomicLong pageCount = new AtomicLong();
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong rowCount = new AtomicLong();
+    private final AtomicLong readCount = new AtomicLong();
+    private final AtomicLong readNanos = new AtomicLong();
+    private final AtomicLong maxReadNanos = new AtomicLong();
+    private final String logName;
+    private double filteredSurvival = 1; // Guarded by this
+    private ObjectName objectName;
+
+    /**
+     * Builds a new {@link SearchStats} for the specified index.
+     *
+     * @param keyspace The keyspace name.
+     * @param table    The table name.
+     * @param name     The index name.
+     */
+    public SearchStats(String keyspace, String table, String name) {
+        this.logName = String.format("Search stats %s.%s.%s", keyspace, table, name);
+
+        // Register JMX MBean
+        try {
+            objectName = new ObjectName(String.format(
+                    "com.stratio.cassandra.lucene:type=SearchStats,keyspace=%s,table=%s,index=%s",
+                    keyspace,
+                    table,
+                    name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        } catch (MBeanException | OperationsException e) {
+            Log.error(e, "Error while registering MBean");
+        }
+    }
+
+    /**
+     * Returns the survival rate to be expected for the first page of a search.
+     *
+     * @param filtered If the search has filtering expressions.
+     * @return The expected ratio of hits resulting in returned rows.
+     */
+    public double expectedSurvival(boolean filtered) {
+        if (!filtered) {
+            return 1;
+        }
+        synchronized (this) {
+            return Math.max(MIN_SURVIVAL, filteredSurvival);
+        }
+    }
+
+    /**
+     * Records the paging statistics of the specified finished search.
+     *
+     * @param iterator The {@link RowIterator} of the finished search.
+     * @param filtered If the search has filtering expressions.
+     */
+    public void record(RowIterator iterator, boolean filtered) {
+        searchCount.incrementAndGet();
+        pageCount.addAndGet(iterator.getNumPages());
+        hitCount.addAndGet(iterator.getNumDocs());
+        rowCount.addAndGet(iterator.getNumRows());
+        double survival = iterator.getSurvivalRate();
+        if (filtered && !Double.isNaN(survival)) {
+            synchronized (this) {
+                filteredSurvival = SURVIVAL_WEIGHT * survival + (1 - SURVIVAL_WEIGHT) * filteredSurvival;
+            }
+        }
+    }
+
+    /**
+     * Records the time spent by a partition read.
+     *
+     * @param nanos The time spent by the read in nanoseconds.
+     */
+    public void recordRead(long nanos) {
+        readCount.incrementAndGet();
+        readNanos.addAndGet(nanos);
+        long max = maxReadNanos.get();
+        while (nanos > max && !maxReadNanos.compareAndSet(max, nanos)) {
+            max = maxReadNanos.get();
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getSearchCount() {
+        return searchCount.get();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getPageCount() {
+        return pageCount.get();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getRowCount() {
+        return rowCount.get();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public double getMeanPageCount() {
+        long searches = searchCount.get();
+        return searches == 0 ? 0 : (double) pageCount.get() / searches;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public synchronized double getFilteredSurvivalRate() {
+        return filteredSurvival;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getReadCount() {
+        return readCount.get();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public double getMeanReadMicros() {
+        long reads = readCount.get();
+        return reads == 0 ? 0 : readNanos.get() / 1000D / reads;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getMaxReadMicros() {
+        return maxReadNanos.get() / 1000;
+    }
+
+    /**
+     * Unregisters the JMX MBean.
+     */
+    public void close() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (MBeanException | OperationsException e) {
+            Log.error(e, "Error while removing MBean");
+        }
+        Log.info("%s closed", logName);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+                      .add("name", logName)
+                      .add("searches", searchCount.get())
+                      .add("pages", pageCount.get())
+                      .add("hits", hitCount.get())
+                      .add("rows", rowCount.get())
+                      .add("reads", readCount.get())
+                      .toString();
+    }
+}
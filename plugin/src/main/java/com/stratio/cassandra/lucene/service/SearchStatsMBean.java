@@ -0,0 +1,88 @@
+/*
+ * Copyright 2015, Stratio.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.stratio.cassandra.lucene.service;
+
+/**
+ * JMX interface for {@link SearchStats}.
+ *
+ * @author Andres de la Pena <adelapena@stratio.com>
+ */
+public interface SearchStatsMBean {
+
+    /**
+     * Returns the number of performed searches.
+     *
+     * @return The number of performed searches.
+     */
+    long getSearchCount();
+
+    /**
+     * Returns the number of pages of hits read by all the searches.
+     *
+     * @return The number of read pages of hits.
+     */
+    long getPageCount();
+
+    /**
+     * Returns the number of hits read by all the searches.
+     *
+     * @return The number of read hits.
+     */
+    long getHitCount();
+
+    /**
+     * Returns the number of rows returned by all the searches.
+     *
+     * @return The number of returned rows.
+     */
+    long getRowCount();
+
+    /**
+     * Returns the mean number of pages of hits read per search, or {@code 0} if there have been no searches.
+     *
+     * @return The mean number of pages per search.
+     */
+    double getMeanPageCount();
+
+    /**
+     * Returns the moving average of the ratio of hits resulting in returned rows in searches with filtering
+     * expressions, which is used for sizing the first page of the next searches with filtering expressions.
+     *
+     * @return The moving average of the survival rate of filtered searches.
+     */
+    double getFilteredSurvivalRate();
+
+    /**
+     * Returns the number of partition reads performed to retrieve the rows of the search hits.
+     *
+     * @return The number of partition reads.
+     */
+    long getReadCount();
+
+    /**
+     * Returns the mean time in microseconds spent by a partition read, or {@code 0} if there have been no reads.
+     *
+     * @return The mean partition read time in microseconds.
+     */
+    double getMeanReadMicros();
+
+    /**
+     * Returns the max time in microseconds spent by a partition read.
+     *
+     * @return The max partition read time in microseconds.
+     */
+    long getMaxReadMicros();
+}
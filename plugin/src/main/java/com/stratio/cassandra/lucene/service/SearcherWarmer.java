@@ -0,0 +1,268 @@
+/*
+ * Copyright 2015, Stratio.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.stratio.cassandra.lucene.service;
+
+import com.stratio.cassandra.lucene.util.Log;
+import org.apache.lucene.index.BinaryDocValues;
+import org.apache.lucene.index.DocValuesType;
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.index.SortedDocValues;
+import org.apache.lucene.index.SortedNumericDocValues;
+import org.apache.lucene.index.SortedSetDocValues;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Warmer of the index searchers before they are published, so the first searches after a reopen or a merge don't pay
+ * for loading the data structures of the new segments.
+ * <p/>
+ * Warming has two stages, which can be overridden. First, the doc values of the index sort fields, which are the
+ * token and the clustering key ones, are read for each segment not warmed before. Merged segments are warmed by the
+ * index writer before being published, so they are not warmed again. Second, a sample of recent searches, held in a
+ * small ring buffer, is replayed against the whole searcher, loading their terms and filling the filter cache.
+ *
+ * @author Andres de la Pena <adelapena@stratio.com>
+ */
+public class SearcherWarmer extends IndexWriter.IndexReaderWarmer {
+
+    /** The number of hits collected when replaying a recent search. */
+    static final int REPLAY_HITS = 10;
+
+    private final Set<String> docValuesFields = new LinkedHashSet<>();
+    private final Set<Object> warmedSegments = Collections.newSetFromMap(new WeakHashMap<Object, Boolean>());
+
+    private final Query[] recentQueries; // Ring buffer of recent queries, guarded by this
+    private final Sort[] recentSorts; // The sorts of the recent queries, guarded by this
+    private int nextRecent; // The ring buffer position to be overwritten, guarded by this
+
+    private final AtomicLong warmingCount = new AtomicLong();
+    private final AtomicLong warmingNanos = new AtomicLong();
+    private final AtomicLong maxWarmingNanos = new AtomicLong();
+    private final AtomicLong warmedSegmentCount = new AtomicLong();
+    private final AtomicLong replayedQueryCount = new AtomicLong();
+
+    /**
+     * Builds a new {@link SearcherWarmer}.
+     *
+     * @param sort       The index {@link Sort}, whose doc values fields are preloaded.
+     * @param maxQueries The max number of recent queries to be replayed, {@code 0} means no replaying.
+     */
+    public SearcherWarmer(Sort sort, int maxQueries) {
+        for (SortField sortField : sort.getSort()) {
+            if (sortField.getField() != null) {
+                docValuesFields.add(sortField.getField());
+            }
+        }
+        recentQueries = new Query[maxQueries];
+        recentSorts = new Sort[maxQueries];
+    }
+
+    /**
+     * Records the specified search to be replayed by the next warmings.
+     *
+     * @param query The search {@link Query}.
+     * @param sort  The search {@link Sort}, maybe {@code null} meaning relevance order.
+     */
+    public void record(Query query, Sort sort) {
+        if (recentQueries.length > 0) {
+            synchronized (this) {
+                recentQueries[nextRecent] = query;
+                recentSorts[nextRecent] = sort;
+                nextRecent = (nextRecent + 1) % recentQueries.length;
+            }
+        }
+    }
+
+    /**
+     * Warms the specified {@link IndexSearcher} before it is published, recording the spent time.
+     *
+     * @param searcher An {@link IndexSearcher}.
+     */
+    public void warm(IndexSearcher searcher) {
+        long startTime = System.nanoTime();
+        try {
+            for (LeafReaderContext context : searcher.getIndexReader().leaves()) {
+                warm(context.reader());
+            }
+            warmQueries(searcher);
+        } catch (Exception e) {
+            Log.error(e, "Error while warming index searcher");
+        }
+        long nanos = System.nanoTime() - startTime;
+        warmingCount.incrementAndGet();
+        warmingNanos.addAndGet(nanos);
+        long max = maxWarmingNanos.get();
+        while (nanos > max && !maxWarmingNanos.compareAndSet(max, nanos)) {
+            max = maxWarmingNanos.get();
+        }
+    }
+
+    /**
+     * Warms the specified segment if it has not been warmed before. This is also called by the index writer for the
+     * merged segments.
+     *
+     * @param reader A segment {@link LeafReader}.
+     * @throws IOException If Lucene throws IO errors.
+     */
+    @Override
+    public void warm(LeafReader reader) throws IOException {
+        Object key = reader.getCoreCacheKey();
+        synchronized (warmedSegments) {
+            if (!warmedSegments.add(key)) {
+                return;
+            }
+        }
+        warmSegment(reader);
+        warmedSegmentCount.incrementAndGet();
+    }
+
+    /**
+     * Loads the doc values of the index sort fields of the specified segment by reading them for all its documents.
+     *
+     * @param reader A segment {@link LeafReader}.
+     * @throws IOException If Lucene throws IO errors.
+     */
+    protected void warmSegment(LeafReader reader) throws IOException {
+        int maxDoc = reader.maxDoc();
+        for (String field : docValuesFields) {
+            FieldInfo fieldInfo = reader.getFieldInfos().fieldInfo(field);
+            DocValuesType type = fieldInfo == null ? DocValuesType.NONE : fieldInfo.getDocValuesType();
+            switch (type) {
+                case NUMERIC:
+                    NumericDocValues numeric = reader.getNumericDocValues(field);
+                    for (int doc = 0; doc < maxDoc; doc++) {
+                        numeric.get(doc);
+                    }
+                    break;
+                case BINARY:
+                    BinaryDocValues binary = reader.getBinaryDocValues(field);
+                    for (int doc = 0; doc < maxDoc; doc++) {
+                        binary.get(doc);
+                    }
+                    break;
+                case SORTED:
+                    SortedDocValues sorted = reader.getSortedDocValues(field);
+                    for (int doc = 0; doc < maxDoc; doc++) {
+                        sorted.getOrd(doc);
+                    }
+                    break;
+                case SORTED_NUMERIC:
+                    SortedNumericDocValues sortedNumeric = reader.getSortedNumericDocValues(field);
+                    for (int doc = 0; doc < maxDoc; doc++) {
+                        sortedNumeric.setDocument(doc);
+                    }
+                    break;
+                case SORTED_SET:
+                    SortedSetDocValues sortedSet = reader.getSortedSetDocValues(field);
+                    for (int doc = 0; doc < maxDoc; doc++) {
+                        sortedSet.setDocument(doc);
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Replays the recorded recent searches against the specified {@link IndexSearcher}.
+     *
+     * @param searcher An {@link IndexSearcher}.
+     * @throws IOException If Lucene throws IO errors.
+     */
+    protected void warmQueries(IndexSearcher searcher) throws IOException {
+        List<Query> queries = new ArrayList<>(recentQueries.length);
+        List<Sort> sorts = new ArrayList<>(recentQueries.length);
+        synchronized (this) {
+            for (int i = 0; i < recentQueries.length; i++) {
+                if (recentQueries[i] != null) {
+                    queries.add(recentQueries[i]);
+                    sorts.add(recentSorts[i]);
+                }
+            }
+        }
+        for (int i = 0; i < queries.size(); i++) {
+            Sort sort = sorts.get(i);
+            if (sort == null) {
+                searcher.search(queries.get(i), REPLAY_HITS);
+            } else {
+                searcher.search(queries.get(i), REPLAY_HITS, sort.rewrite(searcher));
+            }
+            replayedQueryCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * Returns the number of warmed searchers.
+     *
+     * @return The number of warmed searchers.
+     */
+    public long getWarmingCount() {
+        return warmingCount.get();
+    }
+
+    /**
+     * Returns the number of warmed segments, including the merged ones.
+     *
+     * @return The number of warmed segments.
+     */
+    public long getWarmedSegmentCount() {
+        return warmedSegmentCount.get();
+    }
+
+    /**
+     * Returns the number of recent searches replayed for warming.
+     *
+     * @return The number of replayed searches.
+     */
+    public long getReplayedQueryCount() {
+        return replayedQueryCount.get();
+    }
+
+    /**
+     * Returns the mean time in milliseconds spent warming a searcher, or {@code 0} if there have been no warmings.
+     *
+     * @return The mean warming time in milliseconds.
+     */
+    public double getMeanWarmingMillis() {
+        long warmings = warmingCount.get();
+        return warmings == 0 ? 0 : warmingNanos.get() / 1000000D / warmings;
+    }
+
+    /**
+     * Returns the max time in milliseconds spent warming a searcher.
+     *
+     * @return The max warming time in milliseconds.
+     */
+    public long getMaxWarmingMillis() {
+        return maxWarmingNanos.get() / 1000000;
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2015, Stratio.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.stratio.cassandra.lucene.service;
+
+import com.stratio.cassandra.lucene.util.Log;
+import org.apache.lucene.search.LRUQueryCache;
+
+import javax.management.MBeanException;
+import javax.management.ObjectName;
+import javax.management.OperationsException;
+import java.lang.management.ManagementFactory;
+
+/**
+ * A memory-bounded LRU cache of the doc ID sets matched by non-scoring queries, such as the filtering conditions of
+ * searches, in each index segment. Entries are keyed by segment core, so they survive NRT reopens and they are
+ * released when their segment is merged away. This way, only new segments need to be computed after a reopen.
+ *
+ * @author Andres de la Pena <adelapena@stratio.com>
+ */
+public class SegmentFilterCache extends LRUQueryCache implements SegmentFilterCacheMBean {
+
+    /** The max number of distinct cached queries. */
+    private static final int MAX_CACHED_QUERIES = 1000;
+
+    private final String logName;
+    private ObjectName objectName;
+
+    /**
+     * Builds a new {@link SegmentFilterCache} using at most the specified amount of memory.
+     *
+     * @param keyspace  The keyspace name.
+     * @param table     The table name.
+     * @param name      The index name.
+     * @param maxSizeMB The max size of the cache in MB.
+     */
+    public SegmentFilterCache(String keyspace, String table, String name, int maxSizeMB) {
+        super(MAX_CACHED_QUERIES, maxSizeMB * 1024L * 1024L);
+        this.logName = String.format("Filter cache %s.%s.%s", keyspace, table, name);
+
+        // Register JMX MBean
+        try {
+            objectName = new ObjectName(String.format(
+                    "com.stratio.cassandra.lucene:type=FilterCaches,keyspace=%s,table=%s,index=%s",
+                    keyspace,
+                    table,
+                    name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        } catch (MBeanException | OperationsException e) {
+            Log.error(e, "Error while registering MBean");
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public double getHitRate() {
+        long totalCount = getTotalCount();
+        return totalCount == 0 ? 1.0 : (double) getHitCount() / totalCount;
+    }
+
+    /**
+     * Discards all the cached segment filters and unregisters the JMX MBean.
+     */
+    public void close() {
+        clear();
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (MBeanException | OperationsException e) {
+            Log.error(e, "Error while removing MBean");
+        }
+        Log.info("%s closed", logName);
+    }
+}
@@ -0,0 +1,352 @@
+/*
+ * Copyright 2015, Stratio.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.stratio.cassandra.lucene.service;
+
+import com.stratio.cassandra.lucene.util.Log;
+import org.apache.cassandra.db.DecoratedKey;
+import org.apache.cassandra.dht.IPartitioner;
+import org.apache.cassandra.dht.Range;
+import org.apache.cassandra.dht.Token;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.store.Directory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * A Lucene index split into several {@link LuceneIndex} shards by token ranges, each one with its own directory,
+ * writer, merges, commits and near real-time reopening, so writes, searches, merges and commits use several cores.
+ * <p/>
+ * The token ring is split into contiguous token ranges, several per shard, which are assigned to the shards in
+ * round-robin, so the data of a node is balanced between shards whatever its owned token ranges are. The split doesn't
+ * depend on the ring topology, so the documents are always routed to the same shard. The documents of a partition are
+ * always in the same shard. Searches are done in all the shards, in parallel, merging their top hits. Searches and
+ * commits run in the {@link SearchExecutor} shared by all the indexes, and the calling thread runs the shards not
+ * started by the executor yet, so they don't wait behind the tasks of other indexes.
+ * <p/>
+ * An index with a single shard is kept in the index directory, so it is the same as a not sharded index.
+ *
+ * @author Andres de la Pena <adelapena@stratio.com>
+ */
+public class ShardedLuceneIndex {
+
+    /** The number of token ranges per shard, so the data of a node is balanced between shards. */
+    static final int RANGES_PER_SHARD = 16;
+
+    private static final String SHARD_DIRECTORY_PREFIX = "shard-";
+
+    private final List<LuceneIndex> shards;
+    private final Token[] rangeLefts; // The sorted left tokens of the ranges
+    private final String logName;
+
+    private Sort sort;
+
+    /**
+     * Builds a new {@link ShardedLuceneIndex}.
+     *
+     * @param name        The index name.
+     * @param shards      The {@link LuceneIndex} of each shard.
+     * @param partitioner The {@link IPartitioner} of the token ring.
+     */
+    public ShardedLuceneIndex(String name, List<LuceneIndex> shards, IPartitioner partitioner) {
+        this.shards = shards;
+        this.logName = String.format("Lucene index %s", name);
+        int rangeCount = rangeCount(shards.size());
+        this.rangeLefts = IndexRebuilder.lefts(IndexRebuilder.split(partitioner, rangeCount));
+    }
+
+    /**
+     * Returns the number of token ranges for the specified number of shards, which is a power of two.
+     *
+     * @param shards The number of shards.
+     * @return The number of token ranges.
+     */
+    private static int rangeCount(int shards) {
+        return shards == 1 ? 1 : Integer.highestOneBit(shards * RANGES_PER_SHARD - 1) << 1;
+    }
+
+    /**
+     * Returns the directory of the specified shard of the index stored in the specified directory.
+     *
+     * @param path   The index directory.
+     * @param shard  The shard index.
+     * @param shards The number of shards.
+     * @return The directory of the shard.
+     */
+    public static Path shardPath(Path path, int shard, int shards) {
+        return shards == 1 ? path : path.resolve(SHARD_DIRECTORY_PREFIX + shard);
+    }
+
+    /**
+     * Returns the name of the specified shard of the specified index, which is used for its MBeans and threads.
+     *
+     * @param name   The index name.
+     * @param shard  The shard index.
+     * @param shards The number of shards.
+     * @return The name of the shard.
+     */
+    public static String shardName(String name, int shard, int shards) {
+        return shards == 1 ? name : name + "_" + SHARD_DIRECTORY_PREFIX + shard;
+    }
+
+    /**
+     * Returns the share of each shard of the specified memory size.
+     *
+     * @param mb     A memory size in MB, where {@code 0} means disabled.
+     * @param shards The number of shards.
+     * @return The memory size in MB of each shard, which is at least {@code 1} unless {@code mb} is {@code 0}.
+     */
+    public static int shardMB(int mb, int shards) {
+        return mb == 0 ? 0 : Math.max(1, mb / shards);
+    }
+
+    /**
+     * Returns the {@link KeyFormat} of the index stored in the specified directory.
+     *
+     * @param path   The index directory.
+     * @param shards The number of shards.
+     * @return The {@link KeyFormat} of the index stored in {@code path}.
+     * @throws IOException If Lucene throws IO errors.
+     */
+    public static KeyFormat keyFormat(Path path, int shards) throws IOException {
+        return LuceneIndex.keyFormat(shardPath(path, 0, shards));
+    }
+
+    /**
+     * Initializes all the shards using the specified {@link Sort} for trying to keep the {@link Document}s sorted.
+     *
+     * @param sort The {@link Sort} to be used.
+     * @throws IOException If Lucene throws IO errors.
+     */
+    public void init(Sort sort) throws IOException {
+        this.sort = sort;
+        for (LuceneIndex shard : shards) {
+            shard.init(sort);
+        }
+    }
+
+    /**
+     * Returns the number of shards.
+     *
+     * @return The number of shards.
+     */
+    public int getShardCount() {
+        return shards.size();
+    }
+
+    /**
+     * Returns the number of contiguous token ranges assigned to the shards. Any range of the token ring split by
+     * midpoints into this or more ranges, as done by {@link IndexRebuilder#split(IPartitioner, int)}, belongs to a
+     * single shard.
+     *
+     * @return The number of token ranges.
+     */
+    public int getRangeCount() {
+        return rangeLefts.length;
+    }
+
+    /**
+     * Returns the index of the shard containing the specified {@link Token}.
+     *
+     * @param token A {@link Token}.
+     * @return The index of the shard containing {@code token}.
+     */
+    int shard(Token token) {
+        if (shards.size() == 1) {
+            return 0;
+        }
+        return IndexRebuilder.range(rangeLefts, token) % shards.size();
+    }
+
+    /**
+     * Returns the shard containing the specified partition.
+     *
+     * @param partitionKey A partition key.
+     * @return The {@link LuceneIndex} of the shard containing {@code partitionKey}.
+     */
+    private LuceneIndex shard(DecoratedKey partitionKey) {
+        return shards.get(shard(partitionKey.getToken()));
+    }
+
+    /**
+     * Updates the specified {@link Document} in the shard of the specified partition by first deleting the documents
+     * containing {@code Term} and then adding the new document.
+     *
+     * @param partitionKey The partition key of the document.
+     * @param term         The {@link Term} to identify the document(s) to be deleted.
+     * @param document     The {@link Document} to be added.
+     * @throws IOException If Lucene throws IO errors.
+     */
+    public void upsert(DecoratedKey partitionKey, Term term, Document document) throws IOException {
+        shard(partitionKey).upsert(term, document);
+    }
+
+    /**
+     * Deletes all the {@link Document}s of the specified partition containing the specified {@link Term}.
+     *
+     * @param partitionKey The partition key of the documents.
+     * @param term         The {@link Term} to identify the documents to be deleted.
+     * @throws IOException If Lucene throws IO errors.
+     */
+    public void delete(DecoratedKey partitionKey, Term term) throws IOException {
+        shard(partitionKey).delete(term);
+    }
+
+    /**
+     * Deletes all the {@link Document}s of the specified partition satisfying the specified {@link Query}.
+     *
+     * @param partitionKey The partition key of the documents.
+     * @param query        The {@link Query} to identify the documents to be deleted.
+     * @throws IOException If Lucene throws IO errors.
+     */
+    public void delete(DecoratedKey partitionKey, Query query) throws IOException {
+        shard(partitionKey).delete(query);
+    }
+
+    /**
+     * Deletes all the {@link Document}s of all the shards satisfying the specified {@link Query}.
+     *
+     * @param query The {@link Query} to identify the documents to be deleted.
+     * @throws IOException If Lucene throws IO errors.
+     */
+    public void delete(Query query) throws IOException {
+        for (LuceneIndex shard : shards) {
+            shard.delete(query);
+        }
+    }
+
+    /**
+     * Deletes all the {@link Document}s.
+     *
+     * @throws IOException If Lucene throws IO errors.
+     */
+    public void truncate() throws IOException {
+        for (LuceneIndex shard : shards) {
+            shard.truncate();
+        }
+    }
+
+    /**
+     * Commits the pending changes of all the shards, in parallel if there are several shards. The first shard is
+     * committed in the calling thread.
+     *
+     * @throws IOException If Lucene throws IO errors.
+     */
+    public void commit() throws IOException {
+        if (shards.size() == 1) {
+            shards.get(0).commit();
+            return;
+        }
+        List<Callable<Void>> tasks = new ArrayList<>(shards.size());
+        for (final LuceneIndex shard : shards) {
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    shard.commit();
+                    return null;
+                }
+            });
+        }
+        SearchExecutor.invokeAll(SearchExecutor.instance(), tasks);
+    }
+
+    /**
+     * Closes all the shards and removes all their files.
+     *
+     * @throws IOException If Lucene throws IO errors.
+     */
+    public void delete() throws IOException {
+        for (LuceneIndex shard : shards) {
+            shard.delete();
+        }
+        Log.info("%s shards removed", logName);
+    }
+
+    /**
+     * Opens a new {@link SearchSession} over all the shards for paginating the hits for {@code query}, sorted by the
+     * criteria in {@code sort}. The returned session must be closed after use.
+     *
+     * @param query         The {@link Query} to search for.
+     * @param sort          The {@link Sort} to be applied.
+     * @param usesRelevance If the search uses relevance.
+     * @return A new {@link SearchSession}.
+     * @throws IOException If Lucene throws IO errors.
+     */
+    public SearchSession session(Query query, Sort sort, boolean usesRelevance) throws IOException {
+        if (shards.size() == 1) {
+            return shards.get(0).session(query, sort, usesRelevance);
+        }
+        List<SearcherManager> searcherManagers = new ArrayList<>(shards.size());
+        for (LuceneIndex shard : shards) {
+            searcherManagers.add(shard.searcherManager(query, sort, usesRelevance));
+        }
+        return new SearchSession(searcherManagers,
+                                 query,
+                                 sort,
+                                 usesRelevance,
+                                 this.sort,
+                                 shards.get(0).getSortingMergePolicy(),
+                                 SearchExecutor.instance());
+    }
+
+    /**
+     * Returns the total number of {@link Document}s in all the shards.
+     *
+     * @return The total number of {@link Document}s.
+     * @throws IOException If Lucene throws IO errors.
+     */
+    public long getNumDocs() throws IOException {
+        long numDocs = 0;
+        for (LuceneIndex shard : shards) {
+            numDocs += shard.getNumDocs();
+        }
+        return numDocs;
+    }
+
+    /**
+     * Returns a new {@link IndexWriter} for building a part of a shard apart in the specified empty {@link Directory}.
+     *
+     * @param directory   The {@link Directory} where the part of the index is built.
+     * @param ramBufferMB The writer buffer size in MB.
+     * @return A new {@link IndexWriter} writing in {@code directory}.
+     * @throws IOException If Lucene throws IO errors.
+     * @see LuceneIndex#rebuildWriter(Directory, int)
+     */
+    public IndexWriter rebuildWriter(Directory directory, int ramBufferMB) throws IOException {
+        return shards.get(0).rebuildWriter(directory, ramBufferMB);
+    }
+
+    /**
+     * Adds to the shard containing the specified token range the segments of the index stored in the specified {@link
+     * Directory}, containing the documents of that range. The range must be contained in one of the token ranges of
+     * the shards.
+     *
+     * @param range     The token range of the documents to be added.
+     * @param directory The {@link Directory} containing the index to be added.
+     * @throws IOException If Lucene throws IO errors.
+     */
+    public void addIndexes(Range<Token> range, Directory directory) throws IOException {
+        shards.get(shard(range.right)).addIndexes(directory);
+    }
+}
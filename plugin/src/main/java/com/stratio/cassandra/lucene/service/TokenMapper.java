@@ -18,13 +18,19 @@ package com.stratio.cassandra.lucene.service;
 import org.apache.cassandra.config.DatabaseDescriptor;
 import org.apache.cassandra.db.DecoratedKey;
 import org.apache.cassandra.db.RowPosition;
+import org.apache.cassandra.dht.ByteOrderedPartitioner;
 import org.apache.cassandra.dht.IPartitioner;
 import org.apache.cassandra.dht.Murmur3Partitioner;
+import org.apache.cassandra.dht.OrderPreservingPartitioner;
+import org.apache.cassandra.dht.RandomPartitioner;
 import org.apache.cassandra.dht.Token;
 import org.apache.lucene.document.Document;
+import org.apache.lucene.index.LeafReader;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.SortField;
 
+import java.io.IOException;
+
 /**
  * Class for several row partitioning {@link Token} mappings between Cassandra and Lucene.
  *
@@ -33,15 +39,21 @@ import org.apache.lucene.search.SortField;
 public abstract class TokenMapper {
 
     /**
-     * Returns a new {@link TokenMapper} instance for the current partitioner using the specified column family
-     * metadata.
+     * Returns a new {@link TokenMapper} instance for the current partitioner using the specified index key format.
      *
+     * @param keyFormat The index key format.
      * @return A new {@link TokenMapper} instance for the current partitioner.
      */
-    public static TokenMapper instance() {
+    public static TokenMapper instance(KeyFormat keyFormat) {
         IPartitioner partitioner = DatabaseDescriptor.getPartitioner();
         if (partitioner instanceof Murmur3Partitioner) {
             return new TokenMapperMurmur();
+        } else if (!keyFormat.isLegacy() && partitioner instanceof RandomPartitioner) {
+            return new TokenMapperRandom();
+        } else if (!keyFormat.isLegacy() && partitioner instanceof ByteOrderedPartitioner) {
+            return new TokenMapperByteOrdered();
+        } else if (!keyFormat.isLegacy() && partitioner instanceof OrderPreservingPartitioner) {
+            return new TokenMapperOrderPreserving();
         } else {
             return new TokenMapperGeneric();
         }
@@ -105,6 +117,20 @@ public abstract class TokenMapper {
      */
     protected abstract Query makeQuery(Token lower, Token upper, boolean includeLower, boolean includeUpper);
 
+    /**
+     * Returns the {@link Token} kept in the doc values of the specified document, if this mapper keeps it in a
+     * decodable way.
+     *
+     * @param reader The {@link LeafReader} containing the document.
+     * @param docId  The segment document id.
+     * @return The {@link Token} of the document {@code docId} in {@code reader}, or {@code null} if it must be computed
+     * from the partition key.
+     * @throws IOException If Lucene throws IO errors.
+     */
+    public Token token(LeafReader reader, int docId) throws IOException {
+        return null;
+    }
+
     /**
      * Returns a Lucene {@link SortField} array for sorting documents/rows according to the current partitioner.
      *
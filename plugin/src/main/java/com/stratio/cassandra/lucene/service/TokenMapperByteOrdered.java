@@ -0,0 +1,41 @@
+/*
+ * Copyright 2015, Stratio.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.stratio.cassandra.lucene.service;
+
+import org.apache.cassandra.dht.ByteOrderedPartitioner;
+import org.apache.cassandra.dht.Token;
+import org.apache.lucene.util.BytesRef;
+
+/**
+ * {@link TokenMapperOrdered} to be used when {@link ByteOrderedPartitioner} is used. Tokens are compared as unsigned
+ * byte sequences, so they are indexed as their raw bytes.
+ *
+ * @author Andres de la Pena <adelapena@stratio.com>
+ */
+public class TokenMapperByteOrdered extends TokenMapperOrdered {
+
+    /** Builds a new {@link TokenMapperByteOrdered}. */
+    public TokenMapperByteOrdered() {
+        super(ByteOrderedPartitioner.MINIMUM);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public BytesRef bytesRef(Token token) {
+        return new BytesRef((byte[]) token.getTokenValue());
+    }
+
+}
@@ -16,16 +16,21 @@
 package com.stratio.cassandra.lucene.service;
 
 import org.apache.cassandra.db.DecoratedKey;
+import org.apache.cassandra.dht.LongToken;
 import org.apache.cassandra.dht.Token;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.FieldType;
 import org.apache.lucene.document.LongField;
+import org.apache.lucene.index.DocValues;
 import org.apache.lucene.index.DocValuesType;
 import org.apache.lucene.index.IndexOptions;
+import org.apache.lucene.index.LeafReader;
 import org.apache.lucene.search.NumericRangeQuery;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.SortField;
 
+import java.io.IOException;
+
 /**
  * {@link PartitionKeyMapper} to be used when {@link org.apache.cassandra.dht.Murmur3Partitioner} is used. It indexes
  * the token long value as a Lucene long field.
@@ -84,6 +89,12 @@ public class TokenMapperMurmur extends TokenMapper {
         return NumericRangeQuery.newLongRange(FIELD_NAME, start, stop, includeLower, includeUpper);
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public Token token(LeafReader reader, int docId) throws IOException {
+        return new LongToken(DocValues.getNumeric(reader, FIELD_NAME).get(docId));
+    }
+
     /** {@inheritDoc} */
     @Override
     public SortField[] sortFields() {
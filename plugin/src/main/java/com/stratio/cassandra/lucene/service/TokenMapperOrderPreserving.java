@@ -0,0 +1,49 @@
+/*
+ * Copyright 2015, Stratio.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.stratio.cassandra.lucene.service;
+
+import org.apache.cassandra.dht.OrderPreservingPartitioner;
+import org.apache.cassandra.dht.Token;
+import org.apache.lucene.util.BytesRef;
+
+/**
+ * {@link TokenMapperOrdered} to be used when {@link OrderPreservingPartitioner} is used. Tokens are {@link String}s
+ * compared char by char, so they are indexed as their UTF-16 chars in big-endian order, instead of as UTF-8, whose
+ * order differs for supplementary characters.
+ *
+ * @author Andres de la Pena <adelapena@stratio.com>
+ */
+public class TokenMapperOrderPreserving extends TokenMapperOrdered {
+
+    /** Builds a new {@link TokenMapperOrderPreserving}. */
+    public TokenMapperOrderPreserving() {
+        super(OrderPreservingPartitioner.MINIMUM);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public BytesRef bytesRef(Token token) {
+        String value = (String) token.getTokenValue();
+        byte[] bytes = new byte[value.length() * 2];
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            bytes[2 * i] = (byte) (c >>> 8);
+            bytes[2 * i + 1] = (byte) c;
+        }
+        return new BytesRef(bytes);
+    }
+
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2015, Stratio.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.stratio.cassandra.lucene.service;
+
+import org.apache.cassandra.db.DecoratedKey;
+import org.apache.cassandra.dht.Token;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field.Store;
+import org.apache.lucene.document.SortedDocValuesField;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TermRangeQuery;
+import org.apache.lucene.util.BytesRef;
+
+/**
+ * {@link TokenMapper} for partitioners whose tokens can be encoded as byte sequences with the same unsigned
+ * lexicographic order as the tokens. This way, token ranges are plain term ranges, which can be seeked in the terms
+ * dictionary, and sorting by token is a doc values ordinal sort.
+ *
+ * @author Andres de la Pena <adelapena@stratio.com>
+ */
+public abstract class TokenMapperOrdered extends TokenMapper {
+
+    public static final String FIELD_NAME = "_token_ordered"; // The Lucene field name
+
+    private final Token minimum; // The partitioner minimum token
+
+    /**
+     * Builds a new {@link TokenMapperOrdered} for the partitioner with the specified minimum {@link Token}.
+     *
+     * @param minimum The partitioner minimum {@link Token}.
+     */
+    protected TokenMapperOrdered(Token minimum) {
+        super();
+        this.minimum = minimum;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean isMinimum(Token token) {
+        return token.compareTo(minimum) == 0;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void addFields(Document document, DecoratedKey partitionKey) {
+        BytesRef bytesRef = bytesRef(partitionKey.getToken());
+        document.add(new KeyField(FIELD_NAME, bytesRef, Store.NO));
+        document.add(new SortedDocValuesField(FIELD_NAME, bytesRef));
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Query query(Token token) {
+        return new TermQuery(new Term(FIELD_NAME, bytesRef(token)));
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected Query makeQuery(Token lower, Token upper, boolean includeLower, boolean includeUpper) {
+        BytesRef start = lower == null || isMinimum(lower) ? null : bytesRef(lower);
+        BytesRef stop = upper == null || isMinimum(upper) ? null : bytesRef(upper);
+        if (start == null && stop == null) {
+            return null;
+        }
+        return new TermRangeQuery(FIELD_NAME, start, stop, includeLower, includeUpper);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public SortField[] sortFields() {
+        return new SortField[]{new SortField(FIELD_NAME, SortField.Type.STRING)};
+    }
+
+    /**
+     * Returns the order-preserving Lucene {@link BytesRef} representation of the specified Cassandra {@link Token}.
+     *
+     * @param token A Cassandra {@link Token}.
+     * @return The order-preserving Lucene {@link BytesRef} representation of {@code token}.
+     */
+    public abstract BytesRef bytesRef(Token token);
+
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2015, Stratio.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.stratio.cassandra.lucene.service;
+
+import org.apache.cassandra.dht.RandomPartitioner;
+import org.apache.cassandra.dht.Token;
+import org.apache.lucene.util.BytesRef;
+
+import java.math.BigInteger;
+
+/**
+ * {@link TokenMapperOrdered} to be used when {@link RandomPartitioner} is used. Tokens, which are in the range [-1,
+ * 2^127], are shifted by one and indexed as fixed width unsigned big-endian integers.
+ *
+ * @author Andres de la Pena <adelapena@stratio.com>
+ */
+public class TokenMapperRandom extends TokenMapperOrdered {
+
+    private static final int WIDTH = 16; // The number of bytes of the encoded tokens
+
+    /** Builds a new {@link TokenMapperRandom}. */
+    public TokenMapperRandom() {
+        super(RandomPartitioner.MINIMUM);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public BytesRef bytesRef(Token token) {
+        BigInteger value = ((BigInteger) token.getTokenValue()).add(BigInteger.ONE);
+        byte[] unsigned = value.toByteArray();
+        int length = Math.min(unsigned.length, WIDTH);
+        byte[] bytes = new byte[WIDTH];
+        System.arraycopy(unsigned, unsigned.length - length, bytes, WIDTH - length, length);
+        return new BytesRef(bytes);
+    }
+
+}
@@ -15,6 +15,7 @@
  */
 package com.stratio.cassandra.lucene.service;
 
+import com.google.common.base.Objects;
 import org.apache.cassandra.dht.Token;
 import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.apache.lucene.index.FilteredTermsEnum;
@@ -79,6 +80,24 @@ public class TokenQuery extends MultiTermQuery {
                                         .toString();
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!super.equals(o)) return false;
+        TokenQuery query = (TokenQuery) o;
+        return includeLower == query.includeLower &&
+               includeUpper == query.includeUpper &&
+               Objects.equal(lower, query.lower) &&
+               Objects.equal(upper, query.upper);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public int hashCode() {
+        return 31 * super.hashCode() + Objects.hashCode(lower, upper, includeLower, includeUpper);
+    }
+
     /**
      * {@link FilteredTermsEnum} for generic tokens.
      */
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2015, Stratio.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.stratio.cassandra.lucene.service;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Weight;
+
+import java.io.IOException;
+
+/**
+ * {@link IndexSearcher} that allows collecting hits with an already created {@link Weight}, so the same query can be
+ * run several times without being rewritten and weighted again.
+ *
+ * @author Andres de la Pena <adelapena@stratio.com>
+ */
+class WeightIndexSearcher extends IndexSearcher {
+
+    /**
+     * Builds a new {@link WeightIndexSearcher} searching over the specified {@link IndexReader}.
+     *
+     * @param reader An {@link IndexReader}.
+     */
+    WeightIndexSearcher(IndexReader reader) {
+        super(reader);
+        setSimilarity(new NoIDFSimilarity());
+    }
+
+    /**
+     * Collects all the documents matching the specified {@link Weight}, which must have been created by this searcher.
+     *
+     * @param weight    A {@link Weight} created by this searcher.
+     * @param collector The {@link Collector} receiving the hits.
+     * @throws IOException If Lucene throws IO errors.
+     */
+    void search(Weight weight, Collector collector) throws IOException {
+        search(leafContexts, weight, collector);
+    }
+}
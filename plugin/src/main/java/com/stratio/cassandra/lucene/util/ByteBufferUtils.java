@@ -19,6 +19,7 @@ import org.apache.cassandra.db.marshal.AbstractType;
 import org.apache.cassandra.db.marshal.CompositeType;
 import org.apache.cassandra.utils.ByteBufferUtil;
 import org.apache.cassandra.utils.Hex;
+import org.apache.lucene.util.BytesRef;
 
 import java.nio.ByteBuffer;
 import java.util.List;
@@ -111,6 +112,34 @@ public class ByteBufferUtils {
         return Base256Serializer.byteBuffer(string);
     }
 
+    /**
+     * Returns the {@link BytesRef} representation of the specified {@link ByteBuffer}. The contents of heap buffers are
+     * not copied, so the returned {@link BytesRef} shares them with {@code byteBuffer}.
+     *
+     * @param byteBuffer the {@link ByteBuffer} to be converted.
+     * @return the {@link BytesRef} representation of {@code byteBuffer}.
+     */
+    public static BytesRef bytesRef(ByteBuffer byteBuffer) {
+        if (byteBuffer.hasArray()) {
+            return new BytesRef(byteBuffer.array(),
+                                byteBuffer.arrayOffset() + byteBuffer.position(),
+                                byteBuffer.remaining());
+        } else {
+            return new BytesRef(asArray(byteBuffer));
+        }
+    }
+
+    /**
+     * Returns the {@link ByteBuffer} representation of the specified {@link BytesRef}. The contents of {@code bytesRef}
+     * are not copied, so the returned {@link ByteBuffer} shares them with {@code bytesRef}.
+     *
+     * @param bytesRef the {@link BytesRef} to be converted.
+     * @return the {@link ByteBuffer} representation of {@code bytesRef}.
+     */
+    public static ByteBuffer byteBuffer(BytesRef bytesRef) {
+        return ByteBuffer.wrap(bytesRef.bytes, bytesRef.offset, bytesRef.length).slice();
+    }
+
     public static String toHex(ByteBuffer byteBuffer) {
         return ByteBufferUtil.bytesToHex(byteBuffer);
     }
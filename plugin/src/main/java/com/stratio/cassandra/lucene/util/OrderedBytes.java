@@ -0,0 +1,205 @@
+/*
+ * Copyright 2015, Stratio.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.stratio.cassandra.lucene.util;
+
+import org.apache.cassandra.db.marshal.AbstractType;
+import org.apache.cassandra.db.marshal.AsciiType;
+import org.apache.cassandra.db.marshal.BooleanType;
+import org.apache.cassandra.db.marshal.BytesType;
+import org.apache.cassandra.db.marshal.DateType;
+import org.apache.cassandra.db.marshal.DoubleType;
+import org.apache.cassandra.db.marshal.FloatType;
+import org.apache.cassandra.db.marshal.InetAddressType;
+import org.apache.cassandra.db.marshal.Int32Type;
+import org.apache.cassandra.db.marshal.LexicalUUIDType;
+import org.apache.cassandra.db.marshal.LongType;
+import org.apache.cassandra.db.marshal.ReversedType;
+import org.apache.cassandra.db.marshal.TimeUUIDType;
+import org.apache.cassandra.db.marshal.TimestampType;
+import org.apache.cassandra.db.marshal.UTF8Type;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.BytesRefBuilder;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Utility class for encoding Cassandra values into byte sequences whose unsigned lexicographic order is the same as the
+ * order defined by the value's {@link AbstractType}. Encoded values are prefix-free, so the encodings of the components
+ * of a composite value can be concatenated preserving the composite order.
+ *
+ * @author Andres de la Pena <adelapena@stratio.com>
+ */
+public final class OrderedBytes {
+
+    /** The leading byte of empty values, which are always the smallest ones, even for reversed types. */
+    private static final byte EMPTY = 0x00;
+
+    /** The leading byte of non empty values. */
+    private static final byte NOT_EMPTY = 0x01;
+
+    /** The escape byte of variable length values. */
+    private static final byte ESCAPE = 0x00;
+
+    /** The byte following {@link #ESCAPE} to represent an escaped zero byte. */
+    private static final byte ESCAPED_ZERO = (byte) 0xFF;
+
+    /** The byte following {@link #ESCAPE} to represent the end of a variable length value. */
+    private static final byte TERMINATOR = 0x00;
+
+    /** Private constructor to hide the implicit public one. */
+    private OrderedBytes() {
+    }
+
+    /**
+     * Returns if the values of the specified {@link AbstractType} can be encoded preserving their order.
+     *
+     * @param type A Cassandra type.
+     * @return {@code true} if the values of {@code type} can be encoded, {@code false} otherwise.
+     */
+    public static boolean isSupported(AbstractType<?> type) {
+        if (type instanceof ReversedType) {
+            return isSupported(((ReversedType<?>) type).baseType);
+        }
+        return isUnsigned(type)
+               || type instanceof Int32Type
+               || type instanceof LongType
+               || type instanceof TimestampType
+               || type instanceof FloatType
+               || type instanceof DoubleType
+               || type instanceof BooleanType
+               || type instanceof TimeUUIDType
+               || type instanceof LexicalUUIDType;
+    }
+
+    /**
+     * Returns if the specified {@link AbstractType} sorts its values by unsigned lexicographic order.
+     *
+     * @param type A Cassandra type.
+     * @return {@code true} if {@code type} sorts its values by unsigned lexicographic order.
+     */
+    private static boolean isUnsigned(AbstractType<?> type) {
+        return type instanceof BytesType
+               || type instanceof UTF8Type
+               || type instanceof AsciiType
+               || type instanceof InetAddressType
+               || type instanceof DateType;
+    }
+
+    /**
+     * Appends to the specified {@link BytesRefBuilder} the order-preserving encoding of the specified value.
+     *
+     * @param builder The {@link BytesRefBuilder} where the encoded value is going to be appended.
+     * @param type    The type of the value, which must be supported according to {@link #isSupported(AbstractType)}.
+     * @param value   The value to be encoded.
+     */
+    public static void append(BytesRefBuilder builder, AbstractType<?> type, ByteBuffer value) {
+        if (!value.hasRemaining()) {
+            builder.append(EMPTY);
+        } else if (type instanceof ReversedType) {
+            builder.append(NOT_EMPTY);
+            int start = builder.length();
+            appendValue(builder, ((ReversedType<?>) type).baseType, value);
+            for (int i = start; i < builder.length(); i++) {
+                builder.setByteAt(i, (byte) ~builder.byteAt(i));
+            }
+        } else {
+            builder.append(NOT_EMPTY);
+            appendValue(builder, type, value);
+        }
+    }
+
+    /**
+     * Returns the smallest byte sequence greater than all the byte sequences starting with the specified prefix.
+     *
+     * @param prefix A byte sequence.
+     * @return The smallest byte sequence greater than all the ones starting with {@code prefix}, or {@code null} if
+     * there is no such sequence.
+     */
+    public static BytesRef nextPrefix(BytesRef prefix) {
+        for (int i = prefix.length - 1; i >= 0; i--) {
+            byte b = prefix.bytes[prefix.offset + i];
+            if (b != (byte) 0xFF) {
+                byte[] bytes = new byte[i + 1];
+                System.arraycopy(prefix.bytes, prefix.offset, bytes, 0, i);
+                bytes[i] = (byte) (b + 1);
+                return new BytesRef(bytes);
+            }
+        }
+        return null;
+    }
+
+    private static void appendValue(BytesRefBuilder builder, AbstractType<?> type, ByteBuffer value) {
+        int position = value.position();
+        if (isUnsigned(type)) {
+            appendEscaped(builder, value);
+        } else if (type instanceof Int32Type) {
+            appendInt(builder, value.getInt(position) ^ Integer.MIN_VALUE);
+        } else if (type instanceof LongType || type instanceof TimestampType) {
+            appendLong(builder, value.getLong(position) ^ Long.MIN_VALUE);
+        } else if (type instanceof FloatType) {
+            int bits = Float.floatToIntBits(value.getFloat(position));
+            appendInt(builder, bits ^ (bits >> 31 | Integer.MIN_VALUE));
+        } else if (type instanceof DoubleType) {
+            long bits = Double.doubleToLongBits(value.getDouble(position));
+            appendLong(builder, bits ^ (bits >> 63 | Long.MIN_VALUE));
+        } else if (type instanceof BooleanType) {
+            builder.append(value.get(position) == 0 ? (byte) 0 : (byte) 1);
+        } else if (type instanceof TimeUUIDType) {
+            // Timestamp first, then signed bytes
+            builder.append((byte) (value.get(position + 6) & 0x0F));
+            builder.append(value.get(position + 7));
+            builder.append(value.get(position + 4));
+            builder.append(value.get(position + 5));
+            for (int i = 0; i < 4; i++) {
+                builder.append(value.get(position + i));
+            }
+            for (int i = 0; i < value.remaining(); i++) {
+                builder.append((byte) (value.get(position + i) ^ 0x80));
+            }
+        } else if (type instanceof LexicalUUIDType) {
+            appendLong(builder, value.getLong(position) ^ Long.MIN_VALUE);
+            appendLong(builder, value.getLong(position + 8) ^ Long.MIN_VALUE);
+        } else {
+            throw new IllegalArgumentException(String.format("Unsupported ordered encoding for type %s", type));
+        }
+    }
+
+    private static void appendEscaped(BytesRefBuilder builder, ByteBuffer value) {
+        for (int i = value.position(); i < value.limit(); i++) {
+            byte b = value.get(i);
+            if (b == ESCAPE) {
+                builder.append(ESCAPE);
+                builder.append(ESCAPED_ZERO);
+            } else {
+                builder.append(b);
+            }
+        }
+        builder.append(ESCAPE);
+        builder.append(TERMINATOR);
+    }
+
+    private static void appendInt(BytesRefBuilder builder, int value) {
+        builder.append((byte) (value >>> 24));
+        builder.append((byte) (value >>> 16));
+        builder.append((byte) (value >>> 8));
+        builder.append((byte) value);
+    }
+
+    private static void appendLong(BytesRefBuilder builder, long value) {
+        appendInt(builder, (int) (value >>> 32));
+        appendInt(builder, (int) value);
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2015, Stratio.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.stratio.cassandra.lucene.util;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free FIFO queue with multiple producers and a single consumer, backed by a preallocated array. Each
+ * slot has a sequence number telling if it is ready to be written for a certain position or read for it, so producers
+ * only compete for claiming the next position with a CAS, and the consumer doesn't compete with anyone.
+ *
+ * @param <E> The type of the queued elements.
+ * @author Andres de la Pena <adelapena@stratio.com>
+ */
+class RingBuffer<E> {
+
+    private final int capacity;
+    private final int mask;
+    private final AtomicReferenceArray<E> elements;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong(); // The next position to be claimed by producers
+    private volatile long head; // The next position to be read by the consumer
+
+    /**
+     * Builds a new empty {@link RingBuffer} able to hold at least the specified number of elements. The actual capacity
+     * is the next power of two.
+     *
+     * @param minCapacity The min number of elements to be held.
+     */
+    RingBuffer(int minCapacity) {
+        if (minCapacity <= 0 || minCapacity > 1 << 30) {
+            throw new IllegalArgumentException(String.format("Illegal ring buffer capacity %d", minCapacity));
+        }
+        capacity = minCapacity == 1 ? 1 : Integer.highestOneBit(minCapacity - 1) << 1;
+        mask = capacity - 1;
+        elements = new AtomicReferenceArray<>(capacity);
+        sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Returns the max number of elements that this can hold.
+     *
+     * @return The max number of elements that this can hold.
+     */
+    int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Inserts the specified element at the tail of this queue if there is room for it. This method can be called
+     * concurrently from several threads.
+     *
+     * @param element The element to be inserted.
+     * @return {@code true} if the element has been inserted, {@code false} if this queue is full.
+     */
+    boolean offer(E element) {
+        long position = tail.get();
+        while (true) {
+            int index = (int) position & mask;
+            long delta = sequences.get(index) - position;
+            if (delta == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    elements.set(index, element);
+                    sequences.set(index, position + 1); // Publish for the consumer
+                    return true;
+                }
+                position = tail.get();
+            } else if (delta < 0) {
+                return false; // The slot has not been read since the previous lap
+            } else {
+                position = tail.get(); // Another producer claimed the position
+            }
+        }
+    }
+
+    /**
+     * Retrieves and removes the head of this queue. This method must be called only from the consumer thread.
+     *
+     * @return The head of this queue, or {@code null} if it is empty.
+     */
+    E poll() {
+        long position = head;
+        int index = (int) position & mask;
+        if (sequences.get(index) != position + 1) {
+            return null; // Not published yet
+        }
+        E element = elements.get(index);
+        elements.set(index, null);
+        sequences.set(index, position + capacity); // Release for the next lap of producers
+        head = position + 1;
+        return element;
+    }
+
+    /**
+     * Removes at most the specified number of elements from the head of this queue, adding them to the specified
+     * collection in order. This method must be called only from the consumer thread.
+     *
+     * @param collection  The collection where the elements are going to be added.
+     * @param maxElements The max number of elements to be removed.
+     * @return The number of removed elements.
+     */
+    int drainTo(Collection<? super E> collection, int maxElements) {
+        int count = 0;
+        E element;
+        while (count < maxElements && (element = poll()) != null) {
+            collection.add(element);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Returns if there are no published elements to be read by the consumer.
+     *
+     * @return {@code true} if this queue is empty, {@code false} otherwise.
+     */
+    boolean isEmpty() {
+        long position = head;
+        return sequences.get((int) position & mask) != position + 1;
+    }
+
+    /**
+     * Returns the approximate number of elements in this queue, including those being inserted.
+     *
+     * @return The approximate number of elements in this queue.
+     */
+    int size() {
+        return (int) Math.max(0, Math.min(capacity, tail.get() - head));
+    }
+}
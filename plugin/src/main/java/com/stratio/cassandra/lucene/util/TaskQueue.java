@@ -15,50 +15,41 @@
  */
 package com.stratio.cassandra.lucene.util;
 
-import com.stratio.cassandra.lucene.contrib.NotifyingBlockingThreadPoolExecutor;
+import com.google.common.util.concurrent.Uninterruptibles;
+import org.apache.cassandra.utils.JVMStabilityInspector;
 
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Future;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.locks.LockSupport;
 
 /**
- * A queue that executes each submitted task using one of possibly several pooled threads. Tasks can be submitted with
- * an identifier, ensuring that all tasks with same identifier will be executed orderly in the same thread. Each thread
- * has its own task queue.
+ * A queue that executes each submitted task using one of possibly several threads. Tasks can be submitted with an
+ * identifier, ensuring that all tasks with same identifier will be executed orderly in the same thread. Each thread
+ * has its own bounded lock-free task queue, from which it takes all the pending tasks at once and runs them as a
+ * batch. Submitters wait while the chosen queue is full.
  *
  * @author Andres de la Pena <adelapena@stratio.com>
  */
 public class TaskQueue {
 
-    private final NotifyingBlockingThreadPoolExecutor[] pools;
+    /** The time that a submitter waits before retrying the insertion in a full queue. */
+    private static final long FULL_QUEUE_WAIT_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
 
-    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Shard[] shards;
 
     /**
      * Returns a new {@link TaskQueue}
      *
+     * @param name       The name prefix of the executor threads.
      * @param numThreads The number of executor threads.
      * @param queuesSize The max number of tasks in each thread queue before blocking.
      */
-    public TaskQueue(int numThreads, int queuesSize) {
-
-        pools = new NotifyingBlockingThreadPoolExecutor[numThreads];
+    public TaskQueue(String name, int numThreads, int queuesSize) {
+        shards = new Shard[numThreads];
         for (int i = 0; i < numThreads; i++) {
-            pools[i] = new NotifyingBlockingThreadPoolExecutor(1,
-                                                               queuesSize,
-                                                               Long.MAX_VALUE,
-                                                               TimeUnit.DAYS,
-                                                               0,
-                                                               TimeUnit.NANOSECONDS,
-                                                               null);
-            pools[i].submit(new Runnable() {
-                @Override
-                public void run() {
-                    Log.debug("Task queue starts");
-                }
-            });
+            shards[i] = new Shard(name + "-" + i, queuesSize);
         }
     }
 
@@ -72,54 +63,175 @@ public class TaskQueue {
      *             asynchronous execution.
      * @param task A task to be queued for asynchronous execution.
      */
-    public Future<?> submitAsynchronous(Object id, Runnable task) {
-        lock.readLock().lock();
-        try {
-            int i = Math.abs(id.hashCode() % pools.length);
-            return pools[i].submit(task);
-        } catch (Exception e) {
-            Log.error(e, "Task queue submission failed");
-            throw new RuntimeException(e);
-        } finally {
-            lock.readLock().unlock();
+    public void submitAsynchronous(Object id, Runnable task) {
+        int i = (id.hashCode() & Integer.MAX_VALUE) % shards.length;
+        shards[i].submit(task);
+    }
+
+    /**
+     * Waits for the completion of all the tasks submitted before calling this method. The tasks submitted after it are
+     * not stopped, so they could be also completed when this method returns.
+     */
+    public void await() {
+        final CountDownLatch barrier = new CountDownLatch(shards.length);
+        Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                barrier.countDown();
+            }
+        };
+        for (Shard shard : shards) {
+            shard.submit(task);
         }
+        Uninterruptibles.awaitUninterruptibly(barrier);
     }
 
-    private void await() throws ExecutionException, InterruptedException {
-        Future<?>[] futures = new Future<?>[pools.length];
-        for (int i = 0; i < pools.length; i++) {
-            Future<?> future = pools[i].submit(new Runnable() {
-                @Override
-                public void run() {
-                }
-            });
-            futures[i] = future;
+    /**
+     * Returns the approximate number of tasks waiting in the queues.
+     *
+     * @return The approximate number of queued tasks.
+     */
+    public long getQueueDepth() {
+        long depth = 0;
+        for (Shard shard : shards) {
+            depth += shard.queue.size();
         }
-        for (Future<?> future : futures) {
-            future.get();
+        return depth;
+    }
+
+    /**
+     * Returns the number of executed batches of tasks.
+     *
+     * @return The number of executed batches.
+     */
+    public long getBatchCount() {
+        long count = 0;
+        for (Shard shard : shards) {
+            count += shard.batchCount;
         }
+        return count;
     }
 
     /**
-     * Submits a non value-returning task for synchronous execution. It waits for all synchronous tasks to be
-     * completed.
+     * Returns the number of executed tasks.
      *
-     * @param task A task to be executed synchronously.
+     * @return The number of executed tasks.
      */
-    public void submitSynchronous(Runnable task) {
-        lock.writeLock().lock();
-        try {
-            await();
-            task.run();
-        } catch (InterruptedException e) {
-            Log.error(e, "Task queue isolated submission interrupted");
-            throw new RuntimeException(e);
-        } catch (Exception e) {
-            Log.error(e, "Task queue isolated submission failed");
-            throw new RuntimeException(e);
-        } finally {
-            lock.writeLock().unlock();
+    public long getTaskCount() {
+        long count = 0;
+        for (Shard shard : shards) {
+            count += shard.taskCount;
         }
+        return count;
     }
 
+    /**
+     * Returns the size of the biggest executed batch of tasks.
+     *
+     * @return The max batch size.
+     */
+    public int getMaxBatchSize() {
+        int max = 0;
+        for (Shard shard : shards) {
+            max = Math.max(max, shard.maxBatchSize);
+        }
+        return max;
+    }
+
+    /**
+     * Stops the executor threads after running the already queued tasks, waiting for them to finish.
+     */
+    public void close() {
+        for (Shard shard : shards) {
+            shard.close();
+        }
+        for (Shard shard : shards) {
+            shard.join();
+        }
+    }
+
+    /**
+     * A task queue consumed by a single thread.
+     */
+    private static final class Shard implements Runnable {
+
+        private final RingBuffer<Runnable> queue;
+        private final List<Runnable> batch;
+        private final Thread thread;
+        private volatile boolean waiting;
+        private volatile boolean closed;
+
+        // Written only by the consumer thread
+        private volatile long batchCount;
+        private volatile long taskCount;
+        private volatile int maxBatchSize;
+
+        Shard(String name, int queueSize) {
+            queue = new RingBuffer<>(queueSize);
+            batch = new ArrayList<>(queue.capacity());
+            thread = new Thread(this, name);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        void submit(Runnable task) {
+            if (closed) {
+                throw new IllegalStateException("Task queue is closed");
+            }
+            while (!queue.offer(task)) {
+                LockSupport.parkNanos(FULL_QUEUE_WAIT_NANOS);
+            }
+            if (waiting) {
+                LockSupport.unpark(thread);
+            }
+        }
+
+        void close() {
+            closed = true;
+            LockSupport.unpark(thread);
+        }
+
+        void join() {
+            if (Thread.currentThread() != thread) {
+                Uninterruptibles.joinUninterruptibly(thread);
+            }
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public void run() {
+            Log.debug("Task queue starts");
+            while (true) {
+                int size = queue.drainTo(batch, queue.capacity());
+                if (size == 0) {
+                    if (closed) {
+                        return;
+                    }
+                    waiting = true;
+                    if (queue.isEmpty() && !closed) {
+                        LockSupport.park(this);
+                        Thread.interrupted(); // Interruptions are not used, so don't let them spin the loop
+                    }
+                    waiting = false;
+                    continue;
+                }
+                for (Runnable task : batch) {
+                    try {
+                        task.run();
+                    } catch (Throwable t) {
+                        if (t instanceof OutOfMemoryError) {
+                            JVMStabilityInspector.inspectThrowable(t);
+                        }
+                        Log.error(t, "Task queue execution failed");
+                    }
+                }
+                batch.clear();
+                batchCount++;
+                taskCount += size;
+                if (size > maxBatchSize) {
+                    maxBatchSize = size;
+                }
+            }
+        }
+    }
 }
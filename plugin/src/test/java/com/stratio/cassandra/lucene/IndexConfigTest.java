@@ -0,0 +1,93 @@
+/*
+ * Copyright 2015, Stratio.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.stratio.cassandra.lucene;
+
+import com.stratio.cassandra.lucene.IndexConfig.CommitPolicy;
+import org.apache.cassandra.config.CFMetaData;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Andres de la Pena <adelapena@stratio.com>
+ */
+public class IndexConfigTest {
+
+    private static IndexConfig config(String... keysAndValues) {
+        CFMetaData metadata = CFMetaData.compile("CREATE TABLE test (pk int PRIMARY KEY, v int)", "ks");
+        Map<String, String> options = new HashMap<>();
+        options.put(IndexConfig.SCHEMA_OPTION, "{fields : {v : {type : \"integer\"}}}");
+        options.put(IndexConfig.DIRECTORY_PATH_OPTION, "/tmp/lucene-index-config-test");
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            options.put(keysAndValues[i], keysAndValues[i + 1]);
+        }
+        IndexConfig config = new IndexConfig(metadata, options);
+        config.getSchema().close();
+        return config;
+    }
+
+    private static void assertRejected(String expectedMessage, String... keysAndValues) {
+        try {
+            config(keysAndValues);
+        } catch (RuntimeException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains(expectedMessage));
+            return;
+        }
+        throw new AssertionError("Options should be rejected");
+    }
+
+    @Test
+    public void testCommitDefaults() {
+        IndexConfig config = config();
+        assertEquals(CommitPolicy.FLUSH, config.getCommitPolicy());
+        assertEquals(0, config.getCommitIntervalSeconds(), 0);
+        assertEquals(false, config.isIndexingJournal());
+    }
+
+    @Test
+    public void testCommitPolicyWithJournal() {
+        IndexConfig config = config(IndexConfig.COMMIT_POLICY_OPTION, "time",
+                                    IndexConfig.INDEXING_JOURNAL_OPTION, "true");
+        assertEquals(CommitPolicy.TIME, config.getCommitPolicy());
+        assertEquals(IndexConfig.DEFAULT_COMMIT_INTERVAL_SECONDS, config.getCommitIntervalSeconds(), 0);
+
+        config = config(IndexConfig.COMMIT_POLICY_OPTION, "bytes",
+                        IndexConfig.COMMIT_MB_OPTION, "16",
+                        IndexConfig.INDEXING_JOURNAL_OPTION, "true");
+        assertEquals(CommitPolicy.BYTES, config.getCommitPolicy());
+        assertEquals(16, config.getCommitMB());
+
+        config = config(IndexConfig.COMMIT_INTERVAL_SECONDS_OPTION, "5",
+                        IndexConfig.INDEXING_JOURNAL_OPTION, "true");
+        assertEquals(CommitPolicy.FLUSH, config.getCommitPolicy());
+        assertEquals(5, config.getCommitIntervalSeconds(), 0);
+    }
+
+    @Test
+    public void testCommitPolicyWithoutJournal() {
+        assertRejected("'indexing_journal'  must be true when 'commit_policy' is 'time'",
+                       IndexConfig.COMMIT_POLICY_OPTION, "time");
+        assertRejected("'indexing_journal'  must be true when 'commit_policy' is 'bytes'",
+                       IndexConfig.COMMIT_POLICY_OPTION, "bytes",
+                       IndexConfig.INDEXING_JOURNAL_OPTION, "false");
+        assertRejected("'indexing_journal'  must be true when 'commit_interval_seconds' is greater than zero",
+                       IndexConfig.COMMIT_INTERVAL_SECONDS_OPTION, "5");
+    }
+}
@@ -43,9 +43,12 @@ import org.junit.Test;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import static org.junit.Assert.*;
 
@@ -137,6 +140,19 @@ public class SchemaTest {
         schema.close();
     }
 
+    @Test
+    public void testGetMappedColumns() throws IOException {
+        String json = "{fields : {" +
+                      "  id : {type : \"integer\"}," +
+                      "  location : {type : \"geo_point\", latitude : \"lat\", longitude : \"lon\"}," +
+                      "  duration : {type : \"date_range\", start : \"begin\", stop : \"end\"}" +
+                      "}}";
+        Schema schema = Schema.fromJson(json);
+        Set<String> expected = new HashSet<>(Arrays.asList("id", "lat", "lon", "begin", "end"));
+        assertEquals(expected, schema.getMappedColumns());
+        schema.close();
+    }
+
     @Test
     public void testParseJSONWithNullAnalyzers() throws IOException {
 
@@ -29,6 +29,8 @@ import org.apache.lucene.document.Document;
 import org.apache.lucene.search.SortField;
 import org.junit.Test;
 
+import java.util.Set;
+
 import static org.junit.Assert.assertEquals;
 
 /**
@@ -123,6 +125,11 @@ public class MapperTest {
             public void validate(CFMetaData metaData) {
 
             }
+
+            @Override
+            public Set<String> getColumns() {
+                return null;
+            }
         };
         assertEquals(expected, mapper.supports(candidateType));
     }
@@ -0,0 +1,195 @@
+/*
+ * Copyright 2015, Stratio.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.stratio.cassandra.lucene.service;
+
+import org.apache.cassandra.config.CFMetaData;
+import org.apache.cassandra.db.composites.CBuilder;
+import org.apache.cassandra.db.composites.CellName;
+import org.apache.cassandra.db.composites.CellNameType;
+import org.apache.cassandra.db.composites.Composite;
+import org.apache.cassandra.db.composites.Composites;
+import org.apache.cassandra.db.marshal.Int32Type;
+import org.apache.cassandra.db.marshal.UTF8Type;
+import org.apache.lucene.analysis.core.KeywordAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.ReaderUtil;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.TermRangeQuery;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Andres de la Pena <adelapena@stratio.com>
+ */
+public class ClusteringKeyMapperTest {
+
+    private static final int[] INTS = new int[]{Integer.MIN_VALUE, -2, -1, 0, 1, 2, Integer.MAX_VALUE};
+    private static final String[] STRINGS = new String[]{"", "a", "a\u0000", "a\u0000b", "ab", "b", "ÿ"};
+
+    private static CFMetaData metadata() {
+        return CFMetaData.compile("CREATE TABLE test (pk int, c1 int, c2 text, v int, PRIMARY KEY (pk, c1, c2)) " +
+                                  "WITH CLUSTERING ORDER BY (c1 DESC, c2 ASC)", "ks");
+    }
+
+    private static Composite prefix(CellNameType type, Object... values) {
+        CBuilder builder = type.builder();
+        for (Object value : values) {
+            if (value instanceof Integer) {
+                builder.add(Int32Type.instance.decompose((Integer) value));
+            } else {
+                builder.add(UTF8Type.instance.decompose((String) value));
+            }
+        }
+        return builder.build();
+    }
+
+    private static List<Composite> bounds(CellNameType type) {
+        List<Composite> bounds = new ArrayList<>();
+        bounds.add(null);
+        bounds.add(Composites.EMPTY);
+        for (int i : new int[]{-1, 0, 1}) {
+            Composite prefix = prefix(type, i);
+            for (Composite.EOC eoc : Composite.EOC.values()) {
+                bounds.add(prefix.withEOC(eoc));
+            }
+            for (String s : new String[]{"", "a", "a\u0000", "ab"}) {
+                Composite key = prefix(type, i, s);
+                for (Composite.EOC eoc : Composite.EOC.values()) {
+                    bounds.add(key.withEOC(eoc));
+                }
+                bounds.add(type.rowMarker(key));
+            }
+        }
+        return bounds;
+    }
+
+    private static IndexSearcher index(ClusteringKeyMapper mapper, Directory directory) throws IOException {
+        CellNameType type = mapper.getType();
+        IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig(new KeywordAnalyzer()));
+        for (int i : INTS) {
+            for (String s : STRINGS) {
+                CellName clusteringKey = type.rowMarker(prefix(type, i, s));
+                Document document = new Document();
+                mapper.addFields(document, clusteringKey);
+                document.add(new StringField("id", i + ":" + s, Field.Store.YES));
+                writer.addDocument(document);
+            }
+        }
+        writer.close();
+        return new IndexSearcher(DirectoryReader.open(directory));
+    }
+
+    private static Set<String> ids(IndexSearcher searcher, Query query) throws IOException {
+        Set<String> ids = new HashSet<>();
+        for (ScoreDoc scoreDoc : searcher.search(query, Integer.MAX_VALUE).scoreDocs) {
+            ids.add(searcher.doc(scoreDoc.doc).get("id"));
+        }
+        return ids;
+    }
+
+    @Test
+    public void testQuery() throws IOException {
+        CFMetaData metadata = metadata();
+        ClusteringKeyMapper ordered = ClusteringKeyMapper.instance(metadata, KeyFormat.BINARY);
+        ClusteringKeyMapper legacy = ClusteringKeyMapper.instance(metadata, KeyFormat.STRING);
+        IndexSearcher orderedSearcher = index(ordered, new RAMDirectory());
+        IndexSearcher legacySearcher = index(legacy, new RAMDirectory());
+        CellNameType type = ordered.getType();
+
+        List<Composite> bounds = bounds(type);
+        for (Composite start : bounds) {
+            for (Composite stop : bounds) {
+                Query orderedQuery = ordered.query(start, stop);
+                Query legacyQuery = legacy.query(start, stop);
+                assertTrue(legacyQuery instanceof ClusteringKeyQuery);
+                assertEquals(String.format("Range from %s to %s",
+                                           start == null ? null : ordered.toString(start),
+                                           stop == null ? null : ordered.toString(stop)),
+                             ids(legacySearcher, legacyQuery),
+                             ids(orderedSearcher, orderedQuery));
+            }
+        }
+        assertTrue(ordered.query(prefix(type, 0), null) instanceof TermRangeQuery);
+    }
+
+    @Test
+    public void testDocValues() throws IOException {
+        CFMetaData metadata = metadata();
+        for (KeyFormat keyFormat : KeyFormat.values()) {
+            ClusteringKeyMapper mapper = ClusteringKeyMapper.instance(metadata, keyFormat);
+            IndexSearcher searcher = index(mapper, new RAMDirectory());
+            for (LeafReaderContext context : searcher.getIndexReader().leaves()) {
+                LeafReader reader = context.reader();
+                for (int docId = 0; docId < reader.maxDoc(); docId++) {
+                    Document document = reader.document(docId);
+                    String[] id = document.get("id").split(":", 2);
+                    CellName expected = mapper.getType().rowMarker(prefix(mapper.getType(),
+                                                                          Integer.valueOf(id[0]),
+                                                                          id[1]));
+                    CellName actual = keyFormat.isLegacy()
+                                      ? mapper.clusteringKey(document)
+                                      : mapper.clusteringKey(reader, docId);
+                    assertEquals(0, mapper.getType().compare(expected, actual));
+                    assertEquals(keyFormat.isLegacy(), document.getField(ClusteringKeyMapper.FIELD_NAME) != null);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testSort() throws IOException {
+        CFMetaData metadata = metadata();
+        ClusteringKeyMapper mapper = ClusteringKeyMapper.instance(metadata, KeyFormat.BINARY);
+        IndexSearcher searcher = index(mapper, new RAMDirectory());
+        List<LeafReaderContext> leaves = searcher.getIndexReader().leaves();
+        CellNameType type = mapper.getType();
+
+        Sort sort = new Sort(mapper.sortFields());
+        ScoreDoc[] scoreDocs = searcher.search(new MatchAllDocsQuery(), Integer.MAX_VALUE, sort).scoreDocs;
+        assertEquals(INTS.length * STRINGS.length, scoreDocs.length);
+        CellName last = null;
+        for (ScoreDoc scoreDoc : scoreDocs) {
+            LeafReaderContext leaf = leaves.get(ReaderUtil.subIndex(scoreDoc.doc, leaves));
+            CellName clusteringKey = mapper.clusteringKey(leaf.reader(), scoreDoc.doc - leaf.docBase);
+            if (last != null) {
+                assertTrue(type.compare(last, clusteringKey) < 0);
+            }
+            last = clusteringKey;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2015, Stratio.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.stratio.cassandra.lucene.service;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.stratio.cassandra.lucene.IndexConfig.CommitPolicy;
+import org.junit.Test;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Andres de la Pena <adelapena@stratio.com>
+ */
+public class IndexCommitterTest {
+
+    private static final int MB = 1024 * 1024;
+
+    /** A commit task counting its runs. */
+    private static class Commit implements Runnable {
+
+        final Semaphore runs = new Semaphore(0);
+        IndexCommitter committer;
+
+        @Override
+        public void run() {
+            committer.committing();
+            runs.release();
+        }
+    }
+
+    private static IndexCommitter committer(CommitPolicy policy, double intervalSeconds, int commitMB, Commit commit) {
+        IndexCommitter committer = new IndexCommitter("test-commit", policy, intervalSeconds, commitMB, commit);
+        commit.committer = committer;
+        return committer;
+    }
+
+    @Test
+    public void testFlushWithoutInterval() {
+        IndexCommitter committer = committer(CommitPolicy.FLUSH, 0, 1, new Commit());
+        assertTrue(committer.isFlushCommit());
+        committer.committing();
+        assertTrue(committer.isFlushCommit());
+        committer.close();
+    }
+
+    @Test
+    public void testFlushSkippedWithinInterval() {
+        IndexCommitter committer = committer(CommitPolicy.FLUSH, 0.2, 1, new Commit());
+        committer.committing();
+        assertFalse(committer.isFlushCommit());
+        Uninterruptibles.sleepUninterruptibly(300, TimeUnit.MILLISECONDS);
+        assertTrue(committer.isFlushCommit());
+        committer.committing();
+        assertFalse(committer.isFlushCommit());
+        committer.close();
+    }
+
+    @Test
+    public void testFlushSkippedWithBackgroundPolicies() {
+        IndexCommitter time = committer(CommitPolicy.TIME, 60, 1, new Commit());
+        IndexCommitter bytes = committer(CommitPolicy.BYTES, 0, 1, new Commit());
+        assertFalse(time.isFlushCommit());
+        assertFalse(bytes.isFlushCommit());
+        time.close();
+        bytes.close();
+    }
+
+    @Test
+    public void testBytes() throws InterruptedException {
+        Commit commit = new Commit();
+        IndexCommitter committer = committer(CommitPolicy.BYTES, 0, 1, commit);
+        committer.written(MB / 2);
+        committer.written(MB / 4);
+        assertFalse(commit.runs.tryAcquire(200, TimeUnit.MILLISECONDS));
+        committer.written(MB / 4);
+        assertTrue(commit.runs.tryAcquire(10, TimeUnit.SECONDS));
+
+        // The written bytes are counted again after the commit
+        committer.written(MB / 2);
+        assertFalse(commit.runs.tryAcquire(200, TimeUnit.MILLISECONDS));
+        committer.written(MB);
+        assertTrue(commit.runs.tryAcquire(10, TimeUnit.SECONDS));
+        committer.close();
+    }
+
+    @Test
+    public void testBytesIgnoredWithOtherPolicies() throws InterruptedException {
+        Commit commit = new Commit();
+        IndexCommitter committer = committer(CommitPolicy.FLUSH, 0, 1, commit);
+        committer.written(10 * MB);
+        assertFalse(commit.runs.tryAcquire(200, TimeUnit.MILLISECONDS));
+        committer.close();
+    }
+
+    @Test
+    public void testTime() throws InterruptedException {
+        Commit commit = new Commit();
+        IndexCommitter committer = committer(CommitPolicy.TIME, 0.1, 1, commit);
+        assertTrue(commit.runs.tryAcquire(2, 10, TimeUnit.SECONDS));
+        committer.close();
+        commit.runs.drainPermits();
+        assertFalse(commit.runs.tryAcquire(300, TimeUnit.MILLISECONDS));
+    }
+}
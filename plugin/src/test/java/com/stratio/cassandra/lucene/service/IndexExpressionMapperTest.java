@@ -0,0 +1,195 @@
+/*
+ * Copyright 2015, Stratio.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.stratio.cassandra.lucene.service;
+
+import com.stratio.cassandra.lucene.schema.Schema;
+import com.stratio.cassandra.lucene.schema.mapping.SingleColumnMapper;
+import org.apache.cassandra.config.CFMetaData;
+import org.apache.cassandra.cql3.Operator;
+import org.apache.cassandra.db.IndexExpression;
+import org.apache.cassandra.db.marshal.AbstractType;
+import org.apache.cassandra.db.marshal.DoubleType;
+import org.apache.cassandra.db.marshal.FloatType;
+import org.apache.cassandra.db.marshal.Int32Type;
+import org.apache.cassandra.db.marshal.LongType;
+import org.apache.cassandra.db.marshal.TimestampType;
+import org.apache.cassandra.db.marshal.UTF8Type;
+import org.apache.cassandra.utils.ByteBufferUtil;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.store.RAMDirectory;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * @author Andres de la Pena <adelapena@stratio.com>
+ */
+public class IndexExpressionMapperTest {
+
+    private static final Operator[] OPERATORS = new Operator[]{Operator.EQ,
+                                                               Operator.GT,
+                                                               Operator.GTE,
+                                                               Operator.LT,
+                                                               Operator.LTE};
+
+    private static CFMetaData metadata() {
+        return CFMetaData.compile("CREATE TABLE test (pk int PRIMARY KEY, i int, l bigint, f float, d double, " +
+                                  "t timestamp, s text, u text, x text, n int, il bigint)", "ks");
+    }
+
+    private static Schema schema() throws IOException {
+        return Schema.fromJson("{fields:{" +
+                               "i:{type:\"integer\"}," +
+                               "l:{type:\"long\"}," +
+                               "f:{type:\"float\"}," +
+                               "d:{type:\"double\"}," +
+                               "t:{type:\"date\"}," +
+                               "s:{type:\"string\"}," +
+                               "u:{type:\"string\", case_sensitive:false}," +
+                               "x:{type:\"text\"}," +
+                               "il:{type:\"integer\"}}}");
+    }
+
+    private static IndexExpression expression(String column, Operator operator, ByteBuffer value) {
+        return new IndexExpression(ByteBufferUtil.bytes(column), operator, value);
+    }
+
+    private static boolean accept(int comparison, Operator operator) {
+        switch (operator) {
+            case EQ:
+                return comparison == 0;
+            case GT:
+                return comparison > 0;
+            case GTE:
+                return comparison >= 0;
+            case LT:
+                return comparison < 0;
+            default:
+                return comparison <= 0;
+        }
+    }
+
+    @SafeVarargs
+    private static <T> void assertExact(String column, AbstractType<T> type, T... values) throws IOException {
+        Schema schema = schema();
+        IndexExpressionMapper mapper = new IndexExpressionMapper(metadata(), schema);
+        SingleColumnMapper<?> columnMapper = (SingleColumnMapper<?>) schema.getMapper(column);
+
+        RAMDirectory directory = new RAMDirectory();
+        IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig(schema.getAnalyzer()));
+        for (int i = 0; i < values.length; i++) {
+            Document document = new Document();
+            columnMapper.addFields(document, column, values[i], false);
+            document.add(new StoredField("id", i));
+            writer.addDocument(document);
+        }
+        writer.close();
+        IndexSearcher searcher = new IndexSearcher(DirectoryReader.open(directory));
+
+        for (T value : values) {
+            ByteBuffer bb = type.decompose(value);
+            for (Operator operator : OPERATORS) {
+                Set<Integer> expected = new HashSet<>();
+                for (int i = 0; i < values.length; i++) {
+                    if (accept(type.compare(type.decompose(values[i]), bb), operator)) {
+                        expected.add(i);
+                    }
+                }
+                Query query = mapper.query(expression(column, operator, bb));
+                assertNotNull(query);
+                Set<Integer> actual = new HashSet<>();
+                for (ScoreDoc scoreDoc : searcher.search(query, Integer.MAX_VALUE).scoreDocs) {
+                    actual.add(searcher.doc(scoreDoc.doc).getField("id").numericValue().intValue());
+                }
+                assertEquals(String.format("%s %s %s", column, operator, value), expected, actual);
+            }
+        }
+        schema.close();
+    }
+
+    @Test
+    public void testInteger() throws IOException {
+        assertExact("i", Int32Type.instance, Integer.MIN_VALUE, -1, 0, 1, 2, Integer.MAX_VALUE);
+    }
+
+    @Test
+    public void testLong() throws IOException {
+        assertExact("l", LongType.instance, Long.MIN_VALUE, -1L, 0L, 1L, 2L, Long.MAX_VALUE);
+    }
+
+    @Test
+    public void testFloat() throws IOException {
+        assertExact("f", FloatType.instance, Float.NEGATIVE_INFINITY, -1.5F, -0F, 0F, 1.5F, Float.MAX_VALUE);
+    }
+
+    @Test
+    public void testDouble() throws IOException {
+        assertExact("d", DoubleType.instance, -Double.MAX_VALUE, -1.5D, 0D, 1.5D, Double.POSITIVE_INFINITY);
+    }
+
+    @Test
+    public void testTimestamp() throws IOException {
+        assertExact("t", TimestampType.instance, new Date(-1000), new Date(0), new Date(1), new Date(1000000));
+    }
+
+    @Test
+    public void testString() throws IOException {
+        assertExact("s", UTF8Type.instance, "A", "a", "a b", "ab", "b", "ñ", "😀");
+    }
+
+    @Test
+    public void testNotExact() throws IOException {
+        IndexExpressionMapper mapper = new IndexExpressionMapper(metadata(), schema());
+        assertNull(mapper.query(expression("u", Operator.EQ, UTF8Type.instance.decompose("a"))));
+        assertNull(mapper.query(expression("x", Operator.EQ, UTF8Type.instance.decompose("a"))));
+        assertNull(mapper.query(expression("n", Operator.EQ, Int32Type.instance.decompose(1))));
+        assertNull(mapper.query(expression("il", Operator.EQ, LongType.instance.decompose(1L))));
+        assertNull(mapper.query(expression("s", Operator.EQ, ByteBufferUtil.EMPTY_BYTE_BUFFER)));
+        assertNull(mapper.query(expression("s", Operator.CONTAINS, UTF8Type.instance.decompose("a"))));
+        assertNull(mapper.query(expression("unknown", Operator.EQ, Int32Type.instance.decompose(1))));
+    }
+
+    @Test
+    public void testQueryList() throws IOException {
+        IndexExpressionMapper mapper = new IndexExpressionMapper(metadata(), schema());
+        List<IndexExpression> expressions = new ArrayList<>();
+        expressions.add(expression("i", Operator.GT, Int32Type.instance.decompose(1)));
+        expressions.add(expression("n", Operator.EQ, Int32Type.instance.decompose(1)));
+        expressions.add(expression("s", Operator.EQ, UTF8Type.instance.decompose("a")));
+        assertNotNull(mapper.query(expressions));
+        assertEquals(1, expressions.size());
+        assertEquals(ByteBufferUtil.bytes("n"), expressions.get(0).column);
+        assertNull(mapper.query(expressions));
+        assertEquals(1, expressions.size());
+    }
+}
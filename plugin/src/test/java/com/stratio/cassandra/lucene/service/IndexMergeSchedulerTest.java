@@ -0,0 +1,99 @@
+/*
+ * Copyright 2015, Stratio.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.stratio.cassandra.lucene.service;
+
+import com.stratio.cassandra.lucene.IndexConfig.MergeThrottle;
+import org.apache.lucene.analysis.core.KeywordAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.MergePolicy.OneMerge;
+import org.apache.lucene.store.RAMDirectory;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Andres de la Pena <adelapena@stratio.com>
+ */
+public class IndexMergeSchedulerTest {
+
+    private static void merge(IndexMergeScheduler scheduler) throws IOException {
+        IndexWriterConfig config = new IndexWriterConfig(new KeywordAnalyzer());
+        config.setMergeScheduler(scheduler);
+        try (IndexWriter writer = new IndexWriter(new RAMDirectory(), config)) {
+            for (int i = 0; i < 3; i++) {
+                Document document = new Document();
+                document.add(new StringField("field", "value" + i, Field.Store.NO));
+                writer.addDocument(document);
+                writer.commit(); // Flush a new segment
+            }
+            writer.forceMerge(1);
+            assertEquals(0, writer.getMergingSegments().size());
+        }
+    }
+
+    @Test
+    public void testMaxMergesAndThreads() {
+        IndexMergeScheduler scheduler = new IndexMergeScheduler(2, 0, MergeThrottle.AUTO);
+        assertEquals(2, scheduler.getMaxThreadCount());
+        assertEquals(7, scheduler.getMaxMergeCount());
+        scheduler = new IndexMergeScheduler(3, 4, MergeThrottle.AUTO);
+        assertEquals(3, scheduler.getMaxThreadCount());
+        assertEquals(4, scheduler.getMaxMergeCount());
+    }
+
+    @Test
+    public void testMerge() throws IOException {
+        IndexMergeScheduler scheduler = new IndexMergeScheduler(1, 0, MergeThrottle.NONE);
+        merge(scheduler);
+        assertEquals(1, scheduler.getMergeCount());
+        assertTrue(scheduler.getMergedMB() > 0);
+        assertEquals(0, scheduler.getRunningMergeCount());
+        assertEquals(0, scheduler.getRateLimitMBPerSec(), 0);
+    }
+
+    @Test
+    public void testCompactionThrottle() throws IOException {
+        final List<Double> rates = Collections.synchronizedList(new ArrayList<Double>());
+        IndexMergeScheduler scheduler = new IndexMergeScheduler(1, 0, MergeThrottle.COMPACTION) {
+            @Override
+            protected double compactionMBPerSec() {
+                return 16;
+            }
+
+            @Override
+            protected void doMerge(IndexWriter writer, OneMerge merge) throws IOException {
+                synchronized (this) { // Wait for the merge threads update done by the merging thread
+                    rates.add(merge.rateLimiter.getMBPerSec());
+                }
+                super.doMerge(writer, merge);
+            }
+        };
+        merge(scheduler);
+        assertEquals(1, scheduler.getMergeCount());
+        assertEquals(16, scheduler.getRateLimitMBPerSec(), 0);
+        assertEquals(Collections.singletonList(16D), rates);
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2015, Stratio.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.stratio.cassandra.lucene.service;
+
+import org.apache.cassandra.dht.IPartitioner;
+import org.apache.cassandra.dht.Murmur3Partitioner;
+import org.apache.cassandra.dht.RandomPartitioner;
+import org.apache.cassandra.dht.Range;
+import org.apache.cassandra.dht.Token;
+import org.apache.cassandra.utils.ByteBufferUtil;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Andres de la Pena <adelapena@stratio.com>
+ */
+public class IndexRebuilderTest {
+
+    private static void assertSplit(IPartitioner partitioner, int count) {
+        Token minimum = partitioner.getMinimumToken();
+        List<Range<Token>> ranges = IndexRebuilder.split(partitioner, count);
+        assertEquals(count, ranges.size());
+        assertEquals(minimum, ranges.get(0).left);
+        assertEquals(minimum, ranges.get(count - 1).right);
+        for (int i = 0; i < count; i++) {
+            Range<Token> range = ranges.get(i);
+            assertTrue(range.left.compareTo(range.right) < 0 || range.right.equals(minimum)); // Not wrapping
+            if (i > 0) {
+                assertEquals(ranges.get(i - 1).right, range.left);
+            }
+        }
+        assertEquals(ranges, IndexRebuilder.split(partitioner, count)); // Stable split
+    }
+
+    @Test
+    public void testSplitMurmur3() {
+        assertSplit(new Murmur3Partitioner(), 1);
+        assertSplit(new Murmur3Partitioner(), 4);
+        assertSplit(new Murmur3Partitioner(), 64);
+    }
+
+    @Test
+    public void testSplitRandom() {
+        assertSplit(new RandomPartitioner(), 2);
+        assertSplit(new RandomPartitioner(), 16);
+    }
+
+    @Test
+    public void testRange() {
+        IPartitioner partitioner = new Murmur3Partitioner();
+        List<Range<Token>> ranges = IndexRebuilder.split(partitioner, 16);
+        Token[] lefts = IndexRebuilder.lefts(ranges);
+        assertEquals(15, IndexRebuilder.range(lefts, partitioner.getMinimumToken()));
+        for (int i = 0; i < 1000; i++) {
+            Token token = partitioner.decorateKey(ByteBufferUtil.bytes(i)).getToken();
+            assertTrue(ranges.get(IndexRebuilder.range(lefts, token)).contains(token));
+        }
+        for (int i = 0; i < ranges.size(); i++) {
+            assertEquals(i, IndexRebuilder.range(lefts, ranges.get(i).right));
+        }
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2015, Stratio.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.stratio.cassandra.lucene.service;
+
+import org.apache.lucene.analysis.core.KeywordAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.store.RAMDirectory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Andres de la Pena <adelapena@stratio.com>
+ */
+public class IndexRefresherTest {
+
+    private IndexWriter writer;
+    private SearcherManager manager;
+
+    @Before
+    public void before() throws IOException {
+        writer = new IndexWriter(new RAMDirectory(), new IndexWriterConfig(new KeywordAnalyzer()));
+        manager = new SearcherManager(writer, true, null);
+    }
+
+    @After
+    public void after() throws IOException {
+        manager.close();
+        writer.close();
+    }
+
+    private void write(IndexRefresher refresher) throws IOException {
+        Document document = new Document();
+        document.add(new StringField("field", "value", Field.Store.NO));
+        writer.addDocument(document);
+        refresher.changed();
+    }
+
+    private int numDocs() throws IOException {
+        IndexSearcher searcher = manager.acquire();
+        try {
+            return searcher.getIndexReader().numDocs();
+        } finally {
+            manager.release(searcher);
+        }
+    }
+
+    private void awaitDocs(int expected) throws Exception {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (numDocs() != expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, numDocs());
+    }
+
+    @Test
+    public void testSkipWithoutChanges() throws Exception {
+        IndexRefresher refresher = new IndexRefresher("skip", manager, writer, 0.01, 0.05);
+        refresher.start();
+        Thread.sleep(300);
+        refresher.close();
+        assertEquals(0, refresher.getRefreshCount());
+        assertTrue(refresher.getSkippedRefreshCount() > 0);
+    }
+
+    @Test
+    public void testMaxRefresh() throws Exception {
+        IndexRefresher refresher = new IndexRefresher("max", manager, writer, 0.01, 0.1);
+        refresher.start();
+        write(refresher);
+        awaitDocs(1);
+        refresher.close();
+        assertEquals(1, refresher.getRefreshCount());
+        assertEquals(0, refresher.getDemandedRefreshCount());
+        assertTrue(refresher.getMaxRefreshLagMillis() >= 100);
+    }
+
+    @Test
+    public void testDemandedRefresh() throws Exception {
+        IndexRefresher refresher = new IndexRefresher("demand", manager, writer, 0.01, 60);
+        refresher.start();
+        refresher.demand(); // Nothing to refresh
+        write(refresher);
+        Thread.sleep(200);
+        assertEquals(0, numDocs());
+        refresher.demand();
+        awaitDocs(1);
+        refresher.close();
+        assertEquals(1, refresher.getDemandedRefreshCount());
+        assertTrue(refresher.getMeanRefreshLagMillis() < 60000);
+    }
+
+    @Test
+    public void testRefresh() throws Exception {
+        IndexRefresher refresher = new IndexRefresher("refresh", manager, writer, 60, 60);
+        refresher.start();
+        write(refresher);
+        refresher.refresh();
+        assertEquals(1, numDocs());
+        refresher.refresh(); // Nothing to refresh
+        assertEquals(1, refresher.getRefreshCount());
+        refresher.close();
+    }
+}
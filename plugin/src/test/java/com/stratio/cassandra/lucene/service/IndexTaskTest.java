@@ -0,0 +1,109 @@
+/*
+ * Copyright 2015, Stratio.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.stratio.cassandra.lucene.service;
+
+import org.apache.cassandra.config.CFMetaData;
+import org.apache.cassandra.config.ColumnDefinition;
+import org.apache.cassandra.cql3.ColumnIdentifier;
+import org.apache.cassandra.db.ArrayBackedSortedColumns;
+import org.apache.cassandra.db.Cell;
+import org.apache.cassandra.db.ColumnFamily;
+import org.apache.cassandra.db.DeletionTime;
+import org.apache.cassandra.db.composites.CellName;
+import org.apache.cassandra.db.marshal.Int32Type;
+import org.apache.cassandra.utils.ByteBufferUtil;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+/**
+ * @author Andres de la Pena <adelapena@stratio.com>
+ */
+public class IndexTaskTest {
+
+    private static final CFMetaData METADATA = CFMetaData.compile(
+            "CREATE TABLE test (pk int, c int, v int, PRIMARY KEY (pk, c))", "ks");
+    private static final ByteBuffer KEY = ByteBufferUtil.bytes(1);
+
+    private static CellName cellName(int clustering) {
+        ColumnDefinition columnDefinition = METADATA.getColumnDefinition(new ColumnIdentifier("v", false));
+        return METADATA.comparator.create(METADATA.comparator.make(clustering), columnDefinition);
+    }
+
+    private static ColumnFamily mutation(int clustering, int value, long timestamp) {
+        ColumnFamily columnFamily = ArrayBackedSortedColumns.factory.create(METADATA);
+        columnFamily.addColumn(cellName(clustering), Int32Type.instance.decompose(value), timestamp);
+        return columnFamily;
+    }
+
+    private static List<Integer> values(ColumnFamily columnFamily) {
+        List<Integer> values = new ArrayList<>();
+        for (Cell cell : columnFamily) {
+            values.add(Int32Type.instance.compose(cell.value()));
+        }
+        return values;
+    }
+
+    @Test
+    public void testIsMergeable() {
+        assertTrue(IndexTask.isMergeable(mutation(1, 1, 1)));
+        assertFalse(IndexTask.isMergeable(ArrayBackedSortedColumns.factory.create(METADATA)));
+        ColumnFamily deletion = mutation(1, 1, 1);
+        deletion.delete(new DeletionTime(1, 1));
+        assertFalse(IndexTask.isMergeable(deletion));
+    }
+
+    @Test
+    public void testMerge() {
+        ConcurrentMap<ByteBuffer, IndexTask> pendingTasks = new ConcurrentHashMap<>();
+        ColumnFamily first = mutation(1, 10, 1);
+        IndexTask task = new IndexTask(mock(RowService.class), pendingTasks, KEY, first, 100);
+        assertTrue(task.merge(mutation(2, 20, 1), 200));
+        assertTrue(task.merge(mutation(1, 11, 2), 150));
+
+        // The newest cell wins for each row, and the received mutation is not modified
+        List<Integer> expected = new ArrayList<>();
+        expected.add(11);
+        expected.add(20);
+        assertEquals(expected, values(task.getColumnFamily()));
+        assertEquals(1, first.getColumnCount());
+    }
+
+    @Test
+    public void testRun() throws Exception {
+        ConcurrentMap<ByteBuffer, IndexTask> pendingTasks = new ConcurrentHashMap<>();
+        RowService rowService = mock(RowService.class);
+        IndexTask task = new IndexTask(rowService, pendingTasks, KEY, mutation(1, 10, 1), 100);
+        pendingTasks.put(KEY, task);
+        task.merge(mutation(2, 20, 1), 200);
+        task.run();
+        assertTrue(pendingTasks.isEmpty());
+        assertFalse(task.merge(mutation(3, 30, 1), 300));
+        verify(rowService).doIndex(eq(KEY), any(ColumnFamily.class), eq(200L));
+    }
+}
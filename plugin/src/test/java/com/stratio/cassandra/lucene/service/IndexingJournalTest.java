@@ -0,0 +1,200 @@
+/*
+ * Copyright 2015, Stratio.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.stratio.cassandra.lucene.service;
+
+import org.apache.cassandra.utils.ByteBufferUtil;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Andres de la Pena <adelapena@stratio.com>
+ */
+public class IndexingJournalTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static List<ByteBuffer> keys(String... keys) {
+        List<ByteBuffer> result = new ArrayList<>();
+        for (String key : keys) {
+            result.add(ByteBufferUtil.bytes(key));
+        }
+        return result;
+    }
+
+    private static int numSegments(Path path) throws IOException {
+        int numSegments = 0;
+        for (String name : path.toFile().list()) {
+            if (name.startsWith(IndexingJournal.PREFIX)) {
+                numSegments++;
+            }
+        }
+        return numSegments;
+    }
+
+    @Test
+    public void testRecover() throws IOException {
+        Path path = folder.newFolder("recover").toPath();
+        IndexingJournal journal = new IndexingJournal(path);
+        assertTrue(journal.recoveredKeys().isEmpty());
+        for (ByteBuffer key : keys("a", "b", "a", "c")) {
+            journal.sync(journal.append(key));
+        }
+        assertEquals(4, journal.getAppendedCount());
+        journal.close();
+
+        journal = new IndexingJournal(path);
+        assertEquals(keys("a", "b", "c"), new ArrayList<>(journal.recoveredKeys()));
+        journal.close();
+    }
+
+    @Test
+    public void testRollAndTrim() throws IOException {
+        Path path = folder.newFolder("trim").toPath();
+        IndexingJournal journal = new IndexingJournal(path);
+        journal.append(ByteBufferUtil.bytes("a"));
+        long segment = journal.roll();
+        journal.sync(journal.append(ByteBufferUtil.bytes("b")));
+        assertEquals(2, numSegments(path));
+        journal.trim(segment);
+        assertEquals(1, numSegments(path));
+        journal.close();
+
+        journal = new IndexingJournal(path);
+        assertEquals(keys("b"), new ArrayList<>(journal.recoveredKeys()));
+        journal.replayed();
+        journal.trim(journal.roll());
+        assertEquals(1, numSegments(path));
+        assertFalse(journal.recoveredKeys().iterator().hasNext());
+        journal.close();
+    }
+
+    @Test
+    public void testTrimWithoutReplay() throws IOException {
+        Path path = folder.newFolder("trim_without_replay").toPath();
+        IndexingJournal journal = new IndexingJournal(path);
+        journal.sync(journal.append(ByteBufferUtil.bytes("a")));
+        journal.close();
+
+        // A failed replay followed by a commit keeps the recovered segments
+        journal = new IndexingJournal(path);
+        assertEquals(keys("a"), new ArrayList<>(journal.recoveredKeys()));
+        journal.sync(journal.append(ByteBufferUtil.bytes("b")));
+        journal.trim(journal.roll());
+        assertEquals(keys("a"), new ArrayList<>(journal.recoveredKeys()));
+        journal.sync(journal.append(ByteBufferUtil.bytes("c")));
+        journal.close();
+
+        // The next execution recovers them again, and trims them after replaying
+        journal = new IndexingJournal(path);
+        assertEquals(keys("a", "c"), new ArrayList<>(journal.recoveredKeys()));
+        journal.replayed();
+        journal.trim(journal.roll());
+        assertEquals(1, numSegments(path));
+        journal.close();
+
+        journal = new IndexingJournal(path);
+        assertTrue(journal.recoveredKeys().isEmpty());
+        journal.close();
+    }
+
+    @Test
+    public void testTornRecord() throws IOException {
+        Path path = folder.newFolder("torn").toPath();
+        IndexingJournal journal = new IndexingJournal(path);
+        journal.sync(journal.append(ByteBufferUtil.bytes("a")));
+        journal.close();
+        Path segment = path.resolve(IndexingJournal.PREFIX + 0 + IndexingJournal.SUFFIX);
+        Files.write(segment, new byte[]{0, 5, 'b'}, StandardOpenOption.APPEND);
+
+        journal = new IndexingJournal(path);
+        assertEquals(keys("a"), new ArrayList<>(journal.recoveredKeys()));
+        journal.close();
+    }
+
+    @Test
+    public void testCorruptRecord() throws IOException {
+        Path path = folder.newFolder("corrupt").toPath();
+        IndexingJournal journal = new IndexingJournal(path);
+        journal.append(ByteBufferUtil.bytes("a"));
+        journal.append(ByteBufferUtil.bytes("b"));
+        journal.close();
+        Path segment = path.resolve(IndexingJournal.PREFIX + 0 + IndexingJournal.SUFFIX);
+        byte[] bytes = Files.readAllBytes(segment);
+        bytes[bytes.length - 1] ^= 1; // Break the checksum of the last record
+        Files.write(segment, bytes);
+
+        journal = new IndexingJournal(path);
+        assertEquals(keys("a"), new ArrayList<>(journal.recoveredKeys()));
+        journal.close();
+    }
+
+    @Test
+    public void testGroupSync() throws Exception {
+        Path path = folder.newFolder("group").toPath();
+        final IndexingJournal journal = new IndexingJournal(path);
+        long first = journal.append(ByteBufferUtil.bytes("a"));
+        long second = journal.append(ByteBufferUtil.bytes("b"));
+        journal.sync(second);
+        journal.sync(first); // Already synced
+        assertEquals(1, journal.getSyncCount());
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 1000; i++) {
+                final ByteBuffer key = ByteBufferUtil.bytes(i);
+                futures.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        journal.sync(journal.append(key));
+                        return null;
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(1002, journal.getAppendedCount());
+        assertTrue(journal.getSyncCount() <= 1001);
+        journal.close();
+
+        IndexingJournal recovered = new IndexingJournal(path);
+        assertEquals(1002, recovered.recoveredKeys().size());
+        assertTrue(recovered.recoveredKeys().contains(ByteBufferUtil.bytes(999)));
+        recovered.close();
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2015, Stratio.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.stratio.cassandra.lucene.service;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author Andres de la Pena <adelapena@stratio.com>
+ */
+public class IndexingStatsTest {
+
+    @Test
+    public void testRecordMutation() {
+        IndexingStats stats = new IndexingStats("ks", "cf", "record_mutation", null, null);
+        stats.recordMutation(false);
+        stats.recordMutation(true);
+        stats.recordMutation(false);
+        assertEquals(3, stats.getMutationCount());
+        assertEquals(1, stats.getSkippedCount());
+        stats.recordCoalesced();
+        assertEquals(1, stats.getCoalescedCount());
+        stats.close();
+    }
+
+    @Test
+    public void testRecordCommit() {
+        IndexingStats stats = new IndexingStats("ks", "cf", "record_commit", null, null);
+        assertEquals(0, stats.getMeanCommitStallMicros(), 0);
+        stats.recordCommit(1000, 10000);
+        stats.recordCommit(5000, 30000);
+        assertEquals(2, stats.getCommitCount());
+        assertEquals(3, stats.getMeanCommitStallMicros(), 0);
+        assertEquals(5, stats.getMaxCommitStallMicros());
+        assertEquals(20, stats.getMeanCommitMicros(), 0);
+        stats.close();
+    }
+
+    @Test
+    public void testRecordReplayed() {
+        IndexingStats stats = new IndexingStats("ks", "cf", "record_replayed", null, null);
+        stats.recordReplayed(3);
+        stats.recordReplayed(2);
+        assertEquals(5, stats.getReplayedCount());
+        assertEquals(0, stats.getJournaledCount());
+        stats.close();
+    }
+
+    @Test
+    public void testCommitLatency() {
+        IndexingStats stats = new IndexingStats("ks", "cf", "commit_latency", null, null);
+        assertEquals(0, stats.getCommitLatencyMedianMicros());
+        assertEquals(0, stats.getMaxCommitLatencyMicros());
+        for (int i = 1; i <= 100; i++) {
+            stats.recordCommit(0, i * 1000000L);
+        }
+        stats.recordSkippedFlush();
+        assertEquals(50000, stats.getCommitLatencyMedianMicros(), 10000);
+        assertEquals(95000, stats.getCommitLatency95thMicros(), 19000);
+        assertEquals(100000, stats.getMaxCommitLatencyMicros(), 20000);
+        assertEquals(1, stats.getSkippedFlushCount());
+        stats.close();
+    }
+}
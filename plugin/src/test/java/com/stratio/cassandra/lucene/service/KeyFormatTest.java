@@ -0,0 +1,157 @@
+/*
+ * Copyright 2015, Stratio.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.stratio.cassandra.lucene.service;
+
+import org.apache.lucene.analysis.core.KeywordAnalyzer;
+import org.apache.lucene.document.BinaryDocValuesField;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.index.BinaryDocValues;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.apache.lucene.util.BytesRef;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Andres de la Pena <adelapena@stratio.com>
+ */
+public class KeyFormatTest {
+
+    private static final byte[] KEY = new byte[]{0, 1, 127, -128, -1};
+
+    @Test
+    public void testFromVersion() {
+        assertEquals(KeyFormat.STRING, KeyFormat.fromVersion(1));
+        assertEquals(KeyFormat.BINARY, KeyFormat.fromVersion(2));
+        assertEquals(KeyFormat.BINARY, KeyFormat.CURRENT);
+    }
+
+    @Test
+    public void testLegacy() {
+        assertTrue(KeyFormat.STRING.isLegacy());
+        assertFalse(KeyFormat.BINARY.isLegacy());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFromVersionUnsupported() {
+        KeyFormat.fromVersion(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFromVersionUnreleased() {
+        KeyFormat.fromVersion(3);
+    }
+
+    @Test
+    public void testBinaryBytesRef() {
+        BytesRef bytesRef = KeyFormat.BINARY.bytesRef(ByteBuffer.wrap(KEY));
+        assertEquals(new BytesRef(KEY), bytesRef);
+        assertEquals(ByteBuffer.wrap(KEY), KeyFormat.BINARY.byteBuffer(bytesRef));
+    }
+
+    @Test
+    public void testBinaryBytesRefSlice() {
+        ByteBuffer slice = ByteBuffer.wrap(new byte[]{9, 0, 1, 127, -128, -1, 9}, 1, KEY.length).slice();
+        BytesRef bytesRef = KeyFormat.BINARY.bytesRef(slice);
+        assertEquals(new BytesRef(KEY), bytesRef);
+        assertEquals(ByteBuffer.wrap(KEY), KeyFormat.BINARY.byteBuffer(bytesRef));
+    }
+
+    @Test
+    public void testBinaryIsShorter() {
+        ByteBuffer key = ByteBuffer.wrap(KEY);
+        assertEquals(KEY.length, KeyFormat.BINARY.bytesRef(key).length);
+        assertEquals(KEY.length + 2, KeyFormat.STRING.bytesRef(key).length);
+    }
+
+    @Test
+    public void testStringIndexing() throws IOException {
+        testIndexing(KeyFormat.STRING);
+    }
+
+    @Test
+    public void testBinaryIndexing() throws IOException {
+        testIndexing(KeyFormat.BINARY);
+    }
+
+    @Test
+    public void testDocValues() throws IOException {
+        Directory directory = new RAMDirectory();
+        IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig(new KeywordAnalyzer()));
+        byte[][] keys = new byte[][]{KEY, new byte[]{1, 2, 3}, new byte[0]};
+        for (byte[] key : keys) {
+            Document document = new Document();
+            document.add(new BinaryDocValuesField("key", KeyFormat.BINARY.bytesRef(ByteBuffer.wrap(key))));
+            writer.addDocument(document);
+        }
+        writer.close();
+
+        DirectoryReader reader = DirectoryReader.open(directory);
+        BinaryDocValues docValues = DocValues.getBinary(reader.leaves().get(0).reader(), "key");
+        List<ByteBuffer> values = new ArrayList<>();
+        for (int docId = 0; docId < keys.length; docId++) {
+            values.add(KeyFormat.BINARY.byteBuffer(docValues, docId));
+        }
+        for (int docId = 0; docId < keys.length; docId++) {
+            assertEquals(ByteBuffer.wrap(keys[docId]), values.get(docId));
+        }
+
+        reader.close();
+        directory.close();
+    }
+
+    private static void testIndexing(KeyFormat keyFormat) throws IOException {
+        Directory directory = new RAMDirectory();
+        IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig(new KeywordAnalyzer()));
+        for (byte[] key : new byte[][]{KEY, new byte[]{1, 2, 3}}) {
+            Document document = new Document();
+            document.add(keyFormat.field("key", ByteBuffer.wrap(key), Field.Store.YES));
+            writer.addDocument(document);
+        }
+        writer.commit();
+
+        DirectoryReader reader = DirectoryReader.open(directory);
+        IndexSearcher searcher = new IndexSearcher(reader);
+        TopDocs topDocs = searcher.search(new TermQuery(keyFormat.term("key", ByteBuffer.wrap(KEY))), 10);
+        assertEquals(1, topDocs.totalHits);
+        Document document = searcher.doc(topDocs.scoreDocs[0].doc);
+        ByteBuffer key = keyFormat.byteBuffer(document, "key");
+        byte[] bytes = new byte[key.remaining()];
+        key.get(bytes);
+        assertArrayEquals(KEY, bytes);
+
+        reader.close();
+        writer.close();
+        directory.close();
+    }
+}
@@ -17,18 +17,26 @@ package com.stratio.cassandra.lucene.service;
 
 import com.google.common.collect.Sets;
 import com.stratio.cassandra.lucene.IndexConfig;
+import com.stratio.cassandra.lucene.IndexConfig.DirectoryType;
+import org.apache.cassandra.config.CFMetaData;
 import org.apache.lucene.analysis.standard.StandardAnalyzer;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
 import org.apache.lucene.document.SortedDocValuesField;
 import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.SortingMergePolicy;
 import org.apache.lucene.index.Term;
+import org.apache.lucene.index.TieredMergePolicy;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.ScoreDoc;
 import org.apache.lucene.search.Sort;
 import org.apache.lucene.search.SortField;
 import org.apache.lucene.search.TermQuery;
 import org.apache.lucene.search.WildcardQuery;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
 import org.apache.lucene.util.BytesRef;
 import org.junit.Rule;
 import org.junit.Test;
@@ -37,11 +45,13 @@ import org.junit.rules.TemporaryFolder;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 
 import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
 
 /**
  * @author Andres de la Pena <adelapena@stratio.com>
@@ -55,19 +65,35 @@ public class LuceneIndexTest {
     @Rule
     public TemporaryFolder folder = new TemporaryFolder();
 
+    /**
+     * Returns a new {@link LuceneIndex} stored in the specified path, refreshed each {@link #REFRESH_SECONDS} and
+     * configured with the specified {@link IndexConfig} option names and values.
+     *
+     * @param name      The index name.
+     * @param path      The index directory.
+     * @param keyFormat The {@link KeyFormat} of new indexes.
+     * @param options   The index option names followed by their values.
+     * @return A new {@link LuceneIndex}.
+     */
+    static LuceneIndex index(String name, Path path, KeyFormat keyFormat, String... options) {
+        CFMetaData metadata = CFMetaData.compile("CREATE TABLE test (pk int PRIMARY KEY, field text)", "ks");
+        Map<String, String> indexOptions = new HashMap<>();
+        indexOptions.put(IndexConfig.SCHEMA_OPTION, "{fields : {field : {type : \"string\"}}}");
+        indexOptions.put(IndexConfig.DIRECTORY_PATH_OPTION, path.toString());
+        indexOptions.put(IndexConfig.REFRESH_SECONDS_OPTION, REFRESH_SECONDS.toString());
+        indexOptions.put(IndexConfig.MIN_REFRESH_SECONDS_OPTION, REFRESH_SECONDS.toString());
+        for (int i = 0; i < options.length; i += 2) {
+            indexOptions.put(options[i], options[i + 1]);
+        }
+        IndexConfig config = new IndexConfig(metadata, indexOptions);
+        return new LuceneIndex("ks", "cf", name, path, config, keyFormat, new StandardAnalyzer());
+    }
+
     @Test
     public void testCRUD() throws IOException, InterruptedException {
 
         Path path = Paths.get(folder.newFolder("directory" + UUID.randomUUID()).getPath());
-        LuceneIndex index = new LuceneIndex("ks",
-                                            "cf",
-                                            "idx",
-                                            path,
-                                            REFRESH_SECONDS,
-                                            IndexConfig.DEFAULT_RAM_BUFFER_MB,
-                                            IndexConfig.DEFAULT_MAX_MERGE_MB,
-                                            IndexConfig.DEFAULT_MAX_CACHED_MB,
-                                            new StandardAnalyzer());
+        LuceneIndex index = index("idx", path, KeyFormat.CURRENT);
         Sort sort = new Sort(new SortField("field", SortField.Type.STRING));
         index.init(sort);
         assertEquals(0, index.getNumDocs());
@@ -146,4 +172,126 @@ public class LuceneIndexTest {
         // Cleanup
         folder.delete();
     }
+
+    @Test
+    public void testSession() throws IOException, InterruptedException {
+
+        Path path = Paths.get(folder.newFolder("directory" + UUID.randomUUID()).getPath());
+        LuceneIndex index = index("session", path, KeyFormat.CURRENT);
+        Sort sort = new Sort(new SortField("field", SortField.Type.STRING));
+        index.init(sort);
+
+        for (String value : new String[]{"value1", "value2"}) {
+            Document document = new Document();
+            document.add(new StringField("field", value, Field.Store.YES));
+            document.add(new SortedDocValuesField("field", new BytesRef(value)));
+            index.upsert(new Term("field", value), document);
+        }
+        index.commit();
+        Thread.sleep(WAIT_MILLISECONDS);
+
+        Query query = new WildcardQuery(new Term("field", "value*"));
+        Set<String> fields = Sets.newHashSet("field");
+        try (SearchSession session = index.session(query, null, false)) {
+
+            // Writes after the session start are not visible to the session
+            Document document = new Document();
+            document.add(new StringField("field", "value3", Field.Store.YES));
+            document.add(new SortedDocValuesField("field", new BytesRef("value3")));
+            index.upsert(new Term("field", "value3"), document);
+            index.commit();
+            Thread.sleep(WAIT_MILLISECONDS);
+
+            Map<Document, ScoreDoc> results = session.search(null, 1, fields);
+            assertEquals(1, results.size());
+            assertEquals("value1", results.keySet().iterator().next().get("field"));
+            ScoreDoc last = results.values().iterator().next();
+            results = session.search(last, 1, fields);
+            assertEquals(1, results.size());
+            assertEquals("value2", results.keySet().iterator().next().get("field"));
+            last = results.values().iterator().next();
+            results = session.search(last, 1, fields);
+            assertEquals(0, results.size());
+        }
+
+        // New sessions see the new writes
+        try (SearchSession session = index.session(query, null, false)) {
+            assertEquals(3, session.search(null, 10, fields).size());
+        }
+
+        index.delete();
+    }
+
+    @Test
+    public void testKeyFormat() throws IOException {
+
+        Path path = Paths.get(folder.newFolder("directory" + UUID.randomUUID()).getPath());
+        assertEquals(KeyFormat.CURRENT, LuceneIndex.keyFormat(path));
+
+        LuceneIndex index = index("key_format", path, KeyFormat.STRING);
+        index.init(new Sort(new SortField("field", SortField.Type.STRING)));
+        index.commit();
+        index.close();
+
+        // Existing indexes keep their format
+        assertEquals(KeyFormat.STRING, LuceneIndex.keyFormat(path));
+    }
+
+    @Test
+    public void testDirectoryTypes() throws IOException {
+        for (DirectoryType directoryType : DirectoryType.values()) {
+            Path path = Paths.get(folder.newFolder("directory" + UUID.randomUUID()).getPath());
+            LuceneIndex index = index("idx_" + directoryType.name().toLowerCase(),
+                                      path,
+                                      KeyFormat.CURRENT,
+                                      IndexConfig.DIRECTORY_TYPE_OPTION, directoryType.name(),
+                                      IndexConfig.NRT_CACHING_OPTION, "false",
+                                      IndexConfig.MMAP_CHUNK_MB_OPTION, "1");
+            index.init(new Sort(new SortField("field", SortField.Type.STRING)));
+            Document document = new Document();
+            document.add(new StringField("field", "value", Field.Store.NO));
+            document.add(new SortedDocValuesField("field", new BytesRef("value")));
+            index.upsert(new Term("field", "value"), document);
+            index.commit();
+            index.refresh();
+            assertEquals(1, index.getNumDocs());
+            assertTrue(index.getDiskMB() > 0);
+            assertEquals(0D, index.getNRTCachedMB());
+            assertTrue(index.getReaderHeapMB() > 0);
+            assertTrue(index.getResidentMB() >= index.getReaderHeapMB());
+            index.delete();
+        }
+    }
+
+    @Test
+    public void testRebuildWriter() throws IOException {
+        Path path = Paths.get(folder.newFolder("directory" + UUID.randomUUID()).getPath());
+        LuceneIndex index = index("rebuild", path, KeyFormat.CURRENT);
+        Sort sort = new Sort(new SortField("field", SortField.Type.STRING));
+        index.init(sort);
+
+        // Build a part of the index apart, in a single flushed segment
+        Path rangePath = Paths.get(folder.newFolder("range" + UUID.randomUUID()).getPath());
+        try (Directory directory = FSDirectory.open(rangePath)) {
+            try (IndexWriter writer = index.rebuildWriter(directory, IndexConfig.DEFAULT_RAM_BUFFER_MB)) {
+                for (String value : new String[]{"c", "a", "b"}) {
+                    Document document = new Document();
+                    document.add(new StringField("field", value, Field.Store.NO));
+                    document.add(new SortedDocValuesField("field", new BytesRef(value)));
+                    writer.addDocument(document);
+                }
+                writer.forceMerge(1);
+            }
+            try (DirectoryReader reader = DirectoryReader.open(directory)) {
+                assertEquals(1, reader.leaves().size());
+                SortingMergePolicy mergePolicy = new SortingMergePolicy(new TieredMergePolicy(), sort);
+                assertTrue(mergePolicy.isSorted(reader.leaves().get(0).reader()));
+            }
+            index.addIndexes(directory);
+        }
+        index.commit();
+        index.refresh();
+        assertEquals(3, index.getNumDocs());
+        index.delete();
+    }
 }
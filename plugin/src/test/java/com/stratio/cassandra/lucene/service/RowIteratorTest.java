@@ -0,0 +1,228 @@
+/*
+ * Copyright 2015, Stratio.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.stratio.cassandra.lucene.service;
+
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import org.apache.cassandra.cql3.Operator;
+import org.apache.cassandra.db.IndexExpression;
+import org.apache.cassandra.db.Row;
+import org.apache.cassandra.utils.ByteBufferUtil;
+import org.apache.lucene.search.ScoreDoc;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author Andres de la Pena <adelapena@stratio.com>
+ */
+public class RowIteratorTest {
+
+    private static final List<IndexExpression> EXPRESSIONS = Collections.emptyList();
+    private static final Row ROW = mock(Row.class);
+    private static final List<IndexExpression> FILTERS = Collections.singletonList(
+            new IndexExpression(ByteBufferUtil.bytes("c"), Operator.EQ, ByteBufferUtil.bytes("v")));
+
+    /**
+     * Returns a mocked {@link SearchSession} with the specified number of hits, recording the requested page sizes.
+     */
+    private static SearchSession session(final int numHits, final List<Integer> pageSizes) throws IOException {
+        SearchSession session = mock(SearchSession.class);
+        when(session.search(any(ScoreDoc.class), anyInt(), any(RowMapper.class))).then(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                ScoreDoc after = (ScoreDoc) invocation.getArguments()[0];
+                int count = (Integer) invocation.getArguments()[1];
+                synchronized (pageSizes) {
+                    pageSizes.add(count);
+                }
+                int start = after == null ? 0 : after.doc + 1;
+                List<SearchResult> results = new ArrayList<>();
+                for (int doc = start; doc < Math.min(numHits, start + count); doc++) {
+                    results.add(new SearchResult(null, null, new ScoreDoc(doc, 1)));
+                }
+                return results;
+            }
+        });
+        return session;
+    }
+
+    /**
+     * Returns a mocked {@link RowService} accepting one of each {@code acceptEach} rows.
+     */
+    @SuppressWarnings("unchecked")
+    private static RowService rowService(final int acceptEach) {
+        RowService rowService = mock(RowService.class);
+        when(rowService.rows(anyListOf(SearchResult.class), anyLong(), anyBoolean())).then(new Answer<List<Row>>() {
+            @Override
+            public List<Row> answer(InvocationOnMock invocation) throws Throwable {
+                List<Row> rows = new ArrayList<>();
+                int numResults = ((List<SearchResult>) invocation.getArguments()[0]).size();
+                for (int i = 0; i < numResults; i++) {
+                    rows.add(ROW);
+                }
+                return rows;
+            }
+        });
+        when(rowService.accepted(any(Row.class), anyListOf(IndexExpression.class))).then(new Answer<Boolean>() {
+            private int count = 0;
+
+            @Override
+            public Boolean answer(InvocationOnMock invocation) throws Throwable {
+                return count++ % acceptEach == 0;
+            }
+        });
+        return rowService;
+    }
+
+    private static int drain(RowIterator iterator) throws IOException {
+        int numRows = 0;
+        while (iterator.hasNext()) {
+            iterator.next();
+            numRows++;
+        }
+        iterator.close();
+        return numRows;
+    }
+
+    @Test
+    public void testLimit() throws IOException {
+        List<Integer> pageSizes = new ArrayList<>();
+        SearchSession session = session(1000, pageSizes);
+        RowIterator iterator = new RowIterator(rowService(1), session, EXPRESSIONS, 10, 0, false);
+        assertEquals(10, drain(iterator));
+        assertEquals(1, iterator.getNumPages());
+        assertEquals(Collections.singletonList(10), pageSizes);
+        verify(session, times(1)).close();
+    }
+
+    @Test
+    public void testExhausted() throws IOException {
+        List<Integer> pageSizes = new ArrayList<>();
+        RowIterator iterator = new RowIterator(rowService(1), session(5, pageSizes), EXPRESSIONS, 10, 0, false);
+        assertEquals(5, drain(iterator));
+        assertEquals(Collections.singletonList(10), pageSizes);
+    }
+
+    @Test
+    public void testFiltering() throws IOException {
+        List<Integer> pageSizes = new ArrayList<>();
+        RowIterator iterator = new RowIterator(rowService(3), session(10000, pageSizes), EXPRESSIONS, 2000, 0, false);
+        assertEquals(2000, drain(iterator));
+        assertEquals(6797, iterator.getNumDocs());
+        assertEquals(1D / 3, iterator.getSurvivalRate(), 0.01);
+        List<Integer> expected = new ArrayList<>();
+        expected.add(2000); // The limit
+        expected.add(4797); // The remaining rows divided by the survival rate, plus the margin
+        assertEquals(expected, pageSizes);
+    }
+
+    @Test
+    public void testExpectedSurvival() throws IOException {
+        List<Integer> pageSizes = new ArrayList<>();
+        RowIterator iterator = new RowIterator(rowService(2), session(10000, pageSizes), FILTERS, 100, 0, false,
+                                               0.5, null, 0);
+        assertEquals(100, drain(iterator));
+        assertEquals(1, iterator.getNumPages());
+        assertEquals(Collections.singletonList(240), pageSizes);
+        assertEquals(0.5, iterator.getSurvivalRate(), 0.01);
+    }
+
+    @Test
+    public void testMaxPageSize() throws IOException {
+        List<Integer> pageSizes = new ArrayList<>();
+        RowIterator iterator = new RowIterator(rowService(3), session(1000000, pageSizes), FILTERS, 50000, 0, false,
+                                               1, null, 0);
+        assertEquals(50000, drain(iterator));
+        List<Integer> expected = new ArrayList<>();
+        expected.add(50000);
+        expected.add(RowIterator.MAX_PAGE_SIZE);
+        assertEquals(expected, pageSizes);
+    }
+
+    @Test
+    public void testEmpty() throws IOException {
+        List<Integer> pageSizes = new ArrayList<>();
+        RowIterator iterator = new RowIterator(rowService(1), session(0, pageSizes), EXPRESSIONS, 10, 0, false);
+        assertFalse(iterator.hasNext());
+        assertEquals(Collections.singletonList(10), pageSizes);
+    }
+
+    @Test
+    public void testPrefetch() throws IOException {
+        ListeningExecutorService executor = MoreExecutors.listeningDecorator(Executors.newFixedThreadPool(2));
+        try {
+            List<Integer> pageSizes = new ArrayList<>();
+            SearchSession session = session(1000000, pageSizes);
+            RowIterator iterator = new RowIterator(rowService(3), session, FILTERS, 50000, 0, false, 1, executor, 2);
+            assertEquals(50000, drain(iterator));
+            assertEquals(2, iterator.getNumPages());
+            assertEquals(50000, (int) pageSizes.get(0));
+            assertEquals(RowIterator.MAX_PAGE_SIZE, (int) pageSizes.get(1));
+            assertTrue(pageSizes.size() <= 3); // The third page, if any, is prefetched but not used
+            verify(session, times(1)).close();
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testPrefetchExhausted() throws IOException {
+        ListeningExecutorService executor = MoreExecutors.listeningDecorator(Executors.newFixedThreadPool(2));
+        try {
+            List<Integer> pageSizes = new ArrayList<>();
+            RowIterator iterator = new RowIterator(rowService(2), session(2500, pageSizes), FILTERS, 2000, 0, false,
+                                                   1, executor, 3);
+            assertEquals(1250, drain(iterator));
+            assertEquals(2500, iterator.getNumDocs());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testPrefetchUnfiltered() throws IOException {
+        ListeningExecutorService executor = MoreExecutors.listeningDecorator(Executors.newFixedThreadPool(2));
+        try {
+            List<Integer> pageSizes = new ArrayList<>();
+            RowIterator iterator = new RowIterator(rowService(1), session(1000, pageSizes), EXPRESSIONS, 10, 0, false,
+                                                   1, executor, 2);
+            assertEquals(10, drain(iterator));
+            assertEquals(Collections.singletonList(10), pageSizes);
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
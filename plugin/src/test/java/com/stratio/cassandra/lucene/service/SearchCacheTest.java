@@ -0,0 +1,92 @@
+/*
+ * Copyright 2015, Stratio.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.stratio.cassandra.lucene.service;
+
+import com.stratio.cassandra.lucene.schema.Schema;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Andres de la Pena <adelapena@stratio.com>
+ */
+public class SearchCacheTest {
+
+    private static final String JSON = "{query:{type:\"match\",field:\"field\",value:\"value\"}," +
+                                       "sort:{fields:[{field:\"field\"}]}}";
+
+    private static Schema schema() throws IOException {
+        return Schema.fromJson("{fields:{field:{type:\"string\"}}}");
+    }
+
+    @Test
+    public void testGet() throws IOException {
+        SearchCache cache = new SearchCache("ks", "cf", "get", schema(), 1);
+        SearchCache.Entry entry1 = cache.get(JSON);
+        SearchCache.Entry entry2 = cache.get(JSON);
+        assertSame(entry1, entry2);
+        assertTrue(entry1.getSearch().usesRelevance());
+        assertNotNull(entry1.getSort());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getSize());
+        cache.clear();
+        assertEquals(0, cache.getSize());
+        cache.close();
+    }
+
+    @Test
+    public void testGetWithoutCaching() throws IOException {
+        SearchCache cache = new SearchCache("ks", "cf", "without_caching", schema(), 0);
+        assertNotSame(cache.get(JSON), cache.get(JSON));
+        assertEquals(0, cache.getHitCount());
+        assertEquals(0, cache.getSize());
+        cache.close();
+    }
+
+    @Test
+    public void testGetInvalid() throws IOException {
+        SearchCache cache = new SearchCache("ks", "cf", "invalid", schema(), 1);
+        try {
+            cache.get("{query:{type:\"match\",field:\"unmapped\",value:\"value\"}}");
+            fail("Searches with unmapped fields should be rejected");
+        } catch (IllegalArgumentException e) {
+            assertEquals(0, cache.getSize());
+        } finally {
+            cache.close();
+        }
+    }
+
+    @Test
+    public void testQuery() throws IOException {
+        SearchCache cache = new SearchCache("ks", "cf", "query", schema(), 1);
+        SearchCache.Entry entry = cache.get("{}");
+        assertNull(entry.getSort());
+        assertEquals(MatchAllDocsQuery.class, entry.query(null).getClass());
+        Query rangeQuery = new TermQuery(new Term("field", "value"));
+        Query query = entry.query(rangeQuery);
+        assertEquals(BooleanQuery.class, query.getClass());
+        assertEquals(2, ((BooleanQuery) query).clauses().size());
+        cache.close();
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2015, Stratio.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.stratio.cassandra.lucene.service;
+
+import com.google.common.util.concurrent.ListeningExecutorService;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+
+/**
+ * @author Andres de la Pena <adelapena@stratio.com>
+ */
+public class SearchExecutorTest {
+
+    @Test
+    public void testInstance() throws ExecutionException, InterruptedException {
+        ListeningExecutorService executor = SearchExecutor.instance();
+        assertSame(executor, SearchExecutor.instance());
+        String threadName = executor.submit(new Callable<String>() {
+            @Override
+            public String call() {
+                return Thread.currentThread().getName();
+            }
+        }).get();
+        assertEquals("lucene-search:", threadName.substring(0, threadName.indexOf(':') + 1));
+        assertFalse(executor.isShutdown());
+    }
+
+    private static Callable<Integer> task(final int value) {
+        return new Callable<Integer>() {
+            @Override
+            public Integer call() {
+                return value;
+            }
+        };
+    }
+
+    @Test
+    public void testInvokeAll() throws IOException {
+        assertEquals(Arrays.asList(0, 1, 2), SearchExecutor.invokeAll(SearchExecutor.instance(),
+                                                                      Arrays.asList(task(0), task(1), task(2))));
+        assertEquals(Collections.emptyList(),
+                     SearchExecutor.invokeAll(SearchExecutor.instance(), new ArrayList<Callable<Integer>>()));
+    }
+
+    @Test
+    public void testInvokeAllNested() throws IOException {
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        List<Callable<Integer>> tasks = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            tasks.add(new Callable<Integer>() {
+                @Override
+                public Integer call() throws IOException {
+                    int sum = 0;
+                    for (int value : SearchExecutor.invokeAll(executor, Arrays.asList(task(1), task(2), task(3)))) {
+                        sum += value;
+                    }
+                    return sum;
+                }
+            });
+        }
+        assertEquals(Collections.nCopies(8, 6), SearchExecutor.invokeAll(executor, tasks));
+        executor.shutdown();
+    }
+
+    @Test(expected = IOException.class)
+    public void testInvokeAllFailure() throws IOException {
+        Callable<Integer> failure = new Callable<Integer>() {
+            @Override
+            public Integer call() throws IOException {
+                throw new IOException("Expected");
+            }
+        };
+        SearchExecutor.invokeAll(SearchExecutor.instance(), Arrays.asList(task(0), failure, task(2)));
+    }
+}
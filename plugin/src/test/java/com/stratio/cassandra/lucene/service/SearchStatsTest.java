@@ -0,0 +1,83 @@
+/*
+ * Copyright 2015, Stratio.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.stratio.cassandra.lucene.service;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * @author Andres de la Pena <adelapena@stratio.com>
+ */
+public class SearchStatsTest {
+
+    private static RowIterator iterator(int pages, int docs, int rows, double survival) {
+        RowIterator iterator = mock(RowIterator.class);
+        when(iterator.getNumPages()).thenReturn(pages);
+        when(iterator.getNumDocs()).thenReturn(docs);
+        when(iterator.getNumRows()).thenReturn(rows);
+        when(iterator.getSurvivalRate()).thenReturn(survival);
+        return iterator;
+    }
+
+    @Test
+    public void testRecord() {
+        SearchStats stats = new SearchStats("ks", "cf", "record");
+        assertEquals(0, stats.getMeanPageCount(), 0);
+        stats.record(iterator(1, 100, 100, 1), false);
+        stats.record(iterator(3, 1000, 100, 0.1), true);
+        assertEquals(2, stats.getSearchCount());
+        assertEquals(4, stats.getPageCount());
+        assertEquals(1100, stats.getHitCount());
+        assertEquals(200, stats.getRowCount());
+        assertEquals(2, stats.getMeanPageCount(), 0);
+        stats.close();
+    }
+
+    @Test
+    public void testExpectedSurvival() {
+        SearchStats stats = new SearchStats("ks", "cf", "expected_survival");
+        assertEquals(1, stats.expectedSurvival(true), 0);
+        for (int i = 0; i < 100; i++) {
+            stats.record(iterator(1, 100, 10, 0.1), true);
+            stats.record(iterator(1, 100, 100, 1), false);
+        }
+        assertEquals(0.1, stats.expectedSurvival(true), 0.001);
+        assertEquals(1, stats.expectedSurvival(false), 0);
+        stats.record(iterator(1, 0, 0, Double.NaN), true);
+        assertEquals(0.1, stats.getFilteredSurvivalRate(), 0.001);
+        for (int i = 0; i < 100; i++) {
+            stats.record(iterator(1, 1000, 0, 0), true);
+        }
+        assertEquals(SearchStats.MIN_SURVIVAL, stats.expectedSurvival(true), 0);
+        stats.close();
+    }
+
+    @Test
+    public void testRecordRead() {
+        SearchStats stats = new SearchStats("ks", "cf", "record_read");
+        assertEquals(0, stats.getMeanReadMicros(), 0);
+        stats.recordRead(1000);
+        stats.recordRead(5000);
+        stats.recordRead(3000);
+        assertEquals(3, stats.getReadCount());
+        assertEquals(3, stats.getMeanReadMicros(), 0);
+        assertEquals(5, stats.getMaxReadMicros());
+        stats.close();
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2015, Stratio.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.stratio.cassandra.lucene.service;
+
+import org.apache.lucene.analysis.core.KeywordAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.SortedDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.SearcherFactory;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.RAMDirectory;
+import org.apache.lucene.util.BytesRef;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Andres de la Pena <adelapena@stratio.com>
+ */
+public class SearcherWarmerTest {
+
+    private static final Sort SORT = new Sort(new SortField("sorted", SortField.Type.STRING),
+                                              new SortField("numeric", SortField.Type.LONG));
+
+    private IndexWriter writer;
+    private SearcherManager manager;
+    private SearcherWarmer warmer;
+
+    @Before
+    public void before() throws IOException {
+        warmer = new SearcherWarmer(SORT, 2);
+        IndexWriterConfig config = new IndexWriterConfig(new KeywordAnalyzer());
+        config.setMergedSegmentWarmer(warmer);
+        writer = new IndexWriter(new RAMDirectory(), config);
+        manager = new SearcherManager(writer, true, new SearcherFactory() {
+            @Override
+            public IndexSearcher newSearcher(IndexReader reader) throws IOException {
+                IndexSearcher searcher = new IndexSearcher(reader);
+                warmer.warm(searcher);
+                return searcher;
+            }
+        });
+    }
+
+    @After
+    public void after() throws IOException {
+        manager.close();
+        writer.close();
+    }
+
+    private void write(String value) throws IOException {
+        Document document = new Document();
+        document.add(new StringField("field", value, Field.Store.NO));
+        document.add(new SortedDocValuesField("sorted", new BytesRef(value)));
+        document.add(new NumericDocValuesField("numeric", value.length()));
+        writer.addDocument(document);
+        writer.commit(); // Flush a new segment
+    }
+
+    @Test
+    public void testWarmNewSegments() throws IOException {
+        assertEquals(1, warmer.getWarmingCount());
+        assertEquals(0, warmer.getWarmedSegmentCount());
+        write("a");
+        write("b");
+        manager.maybeRefreshBlocking();
+        assertEquals(2, warmer.getWarmingCount());
+        assertEquals(2, warmer.getWarmedSegmentCount());
+        write("c");
+        manager.maybeRefreshBlocking();
+        assertEquals(3, warmer.getWarmingCount());
+        assertEquals(3, warmer.getWarmedSegmentCount());
+        assertTrue(warmer.getMaxWarmingMillis() >= 0);
+        assertTrue(warmer.getMeanWarmingMillis() >= 0);
+    }
+
+    @Test
+    public void testWarmMergedSegments() throws IOException {
+        write("a");
+        write("b");
+        writer.forceMerge(1); // Flushed segments are merged before being published
+        assertEquals(1, warmer.getWarmedSegmentCount());
+        manager.maybeRefreshBlocking();
+        assertEquals(2, warmer.getWarmingCount());
+        assertEquals(1, warmer.getWarmedSegmentCount());
+    }
+
+    @Test
+    public void testReplayRecentQueries() throws IOException {
+        warmer.record(new MatchAllDocsQuery(), SORT);
+        warmer.record(new TermQuery(new Term("field", "a")), null);
+        warmer.record(new TermQuery(new Term("field", "b")), null); // Replaces the first one
+        write("a");
+        manager.maybeRefreshBlocking();
+        assertEquals(2, warmer.getReplayedQueryCount());
+        write("b");
+        manager.maybeRefreshBlocking();
+        assertEquals(4, warmer.getReplayedQueryCount());
+    }
+
+    @Test
+    public void testNoReplay() throws IOException {
+        SearcherWarmer warmer = new SearcherWarmer(SORT, 0);
+        warmer.record(new MatchAllDocsQuery(), SORT);
+        write("a");
+        try (IndexReader reader = DirectoryReader.open(writer, true)) {
+            warmer.warm(new IndexSearcher(reader));
+        }
+        assertEquals(0, warmer.getReplayedQueryCount());
+        assertEquals(1, warmer.getWarmedSegmentCount());
+    }
+}
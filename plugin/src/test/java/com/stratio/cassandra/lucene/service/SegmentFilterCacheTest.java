@@ -0,0 +1,88 @@
+/*
+ * Copyright 2015, Stratio.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.stratio.cassandra.lucene.service;
+
+import org.apache.lucene.analysis.core.KeywordAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.ConstantScoreQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.QueryCachingPolicy;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TotalHitCountCollector;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Andres de la Pena <adelapena@stratio.com>
+ */
+public class SegmentFilterCacheTest {
+
+    private static int count(IndexSearcher searcher, Query query) throws IOException {
+        TotalHitCountCollector collector = new TotalHitCountCollector();
+        searcher.search(query, collector);
+        return collector.getTotalHits();
+    }
+
+    @Test
+    public void testCache() throws IOException {
+
+        Directory directory = new RAMDirectory();
+        IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig(new KeywordAnalyzer()));
+        for (int i = 0; i < 10; i++) {
+            Document document = new Document();
+            document.add(new StringField("field", i % 2 == 0 ? "even" : "odd", Field.Store.NO));
+            writer.addDocument(document);
+        }
+        writer.commit();
+
+        SegmentFilterCache cache = new SegmentFilterCache("ks", "cf", "cache", 1);
+        DirectoryReader reader = DirectoryReader.open(directory);
+        IndexSearcher searcher = new IndexSearcher(reader);
+        searcher.setQueryCache(cache);
+        searcher.setQueryCachingPolicy(QueryCachingPolicy.ALWAYS_CACHE);
+
+        Query query = new ConstantScoreQuery(new TermQuery(new Term("field", "even")));
+        assertEquals(5, count(searcher, query));
+        assertEquals(0, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.getCacheSize());
+        assertEquals(5, count(searcher, query));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(0.5, cache.getHitRate(), 0);
+        assertTrue(cache.ramBytesUsed() > 0);
+
+        cache.clear();
+        assertEquals(0, cache.getCacheSize());
+
+        reader.close();
+        writer.close();
+        directory.close();
+        cache.close();
+    }
+}
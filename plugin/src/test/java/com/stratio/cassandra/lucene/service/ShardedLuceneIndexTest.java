@@ -0,0 +1,173 @@
+/*
+ * Copyright 2015, Stratio.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.stratio.cassandra.lucene.service;
+
+import com.stratio.cassandra.lucene.IndexConfig;
+import org.apache.cassandra.db.DecoratedKey;
+import org.apache.cassandra.dht.IPartitioner;
+import org.apache.cassandra.dht.Murmur3Partitioner;
+import org.apache.cassandra.utils.ByteBufferUtil;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.SortedDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.util.BytesRef;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Andres de la Pena <adelapena@stratio.com>
+ */
+public class ShardedLuceneIndexTest {
+
+    private static final IPartitioner PARTITIONER = new Murmur3Partitioner();
+    private static final Sort INDEX_SORT = new Sort(new SortField("id", SortField.Type.STRING));
+    private static final Set<String> FIELDS = Collections.singleton("id");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private List<LuceneIndex> shards(int count) throws IOException {
+        Path path = Paths.get(folder.newFolder("directory" + UUID.randomUUID()).getPath());
+        List<LuceneIndex> shards = new ArrayList<>(count);
+        for (int shard = 0; shard < count; shard++) {
+            shards.add(LuceneIndexTest.index(ShardedLuceneIndex.shardName("sharded", shard, count),
+                                             ShardedLuceneIndex.shardPath(path, shard, count),
+                                             KeyFormat.CURRENT,
+                                             IndexConfig.SHARDS_OPTION,
+                                             String.valueOf(count)));
+        }
+        return shards;
+    }
+
+    private static DecoratedKey key(int i) {
+        return PARTITIONER.decorateKey(ByteBufferUtil.bytes(i));
+    }
+
+    @Test
+    public void testShard() throws IOException {
+        ShardedLuceneIndex index = new ShardedLuceneIndex("sharded", shards(4), PARTITIONER);
+        index.init(INDEX_SORT);
+        assertEquals(4, index.getShardCount());
+        assertEquals(64, index.getRangeCount());
+        assertEquals(63 % 4, index.shard(PARTITIONER.getMinimumToken()));
+        int[] counts = new int[4];
+        for (int i = 0; i < 4000; i++) {
+            counts[index.shard(key(i).getToken())]++;
+        }
+        for (int count : counts) {
+            assertTrue(count > 800);
+        }
+        index.delete();
+    }
+
+    @Test
+    public void testSingleShard() throws IOException {
+        ShardedLuceneIndex index = new ShardedLuceneIndex("sharded", shards(1), PARTITIONER);
+        index.init(INDEX_SORT);
+        assertEquals(1, index.getRangeCount());
+        assertEquals(0, index.shard(key(1).getToken()));
+        index.delete();
+    }
+
+    @Test
+    public void testSearch() throws IOException {
+        List<LuceneIndex> shards = shards(3);
+        ShardedLuceneIndex index = new ShardedLuceneIndex("sharded", shards, PARTITIONER);
+        index.init(INDEX_SORT);
+        for (int i = 0; i < 30; i++) {
+            String id = String.format("%02d", i);
+            String value = String.valueOf(i % 3);
+            Document document = new Document();
+            document.add(new StringField("id", id, Field.Store.YES));
+            document.add(new SortedDocValuesField("id", new BytesRef(id)));
+            document.add(new SortedDocValuesField("value", new BytesRef(value)));
+            index.upsert(key(i), new Term("id", id), document);
+        }
+        index.commit();
+        for (LuceneIndex shard : shards) {
+            shard.refresh();
+            assertTrue(shard.getNumDocs() > 0);
+        }
+        assertEquals(30, index.getNumDocs());
+
+        // Sort with ties between shards
+        Sort sort = new Sort(new SortField("value", SortField.Type.STRING));
+        List<String> ids = new ArrayList<>();
+        try (SearchSession session = index.session(new MatchAllDocsQuery(), sort, false)) {
+            ScoreDoc after = null;
+            Map<Document, ScoreDoc> page;
+            do {
+                page = session.search(after, 4, FIELDS);
+                for (Map.Entry<Document, ScoreDoc> entry : page.entrySet()) {
+                    ids.add(entry.getKey().get("id"));
+                    after = entry.getValue();
+                }
+            } while (page.size() == 4);
+        }
+        assertEquals(30, ids.size());
+        assertEquals(30, new HashSet<>(ids).size());
+        for (int i = 1; i < ids.size(); i++) {
+            assertTrue(Integer.parseInt(ids.get(i - 1)) % 3 <= Integer.parseInt(ids.get(i)) % 3);
+        }
+
+        // Index natural order
+        ids.clear();
+        try (SearchSession session = index.session(new MatchAllDocsQuery(), null, false)) {
+            ScoreDoc after = null;
+            Map<Document, ScoreDoc> page;
+            do {
+                page = session.search(after, 7, FIELDS);
+                for (Map.Entry<Document, ScoreDoc> entry : page.entrySet()) {
+                    ids.add(entry.getKey().get("id"));
+                    after = entry.getValue();
+                }
+            } while (page.size() == 7);
+        }
+        assertEquals(30, ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            assertEquals(String.format("%02d", i), ids.get(i));
+        }
+
+        index.truncate();
+        index.commit();
+        for (LuceneIndex shard : shards) {
+            shard.refresh();
+        }
+        assertEquals(0, index.getNumDocs());
+        index.delete();
+    }
+}
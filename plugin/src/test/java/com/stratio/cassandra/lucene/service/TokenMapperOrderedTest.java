@@ -0,0 +1,198 @@
+/*
+ * Copyright 2015, Stratio.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.stratio.cassandra.lucene.service;
+
+import org.apache.cassandra.db.BufferDecoratedKey;
+import org.apache.cassandra.dht.BigIntegerToken;
+import org.apache.cassandra.dht.ByteOrderedPartitioner;
+import org.apache.cassandra.dht.BytesToken;
+import org.apache.cassandra.dht.IPartitioner;
+import org.apache.cassandra.dht.OrderPreservingPartitioner;
+import org.apache.cassandra.dht.RandomPartitioner;
+import org.apache.cassandra.dht.StringToken;
+import org.apache.cassandra.dht.Token;
+import org.apache.cassandra.utils.ByteBufferUtil;
+import org.apache.lucene.analysis.core.KeywordAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.TermRangeQuery;
+import org.apache.lucene.store.RAMDirectory;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Andres de la Pena <adelapena@stratio.com>
+ */
+public class TokenMapperOrderedTest {
+
+    private static final int NUM_TOKENS = 50;
+
+    private static List<Token> tokens(IPartitioner partitioner, Token... tokens) {
+        List<Token> result = new ArrayList<>();
+        for (Token token : tokens) {
+            result.add(token);
+        }
+        for (int i = 0; i < NUM_TOKENS; i++) {
+            result.add(partitioner.getRandomToken());
+        }
+        return result;
+    }
+
+    private static IndexSearcher index(TokenMapperOrdered mapper, List<Token> tokens) throws IOException {
+        RAMDirectory directory = new RAMDirectory();
+        IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig(new KeywordAnalyzer()));
+        for (int i = 0; i < tokens.size(); i++) {
+            Document document = new Document();
+            mapper.addFields(document, new BufferDecoratedKey(tokens.get(i), ByteBufferUtil.bytes(i)));
+            document.add(new StoredField("id", i));
+            writer.addDocument(document);
+        }
+        writer.close();
+        return new IndexSearcher(DirectoryReader.open(directory));
+    }
+
+    private static Set<Integer> ids(IndexSearcher searcher, Query query) throws IOException {
+        Set<Integer> ids = new HashSet<>();
+        Query actualQuery = query == null ? new MatchAllDocsQuery() : query;
+        for (ScoreDoc scoreDoc : searcher.search(actualQuery, Integer.MAX_VALUE).scoreDocs) {
+            ids.add(searcher.doc(scoreDoc.doc).getField("id").numericValue().intValue());
+        }
+        return ids;
+    }
+
+    private static boolean accept(TokenMapper mapper,
+                                  Token token,
+                                  Token lower,
+                                  Token upper,
+                                  boolean includeLower,
+                                  boolean includeUpper) {
+        if (!mapper.isMinimum(lower) && (includeLower ? token.compareTo(lower) < 0 : token.compareTo(lower) <= 0)) {
+            return false;
+        }
+        return mapper.isMinimum(upper) || (includeUpper ? token.compareTo(upper) <= 0 : token.compareTo(upper) < 0);
+    }
+
+    private static void test(TokenMapperOrdered mapper, IPartitioner partitioner, List<Token> tokens)
+    throws IOException {
+        IndexSearcher searcher = index(mapper, tokens);
+
+        // Byte order is token order
+        for (Token token1 : tokens) {
+            for (Token token2 : tokens) {
+                assertEquals(Integer.signum(token1.compareTo(token2)),
+                             Integer.signum(mapper.bytesRef(token1).compareTo(mapper.bytesRef(token2))));
+            }
+        }
+
+        // Ranges are term ranges
+        List<Token> bounds = new ArrayList<>(tokens.subList(0, 10));
+        bounds.add(partitioner.getMinimumToken());
+        for (Token lower : bounds) {
+            for (Token upper : bounds) {
+                for (boolean includeLower : new boolean[]{true, false}) {
+                    for (boolean includeUpper : new boolean[]{true, false}) {
+                        Set<Integer> expected = new HashSet<>();
+                        for (int i = 0; i < tokens.size(); i++) {
+                            if (accept(mapper, tokens.get(i), lower, upper, includeLower, includeUpper)) {
+                                expected.add(i);
+                            }
+                        }
+                        Query query = mapper.query(lower, upper, includeLower, includeUpper);
+                        assertTrue(query == null || query instanceof TermRangeQuery);
+                        assertEquals(String.format("Range from %s to %s", lower, upper),
+                                     expected,
+                                     ids(searcher, query));
+                    }
+                }
+            }
+        }
+        assertEquals(1, ids(searcher, mapper.query(tokens.get(0))).size());
+
+        // Sort is token order
+        Sort sort = new Sort(mapper.sortFields());
+        Token last = null;
+        for (ScoreDoc scoreDoc : searcher.search(new MatchAllDocsQuery(), Integer.MAX_VALUE, sort).scoreDocs) {
+            Token token = tokens.get(searcher.doc(scoreDoc.doc).getField("id").numericValue().intValue());
+            if (last != null) {
+                assertTrue(last.compareTo(token) <= 0);
+            }
+            last = token;
+        }
+    }
+
+    @Test
+    public void testRandom() throws IOException {
+        IPartitioner partitioner = new RandomPartitioner();
+        List<Token> tokens = tokens(partitioner,
+                                    new BigIntegerToken(BigInteger.ZERO),
+                                    new BigIntegerToken(BigInteger.ONE),
+                                    new BigIntegerToken(BigInteger.valueOf(255)),
+                                    new BigIntegerToken(BigInteger.valueOf(256)),
+                                    new BigIntegerToken(RandomPartitioner.MAXIMUM));
+        test(new TokenMapperRandom(), partitioner, tokens);
+    }
+
+    @Test
+    public void testByteOrdered() throws IOException {
+        IPartitioner partitioner = new ByteOrderedPartitioner();
+        List<Token> tokens = tokens(partitioner,
+                                    new BytesToken(new byte[]{0}),
+                                    new BytesToken(new byte[]{0, 0}),
+                                    new BytesToken(new byte[]{1}),
+                                    new BytesToken(new byte[]{127}),
+                                    new BytesToken(new byte[]{-128}),
+                                    new BytesToken(new byte[]{-1, -1}));
+        test(new TokenMapperByteOrdered(), partitioner, tokens);
+    }
+
+    @Test
+    public void testOrderPreserving() throws IOException {
+        IPartitioner partitioner = new OrderPreservingPartitioner();
+        List<Token> tokens = tokens(partitioner,
+                                    new StringToken("\u0000"),
+                                    new StringToken("a"),
+                                    new StringToken("ab"),
+                                    new StringToken("ÿ"),
+                                    new StringToken("￿"),
+                                    new StringToken("😀"));
+        test(new TokenMapperOrderPreserving(), partitioner, tokens);
+    }
+
+    @Test
+    public void testMinimum() {
+        TokenMapperOrdered mapper = new TokenMapperRandom();
+        assertNull(mapper.query(RandomPartitioner.MINIMUM, RandomPartitioner.MINIMUM, true, false));
+        assertTrue(mapper.isMinimum(RandomPartitioner.MINIMUM));
+    }
+}
@@ -0,0 +1,232 @@
+/*
+ * Copyright 2015, Stratio.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.stratio.cassandra.lucene.util;
+
+import org.apache.cassandra.db.marshal.AbstractType;
+import org.apache.cassandra.db.marshal.AsciiType;
+import org.apache.cassandra.db.marshal.BooleanType;
+import org.apache.cassandra.db.marshal.BytesType;
+import org.apache.cassandra.db.marshal.DateType;
+import org.apache.cassandra.db.marshal.DecimalType;
+import org.apache.cassandra.db.marshal.DoubleType;
+import org.apache.cassandra.db.marshal.FloatType;
+import org.apache.cassandra.db.marshal.InetAddressType;
+import org.apache.cassandra.db.marshal.Int32Type;
+import org.apache.cassandra.db.marshal.IntegerType;
+import org.apache.cassandra.db.marshal.LexicalUUIDType;
+import org.apache.cassandra.db.marshal.LongType;
+import org.apache.cassandra.db.marshal.ReversedType;
+import org.apache.cassandra.db.marshal.TimeUUIDType;
+import org.apache.cassandra.db.marshal.TimestampType;
+import org.apache.cassandra.db.marshal.UTF8Type;
+import org.apache.cassandra.utils.ByteBufferUtil;
+import org.apache.cassandra.utils.UUIDGen;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.BytesRefBuilder;
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Andres de la Pena <adelapena@stratio.com>
+ */
+public class OrderedBytesTest {
+
+    private static final Random RANDOM = new Random(0);
+    private static final int NUM_VALUES = 200;
+
+    private static BytesRef encode(AbstractType<?> type, ByteBuffer value) {
+        BytesRefBuilder builder = new BytesRefBuilder();
+        OrderedBytes.append(builder, type, value);
+        return builder.toBytesRef();
+    }
+
+    private static void assertEncodedOrder(AbstractType<?> type, List<ByteBuffer> values) {
+        values.add(ByteBufferUtil.EMPTY_BYTE_BUFFER);
+        assertTrue(OrderedBytes.isSupported(type));
+        for (ByteBuffer value1 : values) {
+            for (ByteBuffer value2 : values) {
+                int expected = Integer.signum(type.compare(value1, value2));
+                int actual = Integer.signum(encode(type, value1).compareTo(encode(type, value2)));
+                assertEquals(String.format("Comparing %s with %s as %s",
+                                           ByteBufferUtil.bytesToHex(value1),
+                                           ByteBufferUtil.bytesToHex(value2),
+                                           type), expected, actual);
+            }
+        }
+    }
+
+    private static void assertBytesOrder(AbstractType<?> type, List<ByteBuffer> values) {
+        assertEncodedOrder(type, new ArrayList<>(values));
+        assertEncodedOrder(ReversedType.getInstance(type), new ArrayList<>(values));
+    }
+
+    private static <T> void assertOrder(AbstractType<T> type, List<T> values) {
+        List<ByteBuffer> decomposed = new ArrayList<>();
+        for (T value : values) {
+            decomposed.add(type.decompose(value));
+        }
+        assertBytesOrder(type, decomposed);
+    }
+
+    @Test
+    public void testBytes() {
+        List<ByteBuffer> values = new ArrayList<>();
+        for (int i = 0; i < NUM_VALUES; i++) {
+            byte[] bytes = new byte[RANDOM.nextInt(4)];
+            for (int j = 0; j < bytes.length; j++) {
+                bytes[j] = (byte) (RANDOM.nextInt(3) - 1);
+            }
+            values.add(ByteBuffer.wrap(bytes));
+        }
+        assertBytesOrder(BytesType.instance, values);
+    }
+
+    @Test
+    public void testText() {
+        List<String> values = new ArrayList<>();
+        for (String value : new String[]{"a", "a\u0000", "a\u0000b", "ab", "b", "ñ", "😀", "z"}) {
+            values.add(value);
+        }
+        assertOrder(UTF8Type.instance, values);
+        assertOrder(AsciiType.instance, values.subList(0, 5));
+    }
+
+    @Test
+    public void testInet() throws Exception {
+        List<InetAddress> values = new ArrayList<>();
+        for (String value : new String[]{"127.0.0.1", "192.168.0.1", "10.0.0.1", "::1", "fe80::1"}) {
+            values.add(InetAddress.getByName(value));
+        }
+        assertOrder(InetAddressType.instance, values);
+    }
+
+    @Test
+    public void testInt() {
+        List<Integer> values = new ArrayList<>();
+        values.add(Integer.MIN_VALUE);
+        values.add(Integer.MAX_VALUE);
+        for (int i = 0; i < NUM_VALUES; i++) {
+            values.add(RANDOM.nextInt());
+            values.add(RANDOM.nextInt(5) - 2);
+        }
+        assertOrder(Int32Type.instance, values);
+    }
+
+    @Test
+    public void testLong() {
+        List<Long> values = new ArrayList<>();
+        values.add(Long.MIN_VALUE);
+        values.add(Long.MAX_VALUE);
+        for (int i = 0; i < NUM_VALUES; i++) {
+            values.add(RANDOM.nextLong());
+            values.add((long) RANDOM.nextInt(5) - 2);
+        }
+        assertOrder(LongType.instance, values);
+    }
+
+    @Test
+    public void testDates() {
+        List<Date> values = new ArrayList<>();
+        for (int i = 0; i < NUM_VALUES; i++) {
+            values.add(new Date(RANDOM.nextLong()));
+        }
+        assertOrder(TimestampType.instance, values);
+        assertOrder(DateType.instance, values);
+    }
+
+    @Test
+    public void testFloat() {
+        List<Float> values = new ArrayList<>();
+        for (float value : new float[]{Float.NEGATIVE_INFINITY, -Float.MAX_VALUE, -1F, -Float.MIN_VALUE, -0F, 0F,
+                                       Float.MIN_VALUE, 1F, Float.MAX_VALUE, Float.POSITIVE_INFINITY, Float.NaN}) {
+            values.add(value);
+        }
+        for (int i = 0; i < NUM_VALUES; i++) {
+            values.add((RANDOM.nextFloat() - 0.5F) * RANDOM.nextInt(1000));
+        }
+        assertOrder(FloatType.instance, values);
+    }
+
+    @Test
+    public void testDouble() {
+        List<Double> values = new ArrayList<>();
+        for (double value : new double[]{Double.NEGATIVE_INFINITY, -Double.MAX_VALUE, -1D, -Double.MIN_VALUE, -0D,
+                                         0D, Double.MIN_VALUE, 1D, Double.MAX_VALUE, Double.POSITIVE_INFINITY,
+                                         Double.NaN}) {
+            values.add(value);
+        }
+        for (int i = 0; i < NUM_VALUES; i++) {
+            values.add((RANDOM.nextDouble() - 0.5D) * RANDOM.nextInt(1000));
+        }
+        assertOrder(DoubleType.instance, values);
+    }
+
+    @Test
+    public void testBoolean() {
+        List<ByteBuffer> values = new ArrayList<>();
+        values.add(BooleanType.instance.decompose(true));
+        values.add(BooleanType.instance.decompose(false));
+        values.add(ByteBuffer.wrap(new byte[]{2}));
+        assertBytesOrder(BooleanType.instance, values);
+    }
+
+    @Test
+    public void testTimeUUID() {
+        List<UUID> values = new ArrayList<>();
+        for (int i = 0; i < NUM_VALUES; i++) {
+            values.add(UUIDGen.getTimeUUID(RANDOM.nextInt(10)));
+            values.add(UUIDGen.getTimeUUID(Math.abs(RANDOM.nextLong()) >> 8));
+        }
+        assertOrder(TimeUUIDType.instance, values);
+    }
+
+    @Test
+    public void testLexicalUUID() {
+        List<UUID> values = new ArrayList<>();
+        for (int i = 0; i < NUM_VALUES; i++) {
+            values.add(new UUID(RANDOM.nextLong(), RANDOM.nextLong()));
+            values.add(new UUID(RANDOM.nextInt(3) - 1, RANDOM.nextInt(3) - 1));
+        }
+        assertOrder(LexicalUUIDType.instance, values);
+    }
+
+    @Test
+    public void testUnsupported() {
+        assertFalse(OrderedBytes.isSupported(IntegerType.instance));
+        assertFalse(OrderedBytes.isSupported(DecimalType.instance));
+        assertFalse(OrderedBytes.isSupported(ReversedType.getInstance(IntegerType.instance)));
+    }
+
+    @Test
+    public void testNextPrefix() {
+        assertEquals(new BytesRef(new byte[]{1, 3}), OrderedBytes.nextPrefix(new BytesRef(new byte[]{1, 2})));
+        assertEquals(new BytesRef(new byte[]{2}), OrderedBytes.nextPrefix(new BytesRef(new byte[]{1, -1})));
+        assertNull(OrderedBytes.nextPrefix(new BytesRef(new byte[]{-1, -1})));
+        assertNull(OrderedBytes.nextPrefix(new BytesRef()));
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2015, Stratio.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.stratio.cassandra.lucene.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Andres de la Pena <adelapena@stratio.com>
+ */
+public class RingBufferTest {
+
+    @Test
+    public void testCapacity() {
+        assertEquals(1, new RingBuffer<>(1).capacity());
+        assertEquals(2, new RingBuffer<>(2).capacity());
+        assertEquals(4, new RingBuffer<>(3).capacity());
+        assertEquals(64, new RingBuffer<>(50).capacity());
+        assertEquals(64, new RingBuffer<>(64).capacity());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCapacityZero() {
+        new RingBuffer<>(0);
+    }
+
+    @Test
+    public void testOfferPoll() {
+        RingBuffer<Integer> buffer = new RingBuffer<>(4);
+        assertTrue(buffer.isEmpty());
+        assertNull(buffer.poll());
+        for (int lap = 0; lap < 3; lap++) {
+            for (int i = 0; i < 4; i++) {
+                assertTrue(buffer.offer(i));
+            }
+            assertFalse(buffer.offer(4));
+            assertEquals(4, buffer.size());
+            for (int i = 0; i < 4; i++) {
+                assertEquals(i, (int) buffer.poll());
+            }
+            assertTrue(buffer.isEmpty());
+            assertEquals(0, buffer.size());
+        }
+    }
+
+    @Test
+    public void testDrainTo() {
+        RingBuffer<Integer> buffer = new RingBuffer<>(8);
+        for (int i = 0; i < 5; i++) {
+            buffer.offer(i);
+        }
+        List<Integer> drained = new ArrayList<>();
+        assertEquals(3, buffer.drainTo(drained, 3));
+        assertEquals(2, buffer.drainTo(drained, 10));
+        assertEquals(0, buffer.drainTo(drained, 10));
+        for (int i = 0; i < 5; i++) {
+            assertEquals(i, (int) drained.get(i));
+        }
+    }
+
+    @Test
+    public void testConcurrentProducers() throws InterruptedException {
+        final int numProducers = 4;
+        final int numElements = 20000;
+        final RingBuffer<int[]> buffer = new RingBuffer<>(16);
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Thread> producers = new ArrayList<>();
+        for (int p = 0; p < numProducers; p++) {
+            final int producer = p;
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        throw new RuntimeException(e);
+                    }
+                    for (int i = 0; i < numElements; i++) {
+                        while (!buffer.offer(new int[]{producer, i})) {
+                            Thread.yield();
+                        }
+                    }
+                }
+            });
+            thread.start();
+            producers.add(thread);
+        }
+        start.countDown();
+
+        // Elements from the same producer must be consumed in order
+        int[] next = new int[numProducers];
+        int consumed = 0;
+        while (consumed < numProducers * numElements) {
+            int[] element = buffer.poll();
+            if (element == null) {
+                Thread.yield();
+            } else {
+                assertEquals(next[element[0]]++, element[1]);
+                consumed++;
+            }
+        }
+        for (Thread thread : producers) {
+            thread.join();
+        }
+        assertTrue(buffer.isEmpty());
+    }
+}
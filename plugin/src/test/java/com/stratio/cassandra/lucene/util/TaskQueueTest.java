@@ -0,0 +1,163 @@
+/*
+ * Copyright 2015, Stratio.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.stratio.cassandra.lucene.util;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author Andres de la Pena <adelapena@stratio.com>
+ */
+public class TaskQueueTest {
+
+    @Test
+    public void testOrderPerId() {
+        TaskQueue queue = new TaskQueue("test-order", 4, 8);
+        final int numIds = 10;
+        final int numTasks = 1000;
+        final List<List<Integer>> executed = new ArrayList<>();
+        for (int id = 0; id < numIds; id++) {
+            executed.add(Collections.synchronizedList(new ArrayList<Integer>()));
+        }
+        for (int i = 0; i < numTasks; i++) {
+            for (int id = 0; id < numIds; id++) {
+                final List<Integer> idExecuted = executed.get(id);
+                final int task = i;
+                queue.submitAsynchronous(id, new Runnable() {
+                    @Override
+                    public void run() {
+                        idExecuted.add(task);
+                    }
+                });
+            }
+        }
+        queue.await();
+        for (List<Integer> idExecuted : executed) {
+            assertEquals(numTasks, idExecuted.size());
+            for (int i = 0; i < numTasks; i++) {
+                assertEquals(i, (int) idExecuted.get(i));
+            }
+        }
+        assertTrue(queue.getBatchCount() <= queue.getTaskCount());
+        assertTrue(queue.getMaxBatchSize() <= 8);
+        queue.close();
+    }
+
+    @Test
+    public void testAwait() {
+        TaskQueue queue = new TaskQueue("test-await", 2, 16);
+        final AtomicInteger count = new AtomicInteger();
+        for (int i = 0; i < 100; i++) {
+            queue.submitAsynchronous(i, new Runnable() {
+                @Override
+                public void run() {
+                    count.incrementAndGet();
+                }
+            });
+        }
+        queue.await();
+        assertEquals(100, count.get());
+        queue.close();
+    }
+
+    @Test
+    public void testAwaitDoesNotStopLaterTasks() throws InterruptedException {
+        final TaskQueue queue = new TaskQueue("test-await-later", 2, 16);
+        final CountDownLatch blocked = new CountDownLatch(1);
+        final CountDownLatch released = new CountDownLatch(1);
+        queue.submitAsynchronous(0, new Runnable() {
+            @Override
+            public void run() {
+                blocked.countDown();
+                Uninterruptibles.awaitUninterruptibly(released);
+            }
+        });
+        blocked.await();
+
+        // Wait for the blocked task in another thread
+        final CountDownLatch awaited = new CountDownLatch(1);
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                queue.await();
+                awaited.countDown();
+            }
+        }).start();
+
+        // Tasks in the other queue run while the barrier is pending
+        final CountDownLatch later = new CountDownLatch(1);
+        queue.submitAsynchronous(1, new Runnable() {
+            @Override
+            public void run() {
+                later.countDown();
+            }
+        });
+        assertTrue(later.await(10, TimeUnit.SECONDS));
+        assertEquals(1, awaited.getCount());
+
+        released.countDown();
+        assertTrue(awaited.await(10, TimeUnit.SECONDS));
+        queue.close();
+    }
+
+    @Test
+    public void testErrorDoesNotStopThread() {
+        TaskQueue queue = new TaskQueue("test-error", 1, 4);
+        final AtomicInteger count = new AtomicInteger();
+        for (int i = 0; i < 20; i++) {
+            final int task = i;
+            queue.submitAsynchronous(0, new Runnable() {
+                @Override
+                public void run() {
+                    if (task % 2 == 0) {
+                        throw new AssertionError("Failing task " + task);
+                    }
+                    count.incrementAndGet();
+                }
+            });
+        }
+        queue.await();
+        assertEquals(10, count.get());
+        queue.close();
+    }
+
+    @Test
+    public void testCloseWaitsForQueuedTasks() {
+        TaskQueue queue = new TaskQueue("test-close", 2, 16);
+        final AtomicInteger count = new AtomicInteger();
+        for (int i = 0; i < 10; i++) {
+            queue.submitAsynchronous(i, new Runnable() {
+                @Override
+                public void run() {
+                    Uninterruptibles.sleepUninterruptibly(10, TimeUnit.MILLISECONDS);
+                    count.incrementAndGet();
+                }
+            });
+        }
+        queue.close();
+        assertEquals(10, count.get());
+    }
+}